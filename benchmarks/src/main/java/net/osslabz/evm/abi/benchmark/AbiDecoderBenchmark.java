@@ -0,0 +1,257 @@
+package net.osslabz.evm.abi.benchmark;
+
+import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.DecodedCall;
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.decoder.MulticallDecoder;
+import net.osslabz.evm.abi.decoder.SignatureDatabase;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.AbiJsonReader;
+import org.bouncycastle.util.encoders.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the public decode paths of {@link AbiDecoder} on real mainnet calldata and logs.
+ * <p>
+ * Run with the GC profiler to get the allocation rate per decode:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar AbiDecoderBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AbiDecoderBenchmark {
+
+    // tx: https://etherscan.io/tx/0xde2b61c91842494ac208e25a2a64d99997c382f6aaf0719d6a719b5cff1f8a07
+    static final String SWAP_EXACT_TOKENS_FOR_ETH = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+
+    static final String EXACT_INPUT_SINGLE = "0x04e45aaf000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc20000000000000000000000002260fac5e5542a773aa44fbcfedf7c193bc2c59900000000000000000000000000000000000000000000000000000000000001f4000000000000000000000000bebc44782c7db0a1a60cb6fe97d0b483032ff1c70000000000000000000000000000000000000000000000000000000000067932000000000000000000000000000000000000000000000000000000000000002a0000000000000000000000000000000000000000000000000000000000000000";
+
+    // tx: https://etherscan.io/tx/0x731847de5b19b26039f283826ae5218ac7e070ed1b7fff689c2253a3035d8bd6
+    static final String MULTICALL = "0x5ae401dc0000000000000000000000000000000000000000000000000000000062ed6b0d000000000000000000000000000000000000000000000000000000000000004000000000000000000000000000000000000000000000000000000000000000020000000000000000000000000000000000000000000000000000000000000040000000000000000000000000000000000000000000000000000000000000016000000000000000000000000000000000000000000000000000000000000000e4472b43f3000000000000000000000000000000000000000000000000000008c75ee6fb3900000000000000000000000000000000000000000000000001cb1a1493ed3d4b0000000000000000000000000000000000000000000000000000000000000080000000000000000000000000000000000000000000000000000000000000000200000000000000000000000000000000000000000000000000000000000000020000000000000000000000009bbe10ba8ad02c2a54963b3e2a64f1754c90f411000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc200000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000004449404b7c00000000000000000000000000000000000000000000000001cb1a1493ed3d4b000000000000000000000000c0da58d88e967d883ef0540db458381e9f5e9c8000000000000000000000000000000000000000000000000000000000";
+
+    static final List<String> TRANSFER_TOPICS = Arrays.asList(
+            "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef",
+            "0x000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef",
+            "0x00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc");
+
+    static final String TRANSFER_DATA = "0x000000000000000000000000000000000000000000000000000000000edc4c64";
+
+    AbiDecoder uniswapV2Router02;
+    AbiDecoder uniswapV3SwapRouter02;
+    AbiDecoder zkSync;
+    AbiDecoder tetherToken;
+
+    // ~60kB commitBlocks call with nested tuple arrays
+    String commitBlocks;
+    byte[] commitBlocksBytes;
+
+    byte[] swapExactTokensForEthBytes;
+
+    // getAmountsOut return data: [10000000, 6283945273983148]
+    static final String GET_AMOUNTS_OUT_RESULT = "0x"
+            + "0000000000000000000000000000000000000000000000000000000000000020"
+            + "0000000000000000000000000000000000000000000000000000000000000002"
+            + "0000000000000000000000000000000000000000000000000000000000989680"
+            + "0000000000000000000000000000000000000000000000000016533705d800ac";
+
+    AbiDefinition.Function getAmountsOut;
+    byte[] getAmountsOutResult;
+
+    MulticallDecoder multicallDecoder;
+    byte[] multicallBytes;
+
+    // the transfer log's topics stored one after another
+    byte[] transferTopics;
+    byte[] transferData;
+
+    @Setup
+    public void setup() throws IOException {
+        this.uniswapV2Router02 = new AbiDecoder(abi("abiFiles/UniswapV2Router02.json"));
+        this.uniswapV3SwapRouter02 = new AbiDecoder(abi("abiFiles/UniswapV3SwapRouter02.json"));
+        this.zkSync = new AbiDecoder(abi("abiFiles/ZkSync.json"));
+        this.tetherToken = new AbiDecoder(abi("abiFiles/TetherToken.json"));
+        this.swapExactTokensForEthBytes = Hex.decode(SWAP_EXACT_TOKENS_FOR_ETH.substring(2));
+        this.getAmountsOut = this.uniswapV2Router02.getAbi().findFunction(f -> "getAmountsOut".equals(f.name));
+        this.getAmountsOutResult = Hex.decode(GET_AMOUNTS_OUT_RESULT.substring(2));
+        this.multicallDecoder = MulticallDecoder.builder().decoder(this.uniswapV3SwapRouter02).build();
+        this.multicallBytes = Hex.decode(MULTICALL.substring(2));
+        this.transferTopics = Hex.decode(String.join("", TRANSFER_TOPICS).replace("0x", ""));
+        this.transferData = Hex.decode(TRANSFER_DATA.substring(2));
+        this.commitBlocks = readString("abiFiles/zkSync-input/input_0xe35a7dceb1536dfbd819ab6f756e4dcb19ea09541df54abf0f40064ba1163981");
+        this.commitBlocksBytes = Hex.decode(this.commitBlocks.substring(2));
+    }
+
+    /**
+     * The functions of the ABIs above between 1M generated signatures. Built only for the benchmarks decoding
+     * without ABI, the others don't wait for it.
+     */
+    @State(Scope.Benchmark)
+    public static class Signatures {
+
+        SignatureDatabase database;
+
+        @Setup
+        public void setup() throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 1_000_000; i++) {
+                text.append("generated_").append(i).append("(uint256,address)\n");
+            }
+            for (String path : new String[]{"abiFiles/UniswapV2Router02.json", "abiFiles/UniswapV3SwapRouter02.json", "abiFiles/ZkSync.json",
+                    "abiFiles/TetherToken.json"}) {
+                for (AbiDefinition.Entry entry : abi(path)) {
+                    if (entry instanceof AbiDefinition.Function) {
+                        text.append(entry.formatSignature()).append('\n');
+                    }
+                }
+            }
+            Path file = Files.createTempFile("signatures", ".db");
+            file.toFile().deleteOnExit();
+            try (OutputStream out = Files.newOutputStream(file)) {
+                SignatureDatabase.build(new StringReader(text.toString()), out);
+            }
+            this.database = SignatureDatabase.open(file);
+        }
+    }
+
+    @Benchmark
+    public DecodedFunctionCall decodeStaticArguments() {
+        return this.uniswapV2Router02.decodeFunctionCall(SWAP_EXACT_TOKENS_FOR_ETH);
+    }
+
+    @Benchmark
+    public DecodedFunctionCall decodeStaticArgumentsFromBytes() {
+        return this.uniswapV2Router02.decodeFunctionCall(this.swapExactTokensForEthBytes);
+    }
+
+    @Benchmark
+    public DecodedCall decodeStaticArgumentsCompact() {
+        return this.uniswapV2Router02.decodeFunctionCallCompact(this.swapExactTokensForEthBytes);
+    }
+
+    @Benchmark
+    public DecodedFunctionCall decodeStaticArgumentsWithoutAbi(Signatures signatures) {
+        return signatures.database.decodeFunctionCall(this.swapExactTokensForEthBytes, 0, this.swapExactTokensForEthBytes.length);
+    }
+
+    @Benchmark
+    public DecodedCall decodeStaticArgumentsWithoutAbiCompact(Signatures signatures) {
+        return signatures.database.decodeFunctionCallCompact(this.swapExactTokensForEthBytes, 0, this.swapExactTokensForEthBytes.length);
+    }
+
+    @Benchmark
+    public DecodedFunctionCall.Param decodeSingleParamLazy() {
+        return this.uniswapV2Router02.decodeFunctionCallLazy(this.swapExactTokensForEthBytes, 0, this.swapExactTokensForEthBytes.length).getParam("to");
+    }
+
+    @Benchmark
+    public DecodedFunctionCall decodeStaticTuple() {
+        return this.uniswapV3SwapRouter02.decodeFunctionCall(EXACT_INPUT_SINGLE);
+    }
+
+    @Benchmark
+    public DecodedFunctionCall decodeNestedTupleArrays() {
+        return this.zkSync.decodeFunctionCall(this.commitBlocks);
+    }
+
+    @Benchmark
+    public DecodedFunctionCall decodeNestedTupleArraysFromBytes() {
+        return this.zkSync.decodeFunctionCall(this.commitBlocksBytes);
+    }
+
+    @Benchmark
+    public List<DecodedFunctionCall.Param> decodeNestedTupleArraysAllParams() {
+        return this.zkSync.decodeFunctionCall(this.commitBlocksBytes).getParamList();
+    }
+
+    @Benchmark
+    public DecodedCall decodeNestedTupleArraysCompact() {
+        return this.zkSync.decodeFunctionCallCompact(this.commitBlocksBytes);
+    }
+
+    @Benchmark
+    public List<DecodedFunctionCall> decodeMulticall() {
+        return this.uniswapV3SwapRouter02.decodeFunctionsCalls(MULTICALL);
+    }
+
+    @Benchmark
+    public List<MulticallDecoder.SubCall> decodeMulticallSlices() {
+        return this.multicallDecoder.decode(null, this.multicallBytes, 0, this.multicallBytes.length);
+    }
+
+    @Benchmark
+    public List<?> decodeResultByName() {
+        return this.uniswapV2Router02.getAbi().findFunction(f -> "getAmountsOut".equals(f.name)).decodeResult(this.getAmountsOutResult);
+    }
+
+    @Benchmark
+    public List<?> decodeReturnData() {
+        return this.uniswapV2Router02.decodeReturnData(this.getAmountsOut.selector(), this.getAmountsOutResult, 0, this.getAmountsOutResult.length);
+    }
+
+    @Benchmark
+    public DecodedFunctionCall decodeTransferLog() {
+        return this.tetherToken.decodeLogEvent(TRANSFER_TOPICS, TRANSFER_DATA);
+    }
+
+    @Benchmark
+    public DecodedFunctionCall decodeTransferLogFromBytes() {
+        return this.tetherToken.decodeLogEvent(this.transferTopics, 0, 3, this.transferData, 0, this.transferData.length);
+    }
+
+    @Benchmark
+    public DecodedCall decodeTransferLogCompact() {
+        return this.tetherToken.decodeLogEventCompact(this.transferTopics, 0, 3, this.transferData, 0, this.transferData.length);
+    }
+
+    static InputStream resource(String path) {
+        return Objects.requireNonNull(AbiDecoderBenchmark.class.getClassLoader().getResourceAsStream(path), path);
+    }
+
+    /**
+     * Reads the ABI like {@link AbiDecoder#AbiDecoder(InputStream)}, but closes the stream.
+     */
+    static AbiDefinition abi(String path) throws IOException {
+        try (InputStream in = resource(path)) {
+            return AbiJsonReader.read(in);
+        }
+    }
+
+    static String readString(String path) throws IOException {
+        try (InputStream in = resource(path)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package net.osslabz.evm.abi.benchmark;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
+import net.osslabz.evm.abi.definition.CalldataTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link AbiDefinition.Function#encode(Object...)} with encoding into a reused buffer.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar AbiEncoderBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AbiEncoderBenchmark {
+
+    AbiDefinition.Function swapExactTokensForEth;
+    Object[] swapArgs;
+
+    AbiDefinition.Function transfer;
+    Object[] transferArgs;
+
+    CalldataTemplate swapTemplate;
+    long deadline;
+
+    byte[] buffer = new byte[1024];
+
+    @Setup
+    public void setup() throws IOException {
+        this.swapExactTokensForEth = AbiDecoderBenchmark.abi("abiFiles/UniswapV2Router02.json")
+                .findFunction(f -> "swapExactTokensForETH".equals(f.name));
+        this.swapArgs = new Object[]{BigInteger.valueOf(10_000_000), new BigInteger("6283945273983148"),
+                Arrays.asList("0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48", "0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2"),
+                "0xd4cf8e47beac55b42ae58991785fa326d9384bd1", 1659426897L};
+
+        this.transfer = AbiDecoderBenchmark.abi("abiFiles/TetherToken.json")
+                .findFunction(f -> "transfer".equals(f.name));
+        this.transferArgs = new Object[]{Address.fromHex("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc"), 249318500L};
+        this.swapTemplate = this.swapExactTokensForEth.template(this.swapArgs);
+    }
+
+    @Benchmark
+    public byte[] encodeDynamicArguments() {
+        return this.swapExactTokensForEth.encode(this.swapArgs);
+    }
+
+    @Benchmark
+    public int encodeDynamicArgumentsInto() {
+        return this.swapExactTokensForEth.encodeInto(this.buffer, 0, this.swapArgs);
+    }
+
+    @Benchmark
+    public byte[] encodeStaticArguments() {
+        return this.transfer.encode(this.transferArgs);
+    }
+
+    @Benchmark
+    public int encodeStaticArgumentsInto() {
+        return this.transfer.encodeInto(this.buffer, 0, this.transferArgs);
+    }
+
+    @Benchmark
+    public int patchTemplate() {
+        return this.swapTemplate.set(0, 10_000_000L).set(4, ++this.deadline).writeTo(this.buffer, 0);
+    }
+}
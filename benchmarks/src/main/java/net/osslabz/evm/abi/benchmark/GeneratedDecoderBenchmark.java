@@ -0,0 +1,97 @@
+package net.osslabz.evm.abi.benchmark;
+
+import net.osslabz.evm.abi.codegen.GenerateDecoder;
+import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.CallBinding;
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.decoder.DecoderOptions;
+import net.osslabz.evm.abi.definition.Address;
+import org.bouncycastle.util.encoders.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the generic {@link AbiDecoder} with the decoders generated from the same ABIs by
+ * {@link net.osslabz.evm.abi.codegen.DecoderProcessor} at build time and with {@link CallBinding}s to plain classes.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar GeneratedDecoderBenchmark -prof gc
+ * </pre>
+ */
+@GenerateDecoder(abi = "abiFiles/UniswapV2Router02.json")
+@GenerateDecoder(abi = "abiFiles/UniswapV3SwapRouter02.json")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratedDecoderBenchmark {
+
+    AbiDecoder uniswapV2Router02;
+    AbiDecoder uniswapV3SwapRouter02;
+
+    CallBinding<Swap> swapBinding;
+
+    byte[] swapExactTokensForEth;
+    byte[] exactInputSingle;
+
+    @Setup
+    public void setup() throws IOException {
+        DecoderOptions options = DecoderOptions.builder().addressFormat(DecoderOptions.AddressFormat.ADDRESS).build();
+        this.uniswapV2Router02 = new AbiDecoder(AbiDecoderBenchmark.abi("abiFiles/UniswapV2Router02.json"), options);
+        this.uniswapV3SwapRouter02 = new AbiDecoder(AbiDecoderBenchmark.abi("abiFiles/UniswapV3SwapRouter02.json"), options);
+        this.swapBinding = this.uniswapV2Router02.bind("swapExactTokensForETH", Swap.class);
+        this.swapExactTokensForEth = Hex.decode(AbiDecoderBenchmark.SWAP_EXACT_TOKENS_FOR_ETH.substring(2));
+        this.exactInputSingle = Hex.decode(AbiDecoderBenchmark.EXACT_INPUT_SINGLE.substring(2));
+    }
+
+    @Benchmark
+    public DecodedFunctionCall swapExactTokensForEthGeneric() {
+        return this.uniswapV2Router02.decodeFunctionCall(this.swapExactTokensForEth);
+    }
+
+    @Benchmark
+    public UniswapV2Router02Decoder.SwapExactTokensForETHCall swapExactTokensForEthGenerated() {
+        return UniswapV2Router02Decoder.decodeSwapExactTokensForETHCall(this.swapExactTokensForEth);
+    }
+
+    @Benchmark
+    public Object swapExactTokensForEthGeneratedDispatch() {
+        return UniswapV2Router02Decoder.decodeFunctionCall(this.swapExactTokensForEth);
+    }
+
+    @Benchmark
+    public Swap swapExactTokensForEthBound() {
+        return this.swapBinding.decodeFunctionCall(this.swapExactTokensForEth);
+    }
+
+    @Benchmark
+    public DecodedFunctionCall exactInputSingleGeneric() {
+        return this.uniswapV3SwapRouter02.decodeFunctionCall(this.exactInputSingle);
+    }
+
+    @Benchmark
+    public UniswapV3SwapRouter02Decoder.ExactInputSingleCall exactInputSingleGenerated() {
+        return UniswapV3SwapRouter02Decoder.decodeExactInputSingleCall(this.exactInputSingle);
+    }
+
+    public static class Swap {
+        long amountIn;
+        BigInteger amountOutMin;
+        Address[] path;
+        Address to;
+        long deadline;
+    }
+}
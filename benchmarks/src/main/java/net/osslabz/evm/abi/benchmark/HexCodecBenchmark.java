@@ -0,0 +1,89 @@
+package net.osslabz.evm.abi.benchmark;
+
+import net.osslabz.evm.abi.util.HexCodec;
+import org.bouncycastle.util.encoders.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HexCodec} with Bouncy Castle's {@link Hex} on 1 KB of call data, decoded from a <code>0x</code>
+ * prefixed string resp. encoded with prefix.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar HexCodecBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HexCodecBenchmark {
+
+    byte[] data;
+    String hex;
+    byte[] hexAscii;
+
+    byte[] decodeBuffer;
+    byte[] encodeBuffer;
+
+    @Setup
+    public void setup() {
+        this.data = new byte[1024];
+        new Random(42).nextBytes(this.data);
+        this.hex = "0x" + Hex.toHexString(this.data);
+        this.hexAscii = this.hex.getBytes(StandardCharsets.US_ASCII);
+        this.decodeBuffer = new byte[this.data.length];
+        this.encodeBuffer = new byte[2 * this.data.length];
+    }
+
+    @Benchmark
+    public byte[] decodeBouncyCastle() {
+        return Hex.decode(this.hex.substring(2));
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return HexCodec.decode(this.hex);
+    }
+
+    @Benchmark
+    public byte[] decodeIntoBuffer() {
+        HexCodec.decode(this.hex, 0, this.hex.length(), this.decodeBuffer, 0);
+        return this.decodeBuffer;
+    }
+
+    @Benchmark
+    public byte[] decodeAsciiIntoBuffer() {
+        HexCodec.decode(this.hexAscii, 0, this.hexAscii.length, this.decodeBuffer, 0);
+        return this.decodeBuffer;
+    }
+
+    @Benchmark
+    public String encodeBouncyCastle() {
+        return "0x" + Hex.toHexString(this.data);
+    }
+
+    @Benchmark
+    public String encode() {
+        return HexCodec.encodePrefixed(this.data);
+    }
+
+    @Benchmark
+    public byte[] encodeIntoBuffer() {
+        HexCodec.encode(this.data, 0, this.data.length, this.encodeBuffer, 0);
+        return this.encodeBuffer;
+    }
+}
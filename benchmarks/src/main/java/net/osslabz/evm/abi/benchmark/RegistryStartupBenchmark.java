@@ -0,0 +1,94 @@
+package net.osslabz.evm.abi.benchmark;
+
+import net.osslabz.evm.abi.decoder.AbiRegistry;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.AbiJsonReader;
+import net.osslabz.evm.abi.definition.AbiSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a registry from ABI JSON with loading it from an {@link AbiSnapshot}, and reading big ABIs with
+ * data binding with the streaming {@link AbiJsonReader}.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar RegistryStartupBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryStartupBenchmark {
+
+    static final String[] ABI_FILES = {"TetherToken.json", "UniswapV2Router02.json", "UniswapV3Router.json", "UniswapV3SwapRouter.json",
+            "UniswapV3SwapRouter02.json", "ZkSync.json", "SereshForwarder.json"};
+
+    List<String> json = new ArrayList<>();
+    ByteBuffer snapshot;
+
+    byte[] zkSync;
+    byte[] swapRouter02;
+
+    @Setup
+    public void setup() throws IOException {
+        AbiRegistry.AbiRegistryBuilder builder = AbiRegistry.builder();
+        for (String file : ABI_FILES) {
+            String abi = AbiDecoderBenchmark.readString("abiFiles/" + file);
+            this.json.add(abi);
+            builder.abi(AbiDefinition.fromJson(abi));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.build().toSnapshot().write(out);
+        this.snapshot = ByteBuffer.allocateDirect(out.size());
+        this.snapshot.put(out.toByteArray()).flip();
+
+        this.zkSync = AbiDecoderBenchmark.readString("abiFiles/ZkSync.json").getBytes(StandardCharsets.UTF_8);
+        this.swapRouter02 = AbiDecoderBenchmark.readString("abiFiles/UniswapV3SwapRouter02.json").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void readAbiDataBinding(Blackhole blackhole) {
+        blackhole.consume(AbiDefinition.fromJson(new ByteArrayInputStream(this.zkSync)));
+        blackhole.consume(AbiDefinition.fromJson(new ByteArrayInputStream(this.swapRouter02)));
+    }
+
+    @Benchmark
+    public void readAbiStreaming(Blackhole blackhole) throws IOException {
+        blackhole.consume(AbiJsonReader.read(new ByteArrayInputStream(this.zkSync)));
+        blackhole.consume(AbiJsonReader.read(new ByteArrayInputStream(this.swapRouter02)));
+    }
+
+    @Benchmark
+    public AbiRegistry loadJson() {
+        AbiRegistry.AbiRegistryBuilder builder = AbiRegistry.builder();
+        for (String abi : this.json) {
+            builder.abi(AbiDefinition.fromJson(abi));
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public AbiRegistry loadSnapshot() {
+        return AbiRegistry.fromSnapshot(AbiSnapshot.read(this.snapshot));
+    }
+}
@@ -0,0 +1,318 @@
+package net.osslabz.evm.abi.bulk;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Value;
+import net.osslabz.evm.abi.decoder.AbiRegistry;
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * Decodes large exports of transactions and logs, one record per line.
+ * <p>
+ * The input is read sequentially from a plain or gzip compressed file (or a memory-mapped plain file) and split into
+ * batches of lines. Batches are parsed and decoded in parallel, but at most <code>2 * parallelism</code> batches are in
+ * flight, so the heap usage doesn't depend on the size of the input. Records are passed to the {@link RecordSink} in
+ * input order on the calling thread.
+ * <p>
+ * If a checkpoint file is configured the position in the input (and the size of the output) is stored every
+ * {@link #checkpointInterval} lines. A run with an existing checkpoint file resumes after the last checkpoint.
+ * <pre>
+ * BulkDecoder.builder()
+ *         .registry(registry)
+ *         .checkpoint(Paths.get("transactions.checkpoint"))
+ *         .build()
+ *         .decode(Paths.get("transactions.jsonl.gz"), Paths.get("decoded.jsonl"));
+ * </pre>
+ */
+@Getter
+@Builder
+public class BulkDecoder {
+
+    public enum Format {
+        /**
+         * one JSON object per line, only <code>input</code>, <code>to</code>, <code>topics</code>, <code>data</code>
+         * and <code>address</code> are read
+         */
+        JSONL,
+        /**
+         * comma separated with a header row naming the columns like the JSON fields, topics are separated by any
+         * non-hex character
+         */
+        CSV
+    }
+
+    @Value
+    public static class Summary {
+        /**
+         * lines read in this run, without the CSV header
+         */
+        long lines;
+        long decoded;
+        /**
+         * lines whose selector resp. topic isn't known or without call data
+         */
+        long unknown;
+        long failed;
+    }
+
+    private final AbiRegistry registry;
+
+    @Builder.Default
+    private final Format format = Format.JSONL;
+
+    @Builder.Default
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Builder.Default
+    private final int batchSize = 1000;
+
+    /**
+     * map uncompressed input files into memory instead of reading them through a buffer
+     */
+    private final boolean memoryMapped;
+
+    /**
+     * file storing the position of the run, <code>null</code> to neither store nor resume a position
+     */
+    private final Path checkpoint;
+
+    @Builder.Default
+    private final long checkpointInterval = 100_000;
+
+    /**
+     * executor to decode on, a fixed thread pool of {@link #parallelism} threads is used for each run if
+     * <code>null</code>
+     */
+    private final Executor executor;
+
+    /**
+     * Decodes the input into a JSON lines file, see {@link JsonLinesSink}. When resuming, the output is truncated to
+     * its size at the checkpoint and appended to, otherwise it's overwritten. The output is forced to the storage
+     * device before each checkpoint is written.
+     *
+     * @throws IllegalStateException if the checkpoint wasn't written by a run into a file or the output is shorter
+     *                               than at the checkpoint
+     */
+    public Summary decode(Path input, Path output) throws IOException {
+        Checkpoint start = Checkpoint.read(this.checkpoint);
+        if (start.getOutput() < 0) {
+            throw new IllegalStateException("Checkpoint " + this.checkpoint + " was written by a run into a custom sink, it can't resume the output file "
+                    + output + ".");
+        }
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() < start.getOutput()) {
+                throw new IllegalStateException("Output " + output + " has " + channel.size() + " bytes, but had " + start.getOutput()
+                        + " at the checkpoint " + this.checkpoint + ".");
+            }
+            channel.truncate(start.getOutput());
+            channel.position(start.getOutput());
+            try (JsonLinesSink sink = new JsonLinesSink(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+                return run(input, sink, start, () -> start.getOutput() + sink.getBytesWritten(), channel);
+            }
+        }
+    }
+
+    /**
+     * Decodes the input into the sink. When resuming, the records after the last checkpoint are written again.
+     */
+    public Summary decode(Path input, RecordSink sink) throws IOException {
+        return run(input, sink, Checkpoint.read(this.checkpoint), () -> -1, null);
+    }
+
+    /**
+     * @param channel channel of the output file, forced before each checkpoint, <code>null</code> for custom sinks
+     */
+    private Summary run(Path input, RecordSink sink, Checkpoint start, LongSupplier outputPosition, FileChannel channel) throws IOException {
+        if (this.registry == null) {
+            throw new IllegalStateException("No registry set.");
+        }
+        RecordParser parser = this.format == Format.CSV ? RecordParser.csv(header(input)) : RecordParser.jsonLines();
+
+        ExecutorService ownExecutor = this.executor == null ? Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread thread = new Thread(r, "bulk-decoder");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        Executor pool = ownExecutor == null ? this.executor : ownExecutor;
+
+        Progress progress = new Progress(sink, outputPosition, channel);
+        ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+        long firstLine;
+        try (LineSource source = LineSource.open(input, start.getOffset(), this.memoryMapped)) {
+            long line = start.getLine();
+            if (this.format == Format.CSV && line == 0) {
+                source.next();
+                line++;
+            }
+            firstLine = line;
+            progress.line = line;
+            while (true) {
+                Batch batch = new Batch(line + 1, this.batchSize);
+                byte[] next;
+                while (batch.count < this.batchSize && (next = source.next()) != null) {
+                    batch.lines[batch.count++] = next;
+                }
+                if (batch.count == 0) {
+                    break;
+                }
+                line += batch.count;
+                batch.endOffset = source.offset();
+                batch.endLine = line;
+                batch.records = CompletableFuture.supplyAsync(() -> batch.decode(parser, this.registry), pool);
+                inFlight.add(batch);
+                if (inFlight.size() >= 2 * this.parallelism) {
+                    progress.write(inFlight.poll());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                progress.write(inFlight.poll());
+            }
+            progress.checkpoint();
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdownNow();
+            }
+        }
+        return new Summary(progress.line - firstLine, progress.decoded, progress.unknown, progress.failed);
+    }
+
+    private byte[] header(Path input) throws IOException {
+        try (LineSource source = LineSource.open(input, 0, false)) {
+            byte[] header = source.next();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV input " + input + " has no header.");
+            }
+            return header;
+        }
+    }
+
+    private final class Progress {
+        private final RecordSink sink;
+        private final LongSupplier outputPosition;
+        private final FileChannel channel;
+        private long line;
+        private long offset = -1;
+        private long sinceCheckpoint;
+        private long decoded;
+        private long unknown;
+        private long failed;
+
+        Progress(RecordSink sink, LongSupplier outputPosition, FileChannel channel) {
+            this.sink = sink;
+            this.outputPosition = outputPosition;
+            this.channel = channel;
+        }
+
+        void write(Batch batch) throws IOException {
+            BulkRecord[] records;
+            try {
+                records = batch.records.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decoding line " + batch.firstLine + ".");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to decode line " + batch.firstLine + ".", e.getCause());
+            }
+            for (BulkRecord record : records) {
+                if (record == null) {
+                    continue;
+                }
+                if (record.getError() != null) {
+                    this.failed++;
+                } else if (record.getDecoded() != null) {
+                    this.decoded++;
+                } else {
+                    this.unknown++;
+                }
+                this.sink.write(record);
+            }
+            this.line = batch.endLine;
+            this.offset = batch.endOffset;
+            this.sinceCheckpoint += batch.count;
+            if (this.sinceCheckpoint >= BulkDecoder.this.checkpointInterval) {
+                checkpoint();
+            }
+        }
+
+        void checkpoint() throws IOException {
+            this.sink.flush();
+            if (BulkDecoder.this.checkpoint != null && this.offset >= 0) {
+                // the checkpoint must not claim output that a crash could still lose
+                if (this.channel != null) {
+                    this.channel.force(false);
+                }
+                new Checkpoint(this.offset, this.line, this.outputPosition.getAsLong()).write(BulkDecoder.this.checkpoint);
+            }
+            this.sinceCheckpoint = 0;
+        }
+    }
+
+    private static final class Batch {
+        final long firstLine;
+        final byte[][] lines;
+        int count;
+        long endOffset;
+        long endLine;
+        CompletableFuture<BulkRecord[]> records;
+
+        Batch(long firstLine, int size) {
+            this.firstLine = firstLine;
+            this.lines = new byte[size][];
+        }
+
+        /**
+         * @return a record per line, <code>null</code> for blank lines
+         */
+        BulkRecord[] decode(RecordParser parser, AbiRegistry registry) {
+            BulkRecord[] records = new BulkRecord[this.count];
+            for (int i = 0; i < this.count; i++) {
+                if (!isBlank(this.lines[i])) {
+                    records[i] = decode(this.firstLine + i, this.lines[i], parser, registry);
+                }
+                this.lines[i] = null;
+            }
+            return records;
+        }
+
+        private static BulkRecord decode(long line, byte[] text, RecordParser parser, AbiRegistry registry) {
+            BulkRecord.Kind kind = null;
+            try {
+                RecordParser.Fields fields = parser.parse(text);
+                kind = fields.kind();
+                if (kind == BulkRecord.Kind.CALL) {
+                    int digits = fields.input.length() - HexCodec.prefixLength(fields.input, 0, fields.input.length());
+                    // plain transfers don't have a selector
+                    return new BulkRecord(line, kind, digits < 8 ? null : registry.decodeFunctionCall(fields.to, fields.input), null);
+                }
+                return new BulkRecord(line, kind, fields.topics.isEmpty() ? null
+                        : registry.decodeLogEvent(fields.address, fields.topics, fields.data == null ? "" : fields.data), null);
+            } catch (IOException | RuntimeException e) {
+                return new BulkRecord(line, kind, null, e.getMessage() == null ? e.toString() : e.getMessage());
+            }
+        }
+
+        private static boolean isBlank(byte[] line) {
+            for (byte b : line) {
+                if (b != ' ' && b != '\t') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package net.osslabz.evm.abi.bulk;
+
+import lombok.Value;
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+
+/**
+ * A decoded line of a bulk input.
+ * <p>
+ * If the selector resp. topic isn't known (or the transaction has no call data) both {@link #decoded} and
+ * {@link #error} are <code>null</code>.
+ */
+@Value
+public class BulkRecord {
+
+    public enum Kind {
+        /**
+         * a transaction, decoded from its <code>input</code>
+         */
+        CALL,
+        /**
+         * a log, decoded from its <code>topics</code> and <code>data</code>
+         */
+        LOG
+    }
+
+    /**
+     * 1-based line number in the input file
+     */
+    long line;
+
+    /**
+     * <code>null</code> if the line couldn't be parsed
+     */
+    Kind kind;
+
+    DecodedFunctionCall decoded;
+
+    /**
+     * message of the exception thrown while parsing or decoding the line
+     */
+    String error;
+}
@@ -0,0 +1,53 @@
+package net.osslabz.evm.abi.bulk;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Position of a bulk run: everything before {@link #offset} (resp. up to {@link #line}) has been written to the
+ * output, which was {@link #output} bytes long at that point (-1 for custom sinks).
+ */
+@Value
+class Checkpoint {
+
+    static final Checkpoint START = new Checkpoint(0, 0, 0);
+
+    long offset;
+    long line;
+    long output;
+
+    static Checkpoint read(Path file) throws IOException {
+        if (file == null || !Files.exists(file)) {
+            return START;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return new Checkpoint(Long.parseLong(properties.getProperty("offset")), Long.parseLong(properties.getProperty("line")),
+                Long.parseLong(properties.getProperty("output")));
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file first and moves it over the old one, so a crash leaves either the
+     * old or the new checkpoint.
+     */
+    void write(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("offset", Long.toString(this.offset));
+        properties.setProperty("line", Long.toString(this.line));
+        properties.setProperty("output", Long.toString(this.output));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,124 @@
+package net.osslabz.evm.abi.bulk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Writes one JSON object per record and line:
+ * <pre>
+ * {"line":1,"kind":"CALL","name":"transfer","params":[{"name":"_to","type":"address","value":"0x..."},...]}
+ * {"line":2,"kind":"LOG","error":"..."}
+ * {"line":3,"kind":"CALL"}
+ * </pre>
+ * Numbers are written as JSON numbers, bytes as <code>0x</code> prefixed hex and arrays and tuples as JSON arrays.
+ */
+public class JsonLinesSink implements RecordSink {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().setRootValueSeparator(null);
+
+    private final CountingOutputStream out;
+    private final JsonGenerator generator;
+
+    public JsonLinesSink(OutputStream out) throws IOException {
+        this.out = new CountingOutputStream(out);
+        this.generator = JSON_FACTORY.createGenerator(this.out);
+    }
+
+    @Override
+    public void write(BulkRecord record) throws IOException {
+        this.generator.writeStartObject();
+        this.generator.writeNumberField("line", record.getLine());
+        if (record.getKind() != null) {
+            this.generator.writeStringField("kind", record.getKind().name());
+        }
+        if (record.getError() != null) {
+            this.generator.writeStringField("error", record.getError());
+        } else if (record.getDecoded() != null) {
+            this.generator.writeStringField("name", record.getDecoded().getName());
+            this.generator.writeArrayFieldStart("params");
+            for (DecodedFunctionCall.Param param : record.getDecoded().getParamList()) {
+                this.generator.writeStartObject();
+                this.generator.writeStringField("name", param.getName());
+                this.generator.writeStringField("type", param.getType());
+                this.generator.writeFieldName("value");
+                writeValue(param.getValue());
+                this.generator.writeEndObject();
+            }
+            this.generator.writeEndArray();
+        }
+        this.generator.writeEndObject();
+        this.generator.writeRaw('\n');
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            this.generator.writeNull();
+        } else if (value instanceof BigInteger) {
+            this.generator.writeNumber((BigInteger) value);
+        } else if (value instanceof Boolean) {
+            this.generator.writeBoolean((Boolean) value);
+        } else if (value instanceof byte[]) {
+            this.generator.writeString(HexCodec.encodePrefixed((byte[]) value));
+        } else if (value instanceof Object[]) {
+            this.generator.writeStartArray();
+            for (Object element : (Object[]) value) {
+                writeValue(element);
+            }
+            this.generator.writeEndArray();
+        } else if (value instanceof List) {
+            this.generator.writeStartArray();
+            for (Object element : (List<?>) value) {
+                writeValue(element);
+            }
+            this.generator.writeEndArray();
+        } else {
+            this.generator.writeString(value.toString());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.generator.flush();
+    }
+
+    /**
+     * @return number of bytes written to the underlying stream, only accurate after {@link #flush()}
+     */
+    public long getBytesWritten() {
+        return this.out.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.generator.close();
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
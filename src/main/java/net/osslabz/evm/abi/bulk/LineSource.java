@@ -0,0 +1,229 @@
+package net.osslabz.evm.abi.bulk;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads an input file line by line as UTF-8 bytes, the line terminator (<code>\n</code> or <code>\r\n</code>) is
+ * stripped. Offsets are positions in the uncompressed content.
+ */
+abstract class LineSource implements Closeable {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    /**
+     * @return the next line or <code>null</code> at the end of the input
+     */
+    abstract byte[] next() throws IOException;
+
+    /**
+     * @return offset of the line returned by the next call of {@link #next()}
+     */
+    abstract long offset();
+
+    /**
+     * Opens the file at <code>offset</code>, which must be the start of a line. Gzip compressed files are detected by
+     * their header, they're always read as a stream.
+     *
+     * @param memoryMapped map uncompressed files into memory instead of reading them through a buffer
+     */
+    static LineSource open(Path file, long offset, boolean memoryMapped) throws IOException {
+        if (isGzip(file)) {
+            InputStream in = new GZIPInputStream(Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), 1 << 16);
+            skip(in, offset);
+            return new StreamLineSource(in, offset);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (memoryMapped) {
+            return new MappedLineSource(channel, offset);
+        }
+        channel.position(offset);
+        return new StreamLineSource(Channels.newInputStream(channel), offset);
+    }
+
+    private static boolean isGzip(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(2);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the two magic bytes
+            }
+            return header.position() == 2 && ((header.get(0) & 0xFF) | (header.get(1) & 0xFF) << 8) == GZIP_MAGIC;
+        }
+    }
+
+    private static void skip(InputStream in, long count) throws IOException {
+        byte[] discard = new byte[1 << 16];
+        long remaining = count;
+        while (remaining > 0) {
+            int read = in.read(discard, 0, (int) Math.min(discard.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Input ends before offset " + count + ".");
+            }
+            remaining -= read;
+        }
+    }
+
+    static byte[] stripCarriageReturn(byte[] line) {
+        return line.length > 0 && line[line.length - 1] == '\r' ? Arrays.copyOf(line, line.length - 1) : line;
+    }
+
+    static final class StreamLineSource extends LineSource {
+
+        private final InputStream in;
+        private byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+        private long offset;
+        private boolean eof;
+
+        StreamLineSource(InputStream in, long offset) {
+            this.in = in;
+            this.offset = offset;
+        }
+
+        @Override
+        byte[] next() throws IOException {
+            int scanned = this.position;
+            while (true) {
+                for (int i = scanned; i < this.limit; i++) {
+                    if (this.buffer[i] == '\n') {
+                        return take(i, 1);
+                    }
+                }
+                scanned = this.limit;
+                if (this.eof) {
+                    return this.position < this.limit ? take(this.limit, 0) : null;
+                }
+                scanned -= fill();
+            }
+        }
+
+        private byte[] take(int end, int terminator) {
+            byte[] line = Arrays.copyOfRange(this.buffer, this.position, end);
+            this.offset += end - this.position + terminator;
+            this.position = end + terminator;
+            return stripCarriageReturn(line);
+        }
+
+        /**
+         * @return by how many bytes the buffered content was moved to the front
+         */
+        private int fill() throws IOException {
+            int moved = this.position;
+            if (moved > 0) {
+                System.arraycopy(this.buffer, moved, this.buffer, 0, this.limit - moved);
+                this.limit -= moved;
+                this.position = 0;
+            }
+            if (this.limit == this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+            }
+            int read = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+            if (read < 0) {
+                this.eof = true;
+            } else {
+                this.limit += read;
+            }
+            return moved;
+        }
+
+        @Override
+        long offset() {
+            return this.offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    /**
+     * Maps the file in windows so files larger than 2 GB can be read, a line must fit into a window.
+     */
+    static final class MappedLineSource extends LineSource {
+
+        private static final long WINDOW_SIZE = 1L << 28;
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long windowEnd;
+        private long offset;
+
+        MappedLineSource(FileChannel channel, long offset) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.offset = offset;
+            this.windowStart = offset;
+            this.windowEnd = offset;
+        }
+
+        @Override
+        byte[] next() throws IOException {
+            if (this.offset >= this.size) {
+                return null;
+            }
+            if (this.offset >= this.windowEnd) {
+                map(this.offset, WINDOW_SIZE);
+            }
+            while (true) {
+                int start = (int) (this.offset - this.windowStart);
+                int end = (int) (this.windowEnd - this.windowStart);
+                for (int i = start; i < end; i++) {
+                    if (this.window.get(i) == '\n') {
+                        return take(start, i, 1);
+                    }
+                }
+                if (this.windowEnd == this.size) {
+                    return take(start, end, 0);
+                }
+                if (start == 0) {
+                    if (this.windowEnd - this.windowStart >= Integer.MAX_VALUE) {
+                        throw new IOException("Line at offset " + this.offset + " is longer than " + Integer.MAX_VALUE + " bytes.");
+                    }
+                    map(this.offset, Math.min(Integer.MAX_VALUE, 2 * (this.windowEnd - this.windowStart)));
+                } else {
+                    map(this.offset, this.windowEnd - this.windowStart);
+                }
+            }
+        }
+
+        private byte[] take(int start, int end, int terminator) {
+            byte[] line = new byte[end - start];
+            ByteBuffer source = this.window.duplicate();
+            source.position(start);
+            source.get(line);
+            this.offset += line.length + terminator;
+            return stripCarriageReturn(line);
+        }
+
+        private void map(long start, long length) throws IOException {
+            this.windowStart = start;
+            this.windowEnd = Math.min(this.size, start + length);
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.windowStart, this.windowEnd - this.windowStart);
+        }
+
+        @Override
+        long offset() {
+            return this.offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.window = null;
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package net.osslabz.evm.abi.bulk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts the fields needed for decoding from an input line, everything else is skipped. A line with an
+ * <code>input</code> is a transaction, otherwise a line with <code>topics</code> a log. The called contract is taken
+ * from <code>to</code> or <code>to_address</code>, the contract that emitted a log from <code>address</code>.
+ */
+abstract class RecordParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    static final class Fields {
+        String input;
+        String to;
+        String address;
+        List<String> topics;
+        String data;
+
+        BulkRecord.Kind kind() {
+            if (this.input != null) {
+                return BulkRecord.Kind.CALL;
+            }
+            if (this.topics != null) {
+                return BulkRecord.Kind.LOG;
+            }
+            throw new IllegalArgumentException("Line has neither input nor topics.");
+        }
+    }
+
+    abstract Fields parse(byte[] line) throws IOException;
+
+    static RecordParser jsonLines() {
+        return new JsonLinesParser();
+    }
+
+    static RecordParser csv(byte[] header) {
+        return new CsvParser(CsvParser.split(new String(header, StandardCharsets.UTF_8)));
+    }
+
+    private static final class JsonLinesParser extends RecordParser {
+
+        @Override
+        Fields parse(byte[] line) throws IOException {
+            Fields fields = new Fields();
+            try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Line is not a JSON object.");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    switch (name) {
+                        case "input":
+                            fields.input = parser.getValueAsString();
+                            break;
+                        case "to":
+                        case "to_address":
+                            fields.to = parser.getValueAsString();
+                            break;
+                        case "address":
+                            fields.address = parser.getValueAsString();
+                            break;
+                        case "data":
+                            fields.data = parser.getValueAsString();
+                            break;
+                        case "topics":
+                            if (value == JsonToken.START_ARRAY) {
+                                fields.topics = new ArrayList<>(4);
+                                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                    fields.topics.add(parser.getValueAsString());
+                                }
+                            } else if (value != JsonToken.VALUE_NULL) {
+                                fields.topics = splitTopics(parser.getValueAsString());
+                            }
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * CSV with a header row, quoted fields may contain the separator but no line breaks.
+     */
+    private static final class CsvParser extends RecordParser {
+
+        private final int input;
+        private final int to;
+        private final int address;
+        private final int topics;
+        private final int data;
+
+        CsvParser(List<String> header) {
+            this.input = header.indexOf("input");
+            this.to = Math.max(header.indexOf("to"), header.indexOf("to_address"));
+            this.address = header.indexOf("address");
+            this.topics = header.indexOf("topics");
+            this.data = header.indexOf("data");
+            if (this.input < 0 && this.topics < 0) {
+                throw new IllegalArgumentException("CSV header has neither an input nor a topics column: " + header);
+            }
+        }
+
+        @Override
+        Fields parse(byte[] line) {
+            List<String> values = split(new String(line, StandardCharsets.UTF_8));
+            Fields fields = new Fields();
+            fields.input = column(values, this.input);
+            fields.to = column(values, this.to);
+            fields.address = column(values, this.address);
+            fields.data = column(values, this.data);
+            String topics = column(values, this.topics);
+            fields.topics = topics == null ? null : splitTopics(topics);
+            return fields;
+        }
+
+        private static String column(List<String> values, int index) {
+            if (index < 0 || index >= values.size() || values.get(index).isEmpty()) {
+                return null;
+            }
+            return values.get(index);
+        }
+
+        static List<String> split(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        value.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString().trim());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            values.add(value.toString().trim());
+            return values;
+        }
+    }
+
+    /**
+     * Splits topics given as a single text, e.g. <code>0xa,0xb</code> or <code>["0xa","0xb"]</code>.
+     */
+    static List<String> splitTopics(String topics) {
+        List<String> result = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= topics.length(); i++) {
+            boolean hex = i < topics.length() && (HexCodec.digit(topics.charAt(i)) >= 0 || topics.charAt(i) == 'x' || topics.charAt(i) == 'X');
+            if (hex && start < 0) {
+                start = i;
+            } else if (!hex && start >= 0) {
+                result.add(topics.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+package net.osslabz.evm.abi.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the records of a {@link BulkDecoder} run in input order, always on the thread that started the run.
+ */
+public interface RecordSink extends Closeable {
+
+    void write(BulkRecord record) throws IOException;
+
+    /**
+     * Called before a checkpoint is stored, all records written so far must be persisted when this returns. Records
+     * written after the last checkpoint are written again when a run is resumed.
+     */
+    void flush() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+        flush();
+    }
+}
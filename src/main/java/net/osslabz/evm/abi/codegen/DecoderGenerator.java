@@ -0,0 +1,719 @@
+package net.osslabz.evm.abi.codegen;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.SolidityType;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the Java source of a typed decoder for an ABI, the build time alternative to
+ * {@link net.osslabz.evm.abi.decoder.AbiDecoder} for contracts whose calls and logs are decoded in bulk.
+ * <p>
+ * The generated class has a result class and a <code>decode...</code> method per function (<code>...Call</code>) and
+ * event (<code>...Event</code>), overloads get the selector resp. topic prefix appended. Values are read straight from
+ * the calldata at offsets computed at generation time, without going through {@link SolidityType} or boxing:
+ * <ul>
+ *     <li><code>int8</code> to <code>int32</code> and <code>uint8</code> to <code>uint24</code> as <code>int</code></li>
+ *     <li><code>int40</code> to <code>int64</code> and <code>uint32</code> to <code>uint56</code> as <code>long</code></li>
+ *     <li>wider integers as {@link java.math.BigInteger}, <code>bool</code> as <code>boolean</code></li>
+ *     <li><code>address</code> as {@link net.osslabz.evm.abi.definition.Address}</li>
+ *     <li><code>bytes1</code> to <code>bytes32</code> and <code>function</code> as the 32 bytes word, <code>bytes</code>
+ *     as <code>byte[]</code>, <code>string</code> as {@link String}</li>
+ *     <li>arrays as Java arrays and tuples as nested classes named after the param</li>
+ *     <li>indexed event params that are stored as hash (arrays, tuples, <code>bytes</code> and <code>string</code>)
+ *     as the 32 bytes topic</li>
+ * </ul>
+ * The values are the same as those of a decoder with {@link net.osslabz.evm.abi.decoder.DecoderOptions.AddressFormat#ADDRESS},
+ * numbers that don't fit the generated field's type throw {@link ArithmeticException}. Calls whose static head is
+ * incomplete are rejected instead of being zero padded.
+ * <p>
+ * Usually invoked by {@link DecoderProcessor}, but it can be run on its own as well, e.g. from a build script.
+ */
+public final class DecoderGenerator {
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("abstract", "assert", "boolean", "break", "byte",
+            "case", "catch", "char", "class", "const", "continue", "default", "do", "double", "else", "enum", "extends", "false",
+            "final", "finally", "float", "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long",
+            "native", "new", "null", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "true", "try", "void", "volatile",
+            "while", "_", "var", "record", "yield"));
+
+    /**
+     * simple names the generated code refers to, tuple classes must not shadow them
+     */
+    private static final Set<String> RESERVED_TYPES = new HashSet<>(Arrays.asList("Object", "String", "Math", "Integer", "Long",
+            "Boolean", "Override", "IllegalArgumentException", "ArithmeticException", "Arrays", "BigInteger", "StandardCharsets",
+            "Address", "SolidityType", "ByteUtil", "Hex"));
+
+    private final AbiDefinition abi;
+    private final String packageName;
+    private final String className;
+
+    private final Source out = new Source();
+    private final Source readers = new Source();
+    private final Map<String, String> arrayReaders = new HashMap<>();
+
+    /**
+     * simple names of the classes nested directly in the generated class
+     */
+    private final Set<String> memberNames = new HashSet<>();
+
+    private DecoderGenerator(AbiDefinition abi, String packageName, String className) {
+        this.abi = abi;
+        this.packageName = packageName;
+        this.className = className;
+        this.readers.indent = 1;
+    }
+
+    /**
+     * @param packageName package of the generated class, empty for the default package
+     * @param className   simple name of the generated class
+     * @return the source of the generated class
+     */
+    public static String generate(AbiDefinition abi, String packageName, String className) {
+        if (!isIdentifier(className) || RESERVED_TYPES.contains(className)) {
+            throw new IllegalArgumentException("Invalid class name '" + className + "'.");
+        }
+        return new DecoderGenerator(abi, packageName, className).generate();
+    }
+
+    private String generate() {
+        List<Member> members = members();
+
+        if (!this.packageName.isEmpty()) {
+            this.out.line("package " + this.packageName + ";").line("");
+        }
+        this.out.line("import net.osslabz.evm.abi.definition.Address;")
+                .line("import net.osslabz.evm.abi.definition.SolidityType;")
+                .line("import net.osslabz.evm.abi.util.ByteUtil;")
+                .line("import org.bouncycastle.util.encoders.Hex;")
+                .line("")
+                .line("import java.math.BigInteger;")
+                .line("import java.nio.charset.StandardCharsets;")
+                .line("import java.util.Arrays;")
+                .line("")
+                .line("/**")
+                .line(" * Typed decoder generated by {@link net.osslabz.evm.abi.codegen.DecoderGenerator}, don't edit.")
+                .line(" */")
+                .open("public final class " + this.className)
+                .line("")
+                .open("private " + this.className + "()")
+                .close();
+
+        writeDispatch(members);
+        for (Member member : members) {
+            writeDecodeMethods(member);
+        }
+        for (Member member : members) {
+            writeClass(member);
+        }
+        this.out.append(this.readers);
+        writeHelpers();
+        this.out.close();
+        return this.out.toString();
+    }
+
+    private List<Member> members() {
+        Map<String, Integer> overloads = new HashMap<>();
+        Set<String> signatures = new HashSet<>();
+        List<AbiDefinition.Entry> entries = new ArrayList<>();
+        for (AbiDefinition.Entry entry : this.abi) {
+            if ((entry instanceof AbiDefinition.Function || entry instanceof AbiDefinition.Event) && entry.name != null && !entry.name.isEmpty()
+                    && signatures.add(entry.type + " " + entry.formatSignature())) {
+                entries.add(entry);
+                overloads.merge(entry.type + " " + entry.name, 1, Integer::sum);
+            }
+        }
+        this.memberNames.add(this.className);
+        List<Member> members = new ArrayList<>();
+        for (AbiDefinition.Entry entry : entries) {
+            boolean event = entry instanceof AbiDefinition.Event;
+            String name = typeName(entry.name, event ? "Anonymous" : "Unnamed") + (event ? "Event" : "Call");
+            // overloads and names differing only in leading underscores
+            if (overloads.get(entry.type + " " + entry.name) > 1 || this.memberNames.contains(name)) {
+                name += "_" + (event ? Hex.toHexString(entry.encodeSignature(), 0, 4) : String.format("%08x", entry.selector()));
+            }
+            while (!this.memberNames.add(name)) {
+                name += "_";
+            }
+            members.add(new Member(entry, name));
+        }
+        return members;
+    }
+
+    private void writeDispatch(List<Member> members) {
+        this.out.line("")
+                .line("/**")
+                .line(" * @return the decoded call as instance of the <code>...Call</code> class of its function, <code>null</code> if the")
+                .line(" * selector doesn't belong to a function of the ABI")
+                .line(" * @throws IllegalArgumentException if the data is too short for the function's params")
+                .line(" */")
+                .open("public static Object decodeFunctionCall(byte[] data)")
+                .line("return decodeFunctionCall(data, 0, data.length);")
+                .close()
+                .line("")
+                .line("/**")
+                .line(" * Like {@link #decodeFunctionCall(byte[])}, reads the call from <code>data[offset, offset + length)</code>.")
+                .line(" */")
+                .open("public static Object decodeFunctionCall(byte[] data, int offset, int length)")
+                .open("if (length < 4)")
+                .line("throw new IllegalArgumentException(\"Input data is shorter than a selector.\");")
+                .close()
+                .open("switch (ByteUtil.readInt(data, offset))");
+        Set<Integer> selectors = new HashSet<>();
+        for (Member member : members) {
+            if (!member.event && selectors.add(member.entry.selector())) {
+                this.out.line(String.format("case 0x%08x:", member.entry.selector()));
+                this.out.indent++;
+                this.out.line("return decode" + member.name + "(data, offset, length);");
+                this.out.indent--;
+            }
+        }
+        this.out.line("default:");
+        this.out.indent++;
+        this.out.line("return null;");
+        this.out.indent--;
+        this.out.close().close();
+
+        Map<Integer, List<Member>> events = new LinkedHashMap<>();
+        for (Member member : members) {
+            if (member.event && !Boolean.TRUE.equals(member.entry.anonymous)) {
+                events.computeIfAbsent(member.entry.selector(), selector -> new ArrayList<>()).add(member);
+            }
+        }
+        this.out.line("")
+                .line("/**")
+                .line(" * @param topics the log's topics, 32 bytes each")
+                .line(" * @return the decoded log as instance of the <code>...Event</code> class of its event, <code>null</code> if")
+                .line(" * there are no topics or the first one doesn't belong to a non-anonymous event of the ABI")
+                .line(" * @throws IllegalArgumentException if the topics or the data don't match the event")
+                .line(" */")
+                .open("public static Object decodeLogEvent(byte[][] topics, byte[] data)");
+        if (events.isEmpty()) {
+            this.out.line("return null;").close();
+            return;
+        }
+        this.out.open("if (topics.length == 0 || topics[0].length != 32)")
+                .line("return null;")
+                .close()
+                .open("switch (ByteUtil.readInt(topics[0], 0))");
+        for (Map.Entry<Integer, List<Member>> entry : events.entrySet()) {
+            this.out.line(String.format("case 0x%08x:", entry.getKey()));
+            this.out.indent++;
+            for (Member member : entry.getValue()) {
+                this.out.open("if (Arrays.equals(topics[0], " + member.name + ".TOPIC))")
+                        .line("return decode" + member.name + "(topics, data);")
+                        .close();
+            }
+            this.out.line("break;");
+            this.out.indent--;
+        }
+        this.out.line("default:");
+        this.out.indent++;
+        this.out.line("break;");
+        this.out.indent--;
+        this.out.close().line("return null;").close();
+    }
+
+    private void writeDecodeMethods(Member member) {
+        String signature = escape(member.entry.formatSignature());
+        if (member.event) {
+            int topics = member.topicCount();
+            this.out.line("")
+                    .line("/**")
+                    .line(" * Decodes a log of <code>" + signature + "</code>.")
+                    .line(" *")
+                    .line(" * @param topics the log's topics, 32 bytes each")
+                    .line(" * @throws IllegalArgumentException if the topics or the data don't match the event")
+                    .line(" */")
+                    .open("public static " + member.name + " decode" + member.name + "(byte[][] topics, byte[] data)");
+            String check = "topics.length != " + topics;
+            if (!Boolean.TRUE.equals(member.entry.anonymous)) {
+                check += " || !Arrays.equals(topics[0], " + member.name + ".TOPIC)";
+            }
+            this.out.open("if (" + check + ")")
+                    .line("throw new IllegalArgumentException(\"The topics don't match \" + " + member.name + ".SIGNATURE + \".\");")
+                    .close();
+            for (int i = Boolean.TRUE.equals(member.entry.anonymous) ? 0 : 1; i < topics; i++) {
+                this.out.open("if (topics[" + i + "].length != 32)")
+                        .line("throw new IllegalArgumentException(\"Topic must be 32 bytes long, but is \" + topics[" + i + "].length + \".\");")
+                        .close();
+            }
+            this.out.open("if (data.length < " + headSize(member.dataParams()) + ")")
+                    .line("throw new IllegalArgumentException(\"The data is too short for \" + " + member.name + ".SIGNATURE + \".\");")
+                    .close()
+                    .line("return " + member.name + ".read(topics, data);")
+                    .close();
+            return;
+        }
+        this.out.line("")
+                .line("/**")
+                .line(" * Decodes a call of <code>" + signature + "</code>.")
+                .line(" *")
+                .line(" * @throws IllegalArgumentException if the selector doesn't match or the data is too short for the params")
+                .line(" */")
+                .open("public static " + member.name + " decode" + member.name + "(byte[] data)")
+                .line("return decode" + member.name + "(data, 0, data.length);")
+                .close()
+                .line("")
+                .line("/**")
+                .line(" * Like {@link #decode" + member.name + "(byte[])}, reads the call from <code>data[offset, offset + length)</code>.")
+                .line(" */")
+                .open("public static " + member.name + " decode" + member.name + "(byte[] data, int offset, int length)")
+                .open("if (length < " + (4 + headSize(member.inputs())) + " || ByteUtil.readInt(data, offset) != " + member.name + ".SELECTOR)")
+                .line("throw new IllegalArgumentException(\"Input data is no call of \" + " + member.name + ".SIGNATURE + \".\");")
+                .close()
+                .line("return " + member.name + ".read(data, offset + 4);")
+                .close();
+    }
+
+    private void writeClass(Member member) {
+        Scope scope = new Scope(null, member.name, Collections.singleton(this.className));
+        List<Field> fields = new ArrayList<>();
+        List<AbiDefinition.Entry.Param> inputs = member.inputs();
+        Set<String> fieldNames = new HashSet<>();
+        int head = 0;
+        int topic = Boolean.TRUE.equals(member.entry.anonymous) ? 0 : 1;
+        for (int i = 0; i < inputs.size(); i++) {
+            AbiDefinition.Entry.Param param = inputs.get(i);
+            String name = fieldName(param.getName(), i, fieldNames);
+            SolidityType type = param.getType();
+            if (member.event && Boolean.TRUE.equals(param.getIndexed())) {
+                String topicData = "topics[" + topic++ + "]";
+                if (isHashed(type)) {
+                    fields.add(new Field(name, "byte[]", "SolidityType.Bytes32Type.decodeBytes32(" + topicData + ", 0)"));
+                } else {
+                    String javaType = javaType(type, param, scope);
+                    fields.add(new Field(name, javaType, read(type, javaType, topicData, "0")));
+                }
+                continue;
+            }
+            String javaType = javaType(type, param, scope);
+            fields.add(new Field(name, javaType, readField(type, javaType, member.event ? "0" : "offset", head)));
+            head += type.getFixedSize();
+        }
+
+        this.out.line("")
+                .line("/**")
+                .line(" * <code>" + escape(member.entry.formatSignature()) + "</code>")
+                .line(" */")
+                .open("public static final class " + member.name)
+                .line("")
+                .line("public static final String SIGNATURE = \"" + member.entry.formatSignature() + "\";");
+        if (member.event) {
+            this.out.line("")
+                    .line("private static final byte[] TOPIC = Hex.decode(\"" + Hex.toHexString(member.entry.encodeSignature()) + "\");");
+        } else {
+            this.out.line("")
+                    .line(String.format("public static final int SELECTOR = 0x%08x;", member.entry.selector()));
+        }
+        writeBody(scope, fields, member.event ? "byte[][] topics, byte[] data" : "byte[] data, int offset");
+        this.out.close();
+    }
+
+    /**
+     * Writes fields, constructor, <code>read</code> method, getters and the nested tuple classes of a class.
+     */
+    private void writeBody(Scope scope, List<Field> fields, String readParams) {
+        if (!fields.isEmpty()) {
+            this.out.line("");
+        }
+        for (Field field : fields) {
+            this.out.line("private final " + field.javaType + " " + field.name + ";");
+        }
+
+        StringBuilder params = new StringBuilder();
+        for (Field field : fields) {
+            params.append(params.length() == 0 ? "" : ", ").append(field.javaType).append(' ').append(field.name);
+        }
+        this.out.line("").open("private " + scope.simpleName + "(" + params + ")");
+        for (Field field : fields) {
+            this.out.line("this." + field.name + " = " + field.name + ";");
+        }
+        this.out.close();
+
+        this.out.line("").open("private static " + scope.simpleName + " read(" + readParams + ")");
+        if (fields.isEmpty()) {
+            this.out.line("return new " + scope.simpleName + "();");
+        } else {
+            this.out.line("return new " + scope.simpleName + "(");
+            this.out.indent += 2;
+            for (int i = 0; i < fields.size(); i++) {
+                this.out.line(fields.get(i).read + (i < fields.size() - 1 ? "," : ");"));
+            }
+            this.out.indent -= 2;
+        }
+        this.out.close();
+
+        for (Field field : fields) {
+            this.out.line("")
+                    .open("public " + field.javaType + " get" + capitalize(field.name) + "()")
+                    .line("return this." + field.name + ";")
+                    .close();
+        }
+
+        for (Tuple tuple : scope.tuples) {
+            writeTuple(tuple);
+        }
+    }
+
+    private void writeTuple(Tuple tuple) {
+        List<Field> fields = new ArrayList<>();
+        Set<String> fieldNames = new HashSet<>();
+        int head = 0;
+        for (int i = 0; i < tuple.components.size(); i++) {
+            AbiDefinition.Entry.Param component = tuple.components.get(i);
+            String javaType = javaType(component.getType(), component, tuple.scope);
+            fields.add(new Field(fieldName(component.getName(), i, fieldNames), javaType, readField(component.getType(), javaType, "offset", head)));
+            head += component.getType().getFixedSize();
+        }
+        this.out.line("").open("public static final class " + tuple.scope.simpleName);
+        writeBody(tuple.scope, fields, "byte[] data, int offset");
+        this.out.close();
+    }
+
+    private void writeHelpers() {
+        this.out.line("")
+                .open("private static int offsetAt(byte[] data, int offset)")
+                .line("return SolidityType.IntType.decodeIntValue(data, offset);")
+                .close()
+                .line("")
+                .open("private static byte[] bytes(byte[] data, int offset)")
+                .line("int length = offsetAt(data, offset);")
+                .line("return Arrays.copyOfRange(data, offset + 32, offset + 32 + length);")
+                .close()
+                .line("")
+                .open("private static String string(byte[] data, int offset)")
+                .line("return new String(bytes(data, offset), StandardCharsets.UTF_8);")
+                .close();
+    }
+
+    /**
+     * @return expression reading the head slot at <code>base + head</code>, following the offset for dynamic types
+     */
+    private String readField(SolidityType type, String javaType, String base, int head) {
+        String slot = position(base, head);
+        if (!type.isDynamicType()) {
+            return read(type, javaType, "data", slot);
+        }
+        String tail = "offsetAt(data, " + slot + ")";
+        return read(type, javaType, "data", "0".equals(base) ? tail : base + " + " + tail);
+    }
+
+    private static String position(String base, int head) {
+        if ("0".equals(base)) {
+            return String.valueOf(head);
+        }
+        return head == 0 ? base : base + " + " + head;
+    }
+
+    /**
+     * @return expression reading a value of the type from <code>data</code> at <code>offset</code>, for dynamic types
+     * the offset already points to the value
+     */
+    private String read(SolidityType type, String javaType, String data, String offset) {
+        String args = "(" + data + ", " + offset + ")";
+        Class<?> typeClass = type.getClass();
+        if (typeClass == SolidityType.UnsignedIntType.class || typeClass == SolidityType.IntType.class) {
+            String decoder = typeClass == SolidityType.UnsignedIntType.class ? "SolidityType.UnsignedIntType" : "SolidityType.IntType";
+            if ("int".equals(javaType)) {
+                return "Math.toIntExact(" + decoder + ".decodeLongExact" + args + ")";
+            }
+            return decoder + ("long".equals(javaType) ? ".decodeLongExact" : ".decodeInt") + args;
+        } else if (typeClass == SolidityType.AddressType.class) {
+            return "Address.fromWord" + args;
+        } else if (typeClass == SolidityType.BoolType.class) {
+            return "offsetAt" + args + " != 0";
+        } else if (typeClass == SolidityType.Bytes32Type.class || typeClass == SolidityType.FunctionType.class) {
+            return "SolidityType.Bytes32Type.decodeBytes32" + args;
+        } else if (typeClass == SolidityType.BytesType.class) {
+            return "bytes" + args;
+        } else if (typeClass == SolidityType.StringType.class) {
+            return "string" + args;
+        } else if (typeClass == SolidityType.TupleType.class) {
+            return javaType + ".read" + args;
+        } else if (type instanceof SolidityType.ArrayType) {
+            return arrayReader((SolidityType.ArrayType) type, javaType) + args;
+        }
+        throw new IllegalArgumentException("Unsupported type " + type.getCanonicalName() + ".");
+    }
+
+    /**
+     * @return name of the method reading arrays of the type, written to {@link #readers} on first use
+     */
+    private String arrayReader(SolidityType.ArrayType type, String javaType) {
+        String key = javaType + " " + type.getCanonicalName();
+        String name = this.arrayReaders.get(key);
+        if (name != null) {
+            return name;
+        }
+        name = "readArray" + this.arrayReaders.size();
+        this.arrayReaders.put(key, name);
+
+        SolidityType element = type.getElementType();
+        String elementJavaType = javaType.substring(0, javaType.length() - 2);
+        boolean dynamic = type instanceof SolidityType.DynamicArrayType;
+        String start = dynamic ? "offset + 32" : "offset";
+        String elementOffset = element.isDynamicType()
+                ? "start + offsetAt(data, start + " + element.getFixedSize() + " * i)"
+                : "start + " + element.getFixedSize() + " * i";
+        String elementRead = read(element, elementJavaType, "data", elementOffset);
+
+        int bracket = elementJavaType.indexOf('[');
+        String newArray = bracket < 0
+                ? "new " + elementJavaType + "[length]"
+                : "new " + elementJavaType.substring(0, bracket) + "[length]" + elementJavaType.substring(bracket);
+
+        this.readers.line("")
+                .line("/**")
+                .line(" * Reads a <code>" + escape(type.getCanonicalName()) + "</code>.")
+                .line(" */")
+                .open("private static " + javaType + " " + name + "(byte[] data, int offset)")
+                .line("int length = " + (dynamic ? "offsetAt(data, offset)" : String.valueOf(((SolidityType.StaticArrayType) type).getSize())) + ";")
+                .line("int start = " + start + ";")
+                .line(javaType + " values = " + newArray + ";")
+                .open("for (int i = 0; i < length; i++)")
+                .line("values[i] = " + elementRead + ";")
+                .close()
+                .line("return values;")
+                .close();
+        return name;
+    }
+
+    /**
+     * @return the Java type of values of the type, the class of a tuple is added to the scope
+     */
+    private String javaType(SolidityType type, AbiDefinition.Entry.Param param, Scope scope) {
+        Class<?> typeClass = type.getClass();
+        if (typeClass == SolidityType.UnsignedIntType.class) {
+            int bits = bits(type, "uint");
+            return bits < 32 ? "int" : bits < 64 ? "long" : "BigInteger";
+        } else if (typeClass == SolidityType.IntType.class) {
+            int bits = bits(type, "int");
+            return bits <= 32 ? "int" : bits <= 64 ? "long" : "BigInteger";
+        } else if (typeClass == SolidityType.AddressType.class) {
+            return "Address";
+        } else if (typeClass == SolidityType.BoolType.class) {
+            return "boolean";
+        } else if (typeClass == SolidityType.Bytes32Type.class || typeClass == SolidityType.FunctionType.class
+                || typeClass == SolidityType.BytesType.class) {
+            return "byte[]";
+        } else if (typeClass == SolidityType.StringType.class) {
+            return "String";
+        } else if (typeClass == SolidityType.TupleType.class) {
+            return scope.addTuple(param).scope.qualifiedName;
+        } else if (type instanceof SolidityType.ArrayType) {
+            return javaType(((SolidityType.ArrayType) type).getElementType(), param, scope) + "[]";
+        }
+        throw new IllegalArgumentException("Unsupported type " + type.getCanonicalName() + ".");
+    }
+
+    private static int bits(SolidityType type, String prefix) {
+        String name = type.getCanonicalName();
+        return name.length() == prefix.length() ? 256 : Integer.parseInt(name.substring(prefix.length()));
+    }
+
+    private static int headSize(List<AbiDefinition.Entry.Param> params) {
+        int size = 0;
+        for (AbiDefinition.Entry.Param param : params) {
+            size += param.getType().getFixedSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if an indexed param of the type is stored as its Keccak-256 hash
+     */
+    private static boolean isHashed(SolidityType type) {
+        return type.isDynamicType() || type instanceof SolidityType.TupleType || type instanceof SolidityType.ArrayType;
+    }
+
+    private static String fieldName(String name, int index, Set<String> used) {
+        String field = identifier(name, "arg" + index);
+        if ("class".equals(field.toLowerCase()) || KEYWORDS.contains(field)) {
+            field += "_";
+        }
+        while (!used.add(field.toLowerCase())) {
+            field += "_" + index;
+        }
+        return field;
+    }
+
+    private static String identifier(String name, String fallback) {
+        if (name == null || name.isEmpty()) {
+            return fallback;
+        }
+        StringBuilder identifier = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            identifier.append(i == 0 ? Character.isJavaIdentifierStart(c) ? c : '_' : Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        return identifier.toString();
+    }
+
+    /**
+     * @return the name as class name, capitalized and without leading underscores so it's different from field names
+     */
+    private static String typeName(String name, String fallback) {
+        String identifier = identifier(name, fallback).replaceFirst("^[_$]+", "");
+        return identifier.isEmpty() ? fallback : capitalize(identifier);
+    }
+
+    private static boolean isIdentifier(String name) {
+        return !name.isEmpty() && identifier(name, "").equals(name) && !KEYWORDS.contains(name);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("*/", "*&#47;");
+    }
+
+    private static final class Member {
+        final AbiDefinition.Entry entry;
+        final String name;
+        final boolean event;
+
+        Member(AbiDefinition.Entry entry, String name) {
+            this.entry = entry;
+            this.name = name;
+            this.event = entry instanceof AbiDefinition.Event;
+        }
+
+        List<AbiDefinition.Entry.Param> inputs() {
+            return this.entry.inputs == null ? Collections.emptyList() : this.entry.inputs;
+        }
+
+        /**
+         * @return the params read from the call data resp. the log's data
+         */
+        List<AbiDefinition.Entry.Param> dataParams() {
+            List<AbiDefinition.Entry.Param> params = new ArrayList<>();
+            for (AbiDefinition.Entry.Param param : inputs()) {
+                if (!this.event || !Boolean.TRUE.equals(param.getIndexed())) {
+                    params.add(param);
+                }
+            }
+            return params;
+        }
+
+        int topicCount() {
+            return inputs().size() - dataParams().size() + (Boolean.TRUE.equals(this.entry.anonymous) ? 0 : 1);
+        }
+    }
+
+    private static final class Field {
+        final String name;
+        final String javaType;
+        final String read;
+
+        Field(String name, String javaType, String read) {
+            this.name = name;
+            this.javaType = javaType;
+            this.read = read;
+        }
+    }
+
+    private static final class Tuple {
+        final Scope scope;
+        final List<AbiDefinition.Entry.Param> components;
+
+        Tuple(Scope scope, List<AbiDefinition.Entry.Param> components) {
+            this.scope = scope;
+            this.components = components;
+        }
+    }
+
+    /**
+     * A generated class and the tuple classes nested in it.
+     */
+    private final class Scope {
+        final String simpleName;
+        final String qualifiedName;
+
+        /**
+         * simple names of the enclosing classes, a nested class must not have the same
+         */
+        final Set<String> enclosingNames;
+
+        final List<Tuple> tuples = new ArrayList<>();
+
+        Scope(Scope parent, String simpleName, Set<String> enclosingNames) {
+            this.simpleName = simpleName;
+            this.qualifiedName = parent == null ? simpleName : parent.qualifiedName + "." + simpleName;
+            this.enclosingNames = new HashSet<>(enclosingNames);
+            this.enclosingNames.add(simpleName);
+        }
+
+        Tuple addTuple(AbiDefinition.Entry.Param param) {
+            String name = typeName(param.getName(), "Tuple");
+            while (RESERVED_TYPES.contains(name) || DecoderGenerator.this.memberNames.contains(name) || this.enclosingNames.contains(name)
+                    || hasTuple(name)) {
+                name += "Tuple";
+            }
+            Tuple tuple = new Tuple(new Scope(this, name, this.enclosingNames), param.getComponents());
+            this.tuples.add(tuple);
+            return tuple;
+        }
+
+        private boolean hasTuple(String name) {
+            for (Tuple tuple : this.tuples) {
+                if (tuple.scope.simpleName.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Java source with indentation of four spaces per level.
+     */
+    private static final class Source {
+        private final StringBuilder text = new StringBuilder();
+        int indent;
+
+        Source line(String line) {
+            if (!line.isEmpty()) {
+                for (int i = 0; i < this.indent; i++) {
+                    this.text.append("    ");
+                }
+                this.text.append(line);
+            }
+            this.text.append('\n');
+            return this;
+        }
+
+        Source open(String line) {
+            line(line + " {");
+            this.indent++;
+            return this;
+        }
+
+        Source close() {
+            this.indent--;
+            return line("}");
+        }
+
+        Source append(Source source) {
+            this.text.append(source.text);
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return this.text.toString();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package net.osslabz.evm.abi.codegen;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.AbiJsonReader;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor generating the decoders requested with {@link GenerateDecoder}, using {@link DecoderGenerator}.
+ * <p>
+ * It's only registered as service in the jar with the classifier <code>processor</code>, which goes on the processor
+ * path (e.g. Maven's <code>annotationProcessorPaths</code>), so the main jar on the class path doesn't run it.
+ * The ABI is looked up in the class output first, where Maven copies the resources before compiling, then in the
+ * source and class path.
+ */
+@SupportedAnnotationTypes({"net.osslabz.evm.abi.codegen.GenerateDecoder", "net.osslabz.evm.abi.codegen.GenerateDecoders"})
+public class DecoderProcessor extends AbstractProcessor {
+
+    private static final List<JavaFileManager.Location> ABI_LOCATIONS = Arrays.asList(StandardLocation.CLASS_OUTPUT,
+            StandardLocation.SOURCE_PATH, StandardLocation.CLASS_PATH);
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<Element> elements = new LinkedHashSet<>(roundEnv.getElementsAnnotatedWith(GenerateDecoder.class));
+        elements.addAll(roundEnv.getElementsAnnotatedWith(GenerateDecoders.class));
+        for (Element element : elements) {
+            for (GenerateDecoder annotation : element.getAnnotationsByType(GenerateDecoder.class)) {
+                generate(element, annotation);
+            }
+        }
+        return true;
+    }
+
+    private void generate(Element element, GenerateDecoder annotation) {
+        String packageName = this.processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+        String className = annotation.className().isEmpty() ? defaultClassName(annotation.abi()) : annotation.className();
+        try {
+            AbiDefinition abi = readAbi(annotation.abi());
+            if (abi == null) {
+                error(element, "ABI " + annotation.abi() + " not found in " + ABI_LOCATIONS + ".");
+                return;
+            }
+            String source = DecoderGenerator.generate(abi, packageName, className);
+            JavaFileObject file = this.processingEnv.getFiler().createSourceFile(
+                    packageName.isEmpty() ? className : packageName + "." + className, element);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        } catch (IOException | RuntimeException e) {
+            error(element, "Can't generate " + className + " from " + annotation.abi() + ": " + e);
+        }
+    }
+
+    /**
+     * @return the ABI, <code>null</code> if it's in none of the locations
+     */
+    private AbiDefinition readAbi(String path) throws IOException {
+        Filer filer = this.processingEnv.getFiler();
+        for (JavaFileManager.Location location : ABI_LOCATIONS) {
+            FileObject file;
+            InputStream in;
+            try {
+                file = filer.getResource(location, "", path);
+                in = file.openInputStream();
+            } catch (IOException | IllegalArgumentException e) {
+                // not there or the location isn't supported by the compiler
+                continue;
+            }
+            try (InputStream abi = in) {
+                return AbiJsonReader.read(abi);
+            }
+        }
+        return null;
+    }
+
+    static String defaultClassName(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.endsWith(".json")) {
+            name = name.substring(0, name.length() - ".json".length());
+        }
+        StringBuilder className = new StringBuilder();
+        boolean upper = true;
+        for (char c : name.toCharArray()) {
+            if (!Character.isJavaIdentifierPart(c) || c == '$') {
+                upper = true;
+            } else {
+                className.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return className + "Decoder";
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,36 @@
+package net.osslabz.evm.abi.codegen;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a typed decoder for an ABI at compile time, see {@link DecoderGenerator} for what the generated class
+ * looks like. The class is generated into the package of the annotated type resp. package by {@link DecoderProcessor}.
+ * <pre>
+ * &#64;GenerateDecoder(abi = "abiFiles/UniswapV2Router02.json")
+ * &#64;GenerateDecoder(abi = "abiFiles/TetherToken.json", className = "UsdtDecoder")
+ * public class Decoders {
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.TYPE, ElementType.PACKAGE})
+@Repeatable(GenerateDecoders.class)
+public @interface GenerateDecoder {
+
+    /**
+     * Path of the ABI JSON (the same input {@link net.osslabz.evm.abi.definition.AbiDefinition#fromJson(String)}
+     * takes), relative to the resource roots, e.g. <code>src/main/resources</code> in a Maven build.
+     */
+    String abi();
+
+    /**
+     * Simple name of the generated class, by default the name of the ABI file followed by <code>Decoder</code>.
+     */
+    String className() default "";
+}
@@ -1,74 +1,394 @@
 package net.osslabz.evm.abi.decoder;
 
-import lombok.Getter;
 import net.osslabz.evm.abi.definition.AbiDefinition;
-import org.bouncycastle.util.encoders.Hex;
+import net.osslabz.evm.abi.definition.AbiJsonReader;
+import net.osslabz.evm.abi.util.HexCodec;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-@Getter
+/**
+ * Decodes function calls and logs of a single ABI.
+ * <p>
+ * A constructed decoder is immutable: selectors, topics and decode plans are compiled in the constructor into final
+ * fields and never changed afterwards, so a decoder can be shared between threads without synchronization. The
+ * {@link AbiDefinition} passed in must not be modified afterwards. The returned {@link DecodedFunctionCall}s are not
+ * thread-safe.
+ */
 public class AbiDecoder {
 
     protected final AbiDefinition abi;
-    protected final Map<String, AbiDefinition.Entry> methodSignatures = new HashMap<>();
+    protected final DecoderOptions options;
+    /**
+     * the functions, errors and events of the ABI keyed by their hex encoded selector resp. topic, unmodifiable
+     */
+    protected final Map<String, AbiDefinition.Entry> methodSignatures;
+
+    private final SelectorIndex<CompiledEntry<AbiDefinition.Function>> functions = new SelectorIndex<>();
+    private final SelectorIndex<CompiledEntry<AbiDefinition.Error>> errors = new SelectorIndex<>();
+    private final TopicIndex<CompiledEntry<AbiDefinition.Event>> events = new TopicIndex<>();
 
     public AbiDecoder(String abiFilePath) throws IOException {
-        this.abi = AbiDefinition.fromJson(new String(Files.readAllBytes(Paths.get(abiFilePath)), StandardCharsets.UTF_8));
-        init();
+        this(abiFilePath, DecoderOptions.DEFAULT);
+    }
+
+    public AbiDecoder(String abiFilePath, DecoderOptions options) throws IOException {
+        this(AbiJsonReader.read(Paths.get(abiFilePath)), options);
     }
 
     public AbiDecoder(InputStream inputStream) {
-        this.abi = AbiDefinition.fromJson(inputStream);
-        init();
+        this(inputStream, DecoderOptions.DEFAULT);
+    }
+
+    public AbiDecoder(InputStream inputStream, DecoderOptions options) {
+        this(readAbi(inputStream), options);
+    }
+
+    public AbiDecoder(AbiDefinition abi) {
+        this(abi, DecoderOptions.DEFAULT);
+    }
+
+    public AbiDecoder(AbiDefinition abi, DecoderOptions options) {
+        this(abi, options, null);
+    }
+
+    /**
+     * @param compiled entries compiled by other decoders keyed by {@link CompiledEntry#key(AbiDefinition.Entry)}, new
+     *                 entries are added, <code>null</code> to compile all entries for this decoder only
+     */
+    AbiDecoder(AbiDefinition abi, DecoderOptions options, Map<String, CompiledEntry<?>> compiled) {
+        this.abi = abi;
+        this.options = options;
+        Map<String, AbiDefinition.Entry> methodSignatures = new HashMap<>();
+        init(compiled, methodSignatures);
+        this.methodSignatures = Collections.unmodifiableMap(methodSignatures);
+    }
+
+    private static AbiDefinition readAbi(InputStream inputStream) {
+        try {
+            return AbiJsonReader.read(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void init(Map<String, CompiledEntry<?>> compiled, Map<String, AbiDefinition.Entry> methodSignatures) {
+        for (AbiDefinition.Entry entry : this.abi) {
+            methodSignatures.put(HexCodec.encode(entry.encodeSignature()), entry);
+            if (entry instanceof AbiDefinition.Function) {
+                this.functions.put(entry.selector(), compile((AbiDefinition.Function) entry, compiled));
+            } else if (entry instanceof AbiDefinition.Error) {
+                this.errors.put(entry.selector(), compile((AbiDefinition.Error) entry, compiled));
+            } else if (entry instanceof AbiDefinition.Event) {
+                this.events.put(entry.encodeSignature(), compile((AbiDefinition.Event) entry, compiled));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends AbiDefinition.Entry> CompiledEntry<E> compile(E entry, Map<String, CompiledEntry<?>> compiled) {
+        if (compiled == null) {
+            return CompiledEntry.compile(entry, this.options);
+        }
+        return (CompiledEntry<E>) compiled.computeIfAbsent(CompiledEntry.key(entry), key -> CompiledEntry.compile(entry, this.options));
+    }
+
+    CompiledEntry<AbiDefinition.Function> compiledFunction(int selector) {
+        return this.functions.get(selector);
+    }
+
+    CompiledEntry<AbiDefinition.Error> compiledError(int selector) {
+        return this.errors.get(selector);
+    }
+
+    CompiledEntry<AbiDefinition.Event> compiledEvent(byte[] topic, int offset) {
+        return this.events.get(topic, offset);
     }
 
-    private void init() {
+    /**
+     * Binds a function or event of this decoder's ABI to a class, see {@link CallBinding}. The binding reads addresses
+     * as {@link net.osslabz.evm.abi.definition.Address} regardless of this decoder's options.
+     *
+     * @param signature e.g. <code>transfer(address,uint256)</code>, or just the name if it isn't overloaded
+     * @throws IllegalArgumentException if there's no such function or event or the class can't be bound to its inputs
+     */
+    public <T> CallBinding<T> bind(String signature, Class<T> type) {
+        List<AbiDefinition.Entry> matches = new ArrayList<>();
         for (AbiDefinition.Entry entry : this.abi) {
-            String hexEncodedMethodSignature = Hex.toHexString(entry.encodeSignature());
-            this.methodSignatures.put(hexEncodedMethodSignature, entry);
+            if (entry instanceof AbiDefinition.Function || entry instanceof AbiDefinition.Event) {
+                if (signature.equals(entry.formatSignature())) {
+                    return CallBinding.of(entry, type);
+                }
+                if (signature.equals(entry.name)) {
+                    matches.add(entry);
+                }
+            }
         }
+        if (matches.size() != 1) {
+            throw new IllegalArgumentException(matches.isEmpty()
+                    ? "ABI has no function or event " + signature + "."
+                    : signature + " is overloaded, bind one of " + matches.stream().map(AbiDefinition.Entry::formatSignature).collect(Collectors.toList()) + ".");
+        }
+        return CallBinding.of(matches.get(0), type);
+    }
+
+    public AbiDefinition getAbi() {
+        return this.abi;
+    }
+
+    public DecoderOptions getOptions() {
+        return this.options;
+    }
+
+    /**
+     * @return the functions, errors and events of the ABI keyed by their hex encoded selector resp. topic, built once
+     * when the decoder is created. Decoding doesn't use it, lookups go through primitive indexes.
+     */
+    public Map<String, AbiDefinition.Entry> getMethodSignatures() {
+        return this.methodSignatures;
     }
 
     public DecodedFunctionCall decodeFunctionCall(String inputData) {
-        if (inputData == null || (inputData.startsWith("0x") && inputData.length() < 10) || inputData.length() < 8) {
+        if (inputData == null || isShorterThanSelector(inputData)) {
             throw new IllegalArgumentException("Can't decode invalid input '" + inputData + "'.");
         }
-        String inputNoPrefix = cleanup(inputData);
+        byte[] input = hexBytes(inputData);
+        return decodeFunctionCall(input, 0, input.length);
+    }
 
-        String methodBytes = inputNoPrefix.substring(0, 8);
+    public DecodedFunctionCall decodeFunctionCall(byte[] inputData) {
+        if (inputData == null) {
+            throw new IllegalArgumentException("Can't decode invalid input 'null'.");
+        }
+        return decodeFunctionCall(inputData, 0, inputData.length);
+    }
+
+    /**
+     * Decodes the call data in <code>inputData[offset, offset + length)</code>. Selector and arguments are read
+     * directly from the given array, it's neither copied nor modified. Nothing outside of the range is read, offsets
+     * of dynamic params are resolved relative to <code>offset + 4</code> and must stay within it.
+     *
+     * @throws IllegalArgumentException if the range is outside of the array, shorter than the selector and the head
+     *                                  of the function's inputs, or an offset or length in the arguments points past it
+     */
+    public DecodedFunctionCall decodeFunctionCall(byte[] inputData, int offset, int length) {
+        return function(inputData, offset, length).decodeInputs(inputData, offset + 4, length - 4);
+    }
+
+    public DecodedCall decodeFunctionCallCompact(byte[] inputData) {
+        if (inputData == null) {
+            throw new IllegalArgumentException("Can't decode invalid input 'null'.");
+        }
+        return decodeFunctionCallCompact(inputData, 0, inputData.length);
+    }
+
+    /**
+     * Like {@link #decodeFunctionCall(byte[], int, int)} but returns the compact {@link DecodedCall}: the values in a
+     * single array without a param object, name map or hex string per param.
+     */
+    public DecodedCall decodeFunctionCallCompact(byte[] inputData, int offset, int length) {
+        return function(inputData, offset, length).decodeCall(inputData, offset + 4, length - 4);
+    }
+
+    /**
+     * Like {@link #decodeFunctionCall(String)} but the returned call decodes a param only when it's accessed.
+     */
+    public DecodedFunctionCall decodeFunctionCallLazy(String inputData) {
+        if (inputData == null || isShorterThanSelector(inputData)) {
+            throw new IllegalArgumentException("Can't decode invalid input '" + inputData + "'.");
+        }
+        byte[] input = hexBytes(inputData);
+        return decodeFunctionCallLazy(input, 0, input.length);
+    }
+
+    /**
+     * Like {@link #decodeFunctionCall(byte[], int, int)} but the returned call only checks the selector and the head
+     * size and decodes a param from <code>inputData[offset, offset + length)</code> when it's first accessed, so a
+     * malformed param only fails once it's read. The returned call keeps a reference to <code>inputData</code>, it
+     * must not be modified as long as the call is used. It can be shared between threads.
+     */
+    public DecodedFunctionCall decodeFunctionCallLazy(byte[] inputData, int offset, int length) {
+        return function(inputData, offset, length).decodeInputsLazy(inputData, offset + 4, length - 4);
+    }
 
-        if (!this.methodSignatures.containsKey(methodBytes)) {
+    private CompiledEntry<AbiDefinition.Function> function(byte[] inputData, int offset, int length) {
+        if (inputData == null || offset < 0 || length < 4 || length > inputData.length - offset) {
+            throw new IllegalArgumentException("Can't decode invalid input (offset=" + offset + ", length=" + length + ").");
+        }
+        int selector = SelectorIndex.selector(inputData, offset);
+        CompiledEntry<AbiDefinition.Function> abiFunction = this.functions.get(selector);
+
+        if (abiFunction == null) {
+            if (this.errors.get(selector) != null) {
+                throw new IllegalArgumentException("Input data is not a function call, it's of type '" + AbiDefinition.Entry.Type.error + "'.");
+            }
             //return null;
-            throw new IllegalStateException("Couldn't find method with signature " + methodBytes);
+            throw new IllegalStateException("Couldn't find method with signature " + HexCodec.encode(inputData, offset, 4));
         }
-        AbiDefinition.Entry abiEntry = this.methodSignatures.get(methodBytes);
+        return abiFunction;
+    }
+
+    /**
+     * @param callData   hex encoded call data or just its selector
+     * @param returnData hex encoded return data of the call
+     * @see #decodeReturnData(int, byte[], int, int)
+     */
+    public List<?> decodeReturnData(String callData, String returnData) {
+        if (callData == null || isShorterThanSelector(callData) || returnData == null) {
+            throw new IllegalArgumentException("Can't decode return data '" + returnData + "' of call '" + callData + "'.");
+        }
+        byte[] data = hexBytes(returnData);
+        return decodeReturnData(HexCodec.decodeInt(callData, HexCodec.prefixLength(callData, 0, callData.length())), data, 0, data.length);
+    }
 
-        if (!(abiEntry instanceof AbiDefinition.Function)) {
-            throw new IllegalArgumentException("Input data is not a function call, it's of type '" + abiEntry.type + "'.");
+    /**
+     * Decodes the return data in <code>returnData[offset, offset + length)</code> with the outputs of the function with
+     * the given selector, like {@link AbiDefinition.Function#decodeResult(byte[])} but with the output plan compiled
+     * when this decoder was built.
+     *
+     * @return the output values in declaration order
+     * @throws IllegalStateException    if the ABI has no function with the selector
+     * @throws IllegalArgumentException if the return data is shorter than the outputs' head, e.g. <code>0x</code>
+     *                                  when a call reverted or the contract doesn't exist
+     */
+    public List<?> decodeReturnData(int selector, byte[] returnData, int offset, int length) {
+        checkReturnData(returnData, offset, length);
+        CompiledEntry<AbiDefinition.Function> abiFunction = this.functions.get(selector);
+        if (abiFunction == null) {
+            throw new IllegalStateException("Couldn't find method with signature " + String.format("%08x", selector));
         }
+        return abiFunction.decodeOutputs(returnData, offset, length);
+    }
 
-        AbiDefinition.Function abiFunction = (AbiDefinition.Function) abiEntry;
+    /**
+     * Like {@link #decodeReturnData(int, byte[], int, int)}. Functions of this decoder's ABI use their precompiled
+     * output plan, other functions are compiled on each call.
+     */
+    public List<?> decodeReturnData(AbiDefinition.Function function, byte[] returnData, int offset, int length) {
+        checkReturnData(returnData, offset, length);
+        CompiledEntry<AbiDefinition.Function> abiFunction = this.functions.get(function.selector());
+        if (abiFunction == null || abiFunction.entry != function && !CompiledEntry.key(abiFunction.entry).equals(CompiledEntry.key(function))) {
+            abiFunction = CompiledEntry.compile(function, this.options);
+        }
+        return abiFunction.decodeOutputs(returnData, offset, length);
+    }
 
-        List<DecodedFunctionCall.Param> params = new ArrayList<>(abiFunction.inputs.size());
-        List<?> decoded = abiFunction.decode(Hex.decode(inputNoPrefix));
+    private static void checkReturnData(byte[] returnData, int offset, int length) {
+        if (returnData == null || offset < 0 || length < 0 || length > returnData.length - offset) {
+            throw new IllegalArgumentException("Can't decode invalid return data (offset=" + offset + ", length=" + length + ").");
+        }
+    }
 
-        for (int i = 0; i < decoded.size(); i++) {
-            AbiDefinition.Entry.Param paramDefinition = abiFunction.inputs.get(i);
-            DecodedFunctionCall.Param param = new DecodedFunctionCall.Param(paramDefinition.getName(), paramDefinition.getType().getName(), decoded.get(i));
-            params.add(param);
+    /**
+     * @param revertData hex encoded revert data, <code>""</code> or <code>"0x"</code> if the call reverted without data
+     * @see #decodeError(byte[], int, int)
+     */
+    public DecodedError decodeError(String revertData) {
+        if (revertData == null) {
+            throw new IllegalArgumentException("Can't decode invalid revert data 'null'.");
         }
-        return new DecodedFunctionCall(abiFunction.name, params);
+        byte[] data = hexBytes(revertData);
+        return decodeError(data, 0, data.length);
     }
 
+    public DecodedError decodeError(byte[] revertData) {
+        if (revertData == null) {
+            throw new IllegalArgumentException("Can't decode invalid revert data 'null'.");
+        }
+        return decodeError(revertData, 0, revertData.length);
+    }
+
+    /**
+     * Decodes the revert data in <code>revertData[offset, offset + length)</code>. Empty data, <code>Error(string)</code>
+     * and <code>Panic(uint256)</code> are decoded without looking at the ABI, other selectors are looked up in its
+     * errors. Use {@link DecodedError#getKind()} to tell them apart, or {@link DecodedError#kindOf(byte[], int, int)}
+     * to classify revert data without decoding it.
+     *
+     * @throws IllegalStateException if the ABI has no error with the selector
+     */
+    public DecodedError decodeError(byte[] revertData, int offset, int length) {
+        if (revertData == null || offset < 0 || length < 0 || length > revertData.length - offset) {
+            throw new IllegalArgumentException("Can't decode invalid revert data (offset=" + offset + ", length=" + length + ").");
+        }
+        DecodedError builtIn = DecodedError.decodeBuiltIn(revertData, offset, length);
+        if (builtIn != null) {
+            return builtIn;
+        }
+        if (length < 4) {
+            throw new IllegalArgumentException("Can't decode invalid revert data (offset=" + offset + ", length=" + length + ").");
+        }
+        int selector = SelectorIndex.selector(revertData, offset);
+        CompiledEntry<AbiDefinition.Error> abiError = this.errors.get(selector);
+        if (abiError == null) {
+            if (this.functions.get(selector) != null) {
+                throw new IllegalArgumentException("Revert data is not an error, it's of type '" + AbiDefinition.Entry.Type.function + "'.");
+            }
+            throw new IllegalStateException("Couldn't find error with signature " + HexCodec.encode(revertData, offset, 4));
+        }
+        return abiError.decodeError(revertData, offset + 4);
+    }
+
+    /**
+     * Decodes the call data between the buffer's position and limit, the buffer's position isn't changed.
+     * Heap buffers are decoded in place, direct buffers are copied once into a heap array as the decoder works on
+     * <code>byte[]</code>.
+     */
+    public DecodedFunctionCall decodeFunctionCall(ByteBuffer inputData) {
+        if (inputData == null) {
+            throw new IllegalArgumentException("Can't decode invalid input 'null'.");
+        }
+        if (inputData.hasArray()) {
+            return decodeFunctionCall(inputData.array(), inputData.arrayOffset() + inputData.position(), inputData.remaining());
+        }
+        byte[] input = new byte[inputData.remaining()];
+        inputData.duplicate().get(input);
+        return decodeFunctionCall(input, 0, input.length);
+    }
+
+    /**
+     * Decodes the hex encoded call data in parallel on the common fork-join pool.
+     *
+     * @return the decoded calls in input order, an element is <code>null</code> if its input is <code>null</code> or
+     * couldn't be decoded (e.g. unknown selector, invalid hex)
+     */
+    public List<DecodedFunctionCall> decodeAll(List<String> inputData) {
+        return decodeAll(inputData, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #decodeAll(List)} but runs on the given executor. Inputs are grouped by selector, each task decodes
+     * a range of inputs. Blocks until all inputs are decoded.
+     */
+    public List<DecodedFunctionCall> decodeAll(List<String> inputData, Executor executor) {
+        return BatchDecoding.decodeAll(inputData, executor, this::decodeFunctionCall);
+    }
+
+    /**
+     * Decodes the stream like {@link #decodeAll(List)}, the result is in encounter order. The whole stream is collected
+     * into a list before the first input is decoded, so it has to be finite and fit into memory; split large sources
+     * into batches.
+     */
+    public List<DecodedFunctionCall> decodeAll(Stream<String> inputData) {
+        return decodeAll(inputData.collect(Collectors.toList()));
+    }
+
+    /**
+     * Decodes the call, for a function named <code>multicall</code> the calls in its <code>data</code> param instead.
+     *
+     * @see MulticallDecoder for nested and Multicall3 style wrappers
+     */
     public List<DecodedFunctionCall> decodeFunctionsCalls(String inputData) {
 
         DecodedFunctionCall decodedFunctionCall = this.decodeFunctionCall(inputData);
@@ -89,7 +409,7 @@ public class AbiDecoder {
             if (paramValue instanceof String) {
                 resolvedCalls.add(this.decodeFunctionCall((String) paramValue));
             } else if (paramValue instanceof byte[]) {
-                resolvedCalls.add(this.decodeFunctionCall(Hex.toHexString((byte[]) paramValue)));
+                resolvedCalls.add(this.decodeFunctionCall((byte[]) paramValue));
             } else if (paramValue instanceof Object[]) {
                 for (Object singleCallInputData : (Object[]) paramValue) {
                     if (singleCallInputData instanceof String) {
@@ -98,7 +418,7 @@ public class AbiDecoder {
                             resolvedCalls.add(call);
                         }
                     } else if (singleCallInputData instanceof byte[]) {
-                        DecodedFunctionCall call = this.decodeFunctionCall(Hex.toHexString((byte[]) singleCallInputData));
+                        DecodedFunctionCall call = this.decodeFunctionCall((byte[]) singleCallInputData);
                         if (call != null) {
                             resolvedCalls.add(call);
                         }
@@ -118,36 +438,92 @@ public class AbiDecoder {
         if (topics.isEmpty()) {
             throw new IllegalArgumentException("Log.topics is empty");
         }
-        String funcSignature = cleanup(topics.get(0));
-        AbiDefinition.Entry abiEntry = methodSignatures.get(funcSignature);
-        if (abiEntry == null) {
-            throw new IllegalStateException("Couldn't find method with signature " + funcSignature);
-        } else {
-            if (abiEntry instanceof AbiDefinition.Event) {
-                AbiDefinition.Event abiEvent = (AbiDefinition.Event) abiEntry;
-                List<?> decoded = abiEvent.decode(hexBytes(data), topics
-                        .stream()
-                        .map(AbiDecoder::hexBytes)
-                        .toArray(byte[][]::new));
-                List<DecodedFunctionCall.Param> params = new ArrayList<>(abiEvent.inputs.size());
-                for (int i = 0; i < decoded.size(); i++) {
-                    AbiDefinition.Entry.Param paramDefinition = abiEvent.inputs.get(i);
-                    DecodedFunctionCall.Param param = new DecodedFunctionCall.Param(paramDefinition.getName(), paramDefinition.getType()
-                            .getName(), decoded.get(i));
-                    params.add(param);
-                }
-                return new DecodedFunctionCall(abiEvent.name, params);
-            } else {
-                throw new IllegalArgumentException("Input data is not a event, it's of type '" + abiEntry.type + "'.");
+        String topic0 = topics.get(0);
+        int start = HexCodec.prefixLength(topic0, 0, topic0.length());
+        CompiledEntry<AbiDefinition.Event> abiEvent = topic0.length() - start == 64 ? this.events.get(topic0, start) : null;
+        if (abiEvent == null) {
+            throw new IllegalStateException("Couldn't find method with signature " + topic0.substring(start));
+        }
+        byte[][] topicBytes = new byte[topics.size()][];
+        for (int i = 0; i < topicBytes.length; i++) {
+            topicBytes[i] = hexBytes(topics.get(i));
+        }
+        return abiEvent.decodeLog(topicBytes, hexBytes(data));
+    }
+
+    /**
+     * @param topics the log's topics, 32 bytes each
+     */
+    public DecodedFunctionCall decodeLogEvent(byte[][] topics, byte[] data) {
+        return decodeLogEventCompact(topics, data).toDecodedFunctionCall();
+    }
+
+    /**
+     * Like {@link #decodeLogEvent(byte[][], byte[])} but returns the compact {@link DecodedCall}.
+     */
+    public DecodedCall decodeLogEventCompact(byte[][] topics, byte[] data) {
+        if (topics.length == 0) {
+            throw new IllegalArgumentException("Log.topics is empty");
+        }
+        for (byte[] topic : topics) {
+            if (topic.length != 32) {
+                throw new IllegalArgumentException("Topic must be 32 bytes long, but is " + topic.length + ".");
             }
         }
+        return event(topics[0], 0).decodeLogCall(topics, data);
     }
 
-    private static String cleanup(String hex) {
-        return hex.startsWith("0x") ? hex.substring(2) : hex;
+    /**
+     * Decodes a log whose topics are stored one after another in
+     * <code>topics[topicsOffset, topicsOffset + 32 * topicCount)</code>, e.g. as read from a column store. The data is
+     * read from <code>data[dataOffset, dataOffset + dataLength)</code>. Neither array is copied.
+     */
+    public DecodedFunctionCall decodeLogEvent(byte[] topics, int topicsOffset, int topicCount, byte[] data, int dataOffset, int dataLength) {
+        return decodeLogEventCompact(topics, topicsOffset, topicCount, data, dataOffset, dataLength).toDecodedFunctionCall();
     }
 
-    private static byte[] hexBytes(String hex) {
-        return Hex.decode(cleanup(hex));
+    /**
+     * Like {@link #decodeLogEvent(byte[], int, int, byte[], int, int)} but returns the compact {@link DecodedCall}.
+     */
+    public DecodedCall decodeLogEventCompact(byte[] topics, int topicsOffset, int topicCount, byte[] data, int dataOffset, int dataLength) {
+        if (topicCount <= 0 || topicsOffset < 0 || topicsOffset + 32L * topicCount > topics.length) {
+            throw new IllegalArgumentException("Can't decode invalid topics (offset=" + topicsOffset + ", count=" + topicCount + ").");
+        }
+        if (dataOffset < 0 || dataLength < 0 || dataLength > data.length - dataOffset) {
+            throw new IllegalArgumentException("Can't decode invalid data (offset=" + dataOffset + ", length=" + dataLength + ").");
+        }
+        return event(topics, topicsOffset).decodeLogCall(topics, topicsOffset, topicCount, data, dataOffset);
+    }
+
+    private CompiledEntry<AbiDefinition.Event> event(byte[] topics, int offset) {
+        CompiledEntry<AbiDefinition.Event> abiEvent = this.events.get(topics, offset);
+        if (abiEvent == null) {
+            throw new IllegalStateException("Couldn't find method with signature " + HexCodec.encode(topics, offset, 32));
+        }
+        return abiEvent;
+    }
+
+    /**
+     * @return <code>true</code> if hex encoded call data has fewer digits than a selector, with or without
+     * <code>0x</code> or <code>0X</code> prefix
+     */
+    static boolean isShorterThanSelector(String hex) {
+        return hex.length() - HexCodec.prefixLength(hex, 0, hex.length()) < 8;
+    }
+
+    /**
+     * Decodes hex with or without <code>0x</code> prefix, surrounding whitespace (e.g. a trailing newline of input read
+     * from a file) is ignored.
+     */
+    static byte[] hexBytes(String hex) {
+        int start = 0;
+        int end = hex.length();
+        while (start < end && Character.isWhitespace(hex.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(hex.charAt(end - 1))) {
+            end--;
+        }
+        return HexCodec.decode(hex, start, end);
     }
 }
\ No newline at end of file
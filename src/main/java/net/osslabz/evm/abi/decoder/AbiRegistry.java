@@ -0,0 +1,480 @@
+package net.osslabz.evm.abi.decoder;
+
+import lombok.Builder;
+import lombok.Singular;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.AbiSnapshot;
+import net.osslabz.evm.abi.definition.Address;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decodes function calls and logs against many ABIs with a single lookup.
+ * <p>
+ * All functions, errors and events of the registered ABIs share one selector resp. topic index. Entries with the same
+ * signature (and for events the same indexed inputs) are indexed once, the ABI registered first provides the param
+ * names. Different signatures with the same selector are all kept as candidates, in registration order.
+ * <p>
+ * ABIs can optionally be bound to contract addresses. Calls and logs of such a contract are decoded with its own ABI
+ * first and only fall back to the shared index if it doesn't know the selector resp. topic (e.g. for proxies).
+ * <p>
+ * Unlike {@link AbiDecoder} the decode methods return <code>null</code> for unknown selectors and topics, so callers
+ * don't need exceptions to probe. Invalid input still throws an {@link IllegalArgumentException}. Instances are
+ * immutable and thread-safe.
+ * <pre>
+ * AbiRegistry registry = AbiRegistry.builder()
+ *         .abi(erc20)
+ *         .contract(Address.fromHex("0x7a250d5630b4cf539739df2c5dacb4c659f2488d"), uniswapV2Router)
+ *         .build();
+ * </pre>
+ */
+public final class AbiRegistry {
+
+    private final DecoderOptions options;
+    private final List<AbiDefinition> abis;
+    private final List<AbiDecoder> decoders;
+    private final Map<Address, AbiDecoder> contracts;
+
+    private final SelectorIndex<List<CompiledEntry<AbiDefinition.Function>>> functions;
+    private final SelectorIndex<List<CompiledEntry<AbiDefinition.Error>>> errors;
+    private final TopicIndex<List<CompiledEntry<AbiDefinition.Event>>> events = new TopicIndex<>();
+
+    /**
+     * @param abis      ABIs without a contract address
+     * @param contracts ABIs of known contracts, an ABI can be bound to several addresses
+     * @param options   decoder options, {@link DecoderOptions#DEFAULT} if <code>null</code>
+     */
+    @Builder
+    private AbiRegistry(@Singular("abi") List<AbiDefinition> abis, @Singular Map<Address, AbiDefinition> contracts, DecoderOptions options) {
+        this.options = options == null ? DecoderOptions.DEFAULT : options;
+        this.abis = abis;
+
+        // the same entry in several ABIs is compiled only once
+        Map<String, CompiledEntry<?>> compiled = new HashMap<>();
+        Map<AbiDefinition, AbiDecoder> decoderByAbi = new IdentityHashMap<>();
+        List<AbiDecoder> decoders = new ArrayList<>();
+        for (AbiDefinition abi : abis) {
+            decoder(abi, compiled, decoderByAbi, decoders);
+        }
+        Map<Address, AbiDecoder> contractDecoders = new HashMap<>();
+        for (Map.Entry<Address, AbiDefinition> contract : contracts.entrySet()) {
+            contractDecoders.put(contract.getKey(), decoder(contract.getValue(), compiled, decoderByAbi, decoders));
+        }
+        this.decoders = Collections.unmodifiableList(decoders);
+        this.contracts = contractDecoders;
+
+        Map<Integer, Map<String, CompiledEntry<AbiDefinition.Function>>> functions = new LinkedHashMap<>();
+        Map<Integer, Map<String, CompiledEntry<AbiDefinition.Error>>> errors = new LinkedHashMap<>();
+        Map<ByteBuffer, Map<String, CompiledEntry<AbiDefinition.Event>>> events = new LinkedHashMap<>();
+        for (AbiDecoder decoder : decoders) {
+            for (AbiDefinition.Entry entry : decoder.getAbi()) {
+                if (entry instanceof AbiDefinition.Function) {
+                    int selector = entry.selector();
+                    candidates(functions.computeIfAbsent(selector, k -> new LinkedHashMap<>()), decoder.compiledFunction(selector));
+                } else if (entry instanceof AbiDefinition.Error) {
+                    int selector = entry.selector();
+                    candidates(errors.computeIfAbsent(selector, k -> new LinkedHashMap<>()), decoder.compiledError(selector));
+                } else if (entry instanceof AbiDefinition.Event) {
+                    byte[] topic = entry.encodeSignature();
+                    candidates(events.computeIfAbsent(ByteBuffer.wrap(topic), k -> new LinkedHashMap<>()), decoder.compiledEvent(topic, 0));
+                }
+            }
+        }
+        this.functions = new SelectorIndex<>(functions.size());
+        functions.forEach((selector, candidates) -> this.functions.put(selector, Collections.unmodifiableList(new ArrayList<>(candidates.values()))));
+        this.errors = new SelectorIndex<>(errors.size());
+        errors.forEach((selector, candidates) -> this.errors.put(selector, Collections.unmodifiableList(new ArrayList<>(candidates.values()))));
+        events.forEach((topic, candidates) -> this.events.put(topic.array(), Collections.unmodifiableList(new ArrayList<>(candidates.values()))));
+    }
+
+    private AbiDecoder decoder(AbiDefinition abi, Map<String, CompiledEntry<?>> compiled, Map<AbiDefinition, AbiDecoder> decoderByAbi, List<AbiDecoder> decoders) {
+        AbiDecoder decoder = decoderByAbi.get(abi);
+        if (decoder == null) {
+            decoder = new AbiDecoder(abi, this.options, compiled);
+            decoderByAbi.put(abi, decoder);
+            decoders.add(decoder);
+        }
+        return decoder;
+    }
+
+    private static <E extends AbiDefinition.Entry> void candidates(Map<String, CompiledEntry<E>> candidates, CompiledEntry<E> entry) {
+        StringBuilder key = new StringBuilder(entry.entry.formatSignature());
+        if (entry.entry instanceof AbiDefinition.Event) {
+            // ERC-20 and ERC-721 Transfer share the topic but differ in the indexed inputs
+            for (AbiDefinition.Entry.Param param : CompiledEntry.params(entry.entry.inputs)) {
+                key.append(CompiledEntry.isIndexed(param) ? 'i' : '-');
+            }
+        }
+        candidates.putIfAbsent(key.toString(), entry);
+    }
+
+    /**
+     * Builds a registry from a snapshot, its entries come with their selectors and topics so nothing is hashed.
+     */
+    public static AbiRegistry fromSnapshot(AbiSnapshot snapshot) {
+        return fromSnapshot(snapshot, null);
+    }
+
+    /**
+     * @param options decoder options, {@link DecoderOptions#DEFAULT} if <code>null</code>
+     */
+    public static AbiRegistry fromSnapshot(AbiSnapshot snapshot, DecoderOptions options) {
+        return builder().abis(snapshot.getAbis()).contracts(snapshot.getContracts()).options(options).build();
+    }
+
+    /**
+     * @return the registered ABIs and contracts, to be written with {@link AbiSnapshot#write(java.nio.file.Path)}
+     */
+    public AbiSnapshot toSnapshot() {
+        Map<Address, AbiDefinition> contracts = new LinkedHashMap<>();
+        this.contracts.forEach((contract, decoder) -> contracts.put(contract, decoder.getAbi()));
+        return AbiSnapshot.of(this.abis, contracts);
+    }
+
+    public DecoderOptions getOptions() {
+        return this.options;
+    }
+
+    /**
+     * @return a decoder per registered ABI, in registration order
+     */
+    public List<AbiDecoder> getDecoders() {
+        return this.decoders;
+    }
+
+    /**
+     * @return the decoder of the ABI bound to the contract or <code>null</code>
+     */
+    public AbiDecoder getDecoder(Address contract) {
+        return this.contracts.get(contract);
+    }
+
+    /**
+     * @return all functions with the selector in <code>input[offset, offset + 4)</code>, an empty list if there's none
+     */
+    public List<AbiDefinition.Function> findFunctions(byte[] input, int offset) {
+        return definitions(this.functions.get(SelectorIndex.selector(input, offset)));
+    }
+
+    /**
+     * @return all errors with the selector in <code>input[offset, offset + 4)</code>, an empty list if there's none
+     */
+    public List<AbiDefinition.Error> findErrors(byte[] input, int offset) {
+        return definitions(this.errors.get(SelectorIndex.selector(input, offset)));
+    }
+
+    /**
+     * @return all events with the topic in <code>topic[offset, offset + 32)</code>, an empty list if there's none
+     */
+    public List<AbiDefinition.Event> findEvents(byte[] topic, int offset) {
+        return definitions(this.events.get(topic, offset));
+    }
+
+    private static <E extends AbiDefinition.Entry> List<E> definitions(List<CompiledEntry<E>> candidates) {
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        List<E> result = new ArrayList<>(candidates.size());
+        for (CompiledEntry<E> candidate : candidates) {
+            result.add(candidate.entry);
+        }
+        return result;
+    }
+
+    public DecodedFunctionCall decodeFunctionCall(String inputData) {
+        return decodeFunctionCall(null, inputData);
+    }
+
+    /**
+     * @param contract hex address of the called contract, may be <code>null</code>
+     */
+    public DecodedFunctionCall decodeFunctionCall(String contract, String inputData) {
+        if (inputData == null || AbiDecoder.isShorterThanSelector(inputData)) {
+            throw new IllegalArgumentException("Can't decode invalid input '" + inputData + "'.");
+        }
+        byte[] input = AbiDecoder.hexBytes(inputData);
+        return decodeFunctionCall(contract == null ? null : Address.fromHex(contract), input, 0, input.length);
+    }
+
+    public DecodedFunctionCall decodeFunctionCall(byte[] inputData, int offset, int length) {
+        return decodeFunctionCall(null, inputData, offset, length);
+    }
+
+    /**
+     * Decodes the call data in <code>inputData[offset, offset + length)</code>. If several functions share the selector
+     * the first one whose head fits into the data and that decodes without error is returned.
+     *
+     * @param contract the called contract, may be <code>null</code>
+     * @return the decoded call or <code>null</code> if no function with the selector is known
+     * @throws IllegalArgumentException if the data is shorter than the head of the only function with the selector
+     */
+    public DecodedFunctionCall decodeFunctionCall(Address contract, byte[] inputData, int offset, int length) {
+        checkInput(inputData, offset, length);
+        int selector = SelectorIndex.selector(inputData, offset);
+        AbiDecoder decoder = contract == null ? null : this.contracts.get(contract);
+        if (decoder != null) {
+            CompiledEntry<AbiDefinition.Function> function = decoder.compiledFunction(selector);
+            if (function != null) {
+                return function.decodeInputs(inputData, offset + 4, length - 4);
+            }
+        }
+        List<CompiledEntry<AbiDefinition.Function>> candidates = this.functions.get(selector);
+        if (candidates == null) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0).decodeInputs(inputData, offset + 4, length - 4);
+        }
+        RuntimeException failure = null;
+        for (CompiledEntry<AbiDefinition.Function> candidate : candidates) {
+            if (candidate.inputs.getHeadSize() > length - 4) {
+                continue;
+            }
+            try {
+                return candidate.decodeInputs(inputData, offset + 4, length - 4);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the call data with every function that has its selector, candidates that fail to decode are skipped.
+     *
+     * @return the decoded calls in registration order, an empty list if no function with the selector is known
+     */
+    public List<DecodedFunctionCall> decodeFunctionCallCandidates(byte[] inputData, int offset, int length) {
+        checkInput(inputData, offset, length);
+        List<CompiledEntry<AbiDefinition.Function>> candidates = this.functions.get(SelectorIndex.selector(inputData, offset));
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        List<DecodedFunctionCall> result = new ArrayList<>(candidates.size());
+        for (CompiledEntry<AbiDefinition.Function> candidate : candidates) {
+            if (candidate.inputs.getHeadSize() > length - 4) {
+                continue;
+            }
+            try {
+                result.add(candidate.decodeInputs(inputData, offset + 4, length - 4));
+            } catch (RuntimeException e) {
+                // not this one
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the return data in <code>returnData[offset, offset + length)</code> with the outputs of the function with
+     * the given selector, see {@link AbiDecoder#decodeReturnData(int, byte[], int, int)}. If several functions share
+     * the selector the first one whose outputs decode without error is used.
+     *
+     * @param contract the called contract, may be <code>null</code>
+     * @return the output values in declaration order or <code>null</code> if no function with the selector is known
+     */
+    public List<?> decodeReturnData(Address contract, int selector, byte[] returnData, int offset, int length) {
+        if (returnData == null || offset < 0 || length < 0 || length > returnData.length - offset) {
+            throw new IllegalArgumentException("Can't decode invalid return data (offset=" + offset + ", length=" + length + ").");
+        }
+        List<CompiledEntry<AbiDefinition.Function>> candidates = functionCandidates(contract, selector);
+        if (candidates == null) {
+            return null;
+        }
+        RuntimeException failure = null;
+        for (CompiledEntry<AbiDefinition.Function> candidate : candidates) {
+            try {
+                return candidate.decodeOutputs(returnData, offset, length);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * @return the function of the contract's ABI with the selector, else all functions with it or <code>null</code>
+     */
+    List<CompiledEntry<AbiDefinition.Function>> functionCandidates(Address contract, int selector) {
+        AbiDecoder decoder = contract == null ? null : this.contracts.get(contract);
+        CompiledEntry<AbiDefinition.Function> function = decoder == null ? null : decoder.compiledFunction(selector);
+        return function != null ? Collections.singletonList(function) : this.functions.get(selector);
+    }
+
+    public DecodedError decodeError(String revertData) {
+        return decodeError(null, revertData);
+    }
+
+    /**
+     * @param contract   hex address of the reverted contract, may be <code>null</code>
+     * @param revertData hex encoded revert data, <code>""</code> or <code>"0x"</code> if the call reverted without data
+     */
+    public DecodedError decodeError(String contract, String revertData) {
+        if (revertData == null) {
+            throw new IllegalArgumentException("Can't decode invalid revert data 'null'.");
+        }
+        byte[] data = AbiDecoder.hexBytes(revertData);
+        return decodeError(contract == null ? null : Address.fromHex(contract), data, 0, data.length);
+    }
+
+    /**
+     * Decodes the revert data in <code>revertData[offset, offset + length)</code>, see
+     * {@link AbiDecoder#decodeError(byte[], int, int)}. Custom errors are looked up like functions in
+     * {@link #decodeFunctionCall(Address, byte[], int, int)}.
+     *
+     * @param contract the reverted contract, may be <code>null</code>
+     * @return the decoded error or <code>null</code> if it's a custom error with an unknown selector
+     * @throws IllegalArgumentException if the revert data is neither empty nor at least a selector long
+     */
+    public DecodedError decodeError(Address contract, byte[] revertData, int offset, int length) {
+        if (revertData == null || offset < 0 || length < 0 || length > revertData.length - offset) {
+            throw new IllegalArgumentException("Can't decode invalid revert data (offset=" + offset + ", length=" + length + ").");
+        }
+        DecodedError builtIn = DecodedError.decodeBuiltIn(revertData, offset, length);
+        if (builtIn != null) {
+            return builtIn;
+        }
+        if (length < 4) {
+            throw new IllegalArgumentException("Can't decode invalid revert data (offset=" + offset + ", length=" + length + ").");
+        }
+        int selector = SelectorIndex.selector(revertData, offset);
+        AbiDecoder decoder = contract == null ? null : this.contracts.get(contract);
+        if (decoder != null) {
+            CompiledEntry<AbiDefinition.Error> error = decoder.compiledError(selector);
+            if (error != null) {
+                return error.decodeError(revertData, offset + 4);
+            }
+        }
+        List<CompiledEntry<AbiDefinition.Error>> candidates = this.errors.get(selector);
+        if (candidates == null) {
+            return null;
+        }
+        RuntimeException failure = null;
+        for (CompiledEntry<AbiDefinition.Error> candidate : candidates) {
+            if (candidates.size() > 1 && candidate.inputs.getHeadSize() > length - 4) {
+                continue;
+            }
+            try {
+                return candidate.decodeError(revertData, offset + 4);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the hex encoded call data in parallel on the common fork-join pool.
+     *
+     * @return the decoded calls in input order, an element is <code>null</code> if its input is <code>null</code>,
+     * has an unknown selector or couldn't be decoded
+     */
+    public List<DecodedFunctionCall> decodeAll(List<String> inputData) {
+        return decodeAll(inputData, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #decodeAll(List)} but runs on the given executor. Blocks until all inputs are decoded.
+     */
+    public List<DecodedFunctionCall> decodeAll(List<String> inputData, Executor executor) {
+        return BatchDecoding.decodeAll(inputData, executor, this::decodeFunctionCall);
+    }
+
+    public DecodedFunctionCall decodeLogEvent(List<String> topics, String data) {
+        return decodeLogEvent(null, topics, data);
+    }
+
+    /**
+     * @param contract hex address of the contract that emitted the log, may be <code>null</code>
+     */
+    public DecodedFunctionCall decodeLogEvent(String contract, List<String> topics, String data) {
+        byte[][] topicBytes = new byte[topics.size()][];
+        for (int i = 0; i < topicBytes.length; i++) {
+            topicBytes[i] = AbiDecoder.hexBytes(topics.get(i));
+        }
+        return decodeLogEvent(contract == null ? null : Address.fromHex(contract), topicBytes, AbiDecoder.hexBytes(data));
+    }
+
+    /**
+     * Decodes a log. Of several events with the same topic only those with as many indexed inputs as the log has
+     * topics are tried.
+     *
+     * @param contract the contract that emitted the log, may be <code>null</code>
+     * @param topics   the log's topics, 32 bytes each
+     * @return the decoded log or <code>null</code> if no matching event is known
+     */
+    public DecodedFunctionCall decodeLogEvent(Address contract, byte[][] topics, byte[] data) {
+        if (topics.length == 0) {
+            throw new IllegalArgumentException("Log.topics is empty");
+        }
+        for (byte[] topic : topics) {
+            if (topic.length != 32) {
+                throw new IllegalArgumentException("Topic must be 32 bytes long, but is " + topic.length + ".");
+            }
+        }
+        AbiDecoder decoder = contract == null ? null : this.contracts.get(contract);
+        if (decoder != null) {
+            CompiledEntry<AbiDefinition.Event> event = decoder.compiledEvent(topics[0], 0);
+            if (event != null && matchesTopics(event, topics)) {
+                return event.decodeLog(topics, data);
+            }
+        }
+        List<CompiledEntry<AbiDefinition.Event>> candidates = this.events.get(topics[0], 0);
+        if (candidates == null) {
+            return null;
+        }
+        RuntimeException failure = null;
+        for (CompiledEntry<AbiDefinition.Event> candidate : candidates) {
+            if (!matchesTopics(candidate, topics)) {
+                continue;
+            }
+            try {
+                return candidate.decodeLog(topics, data);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return null;
+    }
+
+    private static boolean matchesTopics(CompiledEntry<AbiDefinition.Event> event, byte[][] topics) {
+        return event.topicCount() == topics.length;
+    }
+
+    private static void checkInput(byte[] inputData, int offset, int length) {
+        if (inputData == null || offset < 0 || length < 4 || length > inputData.length - offset) {
+            throw new IllegalArgumentException("Can't decode invalid input (offset=" + offset + ", length=" + length + ").");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AbiRegistry(abis=" + this.decoders.size() + ", contracts=" + this.contracts.size() + ", functions=" + this.functions.size()
+                + ", errors=" + this.errors.size() + ", events=" + this.events.size() + ")";
+    }
+}
@@ -0,0 +1,119 @@
+package net.osslabz.evm.abi.decoder;
+
+import lombok.experimental.UtilityClass;
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Splits a batch of call data over an executor. Inputs are sorted by selector first so each task mostly
+ * decodes calls of the same few functions, results are written back at the input's position.
+ */
+@UtilityClass
+class BatchDecoding {
+
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    /**
+     * @param decode decodes a single input, {@link IllegalArgumentException}s and {@link IllegalStateException}s (the
+     *               decoders' malformed input and unknown selector) are caught and yield a <code>null</code> result
+     */
+    static <T> List<T> decodeAll(List<String> inputs, Executor executor, Function<String, T> decode) {
+        int[] selectors = new int[inputs.size()];
+        for (int i = 0; i < selectors.length; i++) {
+            selectors[i] = selector(inputs.get(i));
+        }
+        return decodeAll(selectors, executor, i -> decodeOrNull(inputs.get(i), decode));
+    }
+
+    /**
+     * Decodes the inputs <code>0</code> to <code>selectors.length - 1</code>.
+     *
+     * @param selectors the selector of each input, used to group the inputs
+     * @param decode    decodes the input with the given index, {@link IllegalArgumentException}s and
+     *                  {@link IllegalStateException}s are caught and yield a <code>null</code> result. Other exceptions
+     *                  fail the whole batch.
+     */
+    static <T> List<T> decodeAll(int[] selectors, Executor executor, IntFunction<T> decode) {
+        int size = selectors.length;
+        Object[] results = new Object[size];
+        if (size == 0) {
+            return new ArrayList<>();
+        }
+
+        // unsigned selector in the upper, input index in the lower half, sorting keeps the input order per selector
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (selectors[i] & 0xFFFFFFFFL) << 32 | i;
+        }
+        Arrays.sort(order);
+
+        int parallelism = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (4 * Math.max(1, parallelism)) + 1);
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(size / chunkSize + 1);
+        for (int start = 0; start < size; start += chunkSize) {
+            int from = start;
+            int to = Math.min(size, start + chunkSize);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (int j = from; j < to; j++) {
+                    int index = (int) order[j];
+                    try {
+                        results[index] = decode.apply(index);
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        results[index] = null;
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+
+        List<T> result = new ArrayList<>(size);
+        for (Object decoded : results) {
+            @SuppressWarnings("unchecked")
+            T value = (T) decoded;
+            result.add(value);
+        }
+        return result;
+    }
+
+    private static <T> T decodeOrNull(String input, Function<String, T> decode) {
+        if (input == null) {
+            return null;
+        }
+        try {
+            return decode.apply(input);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the selector of hex encoded call data, 0 if it can't be read (the input fails to decode later on anyway)
+     */
+    static int selector(String input) {
+        if (input == null) {
+            return 0;
+        }
+        int start = HexCodec.prefixLength(input, 0, input.length());
+        if (input.length() < start + 8) {
+            return 0;
+        }
+        int selector = 0;
+        for (int i = start; i < start + 8; i++) {
+            int digit = HexCodec.digit(input.charAt(i));
+            if (digit < 0) {
+                return 0;
+            }
+            selector = selector << 4 | digit;
+        }
+        return selector;
+    }
+}
@@ -0,0 +1,629 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
+import net.osslabz.evm.abi.definition.SolidityType;
+import net.osslabz.evm.abi.util.ByteUtil;
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the calls of one function, or the logs of one event, straight into instances of a user class, without
+ * building a {@link DecodedFunctionCall} in between.
+ * <p>
+ * The class is resolved once, when the binding is created:
+ * <ul>
+ *     <li>a record is built with its canonical constructor, components are matched to the inputs by name</li>
+ *     <li>a class with exactly one public constructor taking as many params as there are inputs is built with it,
+ *     params are matched by name if the class was compiled with <code>-parameters</code>, by position otherwise</li>
+ *     <li>any other class needs a no-arg constructor, the inputs are written to the non-static fields of the same
+ *     name, inputs without a field are skipped</li>
+ * </ul>
+ * Names are compared case-insensitively and without leading underscores, so <code>_amountIn</code> is bound to
+ * <code>amountIn</code>. Besides the decoded values themselves ({@link BigInteger}, {@link Address},
+ * <code>Boolean</code>, <code>byte[]</code>, <code>String</code> and <code>Object[]</code> for arrays and tuples) an
+ * input can be bound to
+ * <ul>
+ *     <li><code>long</code>, <code>int</code> and their wrappers for uint/int, static inputs are read without a
+ *     {@link BigInteger}. Values out of range throw an {@link ArithmeticException}</li>
+ *     <li><code>boolean</code> for bool</li>
+ *     <li><code>String</code> for uint/int (decimal), address and bytes (hex with <code>0x</code> prefix)</li>
+ *     <li><code>byte[]</code> for address</li>
+ *     <li>arrays and {@link List}s for arrays, converting the elements</li>
+ *     <li>a class for tuples, resolved like the bound class itself</li>
+ * </ul>
+ * Readers, conversions and the constructor or field setters are composed into a single {@link MethodHandle}, decoding
+ * reads only the bound inputs. Instances are thread-safe.
+ *
+ * @see AbiDecoder#bind(String, Class)
+ */
+public final class CallBinding<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final DecoderOptions OPTIONS = DecoderOptions.builder().addressFormat(DecoderOptions.AddressFormat.ADDRESS).build();
+
+    private static final MethodHandle DECODE = virtual("decode", Object.class);
+    private static final MethodHandle DECODE_LONG = virtual("decodeLong", long.class);
+    private static final MethodHandle DECODE_INT = virtual("decodeInt", int.class);
+    private static final MethodHandle DECODE_BOOLEAN = virtual("decodeBoolean", boolean.class);
+    private static final MethodHandle DECODE_TOPIC = virtual("decodeTopic", Object.class);
+    private static final MethodHandle TOPIC = MethodHandles.arrayElementGetter(byte[][].class);
+    private static final MethodHandle ELEMENT = MethodHandles.arrayElementGetter(Object[].class);
+    private static final MethodHandle TO_LONG = helper("toLong", long.class, Object.class);
+    private static final MethodHandle TO_INT = helper("toInt", int.class, Object.class);
+    private static final MethodHandle TO_STRING = helper("toString", String.class, Object.class);
+    private static final MethodHandle TO_HEX = helper("toHex", String.class, Object.class);
+    private static final MethodHandle ADDRESS_BYTES = helper("addressBytes", byte[].class, Object.class);
+    private static final MethodHandle TO_ARRAY = helper("toArray", Object.class, Class.class, MethodHandle.class, Object.class);
+    private static final MethodHandle TO_LIST = helper("toList", List.class, MethodHandle.class, Object.class);
+
+    private final AbiDefinition.Entry entry;
+    private final Class<T> type;
+    private final CompiledEntry<?> compiled;
+    private final boolean event;
+    private final int selector;
+
+    /**
+     * topic0 of a non-anonymous event, <code>null</code> otherwise
+     */
+    private final byte[] topic0;
+
+    /**
+     * <code>(byte[] encoded, int offset)Object</code> for functions, <code>(byte[][] topics, byte[] data)Object</code>
+     * for events
+     */
+    private final MethodHandle handle;
+
+    private CallBinding(AbiDefinition.Entry entry, Class<T> type) {
+        this.entry = entry;
+        this.type = type;
+        this.compiled = CompiledEntry.compile(entry, OPTIONS);
+        this.event = entry instanceof AbiDefinition.Event;
+        List<AbiDefinition.Entry.Param> inputs = CompiledEntry.params(entry.inputs);
+        if (this.event) {
+            this.selector = 0;
+            this.topic0 = Boolean.TRUE.equals(entry.anonymous) ? null : entry.encodeSignature();
+            this.handle = construct(type, inputs, this::logReader, byte[][].class, byte[].class);
+        } else {
+            this.selector = entry.selector();
+            this.topic0 = null;
+            DecodePlan plan = this.compiled.inputs;
+            this.handle = construct(type, inputs, (index, target) -> planReader(plan, index, inputs.get(index), target),
+                    byte[].class, int.class);
+        }
+    }
+
+    /**
+     * Binds the inputs of a function or event to <code>type</code>.
+     *
+     * @throws IllegalArgumentException if the entry is neither a function nor an event or <code>type</code> can't be
+     *                                  bound to its inputs
+     */
+    public static <T> CallBinding<T> of(AbiDefinition.Entry entry, Class<T> type) {
+        if (!(entry instanceof AbiDefinition.Function) && !(entry instanceof AbiDefinition.Event)) {
+            throw new IllegalArgumentException("Only functions and events can be bound, but " + entry.formatSignature() + " is a " + entry.type + ".");
+        }
+        return new CallBinding<>(entry, type);
+    }
+
+    public AbiDefinition.Entry getEntry() {
+        return this.entry;
+    }
+
+    public Class<T> getType() {
+        return this.type;
+    }
+
+    public T decodeFunctionCall(byte[] inputData) {
+        return decodeFunctionCall(inputData, 0, inputData.length);
+    }
+
+    /**
+     * Decodes the call data in <code>inputData[offset, offset + length)</code>, which is neither copied nor modified.
+     *
+     * @throws IllegalArgumentException if the data is too short or has another selector
+     * @throws IllegalStateException    if this binding is for an event
+     */
+    public T decodeFunctionCall(byte[] inputData, int offset, int length) {
+        if (this.event) {
+            throw new IllegalStateException(this.entry.formatSignature() + " is an event.");
+        }
+        if (length < 4 + this.compiled.inputs.getHeadSize()) {
+            throw new IllegalArgumentException("Call data has " + length + " bytes, but " + this.entry.formatSignature() + " takes at least "
+                    + (4 + this.compiled.inputs.getHeadSize()) + ".");
+        }
+        int selector = SelectorIndex.selector(inputData, offset);
+        if (selector != this.selector) {
+            throw new IllegalArgumentException(String.format("Call data has selector %08x, but %s has %08x.", selector, this.entry.formatSignature(), this.selector));
+        }
+        try {
+            return this.type.cast((Object) this.handle.invokeExact(inputData, offset + 4));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * @param topics the log's topics, 32 bytes each, including topic0 unless the event is anonymous
+     * @throws IllegalArgumentException if the log has too few topics, another topic0 or too little data
+     * @throws IllegalStateException    if this binding is for a function
+     */
+    public T decodeLogEvent(byte[][] topics, byte[] data) {
+        if (!this.event) {
+            throw new IllegalStateException(this.entry.formatSignature() + " is a function.");
+        }
+        this.compiled.checkTopicCount(topics.length);
+        if (this.topic0 != null && !Arrays.equals(this.topic0, topics[0])) {
+            throw new IllegalArgumentException("Log has topic0 " + ByteUtil.toHexString(topics[0]) + ", but " + this.entry.formatSignature() + " has "
+                    + ByteUtil.toHexString(this.topic0) + ".");
+        }
+        if (data.length < this.compiled.inputs.getHeadSize()) {
+            throw new IllegalArgumentException("Log data has " + data.length + " bytes, but " + this.entry.formatSignature() + " takes at least "
+                    + this.compiled.inputs.getHeadSize() + ".");
+        }
+        try {
+            return this.type.cast((Object) this.handle.invokeExact(topics, data));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CallBinding(" + this.entry.formatSignature() + " -> " + this.type.getName() + ")";
+    }
+
+    /**
+     * Reads an input of a function from <code>(byte[] encoded, int offset)</code>, static integers and bools bound to
+     * primitives (or their wrappers) are read without allocating.
+     */
+    private static MethodHandle planReader(DecodePlan plan, int index, AbiDefinition.Entry.Param param, Type target) {
+        Class<?> raw = raw(target);
+        Class<?> primitive = MethodType.methodType(raw).unwrap().returnType();
+        Class<?> typeClass = param.getType().getClass();
+        boolean integer = typeClass == SolidityType.UnsignedIntType.class || typeClass == SolidityType.IntType.class;
+        MethodHandle reader = null;
+        if (plan.isNumeric(index) && integer && primitive == long.class) {
+            reader = DECODE_LONG;
+        } else if (plan.isNumeric(index) && integer && primitive == int.class) {
+            reader = DECODE_INT;
+        } else if (plan.isNumeric(index) && typeClass == SolidityType.BoolType.class && primitive == boolean.class) {
+            reader = DECODE_BOOLEAN;
+        }
+        if (reader != null) {
+            return MethodHandles.insertArguments(reader.bindTo(plan), 2, index).asType(MethodType.methodType(raw, byte[].class, int.class));
+        }
+        return MethodHandles.filterReturnValue(MethodHandles.insertArguments(DECODE.bindTo(plan), 2, index),
+                converter(param.getType(), param.getComponents(), target));
+    }
+
+    /**
+     * Reads an input of an event from <code>(byte[][] topics, byte[] data)</code>.
+     */
+    private MethodHandle logReader(int index, Type target) {
+        AbiDefinition.Entry.Param param = this.entry.inputs.get(index);
+        int slot = this.compiled.logSlot(index);
+        if (slot >= 0) {
+            MethodHandle reader = MethodHandles.insertArguments(planReader(this.compiled.inputs, slot, param, target), 1, 0);
+            return MethodHandles.dropArguments(reader, 0, byte[][].class);
+        }
+        int indexed = -slot - 1;
+        // dynamic values are stored as their hash
+        SolidityType type = this.compiled.indexed.isDynamic(indexed) ? SolidityType.getType("bytes32") : param.getType();
+        MethodHandle reader = MethodHandles.filterReturnValue(
+                MethodHandles.insertArguments(DECODE_TOPIC.bindTo(this.compiled.indexed), 1, 0, indexed),
+                converter(type, param.getComponents(), target));
+        int topic = this.compiled.topicCount() - this.compiled.indexed.size() + indexed;
+        reader = MethodHandles.filterArguments(reader, 0, MethodHandles.insertArguments(TOPIC, 1, topic));
+        return MethodHandles.dropArguments(reader, 1, byte[].class);
+    }
+
+    /**
+     * @return <code>(Object)R</code> converting a value decoded for <code>type</code> to the raw type of
+     * <code>target</code>
+     */
+    private static MethodHandle converter(SolidityType type, List<AbiDefinition.Entry.Param> components, Type target) {
+        Class<?> raw = raw(target);
+        Class<?> boxed = MethodType.methodType(raw).wrap().returnType();
+        MethodType converterType = MethodType.methodType(raw, Object.class);
+        Class<?> typeClass = type.getClass();
+        if (raw == Object.class) {
+            return MethodHandles.identity(Object.class);
+        } else if (typeClass == SolidityType.UnsignedIntType.class || typeClass == SolidityType.IntType.class) {
+            if (boxed == Long.class) {
+                return TO_LONG.asType(converterType);
+            } else if (boxed == Integer.class) {
+                return TO_INT.asType(converterType);
+            } else if (raw.isAssignableFrom(BigInteger.class)) {
+                return cast(raw);
+            } else if (raw == String.class) {
+                return TO_STRING;
+            }
+        } else if (typeClass == SolidityType.BoolType.class) {
+            if (boxed == Boolean.class) {
+                return cast(raw);
+            }
+        } else if (typeClass == SolidityType.AddressType.class) {
+            if (raw == Address.class) {
+                return cast(raw);
+            } else if (raw == String.class) {
+                return TO_STRING;
+            } else if (raw == byte[].class) {
+                return ADDRESS_BYTES;
+            }
+        } else if (typeClass == SolidityType.Bytes32Type.class || typeClass == SolidityType.FunctionType.class
+                || typeClass == SolidityType.BytesType.class) {
+            if (raw == byte[].class) {
+                return cast(raw);
+            } else if (raw == String.class) {
+                return TO_HEX;
+            }
+        } else if (typeClass == SolidityType.StringType.class) {
+            if (raw == String.class) {
+                return cast(raw);
+            }
+        } else if (type instanceof SolidityType.ArrayType) {
+            SolidityType elementType = ((SolidityType.ArrayType) type).getElementType();
+            if (raw.isArray()) {
+                Type elementTarget = target instanceof GenericArrayType ? ((GenericArrayType) target).getGenericComponentType() : raw.getComponentType();
+                MethodHandle element = converter(elementType, components, elementTarget).asType(MethodType.methodType(Object.class, Object.class));
+                return MethodHandles.insertArguments(TO_ARRAY, 0, raw.getComponentType(), element).asType(converterType);
+            } else if (raw.isAssignableFrom(ArrayList.class)) {
+                Type elementTarget = target instanceof ParameterizedType ? ((ParameterizedType) target).getActualTypeArguments()[0] : Object.class;
+                MethodHandle element = converter(elementType, components, elementTarget).asType(MethodType.methodType(Object.class, Object.class));
+                return MethodHandles.insertArguments(TO_LIST, 0, element).asType(converterType);
+            }
+        } else if (type instanceof SolidityType.TupleType) {
+            if (raw == Object[].class) {
+                return cast(raw);
+            }
+            if (!raw.isArray() && !raw.isPrimitive() && !Iterable.class.isAssignableFrom(raw)) {
+                List<AbiDefinition.Entry.Param> params = tupleParams((SolidityType.TupleType) type, components);
+                MethodHandle tuple = construct(raw, params, (index, elementTarget) -> MethodHandles.filterReturnValue(
+                        MethodHandles.insertArguments(ELEMENT, 1, index),
+                        converter(params.get(index).getType(), params.get(index).getComponents(), elementTarget)), Object[].class);
+                return tuple.asType(converterType);
+            }
+        }
+        throw new IllegalArgumentException("Can't bind " + type.getCanonicalName() + " to " + target.getTypeName() + ".");
+    }
+
+    private static List<AbiDefinition.Entry.Param> tupleParams(SolidityType.TupleType type, List<AbiDefinition.Entry.Param> components) {
+        if (components != null && components.size() == type.getTypes().size()) {
+            return components;
+        }
+        List<AbiDefinition.Entry.Param> params = new ArrayList<>();
+        for (SolidityType componentType : type.getTypes()) {
+            AbiDefinition.Entry.Param param = new AbiDefinition.Entry.Param();
+            param.setName("");
+            param.setType(componentType);
+            params.add(param);
+        }
+        return params;
+    }
+
+    /**
+     * @return <code>(leading...)Object</code> building an instance of <code>type</code> from the params read by
+     * <code>readers</code>, each reader takes the <code>leading</code> arguments
+     */
+    private static MethodHandle construct(Class<?> type, List<AbiDefinition.Entry.Param> params, Readers readers, Class<?>... leading) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("Can't bind to " + type.getName() + ", it's not a concrete class.");
+        }
+        if (type.getEnclosingClass() != null && !Modifier.isStatic(type.getModifiers())) {
+            throw new IllegalArgumentException("Can't bind to " + type.getName() + ", it's an inner class.");
+        }
+        MethodHandle result;
+        try {
+            Constructor<?> constructor = constructor(type, params.size());
+            result = constructor != null ? construct(constructor, params, readers, leading) : fill(type, params, readers, leading);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Can't bind to " + type.getName() + ": " + e.getMessage(), e);
+        }
+        return result.asType(MethodType.methodType(Object.class, leading));
+    }
+
+    /**
+     * @return the canonical constructor of a record, the only public constructor with <code>paramCount</code> params
+     * or <code>null</code>
+     */
+    private static Constructor<?> constructor(Class<?> type, int paramCount) {
+        Object[] components = recordComponents(type);
+        if (components != null) {
+            Class<?>[] types = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                types[i] = (Class<?>) invoke(components[i], "getType");
+            }
+            try {
+                return type.getDeclaredConstructor(types);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("Record " + type.getName() + " has no canonical constructor.", e);
+            }
+        }
+        Constructor<?> result = null;
+        for (Constructor<?> constructor : type.getConstructors()) {
+            if (paramCount > 0 && constructor.getParameterCount() == paramCount) {
+                if (result != null) {
+                    return null;
+                }
+                result = constructor;
+            }
+        }
+        return result;
+    }
+
+    private static MethodHandle construct(Constructor<?> constructor, List<AbiDefinition.Entry.Param> params, Readers readers, Class<?>... leading)
+            throws IllegalAccessException {
+        Class<?>[] types = constructor.getParameterTypes();
+        Type[] genericTypes = constructor.getGenericParameterTypes();
+        if (genericTypes.length != types.length) {
+            genericTypes = types;
+        }
+        int[] inputs = inputs(constructor, params);
+        setAccessible(constructor);
+        MethodHandle result = LOOKUP.unreflectConstructor(constructor);
+        for (int i = types.length - 1; i >= 0; i--) {
+            MethodHandle reader = readers.reader(inputs[i], genericTypes[i]).asType(MethodType.methodType(types[i], leading));
+            result = MethodHandles.collectArguments(result, i, reader);
+        }
+        int[] reorder = new int[types.length * leading.length];
+        for (int i = 0; i < reorder.length; i++) {
+            reorder[i] = i % leading.length;
+        }
+        return MethodHandles.permuteArguments(result, MethodType.methodType(result.type().returnType(), leading), reorder);
+    }
+
+    /**
+     * @return for each constructor param the index of its input, matched by name if the names are known on both
+     * sides, by position otherwise
+     */
+    private static int[] inputs(Constructor<?> constructor, List<AbiDefinition.Entry.Param> params) {
+        int[] inputs = new int[constructor.getParameterCount()];
+        if (inputs.length != params.size()) {
+            throw new IllegalArgumentException("Constructor of " + constructor.getDeclaringClass().getName() + " takes " + inputs.length + " params, but there are "
+                    + params.size() + " inputs.");
+        }
+        String[] names = parameterNames(constructor);
+        Map<String, Integer> inputIndex = new LinkedHashMap<>();
+        for (int i = params.size() - 1; i >= 0; i--) {
+            inputIndex.put(normalize(params.get(i).getName()), i);
+        }
+        if (names == null || inputIndex.size() != params.size() || inputIndex.containsKey("")) {
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = i;
+            }
+            return inputs;
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            Integer index = inputIndex.get(normalize(names[i]));
+            if (index == null) {
+                throw new IllegalArgumentException("Constructor param " + names[i] + " of " + constructor.getDeclaringClass().getName()
+                        + " matches none of the inputs " + inputIndex.keySet() + ".");
+            }
+            inputs[i] = index;
+        }
+        return inputs;
+    }
+
+    /**
+     * @return component names of a record, param names if compiled with <code>-parameters</code>, otherwise
+     * <code>null</code>
+     */
+    private static String[] parameterNames(Constructor<?> constructor) {
+        Object[] components = recordComponents(constructor.getDeclaringClass());
+        String[] names = new String[constructor.getParameterCount()];
+        if (components != null) {
+            for (int i = 0; i < names.length; i++) {
+                names[i] = (String) invoke(components[i], "getName");
+            }
+            return names;
+        }
+        Parameter[] parameters = constructor.getParameters();
+        for (int i = 0; i < names.length; i++) {
+            if (!parameters[i].isNamePresent()) {
+                return null;
+            }
+            names[i] = parameters[i].getName();
+        }
+        return names;
+    }
+
+    /**
+     * @return <code>(leading...)type</code> creating an instance with the no-arg constructor and setting its fields
+     */
+    private static MethodHandle fill(Class<?> type, List<AbiDefinition.Entry.Param> params, Readers readers, Class<?>... leading)
+            throws IllegalAccessException {
+        Constructor<?> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Can't bind to " + type.getName() + ", it needs a no-arg constructor or a public constructor taking "
+                    + params.size() + " params.", e);
+        }
+        Map<String, Field> fields = new LinkedHashMap<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    fields.putIfAbsent(normalize(field.getName()), field);
+                }
+            }
+        }
+        List<Class<?>> instanceAndLeading = new ArrayList<>();
+        instanceAndLeading.add(type);
+        instanceAndLeading.addAll(Arrays.asList(leading));
+        MethodType setterType = MethodType.methodType(void.class, instanceAndLeading);
+
+        MethodHandle result = MethodHandles.dropArguments(MethodHandles.identity(type), 1, leading);
+        int bound = 0;
+        for (int i = params.size() - 1; i >= 0; i--) {
+            String name = normalize(params.get(i).getName());
+            Field field = name.isEmpty() ? null : fields.get(name);
+            if (field == null) {
+                continue;
+            }
+            setAccessible(field);
+            MethodHandle reader = readers.reader(i, field.getGenericType()).asType(MethodType.methodType(field.getType(), leading));
+            MethodHandle setter = MethodHandles.collectArguments(LOOKUP.unreflectSetter(field), 1, reader).asType(setterType);
+            result = MethodHandles.foldArguments(result, setter);
+            bound++;
+        }
+        if (bound == 0) {
+            throw new IllegalArgumentException("None of the fields of " + type.getName() + " matches an input.");
+        }
+        setAccessible(constructor);
+        return MethodHandles.foldArguments(result, LOOKUP.unreflectConstructor(constructor));
+    }
+
+    private static void setAccessible(java.lang.reflect.AccessibleObject member) {
+        try {
+            member.setAccessible(true);
+        } catch (RuntimeException e) {
+            // not opened to us, unreflecting public members still works
+        }
+    }
+
+    /**
+     * @return the record components of <code>type</code>, <code>null</code> if it's no record or the runtime has no
+     * records
+     */
+    private static Object[] recordComponents(Class<?> type) {
+        try {
+            Method isRecord = Class.class.getMethod("isRecord");
+            if (!(Boolean) isRecord.invoke(type)) {
+                return null;
+            }
+            return (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object invoke(Object target, String method) {
+        try {
+            return target.getClass().getMethod(method).invoke(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        int start = 0;
+        while (start < name.length() && name.charAt(start) == '_') {
+            start++;
+        }
+        return name.substring(start).toLowerCase();
+    }
+
+    private static Class<?> raw(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return raw(((ParameterizedType) type).getRawType());
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(raw(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        } else if (type instanceof WildcardType) {
+            return raw(((WildcardType) type).getUpperBounds()[0]);
+        } else if (type instanceof TypeVariable) {
+            return raw(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        throw new IllegalArgumentException("Can't bind to " + type.getTypeName() + ".");
+    }
+
+    private static MethodHandle cast(Class<?> raw) {
+        return MethodHandles.identity(Object.class).asType(MethodType.methodType(raw, Object.class));
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+    }
+
+    private static MethodHandle virtual(String name, Class<?> returnType) {
+        try {
+            return LOOKUP.findVirtual(DecodePlan.class, name, MethodType.methodType(returnType, byte[].class, int.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle helper(String name, Class<?> returnType, Class<?>... params) {
+        try {
+            return LOOKUP.findStatic(CallBinding.class, name, MethodType.methodType(returnType, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long toLong(Object value) {
+        return ((BigInteger) value).longValueExact();
+    }
+
+    private static int toInt(Object value) {
+        return ((BigInteger) value).intValueExact();
+    }
+
+    private static String toString(Object value) {
+        return value.toString();
+    }
+
+    private static String toHex(Object value) {
+        return HexCodec.encodePrefixed((byte[]) value);
+    }
+
+    private static byte[] addressBytes(Object value) {
+        return ((Address) value).toBytes();
+    }
+
+    private static Object toArray(Class<?> componentType, MethodHandle element, Object value) throws Throwable {
+        Object[] values = (Object[]) value;
+        Object result = Array.newInstance(componentType, values.length);
+        for (int i = 0; i < values.length; i++) {
+            Array.set(result, i, (Object) element.invokeExact(values[i]));
+        }
+        return result;
+    }
+
+    private static List<?> toList(MethodHandle element, Object value) throws Throwable {
+        Object[] values = (Object[]) value;
+        List<Object> result = new ArrayList<>(values.length);
+        for (Object v : values) {
+            result.add((Object) element.invokeExact(v));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the reader of an input for the type it's bound to.
+     */
+    private interface Readers {
+        MethodHandle reader(int index, Type target);
+    }
+}
@@ -0,0 +1,166 @@
+package net.osslabz.evm.abi.decoder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link DecodedFunctionCall} backed by a {@link DecodedCall} or directly by the call data. {@link #getParam(String)}
+ * creates just the requested param, the map of all params is created once when it's accessed. Numeric params read
+ * with {@link #getLong(String)}, {@link #getInt(String)} or {@link #getBoolean(String)} don't create a param at all.
+ * <p>
+ * Backed by the call data, a param is decoded from <code>encoded[offset, offset + length)</code> when it's first
+ * accessed, so a malformed param only fails once it's read. The call data isn't copied, it must not be modified as
+ * long as the instance is used.
+ * <p>
+ * Each param is created once and published through an {@link AtomicReferenceArray}, the map of all params is
+ * unmodifiable and published through a volatile field, so instances can be shared between threads like an eagerly
+ * built {@link DecodedFunctionCall}.
+ */
+final class CompactDecodedFunctionCall extends DecodedFunctionCall {
+
+    private final ParamSchema schema;
+    /**
+     * the decoded values or <code>null</code> if the params are decoded from the call data
+     */
+    private final DecodedCall call;
+    private final DecodePlan inputs;
+    private final byte[] encoded;
+    private final int offset;
+    private final int length;
+    private final AtomicReferenceArray<Param> created;
+    private volatile Map<String, Param> all;
+
+    CompactDecodedFunctionCall(DecodedCall call) {
+        super(call.getName());
+        this.schema = call.schema();
+        this.call = call;
+        this.inputs = null;
+        this.encoded = null;
+        this.offset = 0;
+        this.length = 0;
+        this.created = new AtomicReferenceArray<>(call.size());
+    }
+
+    /**
+     * @param offset points to the first argument (after the selector), the head of the inputs must fit into
+     *               <code>length</code>
+     */
+    CompactDecodedFunctionCall(CompiledEntry<?> function, byte[] encoded, int offset, int length) {
+        super(function.schema.name);
+        this.schema = function.schema;
+        this.call = null;
+        this.inputs = function.inputs;
+        this.encoded = encoded;
+        this.offset = offset;
+        this.length = length;
+        this.created = new AtomicReferenceArray<>(function.schema.size());
+    }
+
+    @Override
+    public Param getParam(String paramName) {
+        Map<String, Param> params = this.all;
+        if (params != null) {
+            return params.get(paramName.toLowerCase());
+        }
+        int index = this.schema.indexOf(paramName);
+        return index < 0 ? null : param(index);
+    }
+
+    @Override
+    public Map<String, Param> params() {
+        Map<String, Param> params = this.all;
+        if (params == null) {
+            String[] keys = this.schema.lowerCaseNames;
+            Map<String, Param> result = new LinkedHashMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                result.put(keys[i], param(i));
+            }
+            // threads racing here build equal maps of the same param objects
+            params = Collections.unmodifiableMap(result);
+            this.all = params;
+        }
+        return params;
+    }
+
+    @Override
+    public void setParams(Map<String, Param> params) {
+        this.all = params;
+    }
+
+    @Override
+    public int getSize() {
+        Map<String, Param> params = this.all;
+        return params != null ? params.size() : this.schema.distinctNames();
+    }
+
+    @Override
+    public long getLong(String paramName) {
+        int index = this.primitiveIndex(paramName);
+        if (index < 0) {
+            return super.getLong(paramName);
+        }
+        return this.call != null ? this.call.getLong(index) : this.inputs.decodeLong(this.encoded, this.offset, index);
+    }
+
+    @Override
+    public int getInt(String paramName) {
+        int index = this.primitiveIndex(paramName);
+        if (index < 0) {
+            return super.getInt(paramName);
+        }
+        return this.call != null ? this.call.getInt(index) : this.inputs.decodeInt(this.encoded, this.offset, index);
+    }
+
+    /**
+     * Bools are read from the call data, numbers through their value like {@link Param#booleanValue()}: a wide uint
+     * or int is <code>true</code> if it's non-zero, reading it as long could overflow.
+     */
+    @Override
+    public boolean getBoolean(String paramName) {
+        int index = this.primitiveIndex(paramName);
+        if (index < 0) {
+            return super.getBoolean(paramName);
+        }
+        if (this.call != null) {
+            return this.call.getBoolean(index);
+        }
+        return "bool".equals(this.schema.types[index])
+                ? this.inputs.decodeBoolean(this.encoded, this.offset, index)
+                : Param.booleanValue(this.schema.names[index], this.schema.types[index], value(index));
+    }
+
+    /**
+     * @return index of a param whose param object hasn't been created yet, -1 otherwise. The values of numbers and
+     * bools are the same in both, so they can be read from the call. Backed by the call data only static numbers and
+     * bools are read directly, their head is within the range.
+     */
+    private int primitiveIndex(String paramName) {
+        if (this.all != null) {
+            return -1;
+        }
+        int index = this.schema.indexOf(paramName);
+        if (index < 0 || this.created.get(index) != null) {
+            return -1;
+        }
+        return this.call != null || this.inputs.isNumeric(index) ? index : -1;
+    }
+
+    private Object value(int index) {
+        return this.inputs.decodeRange(this.encoded, this.offset, this.length, index);
+    }
+
+    private Param param(int index) {
+        Param param = this.created.get(index);
+        if (param == null) {
+            param = this.call != null
+                    ? this.call.getParam(index)
+                    : new Param(this.schema.names[index], this.schema.types[index], value(index));
+            if (!this.created.compareAndSet(index, null, param)) {
+                param = this.created.get(index);
+            }
+        }
+        return param;
+    }
+}
@@ -0,0 +1,240 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ABI entry together with the decode plans compiled for it when the owning decoder is built.
+ * <p>
+ * For functions and errors {@link #inputs} covers all inputs and {@link #outputs} the function's outputs. For events
+ * {@link #inputs} covers the non-indexed inputs (the log's data) and {@link #indexed} the indexed inputs (the topics).
+ */
+final class CompiledEntry<E extends AbiDefinition.Entry> {
+
+    final E entry;
+    final DecodePlan inputs;
+    final DecodePlan outputs;
+    final DecodePlan indexed;
+
+    /**
+     * input names and types, shared by the {@link DecodedCall}s of this entry
+     */
+    final ParamSchema schema;
+
+    /**
+     * for events the position of each input in its plan: <code>i</code> for the i-th data param,
+     * <code>-(i + 1)</code> for the i-th indexed param. <code>null</code> for functions and errors.
+     */
+    private final int[] logSlots;
+
+    private CompiledEntry(E entry, DecodePlan inputs, DecodePlan outputs, DecodePlan indexed) {
+        this.entry = entry;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.indexed = indexed;
+
+        List<AbiDefinition.Entry.Param> params = params(entry.inputs);
+        this.schema = new ParamSchema(entry.name, params);
+
+        if (entry instanceof AbiDefinition.Event) {
+            this.logSlots = new int[params.size()];
+            int indexedCount = 0;
+            int notIndexedCount = 0;
+            for (int i = 0; i < params.size(); i++) {
+                this.logSlots[i] = isIndexed(params.get(i)) ? -(++indexedCount) : notIndexedCount++;
+            }
+        } else {
+            this.logSlots = null;
+        }
+    }
+
+    static <E extends AbiDefinition.Entry> CompiledEntry<E> compile(E entry, DecoderOptions options) {
+        if (entry instanceof AbiDefinition.Event) {
+            List<AbiDefinition.Entry.Param> indexed = new ArrayList<>();
+            List<AbiDefinition.Entry.Param> notIndexed = new ArrayList<>();
+            for (AbiDefinition.Entry.Param param : params(entry.inputs)) {
+                (isIndexed(param) ? indexed : notIndexed).add(param);
+            }
+            return new CompiledEntry<>(entry, DecodePlan.compile(notIndexed, options), DecodePlan.compile(Collections.emptyList()), DecodePlan.compile(indexed, options));
+        }
+        return new CompiledEntry<>(entry, DecodePlan.compile(entry.inputs, options), DecodePlan.compile(entry.outputs, options), DecodePlan.compile(Collections.emptyList()));
+    }
+
+    /**
+     * @return a key which is equal for entries that compile to interchangeable plans and are decoded with the same
+     * names: kind, signature, input names, indexed flags and output types
+     */
+    static String key(AbiDefinition.Entry entry) {
+        StringBuilder key = new StringBuilder().append(entry.type).append(' ').append(entry.formatSignature());
+        if (Boolean.TRUE.equals(entry.anonymous)) {
+            key.append(" anonymous");
+        }
+        for (AbiDefinition.Entry.Param param : params(entry.inputs)) {
+            key.append(isIndexed(param) ? " indexed " : " ").append(param.getName());
+        }
+        key.append(" ->");
+        for (AbiDefinition.Entry.Param param : params(entry.outputs)) {
+            key.append(' ').append(entry.formatParamSignature(param));
+        }
+        return key.toString();
+    }
+
+    static List<AbiDefinition.Entry.Param> params(List<AbiDefinition.Entry.Param> params) {
+        return params == null ? Collections.emptyList() : params;
+    }
+
+    static boolean isIndexed(AbiDefinition.Entry.Param param) {
+        return Boolean.TRUE.equals(param.getIndexed());
+    }
+
+    /**
+     * Decodes the inputs of a function or error, <code>offset</code> points to the first argument (after the selector).
+     */
+    DecodedFunctionCall decodeInputs(byte[] encoded, int offset) {
+        return decodeCall(encoded, offset).toDecodedFunctionCall();
+    }
+
+    /**
+     * Decodes the inputs of a function from its arguments in <code>encoded[offset, offset + length)</code>, after the
+     * selector.
+     *
+     * @throws IllegalArgumentException if the arguments are shorter than the inputs' head or an offset or length in
+     *                                  them points past the range
+     */
+    DecodedFunctionCall decodeInputs(byte[] encoded, int offset, int length) {
+        return decodeCall(encoded, offset, length).toDecodedFunctionCall();
+    }
+
+    /**
+     * Like {@link #decodeInputs(byte[], int)} without the {@link DecodedFunctionCall} view.
+     */
+    DecodedCall decodeCall(byte[] encoded, int offset) {
+        return new DecodedCall(this.schema, this.inputs.decode(encoded, offset));
+    }
+
+    /**
+     * Like {@link #decodeInputs(byte[], int, int)} without the {@link DecodedFunctionCall} view.
+     */
+    DecodedCall decodeCall(byte[] encoded, int offset, int length) {
+        checkHead(length);
+        return new DecodedCall(this.schema, this.inputs.decodeRange(encoded, offset, length));
+    }
+
+    /**
+     * Like {@link #decodeInputs(byte[], int, int)} but only the head size is checked here, an input is decoded when
+     * it's first accessed. The returned call keeps a reference to <code>encoded</code>.
+     */
+    DecodedFunctionCall decodeInputsLazy(byte[] encoded, int offset, int length) {
+        checkHead(length);
+        return new CompactDecodedFunctionCall(this, encoded, offset, length);
+    }
+
+    private void checkHead(int length) {
+        if (length < this.inputs.getHeadSize()) {
+            throw new IllegalArgumentException("Arguments of " + this.entry.name + " have " + length + " bytes, but its inputs take at least "
+                    + this.inputs.getHeadSize() + ".");
+        }
+    }
+
+    /**
+     * Decodes the inputs of a custom error, <code>offset</code> points to the first argument (after the selector).
+     */
+    DecodedError decodeError(byte[] encoded, int offset) {
+        return new DecodedError(DecodedError.Kind.CUSTOM, this.entry.name, toParams(this.entry.inputs, this.inputs.decode(encoded, offset)));
+    }
+
+    /**
+     * Decodes the outputs of a function from its return data in <code>encoded[offset, offset + length)</code>.
+     *
+     * @throws IllegalArgumentException if the return data is shorter than the outputs' head
+     */
+    List<?> decodeOutputs(byte[] encoded, int offset, int length) {
+        if (length < this.outputs.getHeadSize()) {
+            throw new IllegalArgumentException("Return data of " + this.entry.name + " has " + length + " bytes, but its outputs take at least "
+                    + this.outputs.getHeadSize() + ".");
+        }
+        return Arrays.asList(this.outputs.decodeRange(encoded, offset, length));
+    }
+
+    /**
+     * @return number of topics of a log of this event, including topic0 unless the event is anonymous
+     */
+    int topicCount() {
+        return this.indexed.size() + (Boolean.TRUE.equals(this.entry.anonymous) ? 0 : 1);
+    }
+
+    /**
+     * Decodes a log of this event. <code>topics</code> contains the topics of the log including topic0 unless the event
+     * is anonymous.
+     */
+    DecodedFunctionCall decodeLog(byte[][] topics, byte[] data) {
+        return decodeLogCall(topics, data).toDecodedFunctionCall();
+    }
+
+    /**
+     * Like {@link #decodeLog(byte[][], byte[])} without the {@link DecodedFunctionCall} view.
+     */
+    DecodedCall decodeLogCall(byte[][] topics, byte[] data) {
+        checkTopicCount(topics.length);
+        int first = topicCount() - this.indexed.size();
+        Object[] values = new Object[this.logSlots.length];
+        for (int i = 0; i < values.length; i++) {
+            int slot = this.logSlots[i];
+            values[i] = slot < 0
+                    ? this.indexed.decodeTopic(topics[first - slot - 1], 0, -slot - 1)
+                    : this.inputs.decode(data, 0, slot);
+        }
+        return new DecodedCall(this.schema, values);
+    }
+
+    /**
+     * Like {@link #decodeLog(byte[][], byte[])} with the topics stored one after another in
+     * <code>topics[topicsOffset, topicsOffset + 32 * topicCount)</code> and the data starting at
+     * <code>dataOffset</code>.
+     */
+    DecodedFunctionCall decodeLog(byte[] topics, int topicsOffset, int topicCount, byte[] data, int dataOffset) {
+        return decodeLogCall(topics, topicsOffset, topicCount, data, dataOffset).toDecodedFunctionCall();
+    }
+
+    /**
+     * Like {@link #decodeLog(byte[], int, int, byte[], int)} without the {@link DecodedFunctionCall} view.
+     */
+    DecodedCall decodeLogCall(byte[] topics, int topicsOffset, int topicCount, byte[] data, int dataOffset) {
+        checkTopicCount(topicCount);
+        int first = topicsOffset + 32 * (topicCount() - this.indexed.size());
+        Object[] values = new Object[this.logSlots.length];
+        for (int i = 0; i < values.length; i++) {
+            int slot = this.logSlots[i];
+            values[i] = slot < 0
+                    ? this.indexed.decodeTopic(topics, first + 32 * (-slot - 1), -slot - 1)
+                    : this.inputs.decode(data, dataOffset, slot);
+        }
+        return new DecodedCall(this.schema, values);
+    }
+
+    /**
+     * @return for events the position of the input in its plan, see {@link #logSlots}
+     */
+    int logSlot(int index) {
+        return this.logSlots[index];
+    }
+
+    void checkTopicCount(int topicCount) {
+        if (topicCount < topicCount()) {
+            throw new IllegalArgumentException("Event " + this.entry.name + " has " + topicCount() + " topics, but the log only " + topicCount + ".");
+        }
+    }
+
+    private static List<DecodedFunctionCall.Param> toParams(List<AbiDefinition.Entry.Param> definitions, Object[] values) {
+        List<DecodedFunctionCall.Param> params = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            AbiDefinition.Entry.Param paramDefinition = definitions.get(i);
+            params.add(new DecodedFunctionCall.Param(paramDefinition.getName(), paramDefinition.getType().getName(), values[i]));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,475 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
+import net.osslabz.evm.abi.definition.SolidityType;
+import net.osslabz.evm.abi.util.ByteUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, precompiled layout of a list of ABI params: the head offset of every param, whether it's dynamic and a
+ * reader specialised for its type. Decoding is a loop over these tables without walking the {@link SolidityType}
+ * tree, the results are the same as {@link AbiDefinition.Entry.Param#decodeList(List, byte[], int)}.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class DecodePlan {
+
+    private static final int WORD = 32;
+
+    private static final DecodePlan EMPTY = new DecodePlan(Collections.emptyList(), DecoderOptions.DEFAULT);
+
+    private final Reader[] readers;
+    private final int[] headOffsets;
+    private final boolean[] dynamic;
+    private final int headSize;
+
+    private DecodePlan(List<AbiDefinition.Entry.Param> params, DecoderOptions options) {
+        this.readers = new Reader[params.size()];
+        this.headOffsets = new int[params.size()];
+        this.dynamic = new boolean[params.size()];
+        int offset = 0;
+        for (int i = 0; i < params.size(); i++) {
+            Reader reader = reader(params.get(i).getType(), options);
+            this.readers[i] = reader;
+            this.headOffsets[i] = offset;
+            this.dynamic[i] = reader.dynamic;
+            offset += reader.headSize;
+        }
+        this.headSize = offset;
+    }
+
+    public static DecodePlan compile(List<AbiDefinition.Entry.Param> params) {
+        return compile(params, DecoderOptions.DEFAULT);
+    }
+
+    public static DecodePlan compile(List<AbiDefinition.Entry.Param> params, DecoderOptions options) {
+        return params == null || params.isEmpty() ? EMPTY : new DecodePlan(params, options);
+    }
+
+    /**
+     * @return number of params
+     */
+    public int size() {
+        return this.readers.length;
+    }
+
+    /**
+     * @return size of the static head in bytes, dynamic params take one word for their offset
+     */
+    public int getHeadSize() {
+        return this.headSize;
+    }
+
+    public boolean isDynamic(int index) {
+        return this.dynamic[index];
+    }
+
+    /**
+     * @return offset of the param's head slot relative to the start of the encoded params
+     */
+    public int getHeadOffset(int index) {
+        return this.headOffsets[index];
+    }
+
+    /**
+     * Decodes all params, offsets of dynamic params are relative to <code>origOffset</code>.
+     */
+    public Object[] decode(byte[] encoded, int origOffset) {
+        return decodeRange(encoded, origOffset, encoded.length - origOffset);
+    }
+
+    /**
+     * Decodes only the param at <code>index</code>.
+     *
+     * @throws IllegalArgumentException if an offset or length in the encoding exceeds the data
+     */
+    public Object decode(byte[] encoded, int origOffset, int index) {
+        return decodeRange(encoded, origOffset, encoded.length - origOffset, index);
+    }
+
+    /**
+     * Decodes all params from <code>encoded[origOffset, origOffset + length)</code>.
+     *
+     * @throws IllegalArgumentException if a value, offset or length in the encoding exceeds the range
+     */
+    public Object[] decodeRange(byte[] encoded, int origOffset, int length) {
+        Object[] result = new Object[this.readers.length];
+        for (int i = 0; i < this.readers.length; i++) {
+            result[i] = decodeRange(encoded, origOffset, length, i);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes only the param at <code>index</code> from <code>encoded[origOffset, origOffset + length)</code>, the
+     * bytes around the range aren't read even if offsets in the encoding point there.
+     *
+     * @throws IllegalArgumentException if a value, offset or length in the encoding exceeds the range
+     */
+    public Object decodeRange(byte[] encoded, int origOffset, int length, int index) {
+        int end = origOffset + length;
+        int head = origOffset + this.headOffsets[index];
+        try {
+            return this.dynamic[index]
+                    ? this.readers[index].read(encoded, tail(encoded, origOffset, head, end), end)
+                    : this.readers[index].read(encoded, head, end);
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Malformed encoding of param " + index + ", an offset or length exceeds the data.", e);
+        }
+    }
+
+    /**
+     * Decodes the param at <code>index</code> from a log topic. Dynamic values (arrays, string and bytes) are stored as
+     * their Keccak-256 hash in the topic, so the raw 32 bytes are returned for them.
+     */
+    public Object decodeTopic(byte[] topic, int offset, int index) {
+        return this.dynamic[index]
+                ? Arrays.copyOfRange(topic, offset, offset + WORD)
+                : this.readers[index].read(topic, offset, offset + WORD);
+    }
+
+    /**
+     * @return <code>true</code> if the param is a static uint, int or bool which can be read with
+     * {@link #decodeLong(byte[], int, int)}
+     */
+    public boolean isNumeric(int index) {
+        return this.readers[index] instanceof NumericReader;
+    }
+
+    /**
+     * Reads a static uint/int/bool param as long without allocating.
+     *
+     * @throws IllegalArgumentException if the param isn't a static uint, int or bool
+     * @throws ArithmeticException      if the value doesn't fit into a long
+     */
+    public long decodeLong(byte[] encoded, int origOffset, int index) {
+        return numericReader(index).readLong(encoded, origOffset + this.headOffsets[index]);
+    }
+
+    /**
+     * Reads a static uint/int/bool param as int without allocating.
+     *
+     * @throws IllegalArgumentException if the param isn't a static uint, int or bool
+     * @throws ArithmeticException      if the value doesn't fit into an int
+     */
+    public int decodeInt(byte[] encoded, int origOffset, int index) {
+        return Math.toIntExact(decodeLong(encoded, origOffset, index));
+    }
+
+    /**
+     * Reads a static bool param without allocating.
+     *
+     * @throws IllegalArgumentException if the param isn't a bool
+     */
+    public boolean decodeBoolean(byte[] encoded, int origOffset, int index) {
+        if (!(this.readers[index] instanceof BoolReader)) {
+            throw new IllegalArgumentException("Param " + index + " is not a bool.");
+        }
+        return decodeLong(encoded, origOffset, index) != 0;
+    }
+
+    private NumericReader numericReader(int index) {
+        if (!(this.readers[index] instanceof NumericReader)) {
+            throw new IllegalArgumentException("Param " + index + " is not a static uint, int or bool.");
+        }
+        return (NumericReader) this.readers[index];
+    }
+
+    static int offsetAt(byte[] encoded, int offset) {
+        return SolidityType.IntType.decodeIntValue(encoded, offset);
+    }
+
+    /**
+     * @return the word at <code>offset</code> as offset or length
+     * @throws IllegalArgumentException if the word isn't within <code>end</code> or doesn't fit into an int
+     */
+    static int offsetAt(byte[] encoded, int offset, int end) {
+        checkWord(offset, end);
+        if (ByteUtil.readLong(encoded, offset) != 0 || ByteUtil.readLong(encoded, offset + 8) != 0 || ByteUtil.readLong(encoded, offset + 16) != 0
+                || ByteUtil.readInt(encoded, offset + 24) != 0 || ByteUtil.readInt(encoded, offset + 28) < 0) {
+            throw new IllegalArgumentException("Malformed encoding, invalid offset or length at " + offset + ".");
+        }
+        return ByteUtil.readInt(encoded, offset + 28);
+    }
+
+    /**
+     * @return position of the dynamic value whose offset relative to <code>base</code> is stored at <code>head</code>
+     * @throws IllegalArgumentException if the value starts after <code>end</code>
+     */
+    static int tail(byte[] encoded, int base, int head, int end) {
+        int offset = offsetAt(encoded, head, end);
+        if (offset > end - base) {
+            throw new IllegalArgumentException("Malformed encoding, offset " + offset + " at " + head + " exceeds the data.");
+        }
+        return base + offset;
+    }
+
+    static void checkWord(int offset, int end) {
+        if (offset < 0 || offset > end - WORD) {
+            throw new IllegalArgumentException("Malformed encoding, the word at " + offset + " exceeds the data.");
+        }
+    }
+
+    static Reader reader(SolidityType type, DecoderOptions options) {
+        Class<?> typeClass = type.getClass();
+        if (typeClass == SolidityType.UnsignedIntType.class) {
+            return new UnsignedIntReader();
+        } else if (typeClass == SolidityType.IntType.class) {
+            return new IntReader();
+        } else if (typeClass == SolidityType.AddressType.class) {
+            return options.getAddressFormat() == DecoderOptions.AddressFormat.ADDRESS ? new AddressValueReader() : new AddressReader(type);
+        } else if (typeClass == SolidityType.BoolType.class) {
+            return new BoolReader();
+        } else if (typeClass == SolidityType.Bytes32Type.class || typeClass == SolidityType.FunctionType.class) {
+            return new Bytes32Reader();
+        } else if (typeClass == SolidityType.BytesType.class) {
+            return new BytesReader();
+        } else if (typeClass == SolidityType.StringType.class) {
+            return new StringReader();
+        } else if (typeClass == SolidityType.TupleType.class) {
+            return new TupleReader((SolidityType.TupleType) type, options);
+        } else if (typeClass == SolidityType.StaticArrayType.class) {
+            return new StaticArrayReader((SolidityType.StaticArrayType) type, options);
+        } else if (typeClass == SolidityType.DynamicArrayType.class) {
+            return new DynamicArrayReader((SolidityType.DynamicArrayType) type, options);
+        }
+        return new TypeReader(type);
+    }
+
+    /**
+     * Reads a value of one type. <code>offset</code> points to the value itself, for dynamic types the caller already
+     * resolved the offset stored in the head. The value must not extend past <code>end</code>.
+     */
+    abstract static class Reader {
+        final boolean dynamic;
+        final int headSize;
+
+        Reader(boolean dynamic, int headSize) {
+            this.dynamic = dynamic;
+            this.headSize = headSize;
+        }
+
+        Reader(SolidityType type) {
+            this(type.isDynamicType(), type.getFixedSize());
+        }
+
+        abstract Object read(byte[] encoded, int offset, int end);
+    }
+
+    static final class TypeReader extends Reader {
+        private final SolidityType type;
+
+        TypeReader(SolidityType type) {
+            super(type);
+            this.type = type;
+        }
+
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            if (offset < 0 || offset > end - this.headSize) {
+                throw new IllegalArgumentException("Malformed encoding, the " + this.type.getName() + " at " + offset + " exceeds the data.");
+            }
+            return this.type.decode(encoded, offset);
+        }
+    }
+
+    /**
+     * Reader for static numeric words that can also be read as primitive long.
+     */
+    abstract static class NumericReader extends Reader {
+        NumericReader() {
+            super(false, WORD);
+        }
+
+        abstract long readLong(byte[] encoded, int offset);
+    }
+
+    static final class UnsignedIntReader extends NumericReader {
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            checkWord(offset, end);
+            return SolidityType.UnsignedIntType.decodeInt(encoded, offset);
+        }
+
+        @Override
+        long readLong(byte[] encoded, int offset) {
+            return SolidityType.UnsignedIntType.decodeLongExact(encoded, offset);
+        }
+    }
+
+    static final class IntReader extends NumericReader {
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            checkWord(offset, end);
+            return SolidityType.IntType.decodeInt(encoded, offset);
+        }
+
+        @Override
+        long readLong(byte[] encoded, int offset) {
+            return SolidityType.IntType.decodeLongExact(encoded, offset);
+        }
+    }
+
+    static final class BoolReader extends NumericReader {
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            checkWord(offset, end);
+            return offsetAt(encoded, offset) != 0;
+        }
+
+        @Override
+        long readLong(byte[] encoded, int offset) {
+            return offsetAt(encoded, offset) != 0 ? 1 : 0;
+        }
+    }
+
+    static final class AddressReader extends Reader {
+        private final SolidityType type;
+
+        AddressReader(SolidityType type) {
+            super(false, WORD);
+            this.type = type;
+        }
+
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            checkWord(offset, end);
+            if (ByteUtil.readLong(encoded, offset) == 0 && ByteUtil.readInt(encoded, offset + 8) == 0) {
+                return Arrays.copyOfRange(encoded, offset + 12, offset + WORD);
+            }
+            // dirty upper bytes, keep the exact behaviour of AddressType
+            return this.type.decode(encoded, offset);
+        }
+    }
+
+    static final class AddressValueReader extends Reader {
+        AddressValueReader() {
+            super(false, WORD);
+        }
+
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            checkWord(offset, end);
+            return Address.fromWord(encoded, offset);
+        }
+    }
+
+    static final class Bytes32Reader extends Reader {
+        Bytes32Reader() {
+            super(false, WORD);
+        }
+
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            checkWord(offset, end);
+            return Arrays.copyOfRange(encoded, offset, offset + WORD);
+        }
+    }
+
+    static class BytesReader extends Reader {
+        BytesReader() {
+            super(true, WORD);
+        }
+
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            int len = offsetAt(encoded, offset, end);
+            if (len == 0) {
+                return new byte[0];
+            }
+            if (len > end - offset - WORD) {
+                throw new IllegalArgumentException("Malformed bytes, " + len + " bytes exceed the data.");
+            }
+            return Arrays.copyOfRange(encoded, offset + WORD, offset + WORD + len);
+        }
+    }
+
+    static final class StringReader extends BytesReader {
+        @Override
+        Object read(byte[] encoded, int offset, int end) {
+            return new String((byte[]) super.read(encoded, offset, end), StandardCharsets.UTF_8);
+        }
+    }
+
+    static final class TupleReader extends Reader {
+        private final Reader[] components;
+        private final int[] headOffsets;
+
+        TupleReader(SolidityType.TupleType type, DecoderOptions options) {
+            super(type);
+            List<SolidityType> types = type.getTypes();
+            this.components = new Reader[types.size()];
+            this.headOffsets = new int[types.size()];
+            int offset = 0;
+            for (int i = 0; i < types.size(); i++) {
+                this.components[i] = reader(types.get(i), options);
+                this.headOffsets[i] = offset;
+                offset += this.components[i].headSize;
+            }
+        }
+
+        @Override
+        Object read(byte[] encoded, int origOffset, int end) {
+            Object[] ret = new Object[this.components.length];
+            for (int i = 0; i < this.components.length; i++) {
+                Reader component = this.components[i];
+                int head = origOffset + this.headOffsets[i];
+                ret[i] = component.dynamic
+                        ? component.read(encoded, tail(encoded, origOffset, head, end), end)
+                        : component.read(encoded, head, end);
+            }
+            return ret;
+        }
+    }
+
+    static final class StaticArrayReader extends Reader {
+        private final Reader element;
+        private final int size;
+
+        StaticArrayReader(SolidityType.StaticArrayType type, DecoderOptions options) {
+            super(type);
+            this.element = reader(type.getElementType(), options);
+            this.size = type.getSize();
+        }
+
+        @Override
+        Object read(byte[] encoded, int origOffset, int end) {
+            return readElements(this.element, encoded, origOffset, this.size, end);
+        }
+    }
+
+    static final class DynamicArrayReader extends Reader {
+        private final Reader element;
+
+        DynamicArrayReader(SolidityType.DynamicArrayType type, DecoderOptions options) {
+            super(type);
+            this.element = reader(type.getElementType(), options);
+        }
+
+        @Override
+        Object read(byte[] encoded, int origOffset, int end) {
+            return readElements(this.element, encoded, origOffset + WORD, offsetAt(encoded, origOffset, end), end);
+        }
+    }
+
+    static Object[] readElements(Reader element, byte[] encoded, int origOffset, int len, int end) {
+        // every element takes its head, rejects bogus lengths before allocating
+        if (len < 0 || (long) len * element.headSize > end - origOffset) {
+            throw new IllegalArgumentException("Malformed array, " + len + " elements exceed the data.");
+        }
+        Object[] ret = new Object[len];
+        int offset = origOffset;
+        for (int i = 0; i < len; i++) {
+            ret[i] = element.dynamic
+                    ? element.read(encoded, tail(encoded, origOffset, offset, end), end)
+                    : element.read(encoded, offset, end);
+            offset += element.headSize;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,185 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact result of decoding a function call or log: the decoded values in a single array, names and types are
+ * shared by all results of the same function or event.
+ * <p>
+ * Values are kept as decoded: <code>bytes</code> and <code>bytesN</code> stay <code>byte[]</code>, arrays and tuples
+ * <code>Object[]</code>. Unlike {@link DecodedFunctionCall.Param} no hex strings are created unless
+ * {@link #getHex(int)} is called. {@link #toDecodedFunctionCall()} converts it to a {@link DecodedFunctionCall} with
+ * all params, {@link #toLazyDecodedFunctionCall()} returns a view which creates its params only when they're accessed.
+ * <p>
+ * The returned values aren't copied and must not be modified. Instances are immutable otherwise and thread-safe.
+ */
+public final class DecodedCall {
+
+    private final ParamSchema schema;
+    private final Object[] values;
+
+    DecodedCall(ParamSchema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
+    }
+
+    public String getName() {
+        return this.schema.name;
+    }
+
+    /**
+     * @return number of params, including params with duplicate names
+     */
+    public int size() {
+        return this.values.length;
+    }
+
+    public String getParamName(int index) {
+        return this.schema.names[index];
+    }
+
+    public String getParamType(int index) {
+        return this.schema.types[index];
+    }
+
+    /**
+     * @return index of the param with the given name (case-insensitive) or -1. For duplicate names the last param
+     * with that name, like {@link DecodedFunctionCall#getParam(String)}.
+     */
+    public int indexOf(String paramName) {
+        return this.schema.indexOf(paramName);
+    }
+
+    public Object getValue(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * @return the value of the param or <code>null</code> if there's no param with that name
+     */
+    public Object getValue(String paramName) {
+        int index = indexOf(paramName);
+        return index < 0 ? null : this.values[index];
+    }
+
+    /**
+     * @return a <code>bytes</code>, <code>bytesN</code> or <code>address</code> value as hex with <code>0x</code>
+     * prefix, created on each call
+     * @throws IllegalStateException if the value isn't a byte array
+     */
+    public String getHex(int index) {
+        Object value = this.values[index];
+        if (value instanceof byte[]) {
+            return HexCodec.encodePrefixed((byte[]) value);
+        } else if ("address".equals(this.schema.types[index])) {
+            // hex string or Address depending on the decoder options
+            return value.toString();
+        }
+        throw new IllegalStateException("Param " + getParamName(index) + " of type " + getParamType(index) + " is not a byte array.");
+    }
+
+    /**
+     * @throws ArithmeticException   if the value doesn't fit into a long
+     * @throws IllegalStateException if the param isn't numeric
+     * @see DecodedFunctionCall.Param#longValue()
+     */
+    public long getLong(int index) {
+        return DecodedFunctionCall.Param.longValue(getParamName(index), getParamType(index), this.values[index]);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there's no param with that name
+     * @see #getLong(int)
+     */
+    public long getLong(String paramName) {
+        return getLong(requireIndex(paramName));
+    }
+
+    /**
+     * @throws ArithmeticException   if the value doesn't fit into an int
+     * @throws IllegalStateException if the param isn't numeric
+     */
+    public int getInt(int index) {
+        return Math.toIntExact(getLong(index));
+    }
+
+    /**
+     * @throws IllegalArgumentException if there's no param with that name
+     * @see #getInt(int)
+     */
+    public int getInt(String paramName) {
+        return getInt(requireIndex(paramName));
+    }
+
+    /**
+     * @throws IllegalStateException if the param isn't a bool or numeric
+     * @see DecodedFunctionCall.Param#booleanValue()
+     */
+    public boolean getBoolean(int index) {
+        return DecodedFunctionCall.Param.booleanValue(getParamName(index), getParamType(index), this.values[index]);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there's no param with that name
+     * @see #getBoolean(int)
+     */
+    public boolean getBoolean(String paramName) {
+        return getBoolean(requireIndex(paramName));
+    }
+
+    /**
+     * @return a new {@link DecodedFunctionCall.Param} of the param, with byte arrays converted to hex strings
+     */
+    public DecodedFunctionCall.Param getParam(int index) {
+        return new DecodedFunctionCall.Param(getParamName(index), getParamType(index), this.values[index]);
+    }
+
+    /**
+     * @return a {@link DecodedFunctionCall} with all params created
+     */
+    public DecodedFunctionCall toDecodedFunctionCall() {
+        List<DecodedFunctionCall.Param> params = new ArrayList<>(this.values.length);
+        for (int i = 0; i < this.values.length; i++) {
+            params.add(getParam(i));
+        }
+        return new DecodedFunctionCall(getName(), params);
+    }
+
+    /**
+     * @return a {@link DecodedFunctionCall} backed by this call, which creates a param when it's first accessed. It
+     * can be shared between threads like the result of {@link #toDecodedFunctionCall()}.
+     */
+    public DecodedFunctionCall toLazyDecodedFunctionCall() {
+        return new CompactDecodedFunctionCall(this);
+    }
+
+    ParamSchema schema() {
+        return this.schema;
+    }
+
+    private int requireIndex(String paramName) {
+        int index = indexOf(paramName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown param '" + paramName + "' of " + getName() + ".");
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("DecodedCall(name=").append(getName()).append(", params=[");
+        for (int i = 0; i < this.values.length; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            Object value = this.values[i];
+            result.append(getParamType(i)).append(' ').append(getParamName(i)).append('=')
+                    .append(value instanceof byte[] ? getHex(i) : value instanceof Object[] ? Arrays.deepToString((Object[]) value) : value);
+        }
+        return result.append("])").toString();
+    }
+}
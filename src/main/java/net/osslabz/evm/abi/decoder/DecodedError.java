@@ -0,0 +1,184 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.definition.SolidityType;
+import net.osslabz.evm.abi.util.ByteUtil;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decoded revert data: the built-in <code>Error(string)</code> and <code>Panic(uint256)</code> or a custom error of
+ * the ABI.
+ */
+public class DecodedError extends DecodedFunctionCall {
+
+    /**
+     * selector of <code>Error(string)</code>, used by <code>require</code> and <code>revert("...")</code>
+     */
+    public static final int ERROR_SELECTOR = 0x08c379a0;
+
+    /**
+     * selector of <code>Panic(uint256)</code>, used for failed assertions, arithmetic overflows etc.
+     */
+    public static final int PANIC_SELECTOR = 0x4e487b71;
+
+    public enum Kind {
+        /**
+         * no revert data, e.g. <code>require(condition)</code> without message or out of gas
+         */
+        EMPTY,
+        /**
+         * <code>Error(string)</code>
+         */
+        ERROR,
+        /**
+         * <code>Panic(uint256)</code>
+         */
+        PANIC,
+        /**
+         * any other selector, including data too short for a selector
+         */
+        CUSTOM
+    }
+
+    private final Kind kind;
+
+    DecodedError(Kind kind, String name, List<Param> params) {
+        super(name, params);
+        this.kind = kind;
+    }
+
+    /**
+     * Tells the kind of revert data from its selector alone, without decoding it or looking up an ABI.
+     */
+    public static Kind kindOf(byte[] data, int offset, int length) {
+        if (length == 0) {
+            return Kind.EMPTY;
+        }
+        if (length < 4) {
+            return Kind.CUSTOM;
+        }
+        int selector = ByteUtil.readInt(data, offset);
+        return selector == ERROR_SELECTOR ? Kind.ERROR : selector == PANIC_SELECTOR ? Kind.PANIC : Kind.CUSTOM;
+    }
+
+    /**
+     * Decodes empty, <code>Error(string)</code> and <code>Panic(uint256)</code> revert data without looking up an ABI.
+     *
+     * @return <code>null</code> for custom errors
+     */
+    static DecodedError decodeBuiltIn(byte[] data, int offset, int length) {
+        switch (kindOf(data, offset, length)) {
+            case EMPTY:
+                return new DecodedError(Kind.EMPTY, null, Collections.emptyList());
+            case ERROR:
+                return decodeErrorString(data, offset, length);
+            case PANIC:
+                return decodePanic(data, offset, length);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Decodes <code>Error(string)</code> revert data, the message is returned as param <code>message</code>.
+     *
+     * @throws IllegalArgumentException if the string's offset or length exceed the data
+     */
+    static DecodedError decodeErrorString(byte[] data, int offset, int length) {
+        int args = offset + 4;
+        int end = offset + length;
+        long stringOffset = args + (long) word(data, args, end);
+        if (stringOffset > end) {
+            throw new IllegalArgumentException("Malformed Error(string), the message offset exceeds the revert data.");
+        }
+        int stringLength = word(data, (int) stringOffset, end);
+        if (stringOffset + 32 + stringLength > end) {
+            throw new IllegalArgumentException("Malformed Error(string), the message exceeds the revert data.");
+        }
+        String message = new String(data, (int) stringOffset + 32, stringLength, StandardCharsets.UTF_8);
+        return new DecodedError(Kind.ERROR, "Error", Collections.singletonList(new Param("message", "string", message)));
+    }
+
+    /**
+     * Decodes <code>Panic(uint256)</code> revert data, the code is returned as param <code>code</code>.
+     */
+    static DecodedError decodePanic(byte[] data, int offset, int length) {
+        if (length < 4 + 32) {
+            throw new IllegalArgumentException("Malformed Panic(uint256), expected 36 bytes but got " + length + ".");
+        }
+        BigInteger code = SolidityType.UnsignedIntType.decodeInt(data, offset + 4);
+        return new DecodedError(Kind.PANIC, "Panic", Collections.singletonList(new Param("code", "uint256", code)));
+    }
+
+    private static int word(byte[] data, int position, int end) {
+        if (position < 0 || position + 32 > end) {
+            throw new IllegalArgumentException("Malformed Error(string), " + position + " is beyond the revert data.");
+        }
+        if (ByteUtil.readLong(data, position) != 0 || ByteUtil.readLong(data, position + 8) != 0 || ByteUtil.readLong(data, position + 16) != 0
+                || ByteUtil.readInt(data, position + 24) != 0 || ByteUtil.readInt(data, position + 28) < 0) {
+            throw new IllegalArgumentException("Malformed Error(string), invalid offset or length at " + position + ".");
+        }
+        return ByteUtil.readInt(data, position + 28);
+    }
+
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * @return the message of an <code>Error(string)</code>, <code>null</code> for other kinds
+     */
+    public String getMessage() {
+        return this.kind == Kind.ERROR ? (String) getParam("message").getValue() : null;
+    }
+
+    /**
+     * @return the code of a <code>Panic(uint256)</code>, e.g. <code>0x11</code> for an arithmetic overflow, -1 for
+     * other kinds or codes beyond int range
+     */
+    public int getPanicCode() {
+        if (this.kind != Kind.PANIC) {
+            return -1;
+        }
+        BigInteger code = (BigInteger) getParam("code").getValue();
+        return code.bitLength() < 32 ? code.intValue() : -1;
+    }
+
+    /**
+     * @return what the Solidity compiler uses the panic code for, <code>null</code> for unknown codes
+     */
+    public static String describePanic(int code) {
+        switch (code) {
+            case 0x00:
+                return "generic compiler inserted panic";
+            case 0x01:
+                return "assertion failed";
+            case 0x11:
+                return "arithmetic overflow or underflow";
+            case 0x12:
+                return "division or modulo by zero";
+            case 0x21:
+                return "invalid enum value";
+            case 0x22:
+                return "incorrectly encoded storage byte array";
+            case 0x31:
+                return "pop on empty array";
+            case 0x32:
+                return "array index out of bounds";
+            case 0x41:
+                return "out of memory";
+            case 0x51:
+                return "call to zero-initialized function";
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DecodedError(kind=" + this.kind + ", name=" + getName() + ", params=" + params() + ")";
+    }
+}
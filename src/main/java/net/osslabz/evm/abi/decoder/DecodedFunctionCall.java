@@ -1,8 +1,9 @@
 package net.osslabz.evm.abi.decoder;
 
 import lombok.Data;
-import net.osslabz.evm.abi.util.ByteUtil;
+import net.osslabz.evm.abi.util.HexCodec;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -19,14 +20,26 @@ public class DecodedFunctionCall {
 
     public DecodedFunctionCall(String name, List<Param> params) {
         this.name = name;
-        this.params = new LinkedHashMap<>();
+        this.params = toMap(params);
+    }
+
+    /**
+     * For subclasses that provide the params on demand by overriding {@link #params()}.
+     */
+    protected DecodedFunctionCall(String name) {
+        this.name = name;
+    }
+
+    protected static Map<String, Param> toMap(List<Param> params) {
+        Map<String, Param> result = new LinkedHashMap<>();
         for (Param param : params) {
-            this.params.put(param.getName().toLowerCase(), param);
+            result.put(param.getName().toLowerCase(), param);
         }
+        return result;
     }
 
     public Param getParam(String paramName) {
-        return this.params.get(paramName.toLowerCase());
+        return this.params().get(paramName.toLowerCase());
     }
 
     public Map<String, Param> params() {
@@ -34,7 +47,7 @@ public class DecodedFunctionCall {
     }
 
     public Collection<Param> getParams() {
-        return this.params.values();
+        return this.params().values();
     }
 
     public List<Param> getParamList() {
@@ -42,7 +55,41 @@ public class DecodedFunctionCall {
     }
 
     public int getSize() {
-        return this.params.size();
+        return this.params().size();
+    }
+
+    /**
+     * @throws IllegalArgumentException if there's no param with that name
+     * @throws ArithmeticException      if the value doesn't fit into a long
+     * @see Param#longValue()
+     */
+    public long getLong(String paramName) {
+        return this.requireParam(paramName).longValue();
+    }
+
+    /**
+     * @throws IllegalArgumentException if there's no param with that name
+     * @throws ArithmeticException      if the value doesn't fit into an int
+     * @see Param#intValue()
+     */
+    public int getInt(String paramName) {
+        return this.requireParam(paramName).intValue();
+    }
+
+    /**
+     * @throws IllegalArgumentException if there's no param with that name
+     * @see Param#booleanValue()
+     */
+    public boolean getBoolean(String paramName) {
+        return this.requireParam(paramName).booleanValue();
+    }
+
+    private Param requireParam(String paramName) {
+        Param param = this.getParam(paramName);
+        if (param == null) {
+            throw new IllegalArgumentException("Unknown param '" + paramName + "' of " + this.name + ".");
+        }
+        return param;
     }
 
 
@@ -56,19 +103,65 @@ public class DecodedFunctionCall {
             this.name = name;
             this.type = type;
             if (value instanceof byte[]) {
-                this.value = "0x" + ByteUtil.toHexString((byte[]) value);
+                this.value = HexCodec.encodePrefixed((byte[]) value);
             } else if (value instanceof Object[]) {
                 Object[] valueAsObjectArray = (Object[]) value;
                 this.value = new Object[valueAsObjectArray.length];
                 for (int i = 0; i < valueAsObjectArray.length; i++) {
                     Object o = valueAsObjectArray[i];
-                    ((Object[]) this.value)[i] = o instanceof byte[] ? "0x" + ByteUtil.toHexString((byte[]) o) : o;
+                    ((Object[]) this.value)[i] = o instanceof byte[] ? HexCodec.encodePrefixed((byte[]) o) : o;
                 }
             } else {
                 this.value = value;
             }
         }
 
+        /**
+         * @return the value of a uint/int/bool param as long
+         * @throws ArithmeticException   if the value doesn't fit into a long
+         * @throws IllegalStateException if the param isn't numeric
+         */
+        public long longValue() {
+            return longValue(this.name, this.type, this.value);
+        }
+
+        static long longValue(String name, String type, Object value) {
+            if (value instanceof BigInteger) {
+                return ((BigInteger) value).longValueExact();
+            } else if (value instanceof Number) {
+                return ((Number) value).longValue();
+            } else if (value instanceof Boolean) {
+                return (Boolean) value ? 1 : 0;
+            }
+            throw new IllegalStateException("Param " + name + " of type " + type + " is not numeric.");
+        }
+
+        /**
+         * @return the value of a uint/int/bool param as int
+         * @throws ArithmeticException   if the value doesn't fit into an int
+         * @throws IllegalStateException if the param isn't numeric
+         */
+        public int intValue() {
+            return Math.toIntExact(longValue());
+        }
+
+        /**
+         * @return the value of a bool param, numeric values are <code>true</code> if they are not zero
+         * @throws IllegalStateException if the param isn't a bool or numeric
+         */
+        public boolean booleanValue() {
+            return booleanValue(this.name, this.type, this.value);
+        }
+
+        static boolean booleanValue(String name, String type, Object value) {
+            if (value instanceof Boolean) {
+                return (Boolean) value;
+            } else if (value instanceof BigInteger) {
+                return ((BigInteger) value).signum() != 0;
+            }
+            return longValue(name, type, value) != 0;
+        }
+
         public String toString() {
             String valueString = this.value == null ? "null" : (this.value.getClass().isArray() ? Arrays.toString((Object[]) this.value) : this.value.toString());
             return this.getClass().getName() + "(name=" + this.name + ", type=" + this.getType() + ", value=" + valueString + ")";
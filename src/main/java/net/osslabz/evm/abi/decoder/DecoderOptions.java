@@ -0,0 +1,32 @@
+package net.osslabz.evm.abi.decoder;
+
+import lombok.Builder;
+import lombok.Value;
+import net.osslabz.evm.abi.definition.Address;
+
+/**
+ * Options of an {@link AbiDecoder}, immutable.
+ */
+@Value
+@Builder(toBuilder = true)
+public class DecoderOptions {
+
+    public static final DecoderOptions DEFAULT = DecoderOptions.builder().build();
+
+    /**
+     * How decoded <code>address</code> values are returned, default {@link AddressFormat#HEX_STRING}.
+     */
+    @Builder.Default
+    AddressFormat addressFormat = AddressFormat.HEX_STRING;
+
+    public enum AddressFormat {
+        /**
+         * lower case hex string with <code>0x</code> prefix (as <code>byte[20]</code> in nested values)
+         */
+        HEX_STRING,
+        /**
+         * {@link Address} value, the upper 12 bytes of the word are ignored
+         */
+        ADDRESS
+    }
+}
@@ -0,0 +1,459 @@
+package net.osslabz.evm.abi.decoder;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
+import net.osslabz.evm.abi.util.ByteUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unpacks multicalls into the calls they bundle, recursively up to a maximum depth.
+ * <p>
+ * The wrapper encodings are walked on the raw call data: sub-calls are decoded as slices of the input array, without
+ * copying or hex encoding them. Calls are decoded with an {@link AbiDecoder} or, to decode the calls of Multicall3
+ * style wrappers by their target contract, with an {@link AbiRegistry}. Large batches of sub-calls are decoded in
+ * parallel.
+ * <p>
+ * Unlike {@link AbiDecoder#decodeFunctionsCalls(String)} unknown or undecodable sub-calls don't fail the whole
+ * multicall, their {@link SubCall#getCall()} is <code>null</code>. Nested wrappers can reference the same sub-calls
+ * many times, the total number of calls unpacked from one input is limited by <code>maxCalls</code>. Instances are
+ * immutable and thread-safe.
+ * <p>
+ * The return data of a multicall is unpacked the same way by {@link #decodeResults(Address, byte[], int, int, byte[],
+ * int, int)}, each call's return data is decoded with the outputs of the called function.
+ * <pre>
+ * MulticallDecoder multicalls = MulticallDecoder.builder().registry(registry).maxDepth(2).build();
+ * for (MulticallDecoder.SubCall call : multicalls.decode(multicall3, input, 0, input.length)) { ... }
+ * </pre>
+ */
+public final class MulticallDecoder {
+
+    public static final int DEFAULT_MAX_DEPTH = 4;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+    public static final int DEFAULT_MAX_CALLS = 65536;
+
+    private static final int WORD = 32;
+
+    private final AbiDecoder decoder;
+    private final AbiRegistry registry;
+    private final SelectorIndex<MulticallWrapper> wrappers;
+    private final int maxDepth;
+    private final int maxCalls;
+    private final Executor executor;
+    private final int parallelThreshold;
+
+    /**
+     * @param decoder           decodes the calls, either this or <code>registry</code> must be set
+     * @param registry          decodes the calls by their target contract
+     * @param wrappers          functions to unpack, {@link MulticallWrapper#DEFAULTS} if empty
+     * @param maxDepth          how many levels of nested wrappers are unpacked, {@link #DEFAULT_MAX_DEPTH} if
+     *                          <code>null</code>. Wrappers below are returned as calls.
+     * @param maxCalls          maximum number of calls unpacked from one input, {@link #DEFAULT_MAX_CALLS} if
+     *                          <code>null</code>
+     * @param executor          executor for decoding large batches, the common fork-join pool if <code>null</code>
+     * @param parallelThreshold minimum number of sub-calls decoded in parallel, {@link #DEFAULT_PARALLEL_THRESHOLD}
+     *                          if <code>null</code>
+     */
+    @Builder
+    private MulticallDecoder(AbiDecoder decoder, AbiRegistry registry, @Singular List<MulticallWrapper> wrappers, Integer maxDepth,
+                             Integer maxCalls, Executor executor, Integer parallelThreshold) {
+        if ((decoder == null) == (registry == null)) {
+            throw new IllegalArgumentException("Either a decoder or a registry is required.");
+        }
+        this.decoder = decoder;
+        this.registry = registry;
+        List<MulticallWrapper> unpacked = wrappers.isEmpty() ? MulticallWrapper.DEFAULTS : wrappers;
+        this.wrappers = new SelectorIndex<>(unpacked.size());
+        for (MulticallWrapper wrapper : unpacked) {
+            this.wrappers.put(wrapper.getSelector(), wrapper);
+        }
+        this.maxDepth = maxDepth == null ? DEFAULT_MAX_DEPTH : maxDepth;
+        this.maxCalls = maxCalls == null ? DEFAULT_MAX_CALLS : maxCalls;
+        this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
+        this.parallelThreshold = parallelThreshold == null ? DEFAULT_PARALLEL_THRESHOLD : parallelThreshold;
+    }
+
+    /**
+     * A call bundled by a multicall, or the input itself if it's not a wrapper.
+     */
+    @Value
+    public static class SubCall {
+        /**
+         * the called contract as far as known: the target of the enclosing call tuple, else the contract the input
+         * was sent to
+         */
+        Address target;
+        /**
+         * number of wrappers around the call, 0 for the input itself
+         */
+        int depth;
+        /**
+         * position of the call data in the input array
+         */
+        int offset;
+        int length;
+        /**
+         * <code>null</code> if the selector is unknown or the call data couldn't be decoded
+         */
+        DecodedFunctionCall call;
+    }
+
+    /**
+     * The result of a call bundled by a multicall, or of the input itself if it's not a wrapper.
+     */
+    @Value
+    public static class SubResult {
+        /**
+         * the called contract as far as known, see {@link SubCall#getTarget()}
+         */
+        Address target;
+        /**
+         * number of wrappers around the call, 0 for the input itself
+         */
+        int depth;
+        /**
+         * the called function, <code>null</code> if the selector is unknown
+         */
+        AbiDefinition.Function function;
+        /**
+         * <code>false</code> if the wrapper reported the call as failed, the return data is the revert data then
+         */
+        boolean success;
+        /**
+         * position of the call's return data in the return data array
+         */
+        int offset;
+        int length;
+        /**
+         * the decoded outputs, <code>null</code> if the call failed, the function is unknown or the return data
+         * couldn't be decoded
+         */
+        List<?> values;
+    }
+
+    public List<SubCall> decode(String inputData) {
+        if (inputData == null) {
+            throw new IllegalArgumentException("Can't decode invalid input 'null'.");
+        }
+        byte[] input = AbiDecoder.hexBytes(inputData);
+        return decode(null, input, 0, input.length);
+    }
+
+    public List<SubCall> decode(byte[] inputData) {
+        if (inputData == null) {
+            throw new IllegalArgumentException("Can't decode invalid input 'null'.");
+        }
+        return decode(null, inputData, 0, inputData.length);
+    }
+
+    /**
+     * Unpacks the call data in <code>inputData[offset, offset + length)</code>. The array isn't copied, the returned
+     * calls don't reference it.
+     *
+     * @param contract the contract the call data was sent to, may be <code>null</code>
+     * @return the innermost calls in call order, the input itself if it isn't a wrapper
+     * @throws IllegalArgumentException if the input is a wrapper whose encoding is malformed or that bundles more than
+     *                                  <code>maxCalls</code> calls
+     */
+    public List<SubCall> decode(Address contract, byte[] inputData, int offset, int length) {
+        if (inputData == null || offset < 0 || length < 0 || length > inputData.length - offset) {
+            throw new IllegalArgumentException("Can't decode invalid input (offset=" + offset + ", length=" + length + ").");
+        }
+        List<Slice> slices = new ArrayList<>();
+        unpack(inputData, offset, length, contract, 0, slices);
+
+        List<DecodedFunctionCall> calls;
+        if (slices.size() >= this.parallelThreshold) {
+            int[] selectors = new int[slices.size()];
+            for (int i = 0; i < selectors.length; i++) {
+                Slice slice = slices.get(i);
+                selectors[i] = slice.length < 4 ? 0 : SelectorIndex.selector(inputData, slice.offset);
+            }
+            calls = BatchDecoding.decodeAll(selectors, this.executor, i -> decodeCall(inputData, slices.get(i)));
+        } else {
+            calls = new ArrayList<>(slices.size());
+            for (Slice slice : slices) {
+                calls.add(decodeOrNull(inputData, slice));
+            }
+        }
+
+        List<SubCall> result = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            Slice slice = slices.get(i);
+            result.add(new SubCall(slice.target, slice.depth, slice.offset, slice.length, calls.get(i)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Adds the call at <code>data[offset, offset + length)</code> to <code>slices</code>, or if it's a wrapper the
+     * calls it bundles.
+     */
+    private void unpack(byte[] data, int offset, int length, Address target, int depth, List<Slice> slices) {
+        MulticallWrapper wrapper = wrapper(data, offset, length, depth);
+        if (wrapper != null) {
+            List<Slice> calls;
+            try {
+                calls = calls(wrapper, data, offset, length, target, depth);
+            } catch (IllegalArgumentException e) {
+                if (depth == 0) {
+                    throw e;
+                }
+                // a nested call that only looks like a wrapper is returned as is
+                calls = null;
+            }
+            if (calls != null) {
+                for (Slice call : calls) {
+                    unpack(data, call.offset, call.length, call.target, call.depth, slices);
+                }
+                return;
+            }
+        }
+        checkCallCount(slices.size());
+        slices.add(new Slice(offset, length, target, depth));
+    }
+
+    private void checkCallCount(int count) {
+        if (count >= this.maxCalls) {
+            throw new IllegalArgumentException("Multicall bundles more than " + this.maxCalls + " calls.");
+        }
+    }
+
+    private MulticallWrapper wrapper(byte[] data, int offset, int length, int depth) {
+        return depth < this.maxDepth && length >= 4 ? this.wrappers.get(SelectorIndex.selector(data, offset)) : null;
+    }
+
+    /**
+     * @return the calls bundled by the wrapper call at <code>data[offset, offset + length)</code>, one level deep
+     * @throws IllegalArgumentException if the wrapper's encoding is malformed
+     */
+    private static List<Slice> calls(MulticallWrapper wrapper, byte[] data, int offset, int length, Address target, int depth) {
+        int end = offset + length;
+        int args = offset + 4;
+        int array = args + word(data, args + wrapper.getHeadOffset(), end);
+        int count = word(data, array, end);
+        int elements = array + WORD;
+        // every element takes at least its head word, rejects bogus counts before iterating
+        checkRange(elements, (long) count * WORD, end);
+        List<Slice> calls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Address callTarget = target;
+            int callData;
+            if (wrapper.getCallDataWord() < 0) {
+                callData = elements + word(data, elements + i * WORD, end);
+            } else {
+                int tuple = elements + word(data, elements + i * WORD, end);
+                if (wrapper.getTargetWord() >= 0) {
+                    checkRange(tuple + wrapper.getTargetWord() * WORD, WORD, end);
+                    callTarget = Address.fromWord(data, tuple + wrapper.getTargetWord() * WORD);
+                }
+                callData = tuple + word(data, tuple + wrapper.getCallDataWord() * WORD, end);
+            }
+            int callLength = word(data, callData, end);
+            checkRange(callData + WORD, callLength, end);
+            calls.add(new Slice(callData + WORD, callLength, callTarget, depth + 1));
+        }
+        return calls;
+    }
+
+    public List<SubResult> decodeResults(String inputData, String returnData) {
+        if (inputData == null || returnData == null) {
+            throw new IllegalArgumentException("Can't decode invalid input 'null'.");
+        }
+        byte[] input = AbiDecoder.hexBytes(inputData);
+        byte[] output = AbiDecoder.hexBytes(returnData);
+        return decodeResults(null, input, 0, input.length, output, 0, output.length);
+    }
+
+    /**
+     * Unpacks the return data in <code>returnData[returnOffset, returnOffset + returnLength)</code> of the multicall in
+     * <code>inputData[inputOffset, inputOffset + inputLength)</code> in a single pass: the call data tells which
+     * function each return blob belongs to, both arrays are walked in place. Nested wrappers are unpacked if their
+     * call succeeded and their result layout is known, see {@link MulticallWrapper#of(String, String)}.
+     *
+     * @param contract the contract the call data was sent to, may be <code>null</code>
+     * @return the results of the innermost calls in call order, the result of the input itself if it isn't a wrapper
+     * @throws IllegalArgumentException if the input is a wrapper and its encoding or the return data is malformed, or
+     *                                  the number of results doesn't match the number of calls, or it bundles more
+     *                                  than <code>maxCalls</code> calls
+     */
+    public List<SubResult> decodeResults(Address contract, byte[] inputData, int inputOffset, int inputLength,
+                                         byte[] returnData, int returnOffset, int returnLength) {
+        if (inputData == null || inputOffset < 0 || inputLength < 0 || inputLength > inputData.length - inputOffset) {
+            throw new IllegalArgumentException("Can't decode invalid input (offset=" + inputOffset + ", length=" + inputLength + ").");
+        }
+        if (returnData == null || returnOffset < 0 || returnLength < 0 || returnLength > returnData.length - returnOffset) {
+            throw new IllegalArgumentException("Can't decode invalid return data (offset=" + returnOffset + ", length=" + returnLength + ").");
+        }
+        List<ResultSlice> slices = new ArrayList<>();
+        unpackResults(inputData, new Slice(inputOffset, inputLength, contract, 0), returnData, returnOffset, returnLength, true, slices);
+
+        if (slices.size() >= this.parallelThreshold) {
+            int[] selectors = new int[slices.size()];
+            for (int i = 0; i < selectors.length; i++) {
+                Slice call = slices.get(i).call;
+                selectors[i] = call.length < 4 ? 0 : SelectorIndex.selector(inputData, call.offset);
+            }
+            List<SubResult> results = BatchDecoding.decodeAll(selectors, this.executor, i -> decodeResult(inputData, returnData, slices.get(i)));
+            return Collections.unmodifiableList(results);
+        }
+        List<SubResult> results = new ArrayList<>(slices.size());
+        for (ResultSlice slice : slices) {
+            results.add(decodeResult(inputData, returnData, slice));
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Adds the result of <code>call</code> at <code>output[offset, offset + length)</code> to <code>slices</code>, or
+     * if the call is a wrapper the results of the calls it bundles.
+     */
+    private void unpackResults(byte[] input, Slice call, byte[] output, int offset, int length, boolean success, List<ResultSlice> slices) {
+        MulticallWrapper wrapper = success ? wrapper(input, call.offset, call.length, call.depth) : null;
+        if (wrapper != null && wrapper.getResultHeadOffset() >= 0) {
+            int sliceCount = slices.size();
+            try {
+                List<Slice> calls = calls(wrapper, input, call.offset, call.length, call.target, call.depth);
+                int end = offset + length;
+                int array = offset + word(output, offset + wrapper.getResultHeadOffset(), end);
+                int count = word(output, array, end);
+                if (count != calls.size()) {
+                    throw new IllegalArgumentException("Malformed multicall result, " + count + " results for " + calls.size() + " calls.");
+                }
+                int elements = array + WORD;
+                checkRange(elements, (long) count * WORD, end);
+                for (int i = 0; i < count; i++) {
+                    boolean callSuccess = true;
+                    int callReturnData;
+                    if (wrapper.getReturnDataWord() < 0) {
+                        callReturnData = elements + word(output, elements + i * WORD, end);
+                    } else {
+                        int tuple = elements + word(output, elements + i * WORD, end);
+                        if (wrapper.getSuccessWord() >= 0) {
+                            checkRange(tuple + wrapper.getSuccessWord() * WORD, WORD, end);
+                            callSuccess = !isZero(output, tuple + wrapper.getSuccessWord() * WORD);
+                        }
+                        callReturnData = tuple + word(output, tuple + wrapper.getReturnDataWord() * WORD, end);
+                    }
+                    int callLength = word(output, callReturnData, end);
+                    checkRange(callReturnData + WORD, callLength, end);
+                    unpackResults(input, calls.get(i), output, callReturnData + WORD, callLength, callSuccess, slices);
+                }
+                return;
+            } catch (IllegalArgumentException e) {
+                // the call limit applies to the whole input, hitting it in a nested wrapper fails the multicall
+                if (call.depth == 0 || slices.size() >= this.maxCalls) {
+                    throw e;
+                }
+                slices.subList(sliceCount, slices.size()).clear();
+            }
+        }
+        checkCallCount(slices.size());
+        slices.add(new ResultSlice(call, offset, length, success));
+    }
+
+    private static boolean isZero(byte[] data, int position) {
+        return ByteUtil.readLong(data, position) == 0 && ByteUtil.readLong(data, position + 8) == 0
+                && ByteUtil.readLong(data, position + 16) == 0 && ByteUtil.readLong(data, position + 24) == 0;
+    }
+
+    /**
+     * @return the word at <code>position</code> as offset or length
+     * @throws IllegalArgumentException if the word is outside of the call data or doesn't fit into an int
+     */
+    private static int word(byte[] data, int position, int end) {
+        checkRange(position, WORD, end);
+        if (ByteUtil.readLong(data, position) != 0 || ByteUtil.readLong(data, position + 8) != 0 || ByteUtil.readLong(data, position + 16) != 0
+                || ByteUtil.readInt(data, position + 24) != 0 || ByteUtil.readInt(data, position + 28) < 0) {
+            throw new IllegalArgumentException("Malformed multicall, invalid offset or length at " + position + ".");
+        }
+        return ByteUtil.readInt(data, position + 28);
+    }
+
+    private static void checkRange(int position, long length, int end) {
+        if (position < 0 || position + length > end) {
+            throw new IllegalArgumentException("Malformed multicall, " + length + " bytes at " + position + " exceed the call data.");
+        }
+    }
+
+    private DecodedFunctionCall decodeOrNull(byte[] data, Slice slice) {
+        try {
+            return decodeCall(data, slice);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private DecodedFunctionCall decodeCall(byte[] data, Slice slice) {
+        if (slice.length < 4) {
+            return null;
+        }
+        if (this.registry != null) {
+            return this.registry.decodeFunctionCall(slice.target, data, slice.offset, slice.length);
+        }
+        CompiledEntry<?> function = this.decoder.compiledFunction(SelectorIndex.selector(data, slice.offset));
+        return function == null ? null : function.decodeInputs(data, slice.offset + 4, slice.length - 4);
+    }
+
+    private SubResult decodeResult(byte[] input, byte[] output, ResultSlice slice) {
+        Slice call = slice.call;
+        List<CompiledEntry<AbiDefinition.Function>> candidates = call.length < 4 ? null : functionCandidates(call.target, SelectorIndex.selector(input, call.offset));
+        AbiDefinition.Function function = null;
+        List<?> values = null;
+        if (candidates != null) {
+            function = candidates.get(0).entry;
+            for (int i = 0; i < candidates.size() && slice.success && values == null; i++) {
+                try {
+                    values = candidates.get(i).decodeOutputs(output, slice.offset, slice.length);
+                    function = candidates.get(i).entry;
+                } catch (RuntimeException e) {
+                    // try the next candidate
+                }
+            }
+        }
+        return new SubResult(call.target, call.depth, function, slice.success, slice.offset, slice.length, values);
+    }
+
+    private List<CompiledEntry<AbiDefinition.Function>> functionCandidates(Address target, int selector) {
+        if (this.registry != null) {
+            return this.registry.functionCandidates(target, selector);
+        }
+        CompiledEntry<AbiDefinition.Function> function = this.decoder.compiledFunction(selector);
+        return function == null ? null : Collections.singletonList(function);
+    }
+
+    private static final class ResultSlice {
+        final Slice call;
+        final int offset;
+        final int length;
+        final boolean success;
+
+        ResultSlice(Slice call, int offset, int length, boolean success) {
+            this.call = call;
+            this.offset = offset;
+            this.length = length;
+            this.success = success;
+        }
+    }
+
+    private static final class Slice {
+        final int offset;
+        final int length;
+        final Address target;
+        final int depth;
+
+        Slice(int offset, int length, Address target, int depth) {
+            this.offset = offset;
+            this.length = length;
+            this.target = target;
+            this.depth = depth;
+        }
+    }
+}
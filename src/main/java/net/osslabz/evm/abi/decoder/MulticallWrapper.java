@@ -0,0 +1,175 @@
+package net.osslabz.evm.abi.decoder;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import net.osslabz.evm.abi.definition.SolidityType;
+import net.osslabz.evm.abi.util.ByteUtil;
+import net.osslabz.evm.abi.util.HashUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A function that bundles other calls, recognised by its selector. The sub-calls are either a <code>bytes[]</code>
+ * param (e.g. <code>multicall(uint256,bytes[])</code>, calls to the same contract) or an array of tuples with a
+ * <code>bytes</code> component and optionally an <code>address</code> component as target (e.g. Multicall3
+ * <code>aggregate3((address,bool,bytes)[])</code>).
+ * <p>
+ * The results are laid out the same way, as <code>bytes[]</code> or an array of tuples with a <code>bytes</code>
+ * component and optionally a <code>bool</code> success flag.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MulticallWrapper {
+
+    private static final int WORD = 32;
+
+    /**
+     * Uniswap, Multicall2 and Multicall3 wrappers, with the layout of their results.
+     */
+    public static final List<MulticallWrapper> DEFAULTS = Collections.unmodifiableList(Arrays.asList(
+            of("multicall(bytes[])", "bytes[]"),
+            of("multicall(uint256,bytes[])", "bytes[]"),
+            of("multicall(bytes32,bytes[])", "bytes[]"),
+            of("aggregate((address,bytes)[])", "uint256,bytes[]"),
+            of("tryAggregate(bool,(address,bytes)[])", "(bool,bytes)[]"),
+            of("blockAndAggregate((address,bytes)[])", "uint256,bytes32,(bool,bytes)[]"),
+            of("tryBlockAndAggregate(bool,(address,bytes)[])", "uint256,bytes32,(bool,bytes)[]"),
+            of("aggregate3((address,bool,bytes)[])", "(bool,bytes)[]"),
+            of("aggregate3Value((address,bool,uint256,bytes)[])", "(bool,bytes)[]")));
+
+    String signature;
+    int selector;
+
+    /**
+     * offset of the calls param's head slot relative to the arguments
+     */
+    int headOffset;
+
+    /**
+     * word of the <code>bytes</code> component in a call tuple, -1 for <code>bytes[]</code>
+     */
+    int callDataWord;
+
+    /**
+     * word of the target <code>address</code> component in a call tuple, -1 if there's none
+     */
+    int targetWord;
+
+    /**
+     * offset of the results' head slot relative to the return data, -1 if the result layout is unknown
+     */
+    int resultHeadOffset;
+
+    /**
+     * word of the <code>bytes</code> component in a result tuple, -1 for <code>bytes[]</code>
+     */
+    int returnDataWord;
+
+    /**
+     * word of the success <code>bool</code> component in a result tuple, -1 if there's none
+     */
+    int successWord;
+
+    /**
+     * @param signature canonical signature, the last <code>bytes[]</code> or tuple array param holds the calls. Params
+     *                  before it must not be tuples, the call tuple must only contain elementary types.
+     * @throws IllegalArgumentException if the signature doesn't describe a supported wrapper
+     */
+    public static MulticallWrapper of(String signature) {
+        return of(signature, null);
+    }
+
+    /**
+     * @param signature   see {@link #of(String)}
+     * @param returnTypes comma separated output types, e.g. <code>uint256,bytes[]</code>. Like the params of the
+     *                    signature, the last <code>bytes[]</code> or tuple array holds the return data of the calls, in
+     *                    call order. <code>null</code> if the results can't be unpacked.
+     * @throws IllegalArgumentException if the signature or return types don't describe a supported wrapper
+     */
+    public static MulticallWrapper of(String signature, String returnTypes) {
+        int open = signature.indexOf('(');
+        if (open <= 0 || !signature.endsWith(")")) {
+            throw new IllegalArgumentException("Invalid signature '" + signature + "'.");
+        }
+        int[] calls = layout(signature, splitTypes(signature.substring(open + 1, signature.length() - 1)), "address");
+        int[] results = returnTypes == null ? new int[]{-1, -1, -1} : layout(returnTypes, splitTypes(returnTypes), "bool");
+        int selector = ByteUtil.readInt(HashUtil.hashAsKeccak(signature.getBytes(StandardCharsets.UTF_8)), 0);
+        return new MulticallWrapper(signature, selector, calls[0], calls[1], calls[2], results[0], results[1], results[2]);
+    }
+
+    /**
+     * @return head offset of the last <code>bytes[]</code> or tuple array, word of the tuple's <code>bytes</code>
+     * component and word of its first <code>extraComponent</code>, -1 for none resp. <code>bytes[]</code>
+     */
+    private static int[] layout(String signature, List<String> types, String extraComponent) {
+        int array = -1;
+        for (int i = 0; i < types.size(); i++) {
+            if ("bytes[]".equals(types.get(i)) || types.get(i).startsWith("(") && types.get(i).endsWith(")[]")) {
+                array = i;
+            }
+        }
+        if (array < 0) {
+            throw new IllegalArgumentException("Signature '" + signature + "' has no bytes[] or tuple array param.");
+        }
+
+        int headOffset = 0;
+        for (int i = 0; i < array; i++) {
+            headOffset += headSize(signature, types.get(i));
+        }
+        int bytesWord = -1;
+        int extraWord = -1;
+        if (!"bytes[]".equals(types.get(array))) {
+            String tuple = types.get(array);
+            int word = 0;
+            for (String component : splitTypes(tuple.substring(1, tuple.length() - 3))) {
+                if ("bytes".equals(component) && bytesWord < 0) {
+                    bytesWord = word;
+                } else if (extraComponent.equals(component) && extraWord < 0) {
+                    extraWord = word;
+                }
+                word += headSize(signature, component) / WORD;
+            }
+            if (bytesWord < 0) {
+                throw new IllegalArgumentException("Tuple of '" + signature + "' has no bytes component.");
+            }
+        }
+        return new int[]{headOffset, bytesWord, extraWord};
+    }
+
+    private static int headSize(String signature, String type) {
+        if (type.startsWith("(")) {
+            throw new IllegalArgumentException("Tuple params are only supported as calls param, '" + signature + "'.");
+        }
+        return SolidityType.getType(type).getFixedSize();
+    }
+
+    /**
+     * Splits a comma separated type list at the top level, commas within tuples are kept.
+     */
+    static List<String> splitTypes(String types) {
+        List<String> result = new ArrayList<>();
+        if (types.isEmpty()) {
+            return result;
+        }
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < types.length(); i++) {
+            char c = types.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                result.add(types.substring(start, i));
+                start = i + 1;
+            }
+        }
+        result.add(types.substring(start));
+        return result;
+    }
+}
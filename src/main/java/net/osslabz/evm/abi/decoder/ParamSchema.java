@@ -0,0 +1,69 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Names and types of the inputs of a function, error or event, shared by all {@link DecodedCall}s decoded for it.
+ * Built once per compiled entry, immutable.
+ */
+final class ParamSchema {
+
+    final String name;
+    final String[] names;
+    final String[] lowerCaseNames;
+    final String[] types;
+
+    /**
+     * exact and lower case names to the index of the (last) input with that lower case name, like the keys of
+     * {@link DecodedFunctionCall#params()}
+     */
+    private final Map<String, Integer> index;
+    private final int distinctNames;
+
+    ParamSchema(String name, List<AbiDefinition.Entry.Param> params) {
+        this.name = name;
+        this.names = new String[params.size()];
+        this.lowerCaseNames = new String[params.size()];
+        this.types = new String[params.size()];
+        Map<String, Integer> lowerCaseIndex = new HashMap<>();
+        for (int i = 0; i < params.size(); i++) {
+            AbiDefinition.Entry.Param param = params.get(i);
+            // inputs may come without a name, solc writes "" for them
+            this.names[i] = param.getName() == null ? "" : param.getName();
+            this.lowerCaseNames[i] = this.names[i].toLowerCase();
+            this.types[i] = param.getType().getName();
+            lowerCaseIndex.put(this.lowerCaseNames[i], i);
+        }
+        this.distinctNames = lowerCaseIndex.size();
+        this.index = new HashMap<>(lowerCaseIndex);
+        for (int i = 0; i < params.size(); i++) {
+            this.index.put(this.names[i], lowerCaseIndex.get(this.lowerCaseNames[i]));
+        }
+    }
+
+    int size() {
+        return this.names.length;
+    }
+
+    /**
+     * @return index of the input with the given name (case-insensitive) or -1
+     */
+    int indexOf(String name) {
+        Integer result = this.index.get(name);
+        if (result == null) {
+            result = this.index.get(name.toLowerCase());
+        }
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * @return number of distinct (case-insensitive) input names
+     */
+    int distinctNames() {
+        return this.distinctNames;
+    }
+}
@@ -0,0 +1,127 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.util.ByteUtil;
+
+/**
+ * Open addressing hash table from 4-byte selectors (as big-endian <code>int</code>) to values. Lookups are a few
+ * array reads and don't allocate.
+ * <p>
+ * Not thread-safe while it's filled, instances are only read after construction of the owning decoder.
+ */
+final class SelectorIndex<T> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    SelectorIndex() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    SelectorIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return the value previously stored for the selector or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    T put(int selector, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        int slot = slot(selector);
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == selector) {
+                T previous = (T) this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = selector;
+        this.values[slot] = value;
+        if (++this.size * 2 > this.keys.length) {
+            resize();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int selector) {
+        int slot = slot(selector);
+        Object value;
+        while ((value = this.values[slot]) != null) {
+            if (this.keys[slot] == selector) {
+                return (T) value;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(Visitor<? super T> visitor) {
+        for (int i = 0; i < this.values.length; i++) {
+            if (this.values[i] != null) {
+                visitor.visit(this.keys[i], (T) this.values[i]);
+            }
+        }
+    }
+
+    private int slot(int selector) {
+        // selectors are hashes already, the mixing only guards against hand-crafted clusters
+        int h = selector * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & this.mask;
+    }
+
+    private void resize() {
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                while (this.values[slot] != null) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "SelectorIndex(size=" + this.size + ", capacity=" + this.keys.length + ")";
+    }
+
+    interface Visitor<T> {
+        void visit(int selector, T value);
+    }
+
+    static int selector(byte[] data, int offset) {
+        return ByteUtil.readInt(data, offset);
+    }
+}
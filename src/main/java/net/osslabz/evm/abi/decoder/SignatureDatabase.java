@@ -0,0 +1,402 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.SolidityType;
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Offline lookup of function signatures by selector, for call data of contracts without a known ABI.
+ * <p>
+ * A text list of signatures (e.g. an export of a public signature directory) is converted once into a compact file
+ * with {@link #build(Path, Path)}: the selectors sorted, the canonical signatures in the same order. The file is
+ * memory-mapped when opened, a lookup is a binary search over the mapped selectors and reads nothing else. On the
+ * first hit of a selector its signatures are parsed into {@link AbiDefinition.Function}s with params named
+ * <code>arg0</code>, <code>arg1</code>, ... and their decode plans are compiled and cached, later calls with that
+ * selector decode like {@link AbiRegistry}.
+ * <pre>
+ * SignatureDatabase.build(Paths.get("signatures.txt"), Paths.get("signatures.db"));
+ * SignatureDatabase signatures = SignatureDatabase.open(Paths.get("signatures.db"));
+ * DecodedFunctionCall call = signatures.decodeFunctionCall(input, 0, input.length); // transfer(arg0, arg1)
+ * </pre>
+ * Like {@link AbiRegistry} the decode methods return <code>null</code> for unknown selectors. Different signatures
+ * with the same selector are all kept, in the order of the text list. Instances are thread-safe.
+ * <p>
+ * Layout, all numbers big-endian: magic <code>SIGS</code>, format version, number of signatures, the sorted
+ * selectors, the start of each signature and the end of the last one relative to the signature text, the UTF-8
+ * encoded signatures.
+ */
+public final class SignatureDatabase {
+
+    public static final int MAGIC = 0x53494753;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final AbiDefinition.ParamSanitizer SANITIZER = new AbiDefinition.ParamSanitizer();
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int offsetsStart;
+    private final int textStart;
+    private final DecoderOptions options;
+
+    /**
+     * compiled functions of the selectors found so far, misses aren't cached
+     */
+    private final ConcurrentMap<Integer, List<CompiledEntry<AbiDefinition.Function>>> compiled = new ConcurrentHashMap<>();
+
+    private SignatureDatabase(ByteBuffer buffer, int size, DecoderOptions options) {
+        this.buffer = buffer;
+        this.size = size;
+        this.offsetsStart = HEADER_SIZE + 4 * size;
+        this.textStart = this.offsetsStart + 4 * (size + 1);
+        this.options = options;
+    }
+
+    /**
+     * Reads a text list of signatures and writes the database file.
+     *
+     * @param signatures one signature per line, e.g. <code>transfer(address,uint256)</code>, see
+     *                   {@link #build(Reader, OutputStream)}
+     * @return number of distinct signatures written
+     */
+    public static int build(Path signatures, Path file) throws IOException {
+        try (Reader in = Files.newBufferedReader(signatures, StandardCharsets.UTF_8);
+             OutputStream out = Files.newOutputStream(file)) {
+            return build(in, out);
+        }
+    }
+
+    /**
+     * Reads a text list of signatures and writes the database. Blank lines and lines starting with <code>#</code> are
+     * skipped, a leading selector column like <code>0xa9059cbb transfer(address,uint256)</code> is ignored. Each
+     * signature is parsed and stored in canonical form (e.g. <code>uint</code> as <code>uint256</code>) under the
+     * selector of that form, lines that aren't a valid signature are skipped.
+     *
+     * @return number of distinct signatures written
+     */
+    public static int build(Reader signatures, OutputStream out) throws IOException {
+        BufferedReader in = signatures instanceof BufferedReader ? (BufferedReader) signatures : new BufferedReader(signatures);
+        Set<String> seen = new HashSet<>();
+        List<byte[]> texts = new ArrayList<>();
+        // selector in the high, line in the low half: sorting keeps the order of the list for equal selectors
+        long[] keys = new long[1024];
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (HexCodec.prefixLength(line, 0, line.length()) > 0) {
+                int separator = indexOfWhitespace(line);
+                line = separator < 0 ? "" : line.substring(separator).trim();
+            }
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            AbiDefinition.Function function;
+            try {
+                function = parseFunction(line);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            String signature = function.formatSignature();
+            if (!seen.add(signature)) {
+                continue;
+            }
+            if (texts.size() == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * keys.length);
+            }
+            keys[texts.size()] = (long) function.selector() << 32 | texts.size();
+            texts.add(signature.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int count = texts.size();
+        long[] sorted = Arrays.copyOf(keys, count);
+        Arrays.sort(sorted);
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(count);
+        for (long key : sorted) {
+            data.writeInt((int) (key >> 32));
+        }
+        int offset = 0;
+        for (long key : sorted) {
+            data.writeInt(offset);
+            offset += texts.get((int) key).length;
+        }
+        data.writeInt(offset);
+        for (long key : sorted) {
+            data.write(texts.get((int) key));
+        }
+        data.flush();
+        return count;
+    }
+
+    public static SignatureDatabase open(Path file) throws IOException {
+        return open(file, DecoderOptions.DEFAULT);
+    }
+
+    /**
+     * Maps the file into memory, apart from the header nothing is read until a selector is looked up.
+     *
+     * @throws IllegalArgumentException if the file isn't a signature database of this version or is truncated
+     */
+    public static SignatureDatabase open(Path file, DecoderOptions options) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), options);
+        }
+    }
+
+    public static SignatureDatabase read(ByteBuffer buffer) {
+        return read(buffer, DecoderOptions.DEFAULT);
+    }
+
+    /**
+     * Uses the database from the buffer's position to its limit, the buffer's position isn't changed. The content is
+     * read on lookups and must not be modified.
+     *
+     * @throws IllegalArgumentException if the content isn't a signature database of this version or is truncated
+     */
+    public static SignatureDatabase read(ByteBuffer buffer, DecoderOptions options) {
+        ByteBuffer in = buffer.slice();
+        try {
+            if (in.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a signature database.");
+            }
+            int version = in.getInt(4);
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported signature database version " + version + ", expected " + VERSION + ".");
+            }
+            int size = in.getInt(8);
+            SignatureDatabase database = new SignatureDatabase(in, size, options == null ? DecoderOptions.DEFAULT : options);
+            if (size < 0 || (long) database.textStart + in.getInt(database.offsetsStart + 4 * size) > in.limit()) {
+                throw new IllegalArgumentException("Corrupt signature database, truncated content.");
+            }
+            return database;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt signature database, truncated content.", e);
+        }
+    }
+
+    /**
+     * @return number of signatures
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the canonical signatures with the given selector, in the order of the text list
+     */
+    public List<String> getSignatures(int selector) {
+        int first = firstIndex(selector);
+        if (first < 0) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(1);
+        for (int i = first; i < this.size && this.buffer.getInt(HEADER_SIZE + 4 * i) == selector; i++) {
+            result.add(signature(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return the functions with the selector at <code>input[offset, offset + 4)</code>, an empty list if it's unknown
+     */
+    public List<AbiDefinition.Function> findFunctions(byte[] input, int offset) {
+        List<CompiledEntry<AbiDefinition.Function>> candidates = compiled(SelectorIndex.selector(input, offset));
+        List<AbiDefinition.Function> result = new ArrayList<>(candidates.size());
+        for (CompiledEntry<AbiDefinition.Function> candidate : candidates) {
+            result.add(candidate.entry);
+        }
+        return result;
+    }
+
+    public DecodedFunctionCall decodeFunctionCall(String inputData) {
+        if (inputData == null || AbiDecoder.isShorterThanSelector(inputData)) {
+            throw new IllegalArgumentException("Can't decode invalid input '" + inputData + "'.");
+        }
+        byte[] input = AbiDecoder.hexBytes(inputData);
+        return decodeFunctionCall(input, 0, input.length);
+    }
+
+    /**
+     * Decodes the call data in <code>inputData[offset, offset + length)</code>, params are named <code>arg0</code>,
+     * <code>arg1</code>, ... If several signatures share the selector the first one whose head fits into the data and
+     * that decodes without error is returned.
+     *
+     * @return the decoded call or <code>null</code> if no signature with the selector is known
+     * @throws IllegalArgumentException if the data is shorter than the head of every signature with the selector
+     */
+    public DecodedFunctionCall decodeFunctionCall(byte[] inputData, int offset, int length) {
+        DecodedCall call = decodeFunctionCallCompact(inputData, offset, length);
+        return call == null ? null : call.toDecodedFunctionCall();
+    }
+
+    /**
+     * Like {@link #decodeFunctionCall(byte[], int, int)} but returns the compact {@link DecodedCall}.
+     */
+    public DecodedCall decodeFunctionCallCompact(byte[] inputData, int offset, int length) {
+        if (inputData == null || offset < 0 || length < 4 || length > inputData.length - offset) {
+            throw new IllegalArgumentException("Can't decode invalid input (offset=" + offset + ", length=" + length + ").");
+        }
+        List<CompiledEntry<AbiDefinition.Function>> candidates = compiled(SelectorIndex.selector(inputData, offset));
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0).decodeCall(inputData, offset + 4, length - 4);
+        }
+        RuntimeException failure = null;
+        for (CompiledEntry<AbiDefinition.Function> candidate : candidates) {
+            if (candidate.inputs.getHeadSize() > length - 4) {
+                continue;
+            }
+            try {
+                return candidate.decodeCall(inputData, offset + 4, length - 4);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        throw new IllegalArgumentException("Arguments of " + (length - 4) + " bytes are shorter than the inputs of every signature with selector "
+                + HexCodec.encode(inputData, offset, 4) + ".");
+    }
+
+    /**
+     * Creates a function from its signature alone, params (and tuple components) are named <code>arg0</code>,
+     * <code>arg1</code>, ... Tuples are written as in canonical signatures, e.g.
+     * <code>aggregate3((address,bool,bytes)[])</code>, only tuples and dynamic arrays of tuples are supported.
+     *
+     * @throws IllegalArgumentException if the signature isn't valid
+     */
+    public static AbiDefinition.Function parseFunction(String signature) {
+        int open = signature.indexOf('(');
+        if (open <= 0 || !signature.endsWith(")")) {
+            throw new IllegalArgumentException("Invalid signature '" + signature + "'.");
+        }
+        for (int i = 0; i < open; i++) {
+            char c = signature.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '$') {
+                throw new IllegalArgumentException("Invalid signature '" + signature + "'.");
+            }
+        }
+        try {
+            List<AbiDefinition.Entry.Param> inputs = params(signature.substring(open + 1, signature.length() - 1));
+            return new AbiDefinition.Function(false, signature.substring(0, open), inputs, Collections.emptyList(), false);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid signature '" + signature + "'.", e);
+        }
+    }
+
+    private static List<AbiDefinition.Entry.Param> params(String types) {
+        List<String> split = MulticallWrapper.splitTypes(types);
+        List<AbiDefinition.Entry.Param> params = new ArrayList<>(split.size());
+        for (int i = 0; i < split.size(); i++) {
+            String type = split.get(i).trim();
+            AbiDefinition.Entry.Param param = new AbiDefinition.Entry.Param();
+            param.setName("arg" + i);
+            if (type.startsWith("(")) {
+                int close = type.lastIndexOf(')');
+                String suffix = type.substring(close + 1);
+                if (!suffix.isEmpty() && !"[]".equals(suffix)) {
+                    throw new IllegalArgumentException("Unsupported tuple type '" + type + "'.");
+                }
+                param.setType(SolidityType.getType("tuple" + suffix));
+                param.setComponents(params(type.substring(1, close)));
+                SANITIZER.convert(param);
+            } else if (type.isEmpty() || type.indexOf(')') >= 0) {
+                throw new IllegalArgumentException("Invalid type '" + type + "'.");
+            } else {
+                param.setType(SolidityType.getType(type));
+            }
+            params.add(param);
+        }
+        return params;
+    }
+
+    private List<CompiledEntry<AbiDefinition.Function>> compiled(int selector) {
+        List<CompiledEntry<AbiDefinition.Function>> result = this.compiled.get(selector);
+        if (result == null) {
+            List<String> signatures = getSignatures(selector);
+            if (signatures.isEmpty()) {
+                return Collections.emptyList();
+            }
+            result = new ArrayList<>(signatures.size());
+            for (String signature : signatures) {
+                result.add(CompiledEntry.compile(parseFunction(signature), this.options));
+            }
+            List<CompiledEntry<AbiDefinition.Function>> previous = this.compiled.putIfAbsent(selector, result);
+            if (previous != null) {
+                result = previous;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return index of the first signature with the selector, -1 if there's none
+     */
+    private int firstIndex(int selector) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.buffer.getInt(HEADER_SIZE + 4 * mid) < selector) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < this.size && this.buffer.getInt(HEADER_SIZE + 4 * low) == selector ? low : -1;
+    }
+
+    private String signature(int index) {
+        int start = this.buffer.getInt(this.offsetsStart + 4 * index);
+        int end = this.buffer.getInt(this.offsetsStart + 4 * index + 4);
+        byte[] text = new byte[end - start];
+        ByteBuffer in = this.buffer.duplicate();
+        in.position(this.textStart + start);
+        in.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOfWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "SignatureDatabase(signatures=" + this.size + ", compiled=" + this.compiled.size() + ")";
+    }
+}
@@ -0,0 +1,131 @@
+package net.osslabz.evm.abi.decoder;
+
+import net.osslabz.evm.abi.util.ByteUtil;
+import net.osslabz.evm.abi.util.HexCodec;
+
+/**
+ * Open addressing hash table from 32-byte event topics to values. A topic is stored as four big-endian
+ * <code>long</code>s, the first one selects the slot and all four are compared to verify a hit. Lookups don't allocate.
+ * <p>
+ * Not thread-safe while it's filled, instances are only read after construction of the owning decoder.
+ */
+final class TopicIndex<T> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    TopicIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @return the value previously stored for the topic or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    T put(byte[] topic, T value) {
+        if (topic.length != 32) {
+            throw new IllegalArgumentException("Topic must be 32 bytes long, but is " + topic.length + ".");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        long k0 = ByteUtil.readLong(topic, 0);
+        long k1 = ByteUtil.readLong(topic, 8);
+        long k2 = ByteUtil.readLong(topic, 16);
+        long k3 = ByteUtil.readLong(topic, 24);
+
+        int slot = slot(k0);
+        while (this.values[slot] != null) {
+            if (matches(slot, k0, k1, k2, k3)) {
+                T previous = (T) this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        store(slot, k0, k1, k2, k3, value);
+        if (++this.size * 2 > this.values.length) {
+            resize();
+        }
+        return null;
+    }
+
+    T get(byte[] data, int offset) {
+        return get(ByteUtil.readLong(data, offset), ByteUtil.readLong(data, offset + 8), ByteUtil.readLong(data, offset + 16), ByteUtil.readLong(data, offset + 24));
+    }
+
+    /**
+     * @param hex    hex encoded topic
+     * @param offset index of the first of the 64 hex digits
+     */
+    T get(CharSequence hex, int offset) {
+        return get(HexCodec.decodeLong(hex, offset), HexCodec.decodeLong(hex, offset + 16), HexCodec.decodeLong(hex, offset + 32), HexCodec.decodeLong(hex, offset + 48));
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(long k0, long k1, long k2, long k3) {
+        int slot = slot(k0);
+        Object value;
+        while ((value = this.values[slot]) != null) {
+            if (matches(slot, k0, k1, k2, k3)) {
+                return (T) value;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    private boolean matches(int slot, long k0, long k1, long k2, long k3) {
+        int i = slot << 2;
+        return this.keys[i] == k0 && this.keys[i + 1] == k1 && this.keys[i + 2] == k2 && this.keys[i + 3] == k3;
+    }
+
+    private void store(int slot, long k0, long k1, long k2, long k3, Object value) {
+        int i = slot << 2;
+        this.keys[i] = k0;
+        this.keys[i + 1] = k1;
+        this.keys[i + 2] = k2;
+        this.keys[i + 3] = k3;
+        this.values[slot] = value;
+    }
+
+    private int slot(long k0) {
+        int h = (int) (k0 ^ (k0 >>> 32));
+        return (h ^ (h >>> 16)) & this.mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        allocate(oldValues.length * 2);
+        for (int s = 0; s < oldValues.length; s++) {
+            if (oldValues[s] != null) {
+                int i = s << 2;
+                int slot = slot(oldKeys[i]);
+                while (this.values[slot] != null) {
+                    slot = (slot + 1) & this.mask;
+                }
+                store(slot, oldKeys[i], oldKeys[i + 1], oldKeys[i + 2], oldKeys[i + 3], oldValues[s]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity * 4];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "TopicIndex(size=" + this.size + ", capacity=" + this.values.length + ")";
+    }
+}
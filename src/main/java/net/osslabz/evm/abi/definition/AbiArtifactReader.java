@@ -0,0 +1,204 @@
+package net.osslabz.evm.abi.definition;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the ABIs out of compiler artifacts without loading the rest of them.
+ * <p>
+ * Supported are Hardhat, Foundry and Truffle artifacts (an object with a top-level <code>abi</code>), solc standard JSON
+ * output (<code>contracts.&lt;source&gt;.&lt;contract&gt;.abi</code>), solc <code>--combined-json</code> output
+ * (<code>contracts.&lt;source:contract&gt;.abi</code>) and bare ABI arrays. Bytecode, source maps, ASTs and metadata
+ * are skipped token by token, they're never materialised. The ABIs are read with {@link AbiJsonReader} from the same
+ * parser. An <code>abi</code> given as JSON string, as in the combined JSON of solc before 0.8, is parsed as well.
+ */
+public final class AbiArtifactReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+
+    /**
+     * stop at the first ABI
+     */
+    private final boolean first;
+
+    private final Map<String, AbiDefinition> abis = new LinkedHashMap<>();
+
+    private AbiArtifactReader(JsonParser parser, boolean first) {
+        this.parser = parser;
+        this.first = first;
+    }
+
+    /**
+     * @return the first ABI of the artifact, the rest of the file isn't read
+     * @throws IllegalArgumentException if the artifact contains no ABI
+     */
+    public static AbiDefinition read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Like {@link #read(Path)}, the stream isn't closed.
+     */
+    public static AbiDefinition read(InputStream in) throws IOException {
+        Map<String, AbiDefinition> abis = read(in, true);
+        if (abis.isEmpty()) {
+            throw new IllegalArgumentException("The artifact contains no ABI.");
+        }
+        return abis.values().iterator().next();
+    }
+
+    /**
+     * @return the ABIs of the artifact in file order, keyed by <code>source:contract</code> for standard and combined
+     * JSON output, by <code>sourceName:contractName</code> resp. <code>contractName</code> for artifacts that have them
+     * and by <code>""</code> otherwise. Empty if there's none.
+     */
+    public static Map<String, AbiDefinition> readAll(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return readAll(in);
+        }
+    }
+
+    /**
+     * Like {@link #readAll(Path)}, the stream isn't closed.
+     */
+    public static Map<String, AbiDefinition> readAll(InputStream in) throws IOException {
+        return read(in, false);
+    }
+
+    private static Map<String, AbiDefinition> read(InputStream in, boolean first) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            AbiArtifactReader reader = new AbiArtifactReader(parser, first);
+            reader.readDocument();
+            return Collections.unmodifiableMap(reader.abis);
+        }
+    }
+
+    private void readDocument() throws IOException {
+        JsonToken token = this.parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            this.abis.put("", AbiJsonReader.read(this.parser));
+            return;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected an artifact object or ABI array but got " + token + ".");
+        }
+        AbiDefinition abi = null;
+        String sourceName = null;
+        String contractName = null;
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = this.parser.currentName();
+            JsonToken value = this.parser.nextToken();
+            if ("abi".equals(field) && abi == null) {
+                abi = readAbi(value);
+                if (this.first) {
+                    this.abis.put("", abi);
+                    return;
+                }
+            } else if ("contracts".equals(field) && value == JsonToken.START_OBJECT) {
+                if (readContracts()) {
+                    return;
+                }
+            } else if ("sourceName".equals(field) && value == JsonToken.VALUE_STRING) {
+                sourceName = this.parser.getText();
+            } else if ("contractName".equals(field) && value == JsonToken.VALUE_STRING) {
+                contractName = this.parser.getText();
+            } else {
+                this.parser.skipChildren();
+            }
+        }
+        if (abi != null) {
+            String key = contractName == null ? "" : sourceName == null ? contractName : sourceName + ":" + contractName;
+            this.abis.put(key, abi);
+        }
+    }
+
+    /**
+     * Reads the <code>contracts</code> object of standard JSON output (<code>source &gt; contract &gt; abi</code>) or of
+     * <code>--combined-json</code> output (<code>source:contract &gt; abi</code>), the parser is at its start.
+     *
+     * @return <code>true</code> if reading stopped at the first ABI
+     */
+    private boolean readContracts() throws IOException {
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            String source = this.parser.currentName();
+            if (this.parser.nextToken() != JsonToken.START_OBJECT) {
+                this.parser.skipChildren();
+                continue;
+            }
+            AbiDefinition combined = null;
+            while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = this.parser.currentName();
+                JsonToken value = this.parser.nextToken();
+                if ("abi".equals(field) && value != JsonToken.START_OBJECT) {
+                    // combined JSON, the key already is source:contract
+                    if (combined == null) {
+                        combined = readAbi(value);
+                        if (this.first) {
+                            this.abis.put(source, combined);
+                            return true;
+                        }
+                    } else {
+                        this.parser.skipChildren();
+                    }
+                } else if (value == JsonToken.START_OBJECT) {
+                    if (readContract(source + ":" + field)) {
+                        return true;
+                    }
+                } else {
+                    this.parser.skipChildren();
+                }
+            }
+            if (combined != null) {
+                this.abis.put(source, combined);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a contract object of standard JSON output, the parser is at its start.
+     *
+     * @return <code>true</code> if reading stopped at the first ABI
+     */
+    private boolean readContract(String key) throws IOException {
+        AbiDefinition abi = null;
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            JsonToken value = this.parser.nextToken();
+            if ("abi".equals(this.parser.currentName()) && abi == null) {
+                abi = readAbi(value);
+                if (this.first) {
+                    this.abis.put(key, abi);
+                    return true;
+                }
+            } else {
+                this.parser.skipChildren();
+            }
+        }
+        if (abi != null) {
+            this.abis.put(key, abi);
+        }
+        return false;
+    }
+
+    private AbiDefinition readAbi(JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return AbiJsonReader.read(new StringReader(this.parser.getText()));
+        }
+        return AbiJsonReader.read(this.parser);
+    }
+}
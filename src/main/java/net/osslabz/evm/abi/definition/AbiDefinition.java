@@ -13,22 +13,23 @@ import net.osslabz.evm.abi.util.ByteUtil;
 import net.osslabz.evm.abi.util.HashUtil;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.Predicate;
-import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include;
 import static java.lang.String.format;
-import static net.osslabz.evm.abi.definition.SolidityType.IntType.decodeInt;
-import static org.apache.commons.collections4.ListUtils.select;
+import static net.osslabz.evm.abi.definition.SolidityType.IntType.decodeIntValue;
 import static org.apache.commons.lang3.ArrayUtils.subarray;
 import static org.apache.commons.lang3.StringUtils.join;
-import static org.apache.commons.lang3.StringUtils.stripEnd;
 
 public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
     private final static ObjectMapper DEFAULT_MAPPER = new ObjectMapper()
@@ -43,13 +44,13 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
         public Entry.Param convert(Entry.Param param) {
             if (param.type instanceof SolidityType.TupleType) {
                 for (Entry.Param c : param.components) {
-                    ((SolidityType.TupleType) param.type).getTypes().add(c.getType());
+                    ((SolidityType.TupleType) param.type).addType(c.getType());
                 }
             } else if (param.type instanceof SolidityType.ArrayType) {
                 SolidityType.ArrayType arrayType = (SolidityType.ArrayType) param.type;
                 if (arrayType.elementType instanceof SolidityType.TupleType) {
                     for (AbiDefinition.Entry.Param c : param.components) {
-                        ((SolidityType.TupleType) arrayType.elementType).getTypes().add(c.getType());
+                        ((SolidityType.TupleType) arrayType.elementType).addType(c.getType());
                     }
                 }
             }
@@ -126,6 +127,10 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
         public final Type type;
         public final Boolean payable;
 
+        // computed on first use, the inputs must not be changed afterwards
+        private volatile String signature;
+        private volatile byte[] signatureHash;
+
         public Entry(Boolean anonymous, Boolean constant, String name, List<Param> inputs, List<Param> outputs, Type type, Boolean payable) {
             this.anonymous = anonymous;
             this.constant = constant;
@@ -168,35 +173,79 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
         }
 
         public String formatSignature() {
-            StringBuilder paramsTypes = new StringBuilder();
-            if (inputs != null) {
-                for (Param param : inputs) {
-                    String type = formatParamSignature(param);
-                    paramsTypes.append(type).append(",");
+            String result = this.signature;
+            if (result == null) {
+                StringBuilder signature = new StringBuilder(String.valueOf(name)).append('(');
+                if (inputs != null) {
+                    for (int i = 0; i < inputs.size(); i++) {
+                        if (i > 0) {
+                            signature.append(',');
+                        }
+                        appendParamSignature(signature, inputs.get(i));
+                    }
                 }
+                result = signature.append(')').toString();
+                this.signature = result;
             }
-
-            return format("%s(%s)", name, stripEnd(paramsTypes.toString(), ","));
+            return result;
         }
 
         public String formatParamSignature(Param param) {
-            String type = param.type.getCanonicalName();
-            if (param.type instanceof SolidityType.TupleType) {
-                type = "(" + StringUtils.join(param.getComponents().stream().map(this::formatParamSignature).collect(Collectors.toList()), ",") + ")";
-            } else if (param.type instanceof SolidityType.ArrayType && ((SolidityType.ArrayType)param.type).elementType instanceof SolidityType.TupleType) {
-                type = "(" + StringUtils.join(param.getComponents().stream().map(this::formatParamSignature).collect(Collectors.toList()), ",") + ")[]";
+            return appendParamSignature(new StringBuilder(), param).toString();
+        }
+
+        private StringBuilder appendParamSignature(StringBuilder signature, Param param) {
+            boolean tuple = param.type instanceof SolidityType.TupleType;
+            boolean tupleArray = !tuple && param.type instanceof SolidityType.ArrayType && ((SolidityType.ArrayType) param.type).elementType instanceof SolidityType.TupleType;
+            if (!tuple && !tupleArray) {
+                return signature.append(param.type.getCanonicalName());
             }
-            return type;
+            signature.append('(');
+            for (int i = 0; i < param.getComponents().size(); i++) {
+                if (i > 0) {
+                    signature.append(',');
+                }
+                appendParamSignature(signature, param.getComponents().get(i));
+            }
+            return signature.append(tuple ? ")" : ")[]");
         }
 
         public byte[] fingerprintSignature() {
-            return HashUtil.hashAsKeccak(formatSignature().getBytes());
+            return signatureHash().clone();
         }
 
         public byte[] encodeSignature() {
             return fingerprintSignature();
         }
 
+        /**
+         * @return the first 4 bytes of the signature hash as big-endian <code>int</code>, the selector of a function
+         * or error
+         */
+        public int selector() {
+            return ByteUtil.readInt(signatureHash(), 0);
+        }
+
+        /**
+         * @return the Keccak-256 hash of the signature, the topic of an event. Computed once, must not be modified.
+         */
+        byte[] signatureHash() {
+            byte[] result = this.signatureHash;
+            if (result == null) {
+                result = HashUtil.hashAsKeccak(formatSignature().getBytes(StandardCharsets.UTF_8));
+                this.signatureHash = result;
+            }
+            return result;
+        }
+
+        /**
+         * Sets the signature and its hash as computed earlier, e.g. when loading an {@link AbiSnapshot}.
+         */
+        void seedSignature(String signature, byte[] signatureHash) {
+            this.signature = signature;
+            this.signatureHash = signatureHash;
+        }
+
         public enum Type {
             constructor,
             function,
@@ -217,12 +266,20 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
             private List<Param> components;
 
             public static List<?> decodeList(List<Param> params, byte[] encoded) {
+                return decodeList(params, encoded, 0);
+            }
+
+            /**
+             * Decodes the params from <code>encoded</code> starting at <code>origOffset</code>, offsets of dynamic
+             * params are relative to <code>origOffset</code>.
+             */
+            public static List<?> decodeList(List<Param> params, byte[] encoded, int origOffset) {
                 List<Object> result = new ArrayList<>(params.size());
 
-                int offset = 0;
+                int offset = origOffset;
                 for (Param param : params) {
                     Object decoded = param.type.isDynamicType()
-                            ? param.type.decode(encoded, decodeInt(encoded, offset).intValue())
+                            ? param.type.decode(encoded, origOffset + decodeIntValue(encoded, offset))
                             : param.type.decode(encoded, offset);
                     result.add(decoded);
 
@@ -258,6 +315,9 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
 
         private static final int ENCODED_SIGN_LENGTH = 4;
 
+        // computed on first use like the signature
+        private volatile EncodePlan encodePlan;
+
         public Function(boolean constant, String name, List<Param> inputs, List<Param> outputs, Boolean payable) {
             super(null, constant, name, inputs, outputs, Type.function, payable);
         }
@@ -267,7 +327,74 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
         }
 
         public byte[] encode(Object... args) {
-            return ByteUtil.merge(encodeSignature(), encodeArguments(args));
+            byte[] arguments = encodeArguments(args);
+            byte[] encoded = new byte[ENCODED_SIGN_LENGTH + arguments.length];
+            System.arraycopy(signatureHash(), 0, encoded, 0, ENCODED_SIGN_LENGTH);
+            System.arraycopy(arguments, 0, encoded, ENCODED_SIGN_LENGTH, arguments.length);
+            return encoded;
+        }
+
+        /**
+         * @return length of <code>encode(args)</code>, computed without encoding the arguments
+         */
+        public int encodedSize(Object... args) {
+            return ENCODED_SIGN_LENGTH + encodePlan().size(args);
+        }
+
+        /**
+         * Writes the same bytes as {@link #encode(Object...)} to <code>out</code> starting at <code>offset</code>,
+         * heads and tails are written in a single pass without intermediate arrays.
+         *
+         * @return number of bytes written, see {@link #encodedSize(Object...)}
+         * @throws IndexOutOfBoundsException if the encoding doesn't fit into <code>out</code>
+         */
+        public int encodeInto(byte[] out, int offset, Object... args) {
+            int size = encodedSize(args);
+            if (offset < 0 || size > out.length - offset) {
+                throw new IndexOutOfBoundsException("Encoding needs " + size + " bytes at offset " + offset + ", but the buffer has " + out.length + ".");
+            }
+            System.arraycopy(signatureHash(), 0, out, offset, ENCODED_SIGN_LENGTH);
+            encodePlan().write(args, out, offset + ENCODED_SIGN_LENGTH);
+            return size;
+        }
+
+        /**
+         * Like {@link #encodeInto(byte[], int, Object...)}, writes at the buffer's position and advances it.
+         *
+         * @throws BufferOverflowException if less than {@link #encodedSize(Object...)} bytes remain
+         */
+        public int encodeInto(ByteBuffer buffer, Object... args) {
+            int size = encodedSize(args);
+            if (buffer.remaining() < size) {
+                throw new BufferOverflowException();
+            }
+            if (buffer.hasArray()) {
+                encodeInto(buffer.array(), buffer.arrayOffset() + buffer.position(), args);
+                buffer.position(buffer.position() + size);
+            } else {
+                byte[] scratch = EncodePlan.scratch(size);
+                encodeInto(scratch, 0, args);
+                buffer.put(scratch, 0, size);
+            }
+            return size;
+        }
+
+        /**
+         * Encodes the call data once, single arguments can then be replaced in place, see {@link CalldataTemplate}.
+         *
+         * @param args initial values of all inputs, any valid value can serve as placeholder for those set per call
+         */
+        public CalldataTemplate template(Object... args) {
+            return new CalldataTemplate(this, encodePlan(), args);
+        }
+
+        EncodePlan encodePlan() {
+            EncodePlan result = this.encodePlan;
+            if (result == null) {
+                result = new EncodePlan(inputs);
+                this.encodePlan = result;
+            }
+            return result;
         }
 
         private byte[] encodeArguments(Object... args) {
@@ -303,7 +430,14 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
         }
 
         public List<?> decode(byte[] encoded) {
-            return Param.decodeList(inputs, subarray(encoded, ENCODED_SIGN_LENGTH, encoded.length));
+            return decode(encoded, 0);
+        }
+
+        /**
+         * Decodes the call data (signature + arguments) starting at <code>offset</code> without copying it.
+         */
+        public List<?> decode(byte[] encoded, int offset) {
+            return Param.decodeList(inputs, encoded, offset + ENCODED_SIGN_LENGTH);
         }
 
         public List<?> decodeResult(byte[] encoded) {
@@ -312,7 +446,7 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
 
         @Override
         public byte[] encodeSignature() {
-            return extractSignature(super.encodeSignature());
+            return Arrays.copyOf(signatureHash(), ENCODED_SIGN_LENGTH);
         }
 
         @Override
@@ -339,36 +473,56 @@ public class AbiDefinition extends ArrayList<AbiDefinition.Entry> {
             super(anonymous, null, name, inputs, outputs, Type.event, false);
         }
 
+        /**
+         * Positions of the inputs, computed on first use: <code>i</code> for the i-th non-indexed input,
+         * <code>-(i + 1)</code> for the i-th indexed input.
+         */
+        private volatile int[] slots;
+        private volatile List<Param> notIndexedInputs;
+
         public List<?> decode(byte[] data, byte[][] topics) {
-            List<Object> result = new ArrayList<>(inputs.size());
-
-            byte[][] argTopics = anonymous ? topics : subarray(topics, 1, topics.length);
-            List<Param> indexedParams = filteredInputs(true);
-            List<Object> indexed = new ArrayList<>();
-            for (int i = 0; i < indexedParams.size(); i++) {
-                Object decodedTopic;
-                if (indexedParams.get(i).type.isDynamicType()) {
+            int[] slots = slots();
+            List<?> notIndexed = Param.decodeList(this.notIndexedInputs, data);
+            int firstTopic = anonymous ? 0 : 1;
+
+            Object[] result = new Object[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                int slot = slots[i];
+                if (slot >= 0) {
+                    result[i] = notIndexed.get(slot);
+                } else if (inputs.get(i).type.isDynamicType()) {
                     // If arrays (including string and bytes) are used as indexed arguments,
                     // the Keccak-256 hash of it is stored as topic instead.
-                    decodedTopic = SolidityType.Bytes32Type.decodeBytes32(argTopics[i], 0);
+                    result[i] = SolidityType.Bytes32Type.decodeBytes32(topics[firstTopic - slot - 1], 0);
                 } else {
-                    decodedTopic = indexedParams.get(i).type.decode(argTopics[i]);
+                    result[i] = inputs.get(i).type.decode(topics[firstTopic - slot - 1]);
                 }
-                indexed.add(decodedTopic);
             }
-            List<?> notIndexed = Param.decodeList(filteredInputs(false), data);
-
-            for (Param input : inputs) {
-                result.add(input.indexed ? indexed.remove(0) : notIndexed.remove(0));
+            return new ArrayList<>(Arrays.asList(result));
+        }
+
+        private int[] slots() {
+            int[] result = this.slots;
+            if (result == null) {
+                List<Param> params = inputs == null ? Collections.emptyList() : inputs;
+                List<Param> notIndexed = new ArrayList<>();
+                result = new int[params.size()];
+                int indexedCount = 0;
+                for (int i = 0; i < result.length; i++) {
+                    Param param = params.get(i);
+                    if (Boolean.TRUE.equals(param.indexed)) {
+                        result[i] = -(++indexedCount);
+                    } else {
+                        result[i] = notIndexed.size();
+                        notIndexed.add(param);
+                    }
+                }
+                this.notIndexedInputs = notIndexed;
+                this.slots = result;
             }
-
             return result;
         }
 
-        private List<Param> filteredInputs(final boolean indexed) {
-            return select(inputs, param -> param.indexed == indexed);
-        }
-
         @Override
         public String toString() {
             return format("event %s(%s);", name, join(inputs, ", "));
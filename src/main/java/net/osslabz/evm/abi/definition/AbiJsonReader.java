@@ -0,0 +1,203 @@
+package net.osslabz.evm.abi.definition;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads an ABI JSON array token by token, a streaming alternative to {@link AbiDefinition#fromJson(InputStream)}.
+ * <p>
+ * The document isn't buffered and no data binding is involved: only the fields the decoder uses are read, everything
+ * else (<code>stateMutability</code>, <code>internalType</code>, ...) is skipped, and entries are built directly.
+ * Non-tuple types are parsed once per document and shared by the params using them. The result is the same as with
+ * {@link AbiDefinition#fromJson(InputStream)}, except that an entry without <code>type</code> is read as function as
+ * the ABI specification demands.
+ */
+public final class AbiJsonReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final AbiDefinition.ParamSanitizer SANITIZER = new AbiDefinition.ParamSanitizer();
+
+    private final JsonParser parser;
+    private final Map<String, SolidityType> types = new HashMap<>();
+
+    private AbiJsonReader(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    public static AbiDefinition read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads the ABI from the stream, the stream isn't closed.
+     */
+    public static AbiDefinition read(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            parser.nextToken();
+            return read(parser);
+        }
+    }
+
+    /**
+     * Reads the ABI from the reader, the reader isn't closed.
+     */
+    public static AbiDefinition read(Reader in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            parser.nextToken();
+            return read(parser);
+        }
+    }
+
+    /**
+     * Reads the ABI array at the parser's current token, which must be {@link JsonToken#START_ARRAY}. The parser is left
+     * at the array's {@link JsonToken#END_ARRAY}.
+     *
+     * @throws IllegalArgumentException if the JSON isn't an ABI array
+     */
+    public static AbiDefinition read(JsonParser parser) throws IOException {
+        return new AbiJsonReader(parser).readAbi();
+    }
+
+    private AbiDefinition readAbi() throws IOException {
+        expect(JsonToken.START_ARRAY);
+        AbiDefinition abi = new AbiDefinition();
+        while (this.parser.nextToken() != JsonToken.END_ARRAY) {
+            abi.add(readEntry());
+        }
+        return abi;
+    }
+
+    private AbiDefinition.Entry readEntry() throws IOException {
+        expect(JsonToken.START_OBJECT);
+        boolean anonymous = false;
+        boolean constant = false;
+        String name = null;
+        List<AbiDefinition.Entry.Param> inputs = null;
+        List<AbiDefinition.Entry.Param> outputs = null;
+        AbiDefinition.Entry.Type type = AbiDefinition.Entry.Type.function;
+        Boolean payable = null;
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = this.parser.currentName();
+            JsonToken value = this.parser.nextToken();
+            switch (field) {
+                case "type":
+                    type = entryType(this.parser.getValueAsString());
+                    break;
+                case "name":
+                    name = string(value);
+                    break;
+                case "inputs":
+                    inputs = readParams(value);
+                    break;
+                case "outputs":
+                    outputs = readParams(value);
+                    break;
+                case "anonymous":
+                    anonymous = value == JsonToken.VALUE_TRUE;
+                    break;
+                case "constant":
+                    constant = value == JsonToken.VALUE_TRUE;
+                    break;
+                case "payable":
+                    payable = value == JsonToken.VALUE_NULL ? null : value == JsonToken.VALUE_TRUE;
+                    break;
+                default:
+                    this.parser.skipChildren();
+            }
+        }
+        return AbiDefinition.Entry.create(anonymous, constant, name, inputs, outputs, type, payable);
+    }
+
+    private List<AbiDefinition.Entry.Param> readParams(JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(JsonToken.START_ARRAY);
+        List<AbiDefinition.Entry.Param> params = new ArrayList<>();
+        while (this.parser.nextToken() != JsonToken.END_ARRAY) {
+            params.add(readParam());
+        }
+        return params;
+    }
+
+    private AbiDefinition.Entry.Param readParam() throws IOException {
+        expect(JsonToken.START_OBJECT);
+        AbiDefinition.Entry.Param param = new AbiDefinition.Entry.Param();
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = this.parser.currentName();
+            JsonToken value = this.parser.nextToken();
+            switch (field) {
+                case "name":
+                    param.setName(string(value));
+                    break;
+                case "type":
+                    param.setType(value == JsonToken.VALUE_NULL ? null : type(this.parser.getText()));
+                    break;
+                case "indexed":
+                    param.setIndexed(value == JsonToken.VALUE_NULL ? null : value == JsonToken.VALUE_TRUE);
+                    break;
+                case "components":
+                    param.setComponents(readParams(value));
+                    break;
+                default:
+                    this.parser.skipChildren();
+            }
+        }
+        if (param.getComponents() != null) {
+            SANITIZER.convert(param);
+        }
+        return param;
+    }
+
+    /**
+     * @return the parsed type, shared with other params of the document unless it contains a tuple, which gets its
+     * components added
+     */
+    private SolidityType type(String name) {
+        if (name.startsWith("tuple")) {
+            return SolidityType.getType(name);
+        }
+        SolidityType type = this.types.get(name);
+        if (type == null) {
+            type = SolidityType.getType(name);
+            this.types.put(name, type);
+        }
+        return type;
+    }
+
+    private AbiDefinition.Entry.Type entryType(String name) {
+        if (name != null) {
+            for (AbiDefinition.Entry.Type type : AbiDefinition.Entry.Type.values()) {
+                if (type.name().equals(name)) {
+                    return type;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown entry type '" + name + "', at " + this.parser.currentLocation() + ".");
+    }
+
+    private String string(JsonToken value) throws IOException {
+        return value == JsonToken.VALUE_NULL ? null : this.parser.getText();
+    }
+
+    private void expect(JsonToken token) {
+        if (this.parser.currentToken() != token) {
+            throw new IllegalArgumentException("Expected " + token + " but got " + this.parser.currentToken() + ", at " + this.parser.currentLocation() + ".");
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package net.osslabz.evm.abi.definition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A set of ABIs in a compact binary form, for starting up without parsing JSON and hashing signatures.
+ * <p>
+ * The snapshot stores the entries with their canonical signatures and Keccak-256 hashes, which are handed to the loaded
+ * entries as if they had been computed. Decode plans are compiled from the parsed types when a decoder is built, that
+ * takes no hashing. Files are memory-mapped when read and checked against a CRC-32 of their content.
+ * <pre>
+ * AbiSnapshot.of(abis, contracts).write(path);
+ * AbiRegistry registry = AbiRegistry.fromSnapshot(AbiSnapshot.read(path));
+ * </pre>
+ * Layout, all numbers big-endian: magic <code>ABIS</code>, format version, CRC-32 of the rest, the string table, the
+ * ABIs, the indexes of the ABIs without contract and the contract addresses with the index of their ABI.
+ */
+public final class AbiSnapshot {
+
+    public static final int MAGIC = 0x41424953;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int HASH_SIZE = 32;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+
+    private final List<AbiDefinition> abis;
+    private final Map<Address, AbiDefinition> contracts;
+
+    private AbiSnapshot(List<AbiDefinition> abis, Map<Address, AbiDefinition> contracts) {
+        this.abis = Collections.unmodifiableList(abis);
+        this.contracts = Collections.unmodifiableMap(contracts);
+    }
+
+    /**
+     * @param abis      ABIs without a contract address
+     * @param contracts ABIs of known contracts, an ABI can be bound to several addresses and is stored only once
+     */
+    public static AbiSnapshot of(List<AbiDefinition> abis, Map<Address, AbiDefinition> contracts) {
+        return new AbiSnapshot(new ArrayList<>(abis), new LinkedHashMap<>(contracts));
+    }
+
+    public List<AbiDefinition> getAbis() {
+        return this.abis;
+    }
+
+    public Map<Address, AbiDefinition> getContracts() {
+        return this.contracts;
+    }
+
+    /**
+     * Maps the file into memory and loads the snapshot from it.
+     *
+     * @throws IllegalArgumentException if the file isn't a snapshot of this version or is corrupt
+     */
+    public static AbiSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Loads a snapshot from the buffer's position to its limit, the buffer's position isn't changed.
+     *
+     * @throws IllegalArgumentException if the content isn't a snapshot of this version or is corrupt
+     */
+    public static AbiSnapshot read(ByteBuffer buffer) {
+        ByteBuffer in = buffer.slice();
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an ABI snapshot.");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported ABI snapshot version " + version + ", expected " + VERSION + ".");
+            }
+            int checksum = in.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IllegalArgumentException("Corrupt ABI snapshot, checksum mismatch.");
+            }
+            return new Reader(in).read();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt ABI snapshot, truncated content.", e);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    public void write(OutputStream out) throws IOException {
+        byte[] content = new Writer().write(this);
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putInt((int) crc.getValue());
+        out.write(header.array());
+        out.write(content);
+    }
+
+    private static final class Writer {
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(this.body);
+
+        byte[] write(AbiSnapshot snapshot) throws IOException {
+            // every ABI once, in order of first use
+            Map<AbiDefinition, Integer> indexes = new IdentityHashMap<>();
+            List<AbiDefinition> abis = new ArrayList<>();
+            for (AbiDefinition abi : snapshot.abis) {
+                index(abi, indexes, abis);
+            }
+            for (AbiDefinition abi : snapshot.contracts.values()) {
+                index(abi, indexes, abis);
+            }
+
+            this.out.writeInt(abis.size());
+            for (AbiDefinition abi : abis) {
+                this.out.writeInt(abi.size());
+                for (AbiDefinition.Entry entry : abi) {
+                    writeEntry(entry);
+                }
+            }
+            this.out.writeInt(snapshot.abis.size());
+            for (AbiDefinition abi : snapshot.abis) {
+                this.out.writeInt(indexes.get(abi));
+            }
+            this.out.writeInt(snapshot.contracts.size());
+            for (Map.Entry<Address, AbiDefinition> contract : snapshot.contracts.entrySet()) {
+                this.out.write(contract.getKey().toBytes());
+                this.out.writeInt(indexes.get(contract.getValue()));
+            }
+            this.out.flush();
+
+            ByteArrayOutputStream result = new ByteArrayOutputStream(this.body.size() + 16 * this.strings.size());
+            DataOutputStream table = new DataOutputStream(result);
+            table.writeInt(this.strings.size());
+            for (String string : this.strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                table.writeInt(bytes.length);
+                table.write(bytes);
+            }
+            this.body.writeTo(table);
+            table.flush();
+            return result.toByteArray();
+        }
+
+        private static void index(AbiDefinition abi, Map<AbiDefinition, Integer> indexes, List<AbiDefinition> abis) {
+            if (!indexes.containsKey(abi)) {
+                indexes.put(abi, abis.size());
+                abis.add(abi);
+            }
+        }
+
+        private void writeEntry(AbiDefinition.Entry entry) throws IOException {
+            this.out.writeByte(entry.type.ordinal());
+            this.out.writeByte(flag(entry.anonymous));
+            this.out.writeByte(flag(entry.constant));
+            this.out.writeByte(flag(entry.payable));
+            writeString(entry.name);
+            writeParams(entry.inputs);
+            writeParams(entry.outputs);
+            writeString(entry.formatSignature());
+            this.out.write(entry.signatureHash());
+        }
+
+        private void writeParams(List<AbiDefinition.Entry.Param> params) throws IOException {
+            if (params == null) {
+                this.out.writeInt(-1);
+                return;
+            }
+            this.out.writeInt(params.size());
+            for (AbiDefinition.Entry.Param param : params) {
+                this.out.writeByte(flag(param.getIndexed()));
+                writeString(param.getName());
+                writeString(param.getType() == null ? null : param.getType().getName());
+                writeParams(param.getComponents());
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                this.out.writeInt(-1);
+                return;
+            }
+            Integer index = this.strings.get(value);
+            if (index == null) {
+                index = this.strings.size();
+                this.strings.put(value, index);
+            }
+            this.out.writeInt(index);
+        }
+
+        private static byte flag(Boolean value) {
+            return value == null ? NULL : value ? TRUE : FALSE;
+        }
+    }
+
+    private static final class Reader {
+
+        private static final AbiDefinition.Entry.Type[] TYPES = AbiDefinition.Entry.Type.values();
+        private static final AbiDefinition.ParamSanitizer SANITIZER = new AbiDefinition.ParamSanitizer();
+
+        private final ByteBuffer in;
+        private String[] strings;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        AbiSnapshot read() {
+            this.strings = new String[count()];
+            byte[] bytes = new byte[64];
+            for (int i = 0; i < this.strings.length; i++) {
+                int length = count();
+                if (length > bytes.length) {
+                    bytes = new byte[Math.max(length, 2 * bytes.length)];
+                }
+                this.in.get(bytes, 0, length);
+                this.strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            AbiDefinition[] abis = new AbiDefinition[count()];
+            for (int i = 0; i < abis.length; i++) {
+                int entries = count();
+                abis[i] = new AbiDefinition();
+                abis[i].ensureCapacity(entries);
+                for (int j = 0; j < entries; j++) {
+                    abis[i].add(readEntry());
+                }
+            }
+            int unboundCount = count();
+            List<AbiDefinition> unbound = new ArrayList<>(unboundCount);
+            for (int i = 0; i < unboundCount; i++) {
+                unbound.add(abis[this.in.getInt()]);
+            }
+            int contractCount = count();
+            Map<Address, AbiDefinition> contracts = new LinkedHashMap<>(Math.max(16, contractCount * 2));
+            byte[] address = new byte[Address.LENGTH];
+            for (int i = 0; i < contractCount; i++) {
+                this.in.get(address);
+                contracts.put(Address.of(address), abis[this.in.getInt()]);
+            }
+            return new AbiSnapshot(unbound, contracts);
+        }
+
+        private AbiDefinition.Entry readEntry() {
+            AbiDefinition.Entry.Type type = TYPES[this.in.get()];
+            Boolean anonymous = flag(this.in.get());
+            Boolean constant = flag(this.in.get());
+            Boolean payable = flag(this.in.get());
+            String name = string();
+            List<AbiDefinition.Entry.Param> inputs = readParams();
+            List<AbiDefinition.Entry.Param> outputs = readParams();
+            String signature = string();
+            byte[] hash = new byte[HASH_SIZE];
+            this.in.get(hash);
+
+            AbiDefinition.Entry entry = AbiDefinition.Entry.create(Boolean.TRUE.equals(anonymous), Boolean.TRUE.equals(constant), name, inputs, outputs, type, payable);
+            entry.seedSignature(signature, hash);
+            return entry;
+        }
+
+        private List<AbiDefinition.Entry.Param> readParams() {
+            int count = this.in.getInt();
+            if (count < 0) {
+                return null;
+            }
+            List<AbiDefinition.Entry.Param> params = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                AbiDefinition.Entry.Param param = new AbiDefinition.Entry.Param();
+                param.setIndexed(flag(this.in.get()));
+                param.setName(string());
+                String type = string();
+                param.setType(type == null ? null : SolidityType.getType(type));
+                param.setComponents(readParams());
+                params.add(param.getType() == null ? param : SANITIZER.convert(param));
+            }
+            return params;
+        }
+
+        private String string() {
+            int index = this.in.getInt();
+            return index < 0 ? null : this.strings[index];
+        }
+
+        /**
+         * @return a count or length, checked against the remaining content so corrupt files fail fast
+         */
+        private int count() {
+            int count = this.in.getInt();
+            if (count < 0 || count > this.in.remaining()) {
+                throw new IllegalArgumentException("Corrupt ABI snapshot, invalid count " + count + ".");
+            }
+            return count;
+        }
+
+        private static Boolean flag(byte value) {
+            return value == NULL ? null : value == TRUE;
+        }
+    }
+}
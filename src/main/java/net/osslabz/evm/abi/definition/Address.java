@@ -0,0 +1,160 @@
+package net.osslabz.evm.abi.definition;
+
+import net.osslabz.evm.abi.util.ByteUtil;
+import net.osslabz.evm.abi.util.HashUtil;
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Immutable 20-byte EVM address. The bytes are held in three primitive fields so {@link #equals(Object)} and
+ * {@link #hashCode()} don't touch arrays or strings. The hex form and the EIP-55 checksum form are computed on first use
+ * and cached.
+ */
+public final class Address implements Comparable<Address> {
+
+    public static final int LENGTH = 20;
+
+
+    // bytes 0-3, 4-11 and 12-19
+    private final int high;
+    private final long middle;
+    private final long low;
+
+    private String hex;
+    private String checksumHex;
+
+    private Address(int high, long middle, long low) {
+        this.high = high;
+        this.middle = middle;
+        this.low = low;
+    }
+
+    /**
+     * @return the address stored in the 20 bytes at <code>offset</code>
+     */
+    public static Address of(byte[] data, int offset) {
+        return new Address(ByteUtil.readInt(data, offset), ByteUtil.readLong(data, offset + 4), ByteUtil.readLong(data, offset + 12));
+    }
+
+    public static Address of(byte[] address) {
+        if (address.length != LENGTH) {
+            throw new IllegalArgumentException("Address must be 20 bytes long, but is " + address.length + ".");
+        }
+        return of(address, 0);
+    }
+
+    /**
+     * @return the address stored in the lower 20 bytes of the ABI encoded word at <code>offset</code>, the upper 12
+     * bytes are ignored
+     */
+    public static Address fromWord(byte[] encoded, int offset) {
+        return of(encoded, offset + 32 - LENGTH);
+    }
+
+    /**
+     * @param hex 40 hex digits, optionally prefixed with <code>0x</code>, in any case
+     */
+    public static Address fromHex(String hex) {
+        int start = HexCodec.prefixLength(hex, 0, hex.length());
+        if (hex.length() - start != 2 * LENGTH) {
+            throw new IllegalArgumentException("Invalid address '" + hex + "'.");
+        }
+        byte[] bytes = new byte[LENGTH];
+        try {
+            HexCodec.decode(hex, start, hex.length(), bytes, 0);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid address '" + hex + "'.", e);
+        }
+        return of(bytes, 0);
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[LENGTH];
+        write(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Writes the 20 bytes of the address to <code>out[offset, offset + 20)</code>.
+     */
+    void write(byte[] out, int offset) {
+        for (int i = 0; i < 4; i++) {
+            out[offset + i] = (byte) (this.high >>> (24 - 8 * i));
+        }
+        for (int i = 0; i < 8; i++) {
+            out[offset + 4 + i] = (byte) (this.middle >>> (56 - 8 * i));
+            out[offset + 12 + i] = (byte) (this.low >>> (56 - 8 * i));
+        }
+    }
+
+    /**
+     * @return lower case hex with <code>0x</code> prefix
+     */
+    @Override
+    public String toString() {
+        String result = this.hex;
+        if (result == null) {
+            char[] chars = new char[2 + 2 * LENGTH];
+            chars[0] = '0';
+            chars[1] = 'x';
+            HexCodec.encode(toBytes(), 0, LENGTH, chars, 2);
+            result = new String(chars);
+            this.hex = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return mixed case hex with <code>0x</code> prefix according to
+     * <a href="https://eips.ethereum.org/EIPS/eip-55">EIP-55</a>
+     */
+    public String toChecksumString() {
+        String result = this.checksumHex;
+        if (result == null) {
+            String lower = toString();
+            byte[] hash = HashUtil.hashAsKeccak(lower.substring(2).getBytes(StandardCharsets.US_ASCII));
+            char[] chars = lower.toCharArray();
+            for (int i = 0; i < 2 * LENGTH; i++) {
+                int nibble = (hash[i / 2] >> (i % 2 == 0 ? 4 : 0)) & 0xF;
+                char c = chars[2 + i];
+                if (c >= 'a' && nibble >= 8) {
+                    chars[2 + i] = Character.toUpperCase(c);
+                }
+            }
+            result = new String(chars);
+            this.checksumHex = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Address)) {
+            return false;
+        }
+        Address other = (Address) o;
+        return this.low == other.low && this.middle == other.middle && this.high == other.high;
+    }
+
+    @Override
+    public int hashCode() {
+        // the address bytes are hash output already, the low 8 bytes are well distributed
+        return (int) (this.low ^ (this.low >>> 32));
+    }
+
+    @Override
+    public int compareTo(Address other) {
+        int result = Integer.compareUnsigned(this.high, other.high);
+        if (result == 0) {
+            result = Long.compareUnsigned(this.middle, other.middle);
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(this.low, other.low);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,182 @@
+package net.osslabz.evm.abi.definition;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Call data of a function which is encoded once and then patched in place for each call. Setting a static argument
+ * (uint, int, address, bool, bytesN, static arrays and tuples) overwrites its head slot. Setting a dynamic argument
+ * rewrites its tail, only if the tail's length changes the following tails are moved and their offsets adjusted.
+ * The other arguments are never encoded again.
+ * <p>
+ * The encoding is the same as {@link AbiDefinition.Function#encode(Object...)} with the current arguments. Templates
+ * are mutable and not thread-safe, use a {@link #copy()} per thread.
+ */
+public final class CalldataTemplate {
+
+    private static final int SELECTOR_LENGTH = 4;
+    private static final int WORD = 32;
+
+    private final AbiDefinition.Function function;
+    private final EncodePlan plan;
+
+    /**
+     * start and end of every argument's value, see {@link EncodePlan#write(Object[], byte[], int, int[])}
+     */
+    private final int[] layout;
+
+    /**
+     * offset of every argument's head slot
+     */
+    private final int[] heads;
+
+    private byte[] encoded;
+    private int size;
+
+    CalldataTemplate(AbiDefinition.Function function, EncodePlan plan, Object[] args) {
+        if (args.length != plan.length()) {
+            throw new IllegalArgumentException("Template of " + function.formatSignature() + " needs " + plan.length() + " arguments, but got " + args.length + ".");
+        }
+        this.function = function;
+        this.plan = plan;
+        this.layout = new int[2 * args.length];
+        this.heads = new int[args.length];
+        this.size = function.encodedSize(args);
+        this.encoded = new byte[this.size];
+        System.arraycopy(function.signatureHash(), 0, this.encoded, 0, SELECTOR_LENGTH);
+        plan.write(args, this.encoded, SELECTOR_LENGTH, this.layout);
+
+        int head = SELECTOR_LENGTH;
+        for (int i = 0; i < args.length; i++) {
+            this.heads[i] = head;
+            head += plan.isDynamic(i) ? WORD : this.layout[2 * i + 1] - this.layout[2 * i];
+        }
+    }
+
+    private CalldataTemplate(CalldataTemplate template) {
+        this.function = template.function;
+        this.plan = template.plan;
+        this.layout = template.layout.clone();
+        this.heads = template.heads;
+        this.encoded = Arrays.copyOf(template.encoded, template.size);
+        this.size = template.size;
+    }
+
+    public AbiDefinition.Function getFunction() {
+        return this.function;
+    }
+
+    /**
+     * Replaces the argument at <code>index</code>. An invalid value throws the same exception as
+     * {@link AbiDefinition.Function#encode(Object...)} and leaves the template unchanged.
+     */
+    public CalldataTemplate set(int index, Object value) {
+        int start = this.layout[2 * index];
+        int end = this.layout[2 * index + 1];
+        int valueSize = this.plan.size(index, value);
+        // encoded aside first, so a value failing halfway doesn't leave a partly patched template
+        byte[] scratch = EncodePlan.scratch(valueSize);
+        this.plan.write(index, value, scratch, 0);
+
+        int delta = valueSize - (end - start);
+        if (delta != 0) {
+            // only dynamic values change their length
+            move(index, end, delta);
+        }
+        System.arraycopy(scratch, 0, this.encoded, start, valueSize);
+        return this;
+    }
+
+    /**
+     * Replaces an int or uint argument without boxing the value, other params take the value as <code>Long</code>.
+     */
+    public CalldataTemplate set(int index, long value) {
+        if (!this.plan.writeLong(index, value, this.encoded, this.layout[2 * index])) {
+            set(index, (Object) value);
+        }
+        return this;
+    }
+
+    /**
+     * Replaces the (first) argument with the given name.
+     *
+     * @throws IllegalArgumentException if the function has no input with that name
+     */
+    public CalldataTemplate set(String name, Object value) {
+        return set(indexOf(name), value);
+    }
+
+    public CalldataTemplate set(String name, long value) {
+        return set(indexOf(name), value);
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < this.function.inputs.size(); i++) {
+            if (name.equals(this.function.inputs.get(i).getName())) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Function " + this.function.formatSignature() + " has no input '" + name + "'.");
+    }
+
+    /**
+     * Moves everything behind the tail of the dynamic argument at <code>index</code> by <code>delta</code> bytes and
+     * adjusts the offsets of the following dynamic arguments.
+     */
+    private void move(int index, int end, int delta) {
+        if (this.size + delta > this.encoded.length) {
+            this.encoded = Arrays.copyOf(this.encoded, Math.max(this.size + delta, 2 * this.encoded.length));
+        }
+        System.arraycopy(this.encoded, end, this.encoded, end + delta, this.size - end);
+        this.size += delta;
+        this.layout[2 * index + 1] += delta;
+        for (int i = index + 1; i < this.heads.length; i++) {
+            if (this.plan.isDynamic(i)) {
+                this.layout[2 * i] += delta;
+                this.layout[2 * i + 1] += delta;
+                int pointer = SolidityType.IntType.decodeIntValue(this.encoded, this.heads[i]);
+                EncodePlan.writeLong(this.encoded, this.heads[i], pointer + delta);
+            }
+        }
+    }
+
+    /**
+     * @return length of the call data
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public byte[] toBytes() {
+        return Arrays.copyOf(this.encoded, this.size);
+    }
+
+    /**
+     * Copies the call data to <code>out</code> starting at <code>offset</code>.
+     *
+     * @return number of bytes written
+     */
+    public int writeTo(byte[] out, int offset) {
+        System.arraycopy(this.encoded, 0, out, offset, this.size);
+        return this.size;
+    }
+
+    /**
+     * Copies the call data to the buffer's position and advances it.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if less than {@link #size()} bytes remain
+     */
+    public int writeTo(ByteBuffer buffer) {
+        buffer.put(this.encoded, 0, this.size);
+        return this.size;
+    }
+
+    /**
+     * @return an independent template with the same arguments
+     */
+    public CalldataTemplate copy() {
+        return new CalldataTemplate(this);
+    }
+}
@@ -0,0 +1,637 @@
+package net.osslabz.evm.abi.definition;
+
+import net.osslabz.evm.abi.util.ByteUtil;
+import net.osslabz.evm.abi.util.HexCodec;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Precompiled encoder for a list of ABI params. The exact size of the encoding is computed first, then heads and tails
+ * are written in a single pass into the caller's buffer, without the intermediate arrays of
+ * {@link SolidityType#encode(Object)}. The output is byte for byte the same as the one of
+ * {@link AbiDefinition.Function#encode(Object...)}, quirks included.
+ * <p>
+ * Values of the common Java types (<code>Long</code>, <code>Integer</code>, <code>Short</code>, <code>Byte</code>,
+ * <code>BigInteger</code> within long range, <code>Boolean</code>, <code>byte[]</code>, {@link Address} and hex
+ * strings for addresses) are written without allocating. Any other value is encoded by its {@link SolidityType} and
+ * copied, which also keeps the exceptions for invalid values.
+ * <p>
+ * Instances are thread-safe.
+ */
+final class EncodePlan {
+
+    private static final int WORD = 32;
+
+    // for ByteBuffers without accessible array, grows to the largest encoding of the thread
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    private final Writer[] writers;
+
+    EncodePlan(List<AbiDefinition.Entry.Param> params) {
+        this.writers = new Writer[params == null ? 0 : params.size()];
+        for (int i = 0; i < this.writers.length; i++) {
+            this.writers[i] = writer(params.get(i).getType());
+        }
+    }
+
+    /**
+     * @return size in bytes of the encoded <code>args</code>, there may be fewer args than params
+     */
+    int size(Object[] args) {
+        checkArgumentCount(args);
+        int size = 0;
+        for (int i = 0; i < args.length; i++) {
+            Writer writer = this.writers[i];
+            size += writer.dynamic ? WORD + writer.size(args[i]) : writer.size(args[i]);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the encoded <code>args</code> starting at <code>offset</code>, the caller checked that
+     * {@link #size(Object[])} bytes fit.
+     *
+     * @return offset after the last byte written
+     */
+    int write(Object[] args, byte[] out, int offset) {
+        return write(args, out, offset, null);
+    }
+
+    /**
+     * Like {@link #write(Object[], byte[], int)}, if <code>layout</code> isn't <code>null</code> the start and end of
+     * every arg's value are stored at <code>layout[2 * i]</code> and <code>layout[2 * i + 1]</code>: its head for
+     * static args, its tail for dynamic ones.
+     */
+    int write(Object[] args, byte[] out, int offset, int[] layout) {
+        checkArgumentCount(args);
+        // Function.encode points behind the fixed size of the params, but a static tuple writes no head
+        int pointer = 0;
+        int headEnd = offset;
+        for (int i = 0; i < args.length; i++) {
+            Writer writer = this.writers[i];
+            pointer += writer.fixedSize;
+            headEnd += writer.dynamic ? WORD : writer.size(args[i]);
+        }
+
+        int head = offset;
+        int tail = headEnd;
+        for (int i = 0; i < args.length; i++) {
+            Writer writer = this.writers[i];
+            int start = writer.dynamic ? tail : head;
+            int end = writer.write(args[i], out, start);
+            if (writer.dynamic) {
+                writeLong(out, head, pointer);
+                head += WORD;
+                pointer += end - tail;
+                tail = end;
+            } else {
+                head = end;
+            }
+            if (layout != null) {
+                layout[2 * i] = start;
+                layout[2 * i + 1] = end;
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * @return number of params
+     */
+    int length() {
+        return this.writers.length;
+    }
+
+    boolean isDynamic(int index) {
+        return this.writers[index].dynamic;
+    }
+
+    /**
+     * @return size of the value of a single param, without the offset word of dynamic params
+     */
+    int size(int index, Object value) {
+        return this.writers[index].size(value);
+    }
+
+    /**
+     * Writes the value of a single param, without the offset word of dynamic params.
+     *
+     * @return offset after the last byte written
+     */
+    int write(int index, Object value, byte[] out, int offset) {
+        return this.writers[index].write(value, out, offset);
+    }
+
+    /**
+     * Writes a long to a static int or uint param without boxing it.
+     *
+     * @return <code>false</code> if the param isn't an int or uint or the value is negative for an uint
+     */
+    boolean writeLong(int index, long value, byte[] out, int offset) {
+        if (!(this.writers[index] instanceof NumericWriter) || value < 0 && !((NumericWriter) this.writers[index]).signed) {
+            return false;
+        }
+        writeLong(out, offset, value);
+        return true;
+    }
+
+    /**
+     * @return a buffer of at least <code>size</code> bytes reused by the calling thread
+     */
+    static byte[] scratch(int size) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < size) {
+            scratch = new byte[Math.max(size, 2 * scratch.length)];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    private void checkArgumentCount(Object[] args) {
+        if (args.length > this.writers.length) {
+            throw new RuntimeException("Too many arguments: " + args.length + " > " + this.writers.length);
+        }
+    }
+
+    static Writer writer(SolidityType type) {
+        Class<?> typeClass = type.getClass();
+        if (typeClass == SolidityType.UnsignedIntType.class) {
+            return new NumericWriter(type, false);
+        } else if (typeClass == SolidityType.IntType.class) {
+            return new NumericWriter(type, true);
+        } else if (typeClass == SolidityType.AddressType.class) {
+            return new AddressWriter(type);
+        } else if (typeClass == SolidityType.BoolType.class) {
+            return new BoolWriter(type);
+        } else if (typeClass == SolidityType.Bytes32Type.class) {
+            return new Bytes32Writer(type);
+        } else if (typeClass == SolidityType.BytesType.class) {
+            return new BytesWriter(type);
+        } else if (typeClass == SolidityType.StringType.class) {
+            return new StringWriter(type);
+        } else if (typeClass == SolidityType.TupleType.class) {
+            return new TupleWriter(type);
+        } else if (typeClass == SolidityType.StaticArrayType.class) {
+            return new StaticArrayWriter((SolidityType.StaticArrayType) type);
+        } else if (typeClass == SolidityType.DynamicArrayType.class) {
+            return new DynamicArrayWriter((SolidityType.DynamicArrayType) type);
+        }
+        return new TypeWriter(type);
+    }
+
+    /**
+     * Writes the values of one type. For dynamic types only the tail is written, the caller writes the offset.
+     */
+    abstract static class Writer {
+        final SolidityType type;
+        final boolean dynamic;
+        final int fixedSize;
+
+        Writer(SolidityType type) {
+            this.type = type;
+            this.dynamic = type.isDynamicType();
+            this.fixedSize = type.getFixedSize();
+        }
+
+        /**
+         * @return length of <code>type.encode(value)</code>
+         */
+        abstract int size(Object value);
+
+        /**
+         * Writes the same bytes as <code>type.encode(value)</code> starting at <code>offset</code>.
+         *
+         * @return offset after the last byte written
+         */
+        abstract int write(Object value, byte[] out, int offset);
+
+        int writeEncoded(Object value, byte[] out, int offset) {
+            byte[] encoded = this.type.encode(value);
+            System.arraycopy(encoded, 0, out, offset, encoded.length);
+            return offset + encoded.length;
+        }
+    }
+
+    static final class TypeWriter extends Writer {
+        TypeWriter(SolidityType type) {
+            super(type);
+        }
+
+        @Override
+        int size(Object value) {
+            return this.type.encode(value).length;
+        }
+
+        @Override
+        int write(Object value, byte[] out, int offset) {
+            return writeEncoded(value, out, offset);
+        }
+    }
+
+    /**
+     * Writer for types which are always encoded as a single word.
+     */
+    abstract static class WordWriter extends Writer {
+        WordWriter(SolidityType type) {
+            super(type);
+        }
+
+        @Override
+        int size(Object value) {
+            return WORD;
+        }
+
+        @Override
+        int write(Object value, byte[] out, int offset) {
+            return writeWord(value, out, offset) ? offset + WORD : writeEncoded(value, out, offset);
+        }
+
+        /**
+         * @return <code>false</code> if the value isn't covered by a fast path and has to be encoded by the type
+         */
+        abstract boolean writeWord(Object value, byte[] out, int offset);
+    }
+
+    static final class NumericWriter extends WordWriter {
+        private final boolean signed;
+
+        NumericWriter(SolidityType type, boolean signed) {
+            super(type);
+            this.signed = signed;
+        }
+
+        @Override
+        boolean writeWord(Object value, byte[] out, int offset) {
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                long longValue = ((Number) value).longValue();
+                if (longValue < 0 && !this.signed) {
+                    return false;
+                }
+                writeLong(out, offset, longValue);
+                return true;
+            } else if (value instanceof BigInteger) {
+                BigInteger bigInt = (BigInteger) value;
+                if (bigInt.signum() < 0 && !this.signed) {
+                    return false;
+                }
+                writeBigInteger(out, offset, bigInt);
+                return true;
+            } else if (value instanceof byte[] && ((byte[]) value).length <= WORD) {
+                writeRightAligned(out, offset, (byte[]) value);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    static final class AddressWriter extends WordWriter {
+        AddressWriter(SolidityType type) {
+            super(type);
+        }
+
+        @Override
+        boolean writeWord(Object value, byte[] out, int offset) {
+            if (value instanceof Address) {
+                Arrays.fill(out, offset, offset + WORD - Address.LENGTH, (byte) 0);
+                ((Address) value).write(out, offset + WORD - Address.LENGTH);
+                return true;
+            } else if (value instanceof String) {
+                return writeHex(out, offset, (String) value);
+            } else if (value instanceof byte[] && ((byte[]) value).length <= Address.LENGTH) {
+                writeRightAligned(out, offset, (byte[]) value);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Writes up to 40 hex digits, optionally prefixed with <code>0x</code>, right-aligned. Anything else is left
+         * to {@link SolidityType.AddressType}.
+         */
+        private static boolean writeHex(byte[] out, int offset, String hex) {
+            int start = HexCodec.prefixLength(hex, 0, hex.length());
+            int digits = hex.length() - start;
+            if (digits == 0 || digits > 2 * Address.LENGTH) {
+                return false;
+            }
+            for (int i = start; i < hex.length(); i++) {
+                if (HexCodec.digit(hex.charAt(i)) < 0) {
+                    return false;
+                }
+            }
+            Arrays.fill(out, offset, offset + WORD, (byte) 0);
+            for (int i = 0; i < digits; i++) {
+                int digit = HexCodec.digit(hex.charAt(hex.length() - 1 - i));
+                int index = offset + WORD - 1 - i / 2;
+                out[index] = (byte) (out[index] | ((i & 1) == 0 ? digit : digit << 4));
+            }
+            return true;
+        }
+    }
+
+    static final class BoolWriter extends WordWriter {
+        BoolWriter(SolidityType type) {
+            super(type);
+        }
+
+        @Override
+        boolean writeWord(Object value, byte[] out, int offset) {
+            if (!(value instanceof Boolean)) {
+                return false;
+            }
+            // identity comparison like BoolType
+            writeLong(out, offset, value == Boolean.TRUE ? 1 : 0);
+            return true;
+        }
+    }
+
+    static final class Bytes32Writer extends WordWriter {
+        Bytes32Writer(SolidityType type) {
+            super(type);
+        }
+
+        @Override
+        boolean writeWord(Object value, byte[] out, int offset) {
+            if (value instanceof byte[] && ((byte[]) value).length <= WORD) {
+                writeRightAligned(out, offset, (byte[]) value);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    static final class BytesWriter extends Writer {
+        BytesWriter(SolidityType type) {
+            super(type);
+        }
+
+        @Override
+        int size(Object value) {
+            if (value instanceof byte[]) {
+                return WORD + padded(((byte[]) value).length);
+            }
+            return this.type.encode(value).length;
+        }
+
+        @Override
+        int write(Object value, byte[] out, int offset) {
+            if (!(value instanceof byte[])) {
+                return writeEncoded(value, out, offset);
+            }
+            byte[] bytes = (byte[]) value;
+            writeLong(out, offset, bytes.length);
+            System.arraycopy(bytes, 0, out, offset + WORD, bytes.length);
+            int end = offset + WORD + padded(bytes.length);
+            Arrays.fill(out, offset + WORD + bytes.length, end, (byte) 0);
+            return end;
+        }
+    }
+
+    static final class StringWriter extends Writer {
+        StringWriter(SolidityType type) {
+            super(type);
+        }
+
+        @Override
+        int size(Object value) {
+            if (value instanceof String) {
+                return WORD + padded(utf8Length((String) value));
+            }
+            return this.type.encode(value).length;
+        }
+
+        @Override
+        int write(Object value, byte[] out, int offset) {
+            if (!(value instanceof String)) {
+                return writeEncoded(value, out, offset);
+            }
+            int dataEnd = writeUtf8(out, offset + WORD, (String) value);
+            int length = dataEnd - offset - WORD;
+            writeLong(out, offset, length);
+            int end = offset + WORD + padded(length);
+            Arrays.fill(out, dataEnd, end, (byte) 0);
+            return end;
+        }
+    }
+
+    /**
+     * {@link SolidityType.TupleType#encode(Object)} encodes any value to zero bytes.
+     */
+    static final class TupleWriter extends Writer {
+        TupleWriter(SolidityType type) {
+            super(type);
+        }
+
+        @Override
+        int size(Object value) {
+            return 0;
+        }
+
+        @Override
+        int write(Object value, byte[] out, int offset) {
+            return offset;
+        }
+    }
+
+    abstract static class ArrayWriter extends Writer {
+        final Writer element;
+
+        ArrayWriter(SolidityType.ArrayType type) {
+            super(type);
+            this.element = writer(type.getElementType());
+        }
+
+        /**
+         * @return number of elements of a list or array value
+         */
+        int length(Object value) {
+            if (value.getClass().isArray()) {
+                return Array.getLength(value);
+            } else if (value instanceof List) {
+                return ((List<?>) value).size();
+            }
+            throw new RuntimeException("List value expected for type " + this.type.getName());
+        }
+
+        static Object get(Object value, int index) {
+            return value instanceof List ? ((List<?>) value).get(index) : Array.get(value, index);
+        }
+
+        /**
+         * @return length of {@link SolidityType.ArrayType#encodeTuple(List)}
+         */
+        int elementsSize(Object value, int length) {
+            int size = this.element.dynamic ? length * WORD : 0;
+            for (int i = 0; i < length; i++) {
+                size += this.element.size(get(value, i));
+            }
+            return size;
+        }
+
+        /**
+         * Writes the same bytes as {@link SolidityType.ArrayType#encodeTuple(List)}.
+         */
+        int writeElements(Object value, int length, byte[] out, int offset) {
+            if (!this.element.dynamic) {
+                for (int i = 0; i < length; i++) {
+                    offset = this.element.write(get(value, i), out, offset);
+                }
+                return offset;
+            }
+            int pointer = length * WORD;
+            int tail = offset + length * WORD;
+            for (int i = 0; i < length; i++) {
+                writeLong(out, offset + i * WORD, pointer);
+                int end = this.element.write(get(value, i), out, tail);
+                // encodeTuple rounds the element's length up to full words, an empty tuple still counts as one
+                pointer += WORD * ((end - tail - 1) / WORD + 1);
+                tail = end;
+            }
+            return tail;
+        }
+    }
+
+    static final class StaticArrayWriter extends ArrayWriter {
+        private final int arraySize;
+
+        StaticArrayWriter(SolidityType.StaticArrayType type) {
+            super(type);
+            this.arraySize = type.getSize();
+        }
+
+        private int checkedLength(Object value) {
+            int length = length(value);
+            if (length != this.arraySize) {
+                throw new RuntimeException("List size (" + length + ") != " + this.arraySize + " for type " + this.type.getName());
+            }
+            return length;
+        }
+
+        @Override
+        int size(Object value) {
+            return elementsSize(value, checkedLength(value));
+        }
+
+        @Override
+        int write(Object value, byte[] out, int offset) {
+            return writeElements(value, checkedLength(value), out, offset);
+        }
+    }
+
+    static final class DynamicArrayWriter extends ArrayWriter {
+        DynamicArrayWriter(SolidityType.DynamicArrayType type) {
+            super(type);
+        }
+
+        @Override
+        int size(Object value) {
+            return WORD + elementsSize(value, length(value));
+        }
+
+        @Override
+        int write(Object value, byte[] out, int offset) {
+            int length = length(value);
+            writeLong(out, offset, length);
+            return writeElements(value, length, out, offset + WORD);
+        }
+    }
+
+    /**
+     * @return <code>length</code> rounded up to full words, at least one word like in {@link SolidityType.BytesType}
+     */
+    static int padded(int length) {
+        return ((length - 1) / WORD + 1) * WORD;
+    }
+
+    /**
+     * Writes <code>value</code> as sign-extended 32 byte word.
+     */
+    static void writeLong(byte[] out, int offset, long value) {
+        byte extension = (byte) (value >> 63);
+        Arrays.fill(out, offset, offset + WORD - 8, extension);
+        for (int i = 0; i < 8; i++) {
+            out[offset + WORD - 1 - i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    /**
+     * Writes the same word as {@link ByteUtil#bigIntegerToBytesSigned(BigInteger, int)}, which for non-negative values
+     * also is the one of {@link ByteUtil#bigIntegerToBytes(BigInteger, int)}. Only values beyond long range allocate.
+     */
+    static void writeBigInteger(byte[] out, int offset, BigInteger value) {
+        if (value.bitLength() < 64) {
+            writeLong(out, offset, value.longValue());
+            return;
+        }
+        byte[] bytes = value.toByteArray();
+        int start = bytes.length == WORD + 1 ? 1 : 0;
+        int length = Math.min(bytes.length, WORD);
+        Arrays.fill(out, offset, offset + WORD - length, value.signum() < 0 ? (byte) 0xFF : 0);
+        System.arraycopy(bytes, start, out, offset + WORD - length, length);
+    }
+
+    static void writeRightAligned(byte[] out, int offset, byte[] value) {
+        Arrays.fill(out, offset, offset + WORD - value.length, (byte) 0);
+        System.arraycopy(value, 0, out, offset + WORD - value.length, value.length);
+    }
+
+    /**
+     * @return length of <code>value.getBytes(StandardCharsets.UTF_8)</code>, unpaired surrogates become <code>?</code>
+     */
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (isSurrogatePair(value, i)) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes the same bytes as <code>value.getBytes(StandardCharsets.UTF_8)</code>.
+     *
+     * @return offset after the last byte written
+     */
+    static int writeUtf8(byte[] out, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                out[offset++] = (byte) (0xC0 | c >> 6);
+                out[offset++] = (byte) (0x80 | c & 0x3F);
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[offset++] = (byte) (0xF0 | codePoint >> 18);
+                out[offset++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                out[offset++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                out[offset++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                out[offset++] = '?';
+            } else {
+                out[offset++] = (byte) (0xE0 | c >> 12);
+                out[offset++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[offset++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return offset;
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1));
+    }
+}
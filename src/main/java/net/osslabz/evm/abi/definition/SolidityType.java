@@ -2,7 +2,6 @@ package net.osslabz.evm.abi.definition;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
-import lombok.Getter;
 import net.osslabz.evm.abi.util.ByteUtil;
 
 import java.lang.reflect.Array;
@@ -10,6 +9,7 @@ import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -146,7 +146,7 @@ public abstract class SolidityType {
 
             for (int i = 0; i < len; i++) {
                 if (elementType.isDynamicType()) {
-                    ret[i] = elementType.decode(encoded, origOffset + IntType.decodeInt(encoded, offset).intValue());
+                    ret[i] = elementType.decode(encoded, origOffset + IntType.decodeIntValue(encoded, offset));
                 } else {
                     ret[i] = elementType.decode(encoded, offset);
                 }
@@ -174,6 +174,10 @@ public abstract class SolidityType {
             size = Integer.parseInt(dim);
         }
 
+        public int getSize() {
+            return size;
+        }
+
         @Override
         public String getCanonicalName() {
             return getElementType().getCanonicalName() + "[" + size + "]";
@@ -223,7 +227,7 @@ public abstract class SolidityType {
 
         @Override
         public Object decode(byte[] encoded, int origOffset) {
-            int len = IntType.decodeInt(encoded, origOffset).intValue();
+            int len = IntType.decodeIntValue(encoded, origOffset);
             return decodeTuple(encoded, origOffset + Int32Size, len);
         }
 
@@ -260,7 +264,7 @@ public abstract class SolidityType {
 
         @Override
         public Object decode(byte[] encoded, int offset) {
-            int len = IntType.decodeInt(encoded, offset).intValue();
+            int len = IntType.decodeIntValue(encoded, offset);
             if (len == 0) return new byte[0];
             offset += Int32Size;
             return Arrays.copyOfRange(encoded, offset, offset + len);
@@ -331,6 +335,9 @@ public abstract class SolidityType {
 
         @Override
         public byte[] encode(Object value) {
+            if (value instanceof Address) {
+                value = ((Address) value).toBytes();
+            }
             if (value instanceof String && !((String) value).startsWith("0x")) {
                 // address is supposed to be always in hex
                 value = "0x" + value;
@@ -388,9 +395,44 @@ public abstract class SolidityType {
         }
 
         public static BigInteger decodeInt(byte[] encoded, int offset) {
+            if (offset + Int32Size <= encoded.length && fitsSignedLong(encoded, offset)) {
+                return BigInteger.valueOf(ByteUtil.readLong(encoded, offset + 24));
+            }
             return new BigInteger(Arrays.copyOfRange(encoded, offset, offset + Int32Size));
         }
 
+        /**
+         * Reads the low 32 bits of the word, same as <code>decodeInt(encoded, offset).intValue()</code> but without
+         * allocating. Used for offsets and lengths.
+         */
+        public static int decodeIntValue(byte[] encoded, int offset) {
+            if (offset + Int32Size > encoded.length) {
+                return decodeInt(encoded, offset).intValue();
+            }
+            return ByteUtil.readInt(encoded, offset + Int32Size - 4);
+        }
+
+        /**
+         * @return the signed word as long
+         * @throws ArithmeticException if the value doesn't fit into a long
+         */
+        public static long decodeLongExact(byte[] encoded, int offset) {
+            if (offset + Int32Size > encoded.length) {
+                return decodeInt(encoded, offset).longValueExact();
+            }
+            if (!fitsSignedLong(encoded, offset)) {
+                throw new ArithmeticException("int value out of long range");
+            }
+            return ByteUtil.readLong(encoded, offset + 24);
+        }
+
+        private static boolean fitsSignedLong(byte[] encoded, int offset) {
+            long signExtension = ByteUtil.readLong(encoded, offset + 24) >> 63;
+            return ByteUtil.readLong(encoded, offset) == signExtension
+                    && ByteUtil.readLong(encoded, offset + 8) == signExtension
+                    && ByteUtil.readLong(encoded, offset + 16) == signExtension;
+        }
+
         public static byte[] encodeInt(int i) {
             return encodeInt(new BigInteger("" + i));
         }
@@ -423,9 +465,33 @@ public abstract class SolidityType {
         }
 
         public static BigInteger decodeInt(byte[] encoded, int offset) {
+            if (offset + Int32Size <= encoded.length && fitsLong(encoded, offset)) {
+                return BigInteger.valueOf(ByteUtil.readLong(encoded, offset + 24));
+            }
             return new BigInteger(1, Arrays.copyOfRange(encoded, offset, offset + Int32Size));
         }
 
+        /**
+         * @return the unsigned word as long
+         * @throws ArithmeticException if the value doesn't fit into a (signed) long
+         */
+        public static long decodeLongExact(byte[] encoded, int offset) {
+            if (offset + Int32Size > encoded.length) {
+                return decodeInt(encoded, offset).longValueExact();
+            }
+            if (!fitsLong(encoded, offset)) {
+                throw new ArithmeticException("uint value out of long range");
+            }
+            return ByteUtil.readLong(encoded, offset + 24);
+        }
+
+        private static boolean fitsLong(byte[] encoded, int offset) {
+            return ByteUtil.readLong(encoded, offset + 24) >= 0
+                    && ByteUtil.readLong(encoded, offset) == 0
+                    && ByteUtil.readLong(encoded, offset + 8) == 0
+                    && ByteUtil.readLong(encoded, offset + 16) == 0;
+        }
+
         public static byte[] encodeInt(int i) {
             return encodeInt(new BigInteger("" + i));
         }
@@ -468,11 +534,10 @@ public abstract class SolidityType {
 
         @Override
         public Object decode(byte[] encoded, int offset) {
-            return ((Number) super.decode(encoded, offset)).intValue() != 0;
+            return decodeIntValue(encoded, offset) != 0;
         }
     }
 
-    @Getter
     public static class TupleType extends SolidityType {
 
         private final List<SolidityType> types = new ArrayList<>();
@@ -481,6 +546,18 @@ public abstract class SolidityType {
             super("tuple");
         }
 
+        /**
+         * @return the component types, read-only. They're set once while the ABI is parsed, so a parsed tuple type
+         * doesn't change anymore and can be shared between threads.
+         */
+        public List<SolidityType> getTypes() {
+            return Collections.unmodifiableList(types);
+        }
+
+        void addType(SolidityType type) {
+            types.add(type);
+        }
+
         @Override
         public boolean isDynamicType() {
             return containsDynamicTypes();
@@ -512,7 +589,7 @@ public abstract class SolidityType {
             for (int i = 0; i < types.size(); i++) {
                 SolidityType elementType = types.get(i);
                 if (elementType.isDynamicType()) {
-                    ret[i] = elementType.decode(encoded, origOffset + IntType.decodeInt(encoded, offset).intValue());
+                    ret[i] = elementType.decode(encoded, origOffset + IntType.decodeIntValue(encoded, offset));
                 } else {
                     ret[i] = elementType.decode(encoded, offset);
                 }
@@ -17,8 +17,6 @@
  */
 package net.osslabz.evm.abi.util;
 
-import org.bouncycastle.util.encoders.Hex;
-
 import java.math.BigInteger;
 import java.util.Arrays;
 
@@ -27,16 +25,16 @@ public class ByteUtil {
 
     /**
      * Convert a byte-array into a hex String.<br>
-     * Works similar to {@link Hex#toHexString}
+     * Works similar to {@link HexCodec#encode(byte[])}
      * but allows for <code>null</code>
      *
      * @param data - byte-array to convert to a hex-string
      * @return hex representation of the data.<br>
      * Returns an empty String if the input is <code>null</code>
-     * @see Hex#toHexString
+     * @see HexCodec#encode(byte[])
      */
     public static String toHexString(byte[] data) {
-        return data == null ? "" : Hex.toHexString(data);
+        return data == null ? "" : HexCodec.encode(data);
     }
 
     public static BigInteger bytesToBigInteger(byte[] bb) {
@@ -101,6 +99,20 @@ public class ByteUtil {
     }
 
 
+    /**
+     * @return the 4 bytes at <code>offset</code> as big-endian int
+     */
+    public static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF);
+    }
+
+    /**
+     * @return the 8 bytes at <code>offset</code> as big-endian long
+     */
+    public static long readLong(byte[] data, int offset) {
+        return (long) readInt(data, offset) << 32 | (readInt(data, offset + 4) & 0xFFFFFFFFL);
+    }
+
     /**
      * @param arrays - arrays to merge
      * @return - merged array
@@ -1,12 +1,58 @@
 package net.osslabz.evm.abi.util;
 
-import org.bouncycastle.jcajce.provider.digest.Keccak;
+import org.bouncycastle.crypto.digests.KeccakDigest;
 
 public class HashUtil {
 
+    private static final ThreadLocal<Keccak256> KECCAK_256 = ThreadLocal.withInitial(Keccak256::new);
+
     public static byte[] hashAsKeccak(byte[] input) {
-        Keccak.Digest256 digest256 = new Keccak.Digest256();
-        byte[] output = digest256.digest(input);
-        return output;
+        return hashAsKeccak(input, 0, input.length);
+    }
+
+    /**
+     * Hashes <code>input[offset, offset + length)</code> with a Keccak-256 engine reused by the calling thread.
+     */
+    public static byte[] hashAsKeccak(byte[] input, int offset, int length) {
+        return KECCAK_256.get().hash(input, offset, length);
+    }
+
+    /**
+     * Keccak-256 engine which is reset after each digest and can be reused for any number of hashes. Not thread-safe,
+     * use an instance per thread.
+     */
+    public static final class Keccak256 {
+
+        public static final int DIGEST_LENGTH = 32;
+
+        private final KeccakDigest digest = new KeccakDigest(256);
+
+        public Keccak256 update(byte[] input, int offset, int length) {
+            this.digest.update(input, offset, length);
+            return this;
+        }
+
+        public Keccak256 update(byte input) {
+            this.digest.update(input);
+            return this;
+        }
+
+        /**
+         * Writes the hash of the input passed since the last digest to <code>output[offset, offset + 32)</code>.
+         */
+        public void digest(byte[] output, int offset) {
+            this.digest.doFinal(output, offset);
+        }
+
+        public byte[] digest() {
+            byte[] output = new byte[DIGEST_LENGTH];
+            digest(output, 0);
+            return output;
+        }
+
+        public byte[] hash(byte[] input, int offset, int length) {
+            this.digest.reset();
+            return update(input, offset, length).digest();
+        }
     }
 }
@@ -0,0 +1,233 @@
+package net.osslabz.evm.abi.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Table-driven hex encoding and decoding.
+ * <p>
+ * Decoding reads any range of a {@link CharSequence} or of ASCII bytes, skips a leading <code>0x</code>/<code>0X</code>
+ * in place and accepts digits in any case. Encoding writes lower case digits. Both can write into buffers of the
+ * caller, so neither substrings nor intermediate arrays are created.
+ */
+public final class HexCodec {
+
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * high and low digit of each byte value
+     */
+    private static final byte[] HIGH = new byte[256];
+    private static final byte[] LOW = new byte[256];
+
+    /**
+     * value of each ASCII hex digit, -1 for any other ASCII character
+     */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            HIGH[i] = DIGITS[i >>> 4];
+            LOW[i] = DIGITS[i & 0xF];
+        }
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+            VALUES[Character.toUpperCase(DIGITS[i])] = (byte) i;
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * @return value of the hex digit <code>c</code> in any case, -1 if it's no hex digit
+     */
+    public static int digit(int c) {
+        return c >= 0 && c < 128 ? VALUES[c] : -1;
+    }
+
+    /**
+     * @return 2 if <code>hex[start, end)</code> starts with <code>0x</code> or <code>0X</code>, 0 otherwise
+     */
+    public static int prefixLength(CharSequence hex, int start, int end) {
+        return end - start >= 2 && hex.charAt(start) == '0' && (hex.charAt(start + 1) | 0x20) == 'x' ? 2 : 0;
+    }
+
+    /**
+     * @return 2 if <code>ascii[start, end)</code> starts with <code>0x</code> or <code>0X</code>, 0 otherwise
+     */
+    public static int prefixLength(byte[] ascii, int start, int end) {
+        return end - start >= 2 && ascii[start] == '0' && (ascii[start + 1] | 0x20) == 'x' ? 2 : 0;
+    }
+
+    /**
+     * @return number of bytes <code>hex[start, end)</code> decodes to
+     * @throws IllegalArgumentException if the number of digits is odd
+     */
+    public static int decodedLength(CharSequence hex, int start, int end) {
+        return checkDigits(end - start - prefixLength(hex, start, end));
+    }
+
+    public static byte[] decode(CharSequence hex) {
+        return decode(hex, 0, hex.length());
+    }
+
+    /**
+     * Decodes <code>hex[start, end)</code>, optionally prefixed with <code>0x</code>.
+     *
+     * @throws IllegalArgumentException if the range contains a character that's no hex digit or an odd number of
+     *                                  digits
+     */
+    public static byte[] decode(CharSequence hex, int start, int end) {
+        byte[] result = new byte[decodedLength(hex, start, end)];
+        decode(hex, start, end, result, 0);
+        return result;
+    }
+
+    /**
+     * Decodes <code>hex[start, end)</code>, optionally prefixed with <code>0x</code>, into <code>out</code> starting at
+     * <code>outOffset</code>.
+     *
+     * @return number of bytes written
+     * @throws IllegalArgumentException if the range contains a character that's no hex digit or an odd number of
+     *                                  digits
+     */
+    public static int decode(CharSequence hex, int start, int end, byte[] out, int outOffset) {
+        int from = start + prefixLength(hex, start, end);
+        int length = checkDigits(end - from);
+        for (int i = 0; i < length; i++) {
+            int index = from + 2 * i;
+            int high = digit(hex.charAt(index));
+            int low = digit(hex.charAt(index + 1));
+            if ((high | low) < 0) {
+                throw invalid(hex.charAt(high < 0 ? index : index + 1), high < 0 ? index : index + 1);
+            }
+            out[outOffset + i] = (byte) (high << 4 | low);
+        }
+        return length;
+    }
+
+    /**
+     * Like {@link #decode(CharSequence, int, int)} for ASCII encoded hex, e.g. read from a file or a network buffer.
+     */
+    public static byte[] decode(byte[] ascii, int start, int end) {
+        byte[] result = new byte[checkDigits(end - start - prefixLength(ascii, start, end))];
+        decode(ascii, start, end, result, 0);
+        return result;
+    }
+
+    /**
+     * Like {@link #decode(CharSequence, int, int, byte[], int)} for ASCII encoded hex. <code>out</code> may be
+     * <code>ascii</code> itself with <code>outOffset &lt;= start</code> to decode in place, the decoded bytes never
+     * overtake the digits still to be read.
+     */
+    public static int decode(byte[] ascii, int start, int end, byte[] out, int outOffset) {
+        int from = start + prefixLength(ascii, start, end);
+        int length = checkDigits(end - from);
+        for (int i = 0; i < length; i++) {
+            int index = from + 2 * i;
+            int high = digit(ascii[index]);
+            int low = digit(ascii[index + 1]);
+            if ((high | low) < 0) {
+                throw invalid((char) (ascii[high < 0 ? index : index + 1] & 0xFF), high < 0 ? index : index + 1);
+            }
+            out[outOffset + i] = (byte) (high << 4 | low);
+        }
+        return length;
+    }
+
+    /**
+     * @return the 8 hex digits at <code>hex[offset, offset + 8)</code> as int, e.g. a selector
+     * @throws IllegalArgumentException if one of them is no hex digit
+     */
+    public static int decodeInt(CharSequence hex, int offset) {
+        return (int) decodeBits(hex, offset, 8);
+    }
+
+    /**
+     * @return the 16 hex digits at <code>hex[offset, offset + 16)</code> as long
+     * @throws IllegalArgumentException if one of them is no hex digit
+     */
+    public static long decodeLong(CharSequence hex, int offset) {
+        return decodeBits(hex, offset, 16);
+    }
+
+    private static long decodeBits(CharSequence hex, int offset, int digits) {
+        long result = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            int digit = digit(hex.charAt(i));
+            if (digit < 0) {
+                throw invalid(hex.charAt(i), i);
+            }
+            result = result << 4 | digit;
+        }
+        return result;
+    }
+
+    public static String encode(byte[] data) {
+        return encode(data, 0, data.length);
+    }
+
+    /**
+     * @return <code>data[offset, offset + length)</code> as lower case hex without prefix
+     */
+    public static String encode(byte[] data, int offset, int length) {
+        byte[] ascii = new byte[2 * length];
+        encode(data, offset, length, ascii, 0);
+        return new String(ascii, StandardCharsets.ISO_8859_1);
+    }
+
+    public static String encodePrefixed(byte[] data) {
+        return encodePrefixed(data, 0, data.length);
+    }
+
+    /**
+     * @return <code>data[offset, offset + length)</code> as lower case hex with <code>0x</code> prefix
+     */
+    public static String encodePrefixed(byte[] data, int offset, int length) {
+        byte[] ascii = new byte[2 + 2 * length];
+        ascii[0] = '0';
+        ascii[1] = 'x';
+        encode(data, offset, length, ascii, 2);
+        return new String(ascii, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writes <code>data[offset, offset + length)</code> as lower case hex digits into <code>out</code> starting at
+     * <code>outOffset</code>.
+     *
+     * @return number of chars written, <code>2 * length</code>
+     */
+    public static int encode(byte[] data, int offset, int length, char[] out, int outOffset) {
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + i] & 0xFF;
+            out[outOffset + 2 * i] = (char) HIGH[b];
+            out[outOffset + 2 * i + 1] = (char) LOW[b];
+        }
+        return 2 * length;
+    }
+
+    /**
+     * Like {@link #encode(byte[], int, int, char[], int)} writing ASCII bytes.
+     */
+    public static int encode(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + i] & 0xFF;
+            out[outOffset + 2 * i] = HIGH[b];
+            out[outOffset + 2 * i + 1] = LOW[b];
+        }
+        return 2 * length;
+    }
+
+    private static int checkDigits(int digits) {
+        if ((digits & 1) != 0) {
+            throw new IllegalArgumentException("Hex has an odd number of digits (" + digits + ").");
+        }
+        return digits >> 1;
+    }
+
+    private static IllegalArgumentException invalid(char c, int index) {
+        return new IllegalArgumentException("Invalid hex character '" + c + "' at index " + index + ".");
+    }
+}
@@ -0,0 +1,94 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.definition.AbiArtifactReader;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.util.FileUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class AbiArtifactReaderTest {
+
+    private static final String BYTECODE = "\"0x" + String.join("", Collections.nCopies(2000, "6080604052")) + "\"";
+
+    @Test
+    public void testHardhatArtifact() throws IOException, URISyntaxException {
+        String tether = FileUtil.readFileIntoString("abiFiles/TetherToken.json");
+        String artifact = "{\"_format\":\"hh-sol-artifact-1\",\"contractName\":\"TetherToken\",\"sourceName\":\"contracts/TetherToken.sol\","
+                + "\"abi\":" + tether + ",\"bytecode\":" + BYTECODE + ",\"deployedBytecode\":" + BYTECODE
+                + ",\"linkReferences\":{},\"deployedLinkReferences\":{\"a\":[{\"start\":1}]}}";
+
+        Assertions.assertEquals(AbiDefinition.fromJson(tether).toJson(), AbiArtifactReader.read(stream(artifact)).toJson());
+        Map<String, AbiDefinition> abis = AbiArtifactReader.readAll(stream(artifact));
+        Assertions.assertEquals(Arrays.asList("contracts/TetherToken.sol:TetherToken"), Arrays.asList(abis.keySet().toArray()));
+
+        // Foundry puts the ABI first and nests another copy in the metadata
+        String foundry = "{\"abi\":" + tether + ",\"bytecode\":{\"object\":" + BYTECODE + ",\"sourceMap\":\"1:2:3\"},"
+                + "\"metadata\":{\"output\":{\"abi\":[]}},\"ast\":{\"nodes\":[{\"nodes\":[]}]}}";
+        Assertions.assertEquals(AbiDefinition.fromJson(tether).toJson(), AbiArtifactReader.read(stream(foundry)).toJson());
+        Assertions.assertEquals(1, AbiArtifactReader.readAll(stream(foundry)).size());
+        Assertions.assertTrue(AbiArtifactReader.readAll(stream(foundry)).containsKey(""));
+
+        Assertions.assertEquals(AbiDefinition.fromJson(tether).toJson(), AbiArtifactReader.read(stream(tether)).toJson());
+    }
+
+    @Test
+    public void testStandardJsonOutput() throws IOException, URISyntaxException {
+        String tether = FileUtil.readFileIntoString("abiFiles/TetherToken.json");
+        String router = FileUtil.readFileIntoString("abiFiles/UniswapV2Router02.json");
+        String output = "{\"errors\":[{\"severity\":\"warning\"}],\"sources\":{\"a.sol\":{\"id\":0,\"ast\":{}}},\"contracts\":{"
+                + "\"a.sol\":{\"TetherToken\":{\"evm\":{\"bytecode\":{\"object\":" + BYTECODE + "}},\"abi\":" + tether + "},"
+                + "\"Lib\":{\"evm\":{}}},"
+                + "\"b.sol\":{\"UniswapV2Router02\":{\"abi\":" + router + ",\"metadata\":\"{\\\"abi\\\":[]}\"}}}}";
+
+        Map<String, AbiDefinition> abis = AbiArtifactReader.readAll(stream(output));
+        Assertions.assertEquals(Arrays.asList("a.sol:TetherToken", "b.sol:UniswapV2Router02"), Arrays.asList(abis.keySet().toArray()));
+        Assertions.assertEquals(AbiDefinition.fromJson(router).toJson(), abis.get("b.sol:UniswapV2Router02").toJson());
+        Assertions.assertEquals(AbiDefinition.fromJson(tether).toJson(), AbiArtifactReader.read(stream(output)).toJson());
+    }
+
+    @Test
+    public void testCombinedJsonOutput() throws IOException {
+        // solc --combined-json abi,bin a.sol (0.8.x), with contracts C and D
+        String output = "{\"contracts\":{"
+                + "\"a.sol:C\":{\"abi\":[{\"inputs\":[{\"internalType\":\"uint256\",\"name\":\"x\",\"type\":\"uint256\"}],"
+                + "\"name\":\"f\",\"outputs\":[],\"stateMutability\":\"nonpayable\",\"type\":\"function\"}],\"bin\":" + BYTECODE + "},"
+                + "\"a.sol:D\":{\"abi\":[{\"inputs\":[],\"name\":\"g\",\"outputs\":[],\"stateMutability\":\"view\",\"type\":\"function\"}],"
+                + "\"bin\":\"6080\"}},"
+                + "\"version\":\"0.8.26+commit.8a97fa7a.Linux.g++\"}";
+
+        Map<String, AbiDefinition> abis = AbiArtifactReader.readAll(stream(output));
+        Assertions.assertEquals(Arrays.asList("a.sol:C", "a.sol:D"), Arrays.asList(abis.keySet().toArray()));
+        Assertions.assertEquals("f(uint256)", abis.get("a.sol:C").get(0).formatSignature());
+        Assertions.assertEquals("g()", abis.get("a.sol:D").get(0).formatSignature());
+        Assertions.assertEquals("f(uint256)", AbiArtifactReader.read(stream(output)).get(0).formatSignature());
+
+        // solc before 0.8 writes the ABI as JSON string
+        String legacy = "{\"contracts\":{\"a.sol:C\":{\"abi\":\"[{\\\"constant\\\":false,\\\"inputs\\\":[],\\\"name\\\":\\\"f\\\","
+                + "\\\"outputs\\\":[],\\\"type\\\":\\\"function\\\"}]\",\"bin\":\"6080\"}},\"version\":\"0.7.6+commit.7338295f.Linux.g++\"}";
+        Assertions.assertEquals(Collections.singleton("a.sol:C"), AbiArtifactReader.readAll(stream(legacy)).keySet());
+        Assertions.assertEquals("f()", AbiArtifactReader.read(stream(legacy)).get(0).formatSignature());
+    }
+
+    @Test
+    public void testAbiAsString() throws IOException {
+        String combined = "{\"contracts\":{\"a.sol\":{\"C\":{\"abi\":\"[{\\\"type\\\":\\\"function\\\",\\\"name\\\":\\\"f\\\",\\\"inputs\\\":[]}]\"}}}}";
+        Assertions.assertEquals("f()", AbiArtifactReader.read(stream(combined)).get(0).formatSignature());
+
+        Assertions.assertTrue(AbiArtifactReader.readAll(stream("{\"bytecode\":\"0x00\"}")).isEmpty());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiArtifactReader.read(stream("{\"bytecode\":\"0x00\"}")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiArtifactReader.read(stream("\"abi\"")));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
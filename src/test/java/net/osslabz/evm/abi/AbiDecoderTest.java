@@ -2,8 +2,11 @@ package net.osslabz.evm.abi;
 
 import lombok.extern.slf4j.Slf4j;
 import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.DecodedCall;
 import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.decoder.DecoderOptions;
 import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
 import net.osslabz.evm.abi.util.FileUtil;
 import org.bouncycastle.util.encoders.Hex;
 import org.junit.jupiter.api.Assertions;
@@ -13,8 +16,15 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Slf4j
 public class AbiDecoderTest {
@@ -71,6 +81,237 @@ public class AbiDecoderTest {
         Assertions.assertEquals(BigInteger.valueOf(1659426897), param4.getValue());
     }
 
+    @Test
+    public void testDecodeFunctionCallFromBytes() throws IOException {
+        File abiJson = new File(this.getClass().getResource("/abiFiles/UniswapV2Router02.json").getPath());
+        AbiDecoder uniswapv2Abi = new AbiDecoder(abiJson.getAbsolutePath());
+
+        String inputData = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+        byte[] input = Hex.decode(inputData.substring(2));
+        DecodedFunctionCall expected = uniswapv2Abi.decodeFunctionCall(inputData);
+
+        // embedded in a larger buffer
+        byte[] embedded = new byte[input.length + 7];
+        System.arraycopy(input, 0, embedded, 3, input.length);
+        ByteBuffer direct = ByteBuffer.allocateDirect(input.length + 2);
+        direct.put(new byte[2]).put(input).flip().position(2);
+
+        for (DecodedFunctionCall decoded : Arrays.asList(
+                uniswapv2Abi.decodeFunctionCall(input),
+                uniswapv2Abi.decodeFunctionCall(embedded, 3, input.length),
+                uniswapv2Abi.decodeFunctionCall(ByteBuffer.wrap(embedded, 3, input.length)),
+                uniswapv2Abi.decodeFunctionCall(direct))) {
+            Assertions.assertEquals(expected.getName(), decoded.getName());
+            Assertions.assertEquals(expected.getParamList().toString(), decoded.getParamList().toString());
+        }
+        Assertions.assertEquals(2, direct.position());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> uniswapv2Abi.decodeFunctionCall(embedded, 3, 3));
+        // the head of the arguments has to fit into the range, even if the array continues
+        Assertions.assertThrows(IllegalArgumentException.class, () -> uniswapv2Abi.decodeFunctionCall(embedded, 3, 4 + 5 * 32 - 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> uniswapv2Abi.decodeFunctionCallCompact(embedded, 3, 4 + 5 * 32 - 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> uniswapv2Abi.decodeFunctionCall(embedded, 3, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testDecodeFunctionCallLazy() throws IOException {
+        File abiJson = new File(this.getClass().getResource("/abiFiles/UniswapV2Router02.json").getPath());
+        AbiDecoder uniswapv2Abi = new AbiDecoder(abiJson.getAbsolutePath());
+
+        String inputData = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+        DecodedFunctionCall expected = uniswapv2Abi.decodeFunctionCall(inputData);
+        DecodedFunctionCall lazy = uniswapv2Abi.decodeFunctionCallLazy(inputData);
+
+        Assertions.assertEquals(expected.getName(), lazy.getName());
+        Assertions.assertEquals(expected.getSize(), lazy.getSize());
+        Assertions.assertEquals(expected.getParam("to").toString(), lazy.getParam("TO").toString());
+        Assertions.assertNull(lazy.getParam("unknown"));
+        Assertions.assertEquals(expected.getParamList().toString(), lazy.getParamList().toString());
+        Assertions.assertEquals(expected.params().keySet(), lazy.params().keySet());
+
+        // a broken offset of 'path' only matters once 'path' is decoded
+        byte[] input = Hex.decode(inputData.substring(2));
+        input[4 + 2 * 32 + 28] = 0x7f;
+        DecodedFunctionCall broken = uniswapv2Abi.decodeFunctionCallLazy(input, 0, input.length);
+        Assertions.assertEquals("0xd4cf8e47beac55b42ae58991785fa326d9384bd1", broken.getParam("to").getValue());
+        Assertions.assertEquals(BigInteger.valueOf(1659426897), broken.getParam("deadline").getValue());
+        Assertions.assertEquals(10000000L, broken.getLong("amountIn"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> broken.getParam("path"));
+        Assertions.assertThrows(IllegalArgumentException.class, broken::getParams);
+
+        // the head still has to fit into the range
+        Assertions.assertThrows(IllegalArgumentException.class, () -> uniswapv2Abi.decodeFunctionCallLazy(input, 0, 4 + 4 * 32));
+    }
+
+    @Test
+    public void testDecodeFunctionCallCompact() throws IOException {
+        AbiDecoder uniswapv2Abi = new AbiDecoder(this.getClass().getClassLoader().getResourceAsStream("abiFiles/UniswapV2Router02.json"));
+        byte[] input = Hex.decode("18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2");
+
+        DecodedCall call = uniswapv2Abi.decodeFunctionCallCompact(input);
+        Assertions.assertEquals("swapExactTokensForETH", call.getName());
+        Assertions.assertEquals(5, call.size());
+        Assertions.assertEquals("path", call.getParamName(2));
+        Assertions.assertEquals("address[]", call.getParamType(2));
+        Assertions.assertEquals(3, call.indexOf("TO"));
+        Assertions.assertEquals(-1, call.indexOf("unknown"));
+        Assertions.assertEquals(BigInteger.valueOf(10000000), call.getValue("amountIn"));
+        Assertions.assertEquals(1659426897, call.getLong("deadline"));
+        Assertions.assertEquals("0xd4cf8e47beac55b42ae58991785fa326d9384bd1", call.getHex(3));
+        Assertions.assertThrows(IllegalStateException.class, () -> call.getHex(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> call.getInt("unknown"));
+
+        // the view has the same params as the eagerly built call
+        List<DecodedFunctionCall.Param> params = new ArrayList<>();
+        for (int i = 0; i < call.size(); i++) {
+            params.add(call.getParam(i));
+        }
+        DecodedFunctionCall expected = new DecodedFunctionCall(call.getName(), params);
+        DecodedFunctionCall view = uniswapv2Abi.decodeFunctionCall(input);
+        Assertions.assertEquals(expected.getParam("to").toString(), view.getParam("To").toString());
+        Assertions.assertEquals(expected.getLong("amountIn"), view.getLong("amountIn"));
+        Assertions.assertEquals(expected.getSize(), view.getSize());
+        Assertions.assertEquals(expected.toString(), view.toString());
+        Assertions.assertEquals(expected.params().keySet(), call.toDecodedFunctionCall().params().keySet());
+        Assertions.assertEquals(expected.toString(), call.toLazyDecodedFunctionCall().toString());
+        Assertions.assertEquals(DecodedFunctionCall.class, view.getClass());
+    }
+
+    @Test
+    public void testLazyViewIsSharedBetweenThreads() throws Exception {
+        File abiJson = new File(this.getClass().getResource("/abiFiles/UniswapV2Router02.json").getPath());
+        AbiDecoder uniswapv2Abi = new AbiDecoder(abiJson.getAbsolutePath());
+        byte[] input = Hex.decode("18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 100; round++) {
+                // the view of a decoded call and the one decoding from the call data
+                DecodedFunctionCall view = round % 2 == 0
+                        ? uniswapv2Abi.decodeFunctionCallCompact(input).toLazyDecodedFunctionCall()
+                        : uniswapv2Abi.decodeFunctionCallLazy(input, 0, input.length);
+                List<Future<Map<String, DecodedFunctionCall.Param>>> results = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    results.add(executor.submit(() -> {
+                        view.getParam("to");
+                        return view.params();
+                    }));
+                }
+                Map<String, DecodedFunctionCall.Param> first = results.get(0).get();
+                Assertions.assertEquals(5, first.size());
+                for (Future<Map<String, DecodedFunctionCall.Param>> result : results) {
+                    Map<String, DecodedFunctionCall.Param> params = result.get();
+                    for (String name : first.keySet()) {
+                        Assertions.assertSame(first.get(name), params.get(name));
+                    }
+                }
+                Assertions.assertSame(first.get("to"), view.getParam("to"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompactViewOfNestedTuples() throws IOException, URISyntaxException {
+        AbiDecoder decoder = new AbiDecoder(this.getClass().getClassLoader().getResourceAsStream("abiFiles/ZkSync.json"));
+        byte[] input = Hex.decode(FileUtil.readFileIntoString("abiFiles/zkSync-input/input_0xe35a7dceb1536dfbd819ab6f756e4dcb19ea09541df54abf0f40064ba1163981").substring(2));
+        DecodedCall call = decoder.decodeFunctionCallCompact(input);
+
+        List<DecodedFunctionCall.Param> params = new ArrayList<>();
+        for (int i = 0; i < call.size(); i++) {
+            params.add(call.getParam(i));
+        }
+        DecodedFunctionCall expected = new DecodedFunctionCall(call.getName(), params);
+        DecodedFunctionCall view = call.toLazyDecodedFunctionCall();
+        Assertions.assertEquals(expected.getSize(), view.getSize());
+        Assertions.assertEquals(expected.params().keySet(), view.params().keySet());
+        for (String name : expected.params().keySet()) {
+            Assertions.assertArrayEquals(new Object[]{expected.getParam(name).getValue()}, new Object[]{view.getParam(name).getValue()});
+        }
+        // the param's hex strings are created by the view, the call itself keeps the bytes
+        Object[] lastCommittedBlockData = (Object[]) call.getValue("_lastCommittedBlockData");
+        Assertions.assertTrue(lastCommittedBlockData[2] instanceof byte[]);
+        Assertions.assertEquals("0xc5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470",
+                ((Object[]) view.getParam("_lastCommittedBlockData").getValue())[2]);
+    }
+
+    @Test
+    public void testDecodePrimitiveParams() throws IOException {
+        File abiJson = new File(this.getClass().getResource("/abiFiles/UniswapV2Router02.json").getPath());
+        AbiDecoder uniswapv2Abi = new AbiDecoder(abiJson.getAbsolutePath());
+
+        String inputData = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+        for (DecodedFunctionCall call : Arrays.asList(uniswapv2Abi.decodeFunctionCall(inputData), uniswapv2Abi.decodeFunctionCallLazy(inputData))) {
+            Assertions.assertEquals(10000000L, call.getLong("amountIn"));
+            Assertions.assertEquals(6283178947560620L, call.getLong("amountOutMin"));
+            Assertions.assertEquals(1659426897, call.getInt("deadline"));
+            Assertions.assertTrue(call.getBoolean("deadline"));
+            Assertions.assertThrows(ArithmeticException.class, () -> call.getInt("amountOutMin"));
+            Assertions.assertThrows(IllegalStateException.class, () -> call.getLong("path"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> call.getLong("unknown"));
+        }
+
+        // a uint256 beyond long range is true on both paths
+        byte[] wide = Hex.decode(inputData.substring(2));
+        wide[4 + 32 + 3] = 1;
+        for (DecodedFunctionCall call : Arrays.asList(uniswapv2Abi.decodeFunctionCall(wide), uniswapv2Abi.decodeFunctionCallLazy(wide, 0, wide.length))) {
+            Assertions.assertTrue(call.getBoolean("amountOutMin"));
+            Assertions.assertThrows(ArithmeticException.class, () -> call.getLong("amountOutMin"));
+        }
+    }
+
+    @Test
+    public void testDecodeAll() throws IOException, URISyntaxException {
+        AbiDecoder decoder = new AbiDecoder(this.getClass().getClassLoader().getResourceAsStream("abiFiles/UniswapV3SwapRouter02.json"));
+        List<String> distinct = Arrays.asList(
+                "0x04e45aaf000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc20000000000000000000000002260fac5e5542a773aa44fbcfedf7c193bc2c59900000000000000000000000000000000000000000000000000000000000001f4000000000000000000000000bebc44782c7db0a1a60cb6fe97d0b483032ff1c70000000000000000000000000000000000000000000000000000000000067932000000000000000000000000000000000000000000000000000000000000002a0000000000000000000000000000000000000000000000000000000000000000",
+                "0x472b43f3000000000000000000000000000000000000000000000000000008c75ee6fb3900000000000000000000000000000000000000000000000001cb1a1493ed3d4b0000000000000000000000000000000000000000000000000000000000000080000000000000000000000000000000000000000000000000000000000000000200000000000000000000000000000000000000000000000000000000000000020000000000000000000000009bbe10ba8ad02c2a54963b3e2a64f1754c90f411000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2",
+                "0x49404b7c00000000000000000000000000000000000000000000000001cb1a1493ed3d4b000000000000000000000000c0da58d88e967d883ef0540db458381e9f5e9c80",
+                "0xdeadbeef",
+                "0xzz",
+                null);
+        // the path of swapExactTokensForTokens claims 2^31 - 1 elements, malformed data fails the input, not the batch
+        String hugePath = distinct.get(1).substring(0, 2 + 8 + 4 * 64) + "000000000000000000000000000000000000000000000000000000007fffffff"
+                + distinct.get(1).substring(2 + 8 + 5 * 64);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeFunctionCall(hugePath));
+        distinct = new ArrayList<>(distinct);
+        distinct.add(hugePath);
+        List<String> inputs = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            inputs.add(distinct.get(random.nextInt(distinct.size())));
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (String input : inputs) {
+            String decoded;
+            try {
+                decoded = String.valueOf(decoder.decodeFunctionCall(input));
+            } catch (RuntimeException e) {
+                decoded = "null";
+            }
+            expected.add(decoded);
+        }
+
+        Assertions.assertEquals(expected, toStrings(decoder.decodeAll(inputs)));
+        Assertions.assertEquals(expected, toStrings(decoder.decodeAll(inputs.stream())));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Assertions.assertEquals(expected, toStrings(decoder.decodeAll(inputs, executor)));
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertTrue(decoder.decodeAll(new ArrayList<>()).isEmpty());
+    }
+
+    private static List<String> toStrings(List<DecodedFunctionCall> calls) {
+        List<String> result = new ArrayList<>();
+        for (DecodedFunctionCall call : calls) {
+            result.add(String.valueOf(call));
+        }
+        return result;
+    }
+
     @Test
     public void testDecodeFunctionCallWithTuple() throws IOException {
         File abiJson = new File(this.getClass().getResource("/abiFiles/UniswapV3SwapRouter02.json").getPath());
@@ -167,6 +408,20 @@ public class AbiDecoderTest {
         }
     }
 
+    @Test
+    public void testDecodeFunctionCallSelectorLookup() {
+        AbiDecoder decoder = new AbiDecoder(this.getClass()
+                .getClassLoader()
+                .getResourceAsStream("abiFiles/SereshForwarder.json"));
+        AbiDefinition.Error error = decoder.getAbi().findError(e -> "InvalidShortString".equals(e.name));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeFunctionCall(error.encodeSignature()));
+        Assertions.assertThrows(IllegalStateException.class, () -> decoder.decodeFunctionCall("0xdeadbeef"));
+        Assertions.assertEquals(decoder.getAbi().size(), decoder.getMethodSignatures().size());
+        Assertions.assertSame(error, decoder.getMethodSignatures().get(Hex.toHexString(error.encodeSignature())));
+        Assertions.assertSame(decoder.getMethodSignatures(), decoder.getMethodSignatures());
+    }
+
     @Test
     public void testTupleArrayParamsSignature() {
         String funcName = "commitBlocks";
@@ -212,6 +467,29 @@ public class AbiDecoderTest {
         }
     }
 
+    @Test
+    public void testSignatureIsComputedOnce() {
+        AbiDefinition abi = AbiDefinition.fromJson(this.getClass().getClassLoader().getResourceAsStream("abiFiles/UniswapV3SwapRouter02.json"));
+        AbiDefinition.Function exactInputSingle = abi.findFunction(f -> "exactInputSingle".equals(f.name));
+
+        Assertions.assertEquals("exactInputSingle((address,address,uint24,address,uint256,uint256,uint160))", exactInputSingle.formatSignature());
+        Assertions.assertSame(exactInputSingle.formatSignature(), exactInputSingle.formatSignature());
+        Assertions.assertEquals("04e45aaf", Hex.toHexString(exactInputSingle.encodeSignature()));
+        Assertions.assertEquals(0x04e45aaf, exactInputSingle.selector());
+
+        // callers get copies, changing them doesn't change the entry
+        byte[] selector = exactInputSingle.encodeSignature();
+        selector[0] = 0x7f;
+        Assertions.assertEquals("04e45aaf", Hex.toHexString(exactInputSingle.encodeSignature()));
+        byte[] hash = exactInputSingle.fingerprintSignature();
+        Assertions.assertEquals(32, hash.length);
+        hash[0] = 0x7f;
+        Assertions.assertEquals(0x04, exactInputSingle.fingerprintSignature()[0]);
+
+        // the cache isn't serialized
+        Assertions.assertFalse(abi.toJson().contains("signature"));
+    }
+
     @Test
     public void testTupleParamsSignature() {
         String funcName = "exactInput";
@@ -268,6 +546,77 @@ public class AbiDecoderTest {
         Assertions.assertEquals(BigInteger.valueOf(249318500), log.params().get("value").getValue());
     }
 
+    @Test
+    public void testUnnamedInputs() {
+        AbiDecoder decoder = new AbiDecoder(AbiDefinition.fromJson("[{\"type\":\"event\",\"name\":\"Transfer\",\"anonymous\":false,\"inputs\":["
+                + "{\"indexed\":true,\"name\":\"from\",\"type\":\"address\"},"
+                + "{\"indexed\":true,\"name\":\"to\",\"type\":\"address\"},"
+                + "{\"indexed\":false,\"type\":\"uint256\"}]}]"));
+        DecodedFunctionCall log = decoder.decodeLogEvent(Arrays.asList(
+                        "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef",
+                        "0x000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef",
+                        "0x00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc"),
+                "0x000000000000000000000000000000000000000000000000000000000edc4c64");
+        Assertions.assertEquals("Transfer", log.getName());
+        Assertions.assertEquals("", log.getParam("").getName());
+        Assertions.assertEquals(BigInteger.valueOf(249318500), log.getParam("").getValue());
+    }
+
+    @Test
+    public void testLogEventFromBytes() {
+        AbiDecoder decoder = new AbiDecoder(this.getClass()
+                .getClassLoader()
+                .getResourceAsStream("abiFiles/TetherToken.json"));
+        String topic0 = "ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+        String topic1 = "000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef";
+        String topic2 = "00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc";
+        byte[] data = Hex.decode("000000000000000000000000000000000000000000000000000000000edc4c64");
+        DecodedFunctionCall expected = decoder.decodeLogEvent(Arrays.asList(topic0, topic1, topic2), Hex.toHexString(data));
+
+        DecodedFunctionCall fromArrays = decoder.decodeLogEvent(new byte[][]{Hex.decode(topic0), Hex.decode(topic1), Hex.decode(topic2)}, data);
+        Assertions.assertEquals(expected.toString(), fromArrays.toString());
+
+        // topics and data somewhere inside larger buffers
+        byte[] topics = Hex.decode("ffff" + topic0 + topic1 + topic2);
+        byte[] paddedData = Hex.decode("ee" + Hex.toHexString(data) + "ee");
+        DecodedFunctionCall fromBuffer = decoder.decodeLogEvent(topics, 2, 3, paddedData, 1, 32);
+        Assertions.assertEquals(expected.toString(), fromBuffer.toString());
+        Assertions.assertEquals("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc", fromBuffer.getParam("to").getValue());
+
+        AbiDefinition.Event transfer = decoder.getAbi().findEvent(e -> "Transfer".equals(e.name));
+        List<?> values = transfer.decode(data, new byte[][]{Hex.decode(topic0), Hex.decode(topic1), Hex.decode(topic2)});
+        Assertions.assertEquals(3, values.size());
+        Assertions.assertEquals(BigInteger.valueOf(249318500), values.get(2));
+        Assertions.assertArrayEquals(Hex.decode("abea9132b05a70803a4e85094fd0e1800777fbef"), (byte[]) values.get(0));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeLogEvent(topics, 2, 2, paddedData, 1, 32));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeLogEvent(topics, 2, 4, paddedData, 1, 32));
+    }
+
+    @Test
+    public void testDecodeAddressValues() throws IOException {
+        File abiJson = new File(this.getClass().getResource("/abiFiles/UniswapV2Router02.json").getPath());
+        AbiDecoder uniswapv2Abi = new AbiDecoder(abiJson.getAbsolutePath(), DecoderOptions.builder().addressFormat(DecoderOptions.AddressFormat.ADDRESS).build());
+
+        String inputData = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+        DecodedFunctionCall decodedFunctionCall = uniswapv2Abi.decodeFunctionCall(inputData);
+
+        Assertions.assertEquals(Address.fromHex("0xD4CF8e47BeAC55b42Ae58991785Fa326d9384Bd1"), decodedFunctionCall.getParam("to").getValue());
+        Assertions.assertArrayEquals(new Object[]{Address.fromHex("0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48"), Address.fromHex("0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2")},
+                (Object[]) decodedFunctionCall.getParam("path").getValue());
+        Assertions.assertEquals(BigInteger.valueOf(10000000), decodedFunctionCall.getParam("amountIn").getValue());
+
+        AbiDecoder tether = new AbiDecoder(AbiDefinition.fromJson(this.getClass().getClassLoader().getResourceAsStream("abiFiles/TetherToken.json")),
+                DecoderOptions.builder().addressFormat(DecoderOptions.AddressFormat.ADDRESS).build());
+        DecodedFunctionCall log = tether.decodeLogEvent(Arrays.asList(
+                        "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef",
+                        "0x000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef",
+                        "0x00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc"),
+                "0x000000000000000000000000000000000000000000000000000000000edc4c64");
+        Assertions.assertEquals(Address.fromHex("0xabea9132b05a70803a4e85094fd0e1800777fbef"), log.getParam("from").getValue());
+        Assertions.assertEquals(Address.fromHex("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc"), log.getParam("to").getValue());
+    }
+
     @Test
     public void testLogWrongInput() {
         AbiDecoder decoder = new AbiDecoder(this.getClass()
@@ -278,4 +627,18 @@ public class AbiDecoderTest {
                         "0x0000000000000000000000000000000000000000000000000000000000000000"),
                 "0x0000000000000000000000000000000000000000000000000020affce72f5800"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testUpperCasePrefix() {
+        AbiDecoder decoder = new AbiDecoder(this.getClass()
+                .getClassLoader()
+                .getResourceAsStream("abiFiles/TetherToken.json"));
+        Assertions.assertEquals("totalSupply", decoder.decodeFunctionCall("0X18160ddd").getName());
+        Assertions.assertEquals(Arrays.asList(BigInteger.ONE), decoder.decodeReturnData("0X18160ddd", "0X" + Hex.toHexString(new byte[31]) + "01"));
+
+        // 7 digits after the prefix are too short for a selector
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeFunctionCall("0X1234567"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeFunctionCallLazy("0X1234567"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeReturnData("0X1234567", "0x"));
+    }
+}
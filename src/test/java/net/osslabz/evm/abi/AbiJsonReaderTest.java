@@ -0,0 +1,58 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.AbiJsonReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+
+public class AbiJsonReaderTest {
+
+    @Test
+    public void testSameAsDataBinding() throws IOException {
+        for (String file : Arrays.asList("TetherToken.json", "UniswapV2Router02.json", "UniswapV3Router.json", "UniswapV3SwapRouter.json",
+                "UniswapV3SwapRouter02.json", "ZkSync.json", "SereshForwarder.json")) {
+            AbiDefinition expected = DecodePlanTest.abi(file);
+            AbiDefinition actual;
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream("abiFiles/" + file)) {
+                actual = AbiJsonReader.read(in);
+            }
+            Assertions.assertEquals(expected.toJson(), actual.toJson(), file);
+            Assertions.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assertions.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+                Assertions.assertEquals(expected.get(i).type, actual.get(i).type);
+                Assertions.assertEquals(expected.get(i).payable, actual.get(i).payable);
+                Assertions.assertEquals(expected.get(i).formatSignature(), actual.get(i).formatSignature(), file);
+            }
+        }
+    }
+
+    @Test
+    public void testSkipsUnusedFields() throws IOException {
+        String json = "[{\"inputs\":[{\"internalType\":\"struct S\",\"name\":\"s\",\"type\":\"tuple\",\"components\":["
+                + "{\"name\":\"a\",\"type\":\"uint256\",\"internalType\":\"uint256\"},{\"name\":\"b\",\"type\":\"address[]\"}]}],"
+                + "\"name\":\"f\",\"outputs\":[],\"stateMutability\":\"nonpayable\",\"extra\":{\"nested\":[1,2,{\"x\":null}]}},"
+                + "{\"type\":\"event\",\"anonymous\":false,\"name\":\"E\",\"inputs\":[{\"indexed\":true,\"name\":\"from\",\"type\":\"address\"}]}]";
+        AbiDefinition abi = AbiJsonReader.read(new StringReader(json));
+
+        Assertions.assertEquals(2, abi.size());
+        // entries without type are functions
+        Assertions.assertEquals("f((uint256,address[]))", abi.findFunction(f -> true).formatSignature());
+        Assertions.assertTrue(abi.get(0).inputs.get(0).getType().isDynamicType());
+        Assertions.assertEquals("E(address)", abi.findEvent(e -> true).formatSignature());
+        Assertions.assertTrue(abi.get(1).inputs.get(0).getIndexed());
+    }
+
+    @Test
+    public void testInvalidJson() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiJsonReader.read(new StringReader("{\"abi\":[]}")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiJsonReader.read(new StringReader("[{\"type\":\"unknown\"}]")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiJsonReader.read(new StringReader("[{\"inputs\":{}}]")));
+        Assertions.assertThrows(IOException.class, () -> AbiJsonReader.read(new StringReader("[{\"name\":")));
+    }
+}
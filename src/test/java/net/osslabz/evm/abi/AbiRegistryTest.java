@@ -0,0 +1,146 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.AbiRegistry;
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+public class AbiRegistryTest {
+
+    // both functions have the selector 0x42966c68
+    private static final String BURN_ABI = "[{\"type\":\"function\",\"name\":\"burn\",\"inputs\":[{\"name\":\"amount\",\"type\":\"uint256\"}],\"outputs\":[]}]";
+    private static final String COLLATE_ABI = "[{\"type\":\"function\",\"name\":\"collate_propagate_storage\",\"inputs\":[{\"name\":\"data\",\"type\":\"bytes16\"}],\"outputs\":[]}]";
+
+    // both functions have the selector 0xa7965546
+    private static final String LABEL_ABI = "[{\"type\":\"function\",\"name\":\"label18473\",\"inputs\":[{\"name\":\"text\",\"type\":\"bytes\"}],\"outputs\":[]}]";
+    private static final String OWNER_ABI = "[{\"type\":\"function\",\"name\":\"owner108073\",\"inputs\":[{\"name\":\"id\",\"type\":\"uint256\"}],\"outputs\":[]}]";
+
+    private static final String ERC721_TRANSFER_ABI = "[{\"type\":\"event\",\"name\":\"Transfer\",\"anonymous\":false,\"inputs\":["
+            + "{\"indexed\":true,\"name\":\"from\",\"type\":\"address\"},"
+            + "{\"indexed\":true,\"name\":\"to\",\"type\":\"address\"},"
+            + "{\"indexed\":true,\"name\":\"tokenId\",\"type\":\"uint256\"}]}]";
+
+    private static final String SWAP_EXACT_TOKENS_FOR_ETH = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+
+    @Test
+    public void testDecodeAcrossAbis() {
+        AbiRegistry registry = AbiRegistry.builder()
+                .abi(DecodePlanTest.abi("TetherToken.json"))
+                .abi(DecodePlanTest.abi("UniswapV2Router02.json"))
+                .abi(DecodePlanTest.abi("UniswapV3SwapRouter02.json"))
+                .build();
+
+        DecodedFunctionCall call = registry.decodeFunctionCall(SWAP_EXACT_TOKENS_FOR_ETH);
+        Assertions.assertEquals("swapExactTokensForETH", call.getName());
+        Assertions.assertEquals("0xd4cf8e47beac55b42ae58991785fa326d9384bd1", call.getParam("to").getValue());
+
+        DecodedFunctionCall log = registry.decodeLogEvent(Arrays.asList(
+                        "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef",
+                        "0x000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef",
+                        "0x00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc"),
+                "0x000000000000000000000000000000000000000000000000000000000edc4c64");
+        Assertions.assertEquals("Transfer", log.getName());
+        Assertions.assertEquals(BigInteger.valueOf(249318500), log.getParam("value").getValue());
+
+        Assertions.assertNull(registry.decodeFunctionCall("0xdeadbeef"));
+        Assertions.assertNull(registry.decodeLogEvent(Arrays.asList("0xefef619ae4a542a2b8810b4efeccd8478bd683e985354ee31dd2d644aff6d0ca"), "0x"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.decodeFunctionCall("0x12"));
+    }
+
+    @Test
+    public void testSameSignatureIsIndexedOnce() {
+        AbiDefinition router = DecodePlanTest.abi("UniswapV3SwapRouter.json");
+        AbiRegistry registry = AbiRegistry.builder()
+                .abi(router)
+                .abi(DecodePlanTest.abi("UniswapV3SwapRouter02.json"))
+                .abi(router)
+                .build();
+
+        Assertions.assertEquals(2, registry.getDecoders().size());
+        // multicall(bytes[]) is part of both routers
+        Assertions.assertEquals(1, registry.findFunctions(Hex.decode("ac9650d8"), 0).size());
+    }
+
+    @Test
+    public void testSelectorCollision() {
+        AbiDefinition burn = AbiDefinition.fromJson(BURN_ABI);
+        AbiDefinition collate = AbiDefinition.fromJson(COLLATE_ABI);
+        Address collateContract = Address.fromHex("0x00000000000000000000000000000000000000c0");
+        AbiRegistry registry = AbiRegistry.builder()
+                .abi(burn)
+                .contract(collateContract, collate)
+                .build();
+
+        byte[] input = Hex.decode("42966c68000000000000000000000000000000000000000000000000000000000000002a");
+        List<AbiDefinition.Function> candidates = registry.findFunctions(input, 0);
+        Assertions.assertEquals(2, candidates.size());
+        Assertions.assertEquals("burn", candidates.get(0).name);
+        Assertions.assertEquals("collate_propagate_storage", candidates.get(1).name);
+        Assertions.assertEquals(2, registry.decodeFunctionCallCandidates(input, 0, input.length).size());
+
+        Assertions.assertEquals("burn", registry.decodeFunctionCall(input, 0, input.length).getName());
+        Assertions.assertEquals(BigInteger.valueOf(42), registry.decodeFunctionCall(input, 0, input.length).getParam("amount").getValue());
+        Assertions.assertEquals("collate_propagate_storage", registry.decodeFunctionCall(collateContract, input, 0, input.length).getName());
+        Assertions.assertSame(registry.getDecoders().get(1), registry.getDecoder(collateContract));
+    }
+
+    @Test
+    public void testSelectorCollisionIsDecodedWithinTheRange() {
+        AbiRegistry registry = AbiRegistry.builder()
+                .abi(AbiDefinition.fromJson(LABEL_ABI))
+                .abi(AbiDefinition.fromJson(OWNER_ABI))
+                .build();
+
+        byte[] input = Hex.decode("a7965546"
+                + "0000000000000000000000000000000000000000000000000000000000000020"
+                + "0000000000000000000000000000000000000000000000000000000000000003"
+                + "6162630000000000000000000000000000000000000000000000000000000000");
+        Assertions.assertEquals("label18473", registry.decodeFunctionCall(input, 0, input.length).getName());
+        Assertions.assertEquals(2, registry.decodeFunctionCallCandidates(input, 0, input.length).size());
+
+        // the tail of the bytes lies past the range, only the uint256 reading fits
+        DecodedFunctionCall call = registry.decodeFunctionCall(input, 0, 36);
+        Assertions.assertEquals("owner108073", call.getName());
+        Assertions.assertEquals(BigInteger.valueOf(32), call.getParam("id").getValue());
+        List<DecodedFunctionCall> candidates = registry.decodeFunctionCallCandidates(input, 0, 36);
+        Assertions.assertEquals(1, candidates.size());
+        Assertions.assertEquals("owner108073", candidates.get(0).getName());
+    }
+
+    @Test
+    public void testEventsWithSameTopicAreMatchedByTopicCount() {
+        AbiRegistry registry = AbiRegistry.builder()
+                .abi(DecodePlanTest.abi("TetherToken.json"))
+                .abi(AbiDefinition.fromJson(ERC721_TRANSFER_ABI))
+                .build();
+
+        byte[] topic0 = Hex.decode("ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef");
+        Assertions.assertEquals(2, registry.findEvents(topic0, 0).size());
+
+        DecodedFunctionCall nftTransfer = registry.decodeLogEvent(Arrays.asList(
+                        "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef",
+                        "0x000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef",
+                        "0x00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc",
+                        "0x0000000000000000000000000000000000000000000000000000000000000007"),
+                "0x");
+        Assertions.assertEquals(BigInteger.valueOf(7), nftTransfer.getParam("tokenId").getValue());
+        Assertions.assertEquals("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc", nftTransfer.getParam("to").getValue());
+    }
+
+    @Test
+    public void testDecodesLikeAbiDecoder() {
+        AbiDefinition abi = DecodePlanTest.abi("UniswapV2Router02.json");
+        AbiRegistry registry = AbiRegistry.builder().abi(abi).build();
+        AbiDecoder decoder = new AbiDecoder(abi);
+
+        Assertions.assertEquals(decoder.decodeFunctionCall(SWAP_EXACT_TOKENS_FOR_ETH).toString(), registry.decodeFunctionCall(SWAP_EXACT_TOKENS_FOR_ETH).toString());
+    }
+}
@@ -0,0 +1,80 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.decoder.AbiRegistry;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.AbiSnapshot;
+import net.osslabz.evm.abi.definition.Address;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class AbiSnapshotTest {
+
+    private static final Address ROUTER = Address.fromHex("0x7a250d5630b4cf539739df2c5dacb4c659f2488d");
+    private static final Address OTHER_ROUTER = Address.fromHex("0xd9e1ce17f2641f24ae83637ab66a2cca9c378b9f");
+
+    private static final String SWAP_EXACT_TOKENS_FOR_ETH = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165278e7b6a86c00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+
+    @Test
+    public void testRoundTrip(@TempDir Path dir) throws IOException {
+        List<String> files = Arrays.asList("TetherToken.json", "UniswapV3SwapRouter02.json", "ZkSync.json", "SereshForwarder.json");
+        AbiDefinition router = DecodePlanTest.abi("UniswapV2Router02.json");
+        AbiRegistry.AbiRegistryBuilder builder = AbiRegistry.builder().contract(ROUTER, router).contract(OTHER_ROUTER, router);
+        for (String file : files) {
+            builder.abi(DecodePlanTest.abi(file));
+        }
+        AbiRegistry registry = builder.build();
+
+        Path file = dir.resolve("abis.snapshot");
+        registry.toSnapshot().write(file);
+        AbiSnapshot snapshot = AbiSnapshot.read(file);
+
+        Assertions.assertEquals(files.size(), snapshot.getAbis().size());
+        for (int i = 0; i < files.size(); i++) {
+            AbiDefinition expected = registry.getDecoders().get(i).getAbi();
+            AbiDefinition actual = snapshot.getAbis().get(i);
+            Assertions.assertEquals(expected.toJson(), actual.toJson());
+            for (int j = 0; j < expected.size(); j++) {
+                Assertions.assertEquals(expected.get(j).getClass(), actual.get(j).getClass());
+                Assertions.assertEquals(expected.get(j).formatSignature(), actual.get(j).formatSignature());
+                Assertions.assertArrayEquals(expected.get(j).fingerprintSignature(), actual.get(j).fingerprintSignature());
+                if (!(expected.get(j) instanceof AbiDefinition.Constructor)) {
+                    Assertions.assertEquals(expected.get(j).toString(), actual.get(j).toString());
+                }
+            }
+        }
+        // an ABI bound to several contracts is stored once
+        Assertions.assertSame(snapshot.getContracts().get(ROUTER), snapshot.getContracts().get(OTHER_ROUTER));
+        Assertions.assertEquals(router.toJson(), snapshot.getContracts().get(ROUTER).toJson());
+
+        AbiRegistry loaded = AbiRegistry.fromSnapshot(snapshot);
+        Assertions.assertEquals(registry.toString(), loaded.toString());
+        Assertions.assertEquals(registry.decodeFunctionCall(ROUTER.toString(), SWAP_EXACT_TOKENS_FOR_ETH).toString(),
+                loaded.decodeFunctionCall(ROUTER.toString(), SWAP_EXACT_TOKENS_FOR_ETH).toString());
+    }
+
+    @Test
+    public void testRejectsCorruptSnapshots(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("abis.snapshot");
+        AbiRegistry.builder().abi(DecodePlanTest.abi("TetherToken.json")).build().toSnapshot().write(file);
+        byte[] content = Files.readAllBytes(file);
+
+        byte[] flipped = content.clone();
+        flipped[content.length / 2] ^= 1;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiSnapshot.read(ByteBuffer.wrap(flipped)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiSnapshot.read(ByteBuffer.wrap(Arrays.copyOf(content, 8))));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiSnapshot.read(ByteBuffer.wrap(Arrays.copyOf(content, content.length - 1))));
+
+        byte[] otherVersion = content.clone();
+        otherVersion[7] = 99;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiSnapshot.read(ByteBuffer.wrap(otherVersion)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AbiSnapshot.read(ByteBuffer.wrap("[{\"type\":\"event\"}]".getBytes())));
+    }
+}
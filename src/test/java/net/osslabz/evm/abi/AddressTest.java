@@ -0,0 +1,55 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.definition.Address;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AddressTest {
+
+    @Test
+    public void testHexRoundTrip() {
+        Address address = Address.fromHex("0xD4CF8e47BeAC55b42Ae58991785Fa326d9384Bd1");
+
+        Assertions.assertEquals("0xd4cf8e47beac55b42ae58991785fa326d9384bd1", address.toString());
+        Assertions.assertEquals("0xD4CF8e47BeAC55b42Ae58991785Fa326d9384Bd1", address.toChecksumString());
+        Assertions.assertArrayEquals(Hex.decode("d4cf8e47beac55b42ae58991785fa326d9384bd1"), address.toBytes());
+        Assertions.assertEquals(address, Address.fromHex("d4cf8e47beac55b42ae58991785fa326d9384bd1"));
+    }
+
+    @Test
+    public void testChecksum() {
+        // test vectors from EIP-55
+        for (String hex : new String[]{"0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed", "0xfB6916095ca1df60bB79Ce92cE3Ea74c37c5d359",
+                "0xdbF03B407c01E7cD3CBea99509d93f8DDDC8C6FB", "0xD1220A0cf47c7B9Be7A2E6BA89F429762e7b9aDb"}) {
+            Assertions.assertEquals(hex, Address.fromHex(hex.toLowerCase()).toChecksumString());
+        }
+    }
+
+    @Test
+    public void testEqualsHashCodeAndOrder() {
+        Address a = Address.fromHex("0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48");
+        Address b = Address.fromHex("0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2");
+        Address a2 = Address.of(Hex.decode("a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48"));
+
+        Assertions.assertEquals(a, a2);
+        Assertions.assertEquals(a.hashCode(), a2.hashCode());
+        Assertions.assertNotEquals(a, b);
+        Assertions.assertTrue(a.compareTo(b) < 0);
+        Assertions.assertTrue(b.compareTo(a) > 0);
+        Assertions.assertEquals(0, a.compareTo(a2));
+    }
+
+    @Test
+    public void testFromWord() {
+        byte[] word = Hex.decode("000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd1");
+        Assertions.assertEquals(Address.fromHex("0xd4cf8e47beac55b42ae58991785fa326d9384bd1"), Address.fromWord(word, 0));
+    }
+
+    @Test
+    public void testInvalidInput() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Address.fromHex("0x1234"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Address.fromHex("0xz4cf8e47beac55b42ae58991785fa326d9384bd1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Address.of(new byte[32]));
+    }
+}
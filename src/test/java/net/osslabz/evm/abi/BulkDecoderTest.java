@@ -0,0 +1,219 @@
+package net.osslabz.evm.abi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.osslabz.evm.abi.bulk.BulkDecoder;
+import net.osslabz.evm.abi.bulk.BulkRecord;
+import net.osslabz.evm.abi.bulk.RecordSink;
+import net.osslabz.evm.abi.decoder.AbiRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class BulkDecoderTest {
+
+    private static final String SWAP = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+    private static final String TRANSFER_TOPIC = "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+    private static final String FROM_TOPIC = "0x000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef";
+    private static final String TO_TOPIC = "0x00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc";
+    private static final String VALUE = "0x000000000000000000000000000000000000000000000000000000000edc4c64";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private static AbiRegistry registry() {
+        return AbiRegistry.builder()
+                .abi(DecodePlanTest.abi("TetherToken.json"))
+                .abi(DecodePlanTest.abi("UniswapV2Router02.json"))
+                .build();
+    }
+
+    private static List<String> jsonLines(int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            switch (i % 5) {
+                case 0:
+                    lines.add("{\"hash\":\"0x" + i + "\",\"nonce\":" + i + ",\"input\":\"" + SWAP + "\",\"extra\":{\"a\":[1,2,{\"b\":null}]}}");
+                    break;
+                case 1:
+                    lines.add("{\"address\":\"0xdac17f958d2ee523a2206206994597c13d831ec7\",\"topics\":[\"" + TRANSFER_TOPIC + "\",\"" + FROM_TOPIC + "\",\"" + TO_TOPIC + "\"],\"data\":\"" + VALUE + "\"}");
+                    break;
+                case 2:
+                    lines.add("{\"input\":\"0x\",\"to\":\"0xdac17f958d2ee523a2206206994597c13d831ec7\"}");
+                    break;
+                case 3:
+                    lines.add("{\"input\":\"0xdeadbeef\"}");
+                    break;
+                default:
+                    lines.add("not json");
+            }
+        }
+        return lines;
+    }
+
+    private Path write(String name, List<String> lines, boolean gzip) throws IOException {
+        Path file = this.tempDir.resolve(name);
+        try (OutputStream out = gzip ? new GZIPOutputStream(Files.newOutputStream(file)) : Files.newOutputStream(file)) {
+            for (String line : lines) {
+                out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void testDecodeJsonLines() throws IOException {
+        Path input = write("input.jsonl", jsonLines(503), false);
+        Path output = this.tempDir.resolve("output.jsonl");
+
+        BulkDecoder.Summary summary = BulkDecoder.builder().registry(registry()).batchSize(16).parallelism(3).build().decode(input, output);
+
+        Assertions.assertEquals(new BulkDecoder.Summary(503, 202, 201, 100), summary);
+        List<String> decoded = Files.readAllLines(output);
+        Assertions.assertEquals(503, decoded.size());
+
+        JsonNode swap = MAPPER.readTree(decoded.get(0));
+        Assertions.assertEquals(1, swap.get("line").asLong());
+        Assertions.assertEquals("CALL", swap.get("kind").asText());
+        Assertions.assertEquals("swapExactTokensForETH", swap.get("name").asText());
+        Assertions.assertEquals("0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2", swap.get("params").get(2).get("value").get(1).asText());
+
+        JsonNode transfer = MAPPER.readTree(decoded.get(501));
+        Assertions.assertEquals(502, transfer.get("line").asLong());
+        Assertions.assertEquals("Transfer", transfer.get("name").asText());
+        Assertions.assertEquals(249318500, transfer.get("params").get(2).get("value").asLong());
+
+        Assertions.assertFalse(MAPPER.readTree(decoded.get(2)).has("name"));
+        Assertions.assertFalse(MAPPER.readTree(decoded.get(3)).has("error"));
+        Assertions.assertTrue(MAPPER.readTree(decoded.get(4)).has("error"));
+    }
+
+    @Test
+    public void testSourcesProduceTheSameOutput() throws IOException {
+        List<String> lines = jsonLines(97);
+        BulkDecoder decoder = BulkDecoder.builder().registry(registry()).batchSize(7).build();
+        BulkDecoder mapped = BulkDecoder.builder().registry(registry()).batchSize(7).memoryMapped(true).build();
+
+        Path plain = this.tempDir.resolve("plain.jsonl");
+        decoder.decode(write("input.jsonl", lines, false), plain);
+        Path gzip = this.tempDir.resolve("gzip.jsonl");
+        decoder.decode(write("input.jsonl.gz", lines, true), gzip);
+        Path mmap = this.tempDir.resolve("mmap.jsonl");
+        mapped.decode(write("input.jsonl", lines, false), mmap);
+
+        Assertions.assertEquals(97, Files.readAllLines(plain).size());
+        Assertions.assertEquals(Files.readAllLines(plain), Files.readAllLines(gzip));
+        Assertions.assertEquals(Files.readAllLines(plain), Files.readAllLines(mmap));
+    }
+
+    @Test
+    public void testDecodeCsv() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("hash,input,to_address");
+        lines.add("0x01," + SWAP + ",0x7a250d5630b4cf539739df2c5dacb4c659f2488d");
+        lines.add("0x02,0x,");
+        lines.add("0x03,\"" + SWAP + "\",\"0x7a250d5630b4cf539739df2c5dacb4c659f2488d\"");
+        Path output = this.tempDir.resolve("output.jsonl");
+
+        BulkDecoder.Summary summary = BulkDecoder.builder().registry(registry()).format(BulkDecoder.Format.CSV).build()
+                .decode(write("input.csv", lines, false), output);
+
+        Assertions.assertEquals(new BulkDecoder.Summary(3, 2, 1, 0), summary);
+        List<String> decoded = Files.readAllLines(output);
+        Assertions.assertEquals(2, MAPPER.readTree(decoded.get(0)).get("line").asLong());
+        Assertions.assertEquals("swapExactTokensForETH", MAPPER.readTree(decoded.get(2)).get("name").asText());
+
+        List<String> logs = new ArrayList<>();
+        logs.add("address,topics,data");
+        logs.add("0xdac17f958d2ee523a2206206994597c13d831ec7,\"" + TRANSFER_TOPIC + "," + FROM_TOPIC + "," + TO_TOPIC + "\"," + VALUE);
+        BulkDecoder.builder().registry(registry()).format(BulkDecoder.Format.CSV).build().decode(write("logs.csv", logs, false), output);
+        Assertions.assertEquals("Transfer", MAPPER.readTree(Files.readAllLines(output).get(0)).get("name").asText());
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws IOException {
+        Path input = write("input.jsonl.gz", jsonLines(1000), true);
+        Path expected = this.tempDir.resolve("expected.jsonl");
+        BulkDecoder.builder().registry(registry()).batchSize(10).build().decode(input, expected);
+
+        Path checkpoint = this.tempDir.resolve("run.checkpoint");
+        BulkDecoder decoder = BulkDecoder.builder().registry(registry()).batchSize(10).checkpointInterval(100).checkpoint(checkpoint).build();
+
+        // the first run fails after 537 records, parts of the output after the last checkpoint are already written
+        Path output = this.tempDir.resolve("output.jsonl");
+        try (Writer writer = Files.newBufferedWriter(output)) {
+            RecordSink failing = new RecordSink() {
+                int written;
+
+                @Override
+                public void write(BulkRecord record) throws IOException {
+                    if (++this.written > 537) {
+                        throw new IOException("disk full");
+                    }
+                    writer.write(record.getLine() + "\n");
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    writer.flush();
+                }
+            };
+            Assertions.assertThrows(IOException.class, () -> decoder.decode(input, failing));
+        }
+        Assertions.assertTrue(Files.exists(checkpoint));
+
+        List<Long> resumed = new ArrayList<>();
+        BulkDecoder.Summary summary = decoder.decode(input, new RecordSink() {
+            @Override
+            public void write(BulkRecord record) {
+                resumed.add(record.getLine());
+            }
+
+            @Override
+            public void flush() {
+            }
+        });
+        Assertions.assertEquals(501, resumed.get(0));
+        Assertions.assertEquals(500, summary.getLines());
+
+        // the checkpoint of a custom sink has no output size to resume a file from
+        List<String> written = Files.readAllLines(output);
+        Assertions.assertThrows(IllegalStateException.class, () -> decoder.decode(input, output));
+        Assertions.assertEquals(written, Files.readAllLines(output));
+
+        // a resumed file output is truncated to its size at the checkpoint
+        List<String> inputLines = jsonLines(1000);
+        List<String> expectedLines = Files.readAllLines(expected);
+        long inputOffset = 0;
+        long outputOffset = 0;
+        for (int i = 0; i < 500; i++) {
+            inputOffset += inputLines.get(i).getBytes(StandardCharsets.UTF_8).length + 1;
+            outputOffset += expectedLines.get(i).getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        Files.write(output, expectedLines.subList(0, 500));
+        Files.write(output, "{\"line\":501,\"kind\":\"CALL\",\"na".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.write(checkpoint, Arrays.asList("offset=" + inputOffset, "line=500", "output=" + outputOffset), StandardCharsets.ISO_8859_1);
+
+        decoder.decode(input, output);
+        Assertions.assertEquals(expectedLines, Files.readAllLines(output));
+
+        // an output shorter than at the checkpoint isn't extended
+        Files.write(output, expectedLines.subList(0, 400));
+        Assertions.assertThrows(IllegalStateException.class, () -> decoder.decode(input, output));
+        Assertions.assertEquals(expectedLines.subList(0, 400), Files.readAllLines(output));
+    }
+}
@@ -0,0 +1,223 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.CallBinding;
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.definition.Address;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CallBindingTest {
+
+    private static final String SWAP_EXACT_TOKENS_FOR_ETH = "18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+
+    private static final String EXACT_INPUT_SINGLE = "04e45aaf000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc20000000000000000000000002260fac5e5542a773aa44fbcfedf7c193bc2c59900000000000000000000000000000000000000000000000000000000000001f4000000000000000000000000bebc44782c7db0a1a60cb6fe97d0b483032ff1c70000000000000000000000000000000000000000000000000000000000067932000000000000000000000000000000000000000000000000000000000000002a0000000000000000000000000000000000000000000000000000000000000000";
+
+    private static final byte[][] TRANSFER_TOPICS = {
+            Hex.decode("ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef"),
+            Hex.decode("000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef"),
+            Hex.decode("00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc")};
+
+    private static final byte[] TRANSFER_DATA = Hex.decode("000000000000000000000000000000000000000000000000000000000edc4c64");
+
+    @TempDir
+    Path classes;
+
+    @Test
+    public void testBindFields() {
+        AbiDecoder decoder = decoder("abiFiles/UniswapV2Router02.json");
+        byte[] data = Hex.decode(SWAP_EXACT_TOKENS_FOR_ETH);
+        CallBinding<Swap> binding = decoder.bind("swapExactTokensForETH", Swap.class);
+
+        Swap swap = binding.decodeFunctionCall(data);
+
+        DecodedFunctionCall expected = decoder.decodeFunctionCall(data);
+        Assertions.assertEquals(((BigInteger) expected.getParam("amountIn").getValue()).longValueExact(), swap.amountIn);
+        Assertions.assertEquals(expected.getParam("amountOutMin").getValue(), swap.amountOutMin);
+        Assertions.assertEquals(Arrays.asList((Object[]) expected.getParam("path").getValue()),
+                Arrays.asList(swap.path.get(0).toString(), swap.path.get(1).toString()));
+        Assertions.assertEquals(expected.getParam("to").getValue(), swap.to);
+        Assertions.assertEquals(1659426897, swap.deadline);
+        Assertions.assertNull(swap.note);
+
+        // same binding from the full signature, the call inside a larger buffer
+        byte[] padded = new byte[data.length + 3];
+        System.arraycopy(data, 0, padded, 1, data.length);
+        Swap fromSignature = decoder.bind("swapExactTokensForETH(uint256,uint256,address[],address,uint256)", Swap.class)
+                .decodeFunctionCall(padded, 1, data.length);
+        Assertions.assertEquals(swap.amountOutMin, fromSignature.amountOutMin);
+        Assertions.assertEquals(swap.path, fromSignature.path);
+    }
+
+    @Test
+    public void testBindConstructor() {
+        AbiDecoder decoder = decoder("abiFiles/UniswapV2Router02.json");
+        SwapArgs swap = decoder.bind("swapExactTokensForETH", SwapArgs.class).decodeFunctionCall(Hex.decode(SWAP_EXACT_TOKENS_FOR_ETH));
+
+        // without -parameters the params are bound by position
+        Assertions.assertEquals(BigInteger.valueOf(10000000), swap.amountIn);
+        Assertions.assertEquals("6283178947560620", swap.amountOutMin);
+        Assertions.assertArrayEquals(new String[]{"0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48", "0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2"}, swap.path);
+        Assertions.assertArrayEquals(Hex.decode("d4cf8e47beac55b42ae58991785fa326d9384bd1"), swap.to);
+        Assertions.assertEquals(Long.valueOf(1659426897), swap.deadline);
+    }
+
+    @Test
+    public void testBindTuple() {
+        AbiDecoder decoder = decoder("abiFiles/UniswapV3SwapRouter02.json");
+        ExactInputSingle call = decoder.bind("exactInputSingle", ExactInputSingle.class).decodeFunctionCall(Hex.decode(EXACT_INPUT_SINGLE));
+
+        Assertions.assertEquals(Address.fromHex("0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2"), call.params.tokenIn);
+        Assertions.assertEquals(Address.fromHex("0x2260fac5e5542a773aa44fbcfedf7c193bc2c599"), call.params.tokenOut);
+        Assertions.assertEquals(500, call.params.fee);
+        Assertions.assertEquals("0xbebc44782c7db0a1a60cb6fe97d0b483032ff1c7", call.params.recipient);
+        Assertions.assertEquals(424242, call.params.amountIn);
+        Assertions.assertEquals(BigInteger.valueOf(42), call.params.amountOutMinimum);
+        Assertions.assertEquals(0, call.params.sqrtPriceLimitX96);
+    }
+
+    @Test
+    public void testBindEvent() {
+        AbiDecoder decoder = decoder("abiFiles/TetherToken.json");
+        Transfer transfer = decoder.bind("Transfer(address,address,uint256)", Transfer.class).decodeLogEvent(TRANSFER_TOPICS, TRANSFER_DATA);
+
+        Assertions.assertEquals("0xabea9132b05a70803a4e85094fd0e1800777fbef", transfer.from);
+        Assertions.assertEquals(Address.fromHex("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc"), transfer.to);
+        Assertions.assertEquals(249318500, transfer.value);
+    }
+
+    @Test
+    public void testBindRecord() throws Exception {
+        Assumptions.assumeTrue(Arrays.stream(Class.class.getMethods()).anyMatch(m -> m.getName().equals("isRecord")), "records need Java 16");
+        Class<?> type = compile("TransferRecord", "public record TransferRecord(long value, net.osslabz.evm.abi.definition.Address to, String from) {}");
+        AbiDecoder decoder = decoder("abiFiles/TetherToken.json");
+
+        // components are matched by name, not by position
+        Object transfer = decoder.bind("Transfer", type).decodeLogEvent(TRANSFER_TOPICS, TRANSFER_DATA);
+        Assertions.assertEquals("TransferRecord[value=249318500, to=0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc, from=0xabea9132b05a70803a4e85094fd0e1800777fbef]",
+                transfer.toString());
+    }
+
+    @Test
+    public void testInvalidBindings() {
+        AbiDecoder decoder = decoder("abiFiles/UniswapV2Router02.json");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.bind("doesNotExist", Swap.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.bind("swapExactTokensForETH", WrongType.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.bind("swapExactTokensForETH", NoMatchingField.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.bind("swapExactTokensForETH", List.class));
+
+        CallBinding<Swap> binding = decoder.bind("swapExactTokensForETH", Swap.class);
+        byte[] data = Hex.decode(SWAP_EXACT_TOKENS_FOR_ETH);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> binding.decodeFunctionCall(Hex.decode(EXACT_INPUT_SINGLE)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> binding.decodeFunctionCall(data, 0, 100));
+        Assertions.assertThrows(IllegalStateException.class, () -> binding.decodeLogEvent(TRANSFER_TOPICS, TRANSFER_DATA));
+
+        // amountOutMin doesn't fit into an int
+        CallBinding<IntAmounts> narrow = decoder.bind("swapExactTokensForETH", IntAmounts.class);
+        Assertions.assertThrows(ArithmeticException.class, () -> narrow.decodeFunctionCall(data));
+
+        CallBinding<Transfer> transfer = decoder("abiFiles/TetherToken.json").bind("Transfer", Transfer.class);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> transfer.decodeLogEvent(new byte[][]{TRANSFER_TOPICS[1], TRANSFER_TOPICS[1], TRANSFER_TOPICS[2]}, TRANSFER_DATA));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> transfer.decodeLogEvent(Arrays.copyOf(TRANSFER_TOPICS, 2), TRANSFER_DATA));
+    }
+
+    private AbiDecoder decoder(String abi) {
+        return new AbiDecoder(getClass().getClassLoader().getResourceAsStream(abi));
+    }
+
+    private Class<?> compile(String className, String source) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        String classPath = Paths.get(Address.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-d", this.classes.toString(), "-classpath", classPath, "-proc:none");
+        if (!compiler.getTask(null, null, diagnostics, options, null, Collections.singletonList(file)).call()) {
+            throw new AssertionError("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{this.classes.toUri().toURL()}, getClass().getClassLoader());
+        return classLoader.loadClass(className);
+    }
+
+    static class Swap {
+        private long amountIn;
+        private BigInteger amountOutMin;
+        private List<Address> path;
+        private String to;
+        private long deadline;
+        private String note;
+    }
+
+    public static class SwapArgs {
+        final BigInteger amountIn;
+        final String amountOutMin;
+        final String[] path;
+        final byte[] to;
+        final Long deadline;
+
+        public SwapArgs(BigInteger amountIn, String amountOutMin, String[] path, byte[] to, Long deadline) {
+            this.amountIn = amountIn;
+            this.amountOutMin = amountOutMin;
+            this.path = path;
+            this.to = to;
+            this.deadline = deadline;
+        }
+    }
+
+    static class ExactInputSingle {
+        Params params;
+
+        static class Params {
+            Address tokenIn;
+            Address tokenOut;
+            int fee;
+            String recipient;
+            long amountIn;
+            BigInteger amountOutMinimum;
+            int sqrtPriceLimitX96;
+        }
+    }
+
+    static class Transfer {
+        String from;
+        Address to;
+        long value;
+    }
+
+    static class IntAmounts {
+        int amountIn;
+        int amountOutMin;
+    }
+
+    static class WrongType {
+        boolean amountIn;
+    }
+
+    static class NoMatchingField {
+        String unrelated;
+    }
+}
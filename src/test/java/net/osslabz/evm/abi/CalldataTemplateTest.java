@@ -0,0 +1,108 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.CalldataTemplate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CalldataTemplateTest {
+
+    @Test
+    public void testPatchedTemplateMatchesEncode() {
+        Random random = new Random(11);
+        int checked = 0;
+        for (String abiFile : DecodePlanTest.ABI_FILES) {
+            for (AbiDefinition.Entry entry : DecodePlanTest.abi(abiFile)) {
+                if (!(entry instanceof AbiDefinition.Function) || entry.inputs == null || entry.inputs.isEmpty()) {
+                    continue;
+                }
+                AbiDefinition.Function function = (AbiDefinition.Function) entry;
+                Object[] args = new Object[function.inputs.size()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = DecodePlanTest.sampleValue(function.inputs.get(i).getType(), random);
+                }
+                CalldataTemplate template = function.template(args);
+                Assertions.assertArrayEquals(function.encode(args), template.toBytes(), function.formatSignature());
+
+                for (int round = 0; round < 5; round++) {
+                    int index = random.nextInt(args.length);
+                    args[index] = DecodePlanTest.sampleValue(function.inputs.get(index).getType(), random);
+                    template.set(index, args[index]);
+                    Assertions.assertArrayEquals(function.encode(args), template.toBytes(), function.formatSignature());
+                }
+                checked++;
+            }
+        }
+        Assertions.assertTrue(checked > 100, "only " + checked + " functions checked");
+    }
+
+    @Test
+    public void testSetByNameAndLong() {
+        AbiDefinition.Function swap = DecodePlanTest.abi("UniswapV2Router02.json").findFunction(f -> "swapExactTokensForETH".equals(f.name));
+        Object[] args = {BigInteger.ZERO, BigInteger.ZERO, Arrays.asList("0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48", "0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2"),
+                "0xd4cf8e47beac55b42ae58991785fa326d9384bd1", 0L};
+        CalldataTemplate template = swap.template(args);
+
+        template.set("amountIn", 10_000_000L).set("amountOutMin", new BigInteger("6283945273983148")).set(4, 1659426897L);
+        Assertions.assertArrayEquals(swap.encode(10_000_000L, new BigInteger("6283945273983148"), args[2], args[3], 1659426897L), template.toBytes());
+
+        byte[] before = template.toBytes();
+        Assertions.assertThrows(RuntimeException.class, () -> template.set(0, -1L));
+        Assertions.assertThrows(RuntimeException.class, () -> template.set(3, "0xnot-an-address"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> template.set("unknown", 1L));
+        Assertions.assertArrayEquals(before, template.toBytes());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> swap.template(BigInteger.ZERO));
+    }
+
+    @Test
+    public void testDynamicArgumentsChangeLayout() {
+        AbiDefinition.Function function = DecodePlanTest.abi("UniswapV2Router02.json").findFunction(f -> "swapExactTokensForETH".equals(f.name));
+        String usdc = "0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48";
+        String weth = "0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+        Object[] args = {1L, 2L, Arrays.asList(usdc, weth), "0xd4cf8e47beac55b42ae58991785fa326d9384bd1", 3L};
+        CalldataTemplate template = function.template(args);
+        CalldataTemplate copy = template.copy();
+
+        args[2] = Arrays.asList(usdc, weth, usdc, weth);
+        template.set(2, args[2]);
+        Assertions.assertArrayEquals(function.encode(args), template.toBytes());
+
+        args[2] = Arrays.asList(weth);
+        template.set(2, args[2]);
+        Assertions.assertArrayEquals(function.encode(args), template.toBytes());
+
+        // the copy is independent
+        Assertions.assertArrayEquals(function.encode(1L, 2L, Arrays.asList(usdc, weth), args[3], 3L), copy.toBytes());
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(template.size() + 2);
+        buffer.position(2);
+        Assertions.assertEquals(template.size(), template.writeTo(buffer));
+        Assertions.assertEquals(template.size() + 2, buffer.position());
+    }
+
+    @Test
+    public void testDynamicArgumentsBeforeOtherTails() {
+        AbiDefinition.Function function = FunctionEncodeTest.function("f", "string", "uint256", "bytes", "address[]", "bool", "uint8[2][]");
+        Random random = new Random(3);
+        Object[] args = new Object[function.inputs.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = DecodePlanTest.sampleValue(function.inputs.get(i).getType(), random);
+        }
+        CalldataTemplate template = function.template(args);
+        for (int i = 0; i < args.length; i++) {
+            if (function.inputs.get(i).getType().isDynamicType()) {
+                for (int round = 0; round < 10; round++) {
+                    args[i] = DecodePlanTest.sampleValue(function.inputs.get(i).getType(), random);
+                    template.set(i, args[i]);
+                    Assertions.assertArrayEquals(function.encode(args), template.toBytes(), function.formatSignature());
+                }
+            }
+        }
+    }
+}
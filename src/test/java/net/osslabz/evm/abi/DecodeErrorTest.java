@@ -0,0 +1,71 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.AbiRegistry;
+import net.osslabz.evm.abi.decoder.DecodedError;
+import net.osslabz.evm.abi.util.ByteUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class DecodeErrorTest {
+
+    private final AbiDecoder forwarder = new AbiDecoder(getClass().getClassLoader().getResourceAsStream("abiFiles/SereshForwarder.json"));
+
+    @Test
+    public void testErrorString() {
+        byte[] data = FunctionEncodeTest.function("Error", "string").encode("Ownable: caller is not the owner");
+        Assertions.assertEquals(DecodedError.ERROR_SELECTOR, ByteUtil.readInt(data, 0));
+        Assertions.assertEquals(DecodedError.Kind.ERROR, DecodedError.kindOf(data, 0, data.length));
+
+        DecodedError error = this.forwarder.decodeError("0x" + ByteUtil.toHexString(data));
+        Assertions.assertEquals(DecodedError.Kind.ERROR, error.getKind());
+        Assertions.assertEquals("Error", error.getName());
+        Assertions.assertEquals("Ownable: caller is not the owner", error.getMessage());
+        Assertions.assertEquals("Ownable: caller is not the owner", error.getParam("message").getValue());
+        Assertions.assertEquals(-1, error.getPanicCode());
+
+        byte[] truncated = Arrays.copyOf(data, data.length - 32);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.forwarder.decodeError(truncated));
+    }
+
+    @Test
+    public void testPanic() {
+        byte[] data = FunctionEncodeTest.function("Panic", "uint256").encode(0x11);
+        Assertions.assertEquals(DecodedError.Kind.PANIC, DecodedError.kindOf(data, 0, data.length));
+
+        DecodedError error = this.forwarder.decodeError(data);
+        Assertions.assertEquals(DecodedError.Kind.PANIC, error.getKind());
+        Assertions.assertEquals(0x11, error.getPanicCode());
+        Assertions.assertEquals(BigInteger.valueOf(0x11), error.getParam("code").getValue());
+        Assertions.assertEquals("arithmetic overflow or underflow", DecodedError.describePanic(error.getPanicCode()));
+        Assertions.assertNull(error.getMessage());
+    }
+
+    @Test
+    public void testEmptyAndCustomErrors() {
+        Assertions.assertEquals(DecodedError.Kind.EMPTY, this.forwarder.decodeError("0x").getKind());
+        Assertions.assertEquals(DecodedError.Kind.EMPTY, DecodedError.kindOf(new byte[0], 0, 0));
+
+        byte[] data = FunctionEncodeTest.function("StringTooLong", "string").encode("too long");
+        Assertions.assertEquals(DecodedError.Kind.CUSTOM, DecodedError.kindOf(data, 0, data.length));
+        DecodedError error = this.forwarder.decodeError(data);
+        Assertions.assertEquals(DecodedError.Kind.CUSTOM, error.getKind());
+        Assertions.assertEquals("StringTooLong", error.getName());
+        Assertions.assertEquals("too long", error.getParamList().get(0).getValue());
+
+        byte[] unknown = FunctionEncodeTest.function("Unknown", "uint256").encode(1);
+        Assertions.assertThrows(IllegalStateException.class, () -> this.forwarder.decodeError(unknown));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.forwarder.decodeError(new byte[]{1, 2}));
+
+        AbiRegistry registry = AbiRegistry.builder().abi(this.forwarder.getAbi()).build();
+        Assertions.assertEquals("StringTooLong", registry.decodeError(null, data, 0, data.length).getName());
+        Assertions.assertNull(registry.decodeError(null, unknown, 0, unknown.length));
+        // like AbiDecoder, 1 to 3 bytes are malformed rather than an unknown error
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.decodeError(null, new byte[]{1, 2}, 0, 2));
+        Assertions.assertEquals(DecodedError.Kind.EMPTY, registry.decodeError("0x").getKind());
+        Assertions.assertEquals(0x11, registry.decodeError(ByteUtil.toHexString(FunctionEncodeTest.function("Panic", "uint256").encode(0x11))).getPanicCode());
+    }
+}
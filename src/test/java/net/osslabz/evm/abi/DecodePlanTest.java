@@ -0,0 +1,203 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.DecodePlan;
+import net.osslabz.evm.abi.decoder.SignatureDatabase;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.SolidityType;
+import net.osslabz.evm.abi.util.ByteUtil;
+import net.osslabz.evm.abi.util.FileUtil;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class DecodePlanTest {
+
+    static final String[] ABI_FILES = {"SereshForwarder.json", "TetherToken.json", "UniswapV2Router02.json", "UniswapV3Router.json",
+            "UniswapV3SwapRouter.json", "UniswapV3SwapRouter02.json", "ZkSync.json"};
+
+    @Test
+    public void testPlanMatchesFunctionDecode() throws URISyntaxException, IOException {
+        assertPlanMatches("UniswapV2Router02.json", "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2");
+        assertPlanMatches("UniswapV3SwapRouter02.json", "0x04e45aaf000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc20000000000000000000000002260fac5e5542a773aa44fbcfedf7c193bc2c59900000000000000000000000000000000000000000000000000000000000001f4000000000000000000000000bebc44782c7db0a1a60cb6fe97d0b483032ff1c70000000000000000000000000000000000000000000000000000000000067932000000000000000000000000000000000000000000000000000000000000002a0000000000000000000000000000000000000000000000000000000000000000");
+        assertPlanMatches("UniswapV3SwapRouter02.json", "0x5ae401dc0000000000000000000000000000000000000000000000000000000062ed6b0d000000000000000000000000000000000000000000000000000000000000004000000000000000000000000000000000000000000000000000000000000000020000000000000000000000000000000000000000000000000000000000000040000000000000000000000000000000000000000000000000000000000000016000000000000000000000000000000000000000000000000000000000000000e4472b43f3000000000000000000000000000000000000000000000000000008c75ee6fb3900000000000000000000000000000000000000000000000001cb1a1493ed3d4b0000000000000000000000000000000000000000000000000000000000000080000000000000000000000000000000000000000000000000000000000000000200000000000000000000000000000000000000000000000000000000000000020000000000000000000000009bbe10ba8ad02c2a54963b3e2a64f1754c90f411000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc200000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000004449404b7c00000000000000000000000000000000000000000000000001cb1a1493ed3d4b000000000000000000000000c0da58d88e967d883ef0540db458381e9f5e9c8000000000000000000000000000000000000000000000000000000000");
+        assertPlanMatches("ZkSync.json", FileUtil.readFileIntoString("abiFiles/zkSync-input/input_0xe35a7dceb1536dfbd819ab6f756e4dcb19ea09541df54abf0f40064ba1163981"));
+        assertPlanMatches("UniswapV3Router.json", FileUtil.readFileIntoString("abiFiles/uniswapV3Router-input/input_0xeb154fb38972106bfc0e9bce28130379c44d80be292de775e0f43e2c861e0f48"));
+    }
+
+    @Test
+    public void testPlanMatchesFunctionDecodeOnEncodedRoundTrips() {
+        Random random = new Random(42);
+        int checked = 0;
+        for (String abiFile : ABI_FILES) {
+            for (AbiDefinition.Entry entry : abi(abiFile)) {
+                if (!(entry instanceof AbiDefinition.Function) || entry.inputs == null || !encodable(entry.inputs)) {
+                    continue;
+                }
+                AbiDefinition.Function function = (AbiDefinition.Function) entry;
+                Object[] args = new Object[function.inputs.size()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = sampleValue(function.inputs.get(i).getType(), random);
+                }
+                byte[] encoded = function.encode(args);
+
+                Object[] expected = function.decode(encoded).toArray();
+                Object[] actual = DecodePlan.compile(function.inputs).decode(encoded, 4);
+                Assertions.assertTrue(Arrays.deepEquals(expected, actual), function.formatSignature());
+                checked++;
+            }
+        }
+        Assertions.assertTrue(checked > 100, "only " + checked + " functions checked");
+    }
+
+    @Test
+    public void testNumericWordDecoding() {
+        Random random = new Random(7);
+        List<byte[]> words = new ArrayList<>();
+        for (BigInteger value : Arrays.asList(BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(-1), BigInteger.valueOf(Long.MAX_VALUE),
+                BigInteger.valueOf(Long.MIN_VALUE), BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE), BigInteger.ONE.shiftLeft(255))) {
+            words.add(ByteUtil.bigIntegerToBytesSigned(value, 32));
+        }
+        for (int i = 0; i < 200; i++) {
+            byte[] word = new byte[32];
+            random.nextBytes(word);
+            // mostly small values, some with garbage in the upper bytes
+            Arrays.fill(word, 0, random.nextInt(33), (byte) (random.nextBoolean() ? 0 : 0xFF));
+            words.add(word);
+        }
+        for (byte[] word : words) {
+            BigInteger signed = new BigInteger(word);
+            BigInteger unsigned = new BigInteger(1, word);
+            Assertions.assertEquals(signed, SolidityType.IntType.decodeInt(word, 0));
+            Assertions.assertEquals(unsigned, SolidityType.UnsignedIntType.decodeInt(word, 0));
+            Assertions.assertEquals(signed.intValue(), SolidityType.IntType.decodeIntValue(word, 0));
+            if (signed.bitLength() < 64) {
+                Assertions.assertEquals(signed.longValue(), SolidityType.IntType.decodeLongExact(word, 0));
+            } else {
+                Assertions.assertThrows(ArithmeticException.class, () -> SolidityType.IntType.decodeLongExact(word, 0));
+            }
+            if (unsigned.bitLength() < 64) {
+                Assertions.assertEquals(unsigned.longValue(), SolidityType.UnsignedIntType.decodeLongExact(word, 0));
+            } else {
+                Assertions.assertThrows(ArithmeticException.class, () -> SolidityType.UnsignedIntType.decodeLongExact(word, 0));
+            }
+        }
+        // truncated call data is zero padded as before
+        Assertions.assertEquals(BigInteger.ONE.shiftLeft(8), SolidityType.UnsignedIntType.decodeInt(new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1}, 0));
+    }
+
+    @Test
+    public void testPlanHeadLayout() {
+        AbiDefinition.Function commitBlocks = abi("ZkSync.json").findFunction(f -> "commitBlocks".equals(f.name));
+        DecodePlan plan = DecodePlan.compile(commitBlocks.inputs);
+
+        // (uint32,uint64,bytes32,uint256,bytes32,bytes32) is static and stored inline, the tuple array is dynamic
+        Assertions.assertEquals(2, plan.size());
+        Assertions.assertFalse(plan.isDynamic(0));
+        Assertions.assertTrue(plan.isDynamic(1));
+        Assertions.assertEquals(6 * 32, plan.getHeadOffset(1));
+        Assertions.assertEquals(7 * 32, plan.getHeadSize());
+    }
+
+    @Test
+    public void testDecodeRangeIgnoresBytesAroundIt() {
+        AbiDefinition.Function f = SignatureDatabase.parseFunction("f(bytes,uint256[],string)");
+        byte[] full = f.encode(new byte[]{1, 2, 3}, new Object[]{7, 8}, "nine");
+        DecodePlan plan = DecodePlan.compile(f.inputs);
+        Assertions.assertTrue(Arrays.deepEquals(plan.decode(full, 4), plan.decodeRange(full, 4, full.length - 4)));
+
+        // the head is within the range, the tails follow in the array but not in the range
+        for (int index = 0; index < plan.size(); index++) {
+            int param = index;
+            Assertions.assertNotNull(plan.decode(full, 4, param));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> plan.decodeRange(full, 4, plan.getHeadSize(), param));
+        }
+
+        AbiDefinition.Function bytes = FunctionEncodeTest.function("f", "bytes");
+        AbiDefinition abi = new AbiDefinition();
+        abi.add(bytes);
+        AbiDecoder decoder = new AbiDecoder(abi);
+        byte[] call = bytes.encode((Object) new byte[]{1, 2, 3});
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) decoder.decodeFunctionCallCompact(call, 0, call.length).getValue(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeFunctionCall(call, 0, 36));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.decodeFunctionCall(call, 0, 4 + 64 + 2));
+    }
+
+    private static void assertPlanMatches(String abiFile, String inputData) {
+        byte[] input = Hex.decode(inputData.trim().substring(2));
+        int selector = new BigInteger(1, Arrays.copyOf(input, 4)).intValue();
+        AbiDefinition.Function function = abi(abiFile).findFunction(f -> new BigInteger(1, f.encodeSignature()).intValue() == selector);
+        Assertions.assertNotNull(function);
+
+        Object[] expected = function.decode(input).toArray();
+        Object[] actual = DecodePlan.compile(function.inputs).decode(input, 4);
+        Assertions.assertTrue(Arrays.deepEquals(expected, actual), function.formatSignature());
+    }
+
+    static AbiDefinition abi(String abiFile) {
+        return AbiDefinition.fromJson(DecodePlanTest.class.getClassLoader().getResourceAsStream("abiFiles/" + abiFile));
+    }
+
+    static boolean encodable(List<AbiDefinition.Entry.Param> params) {
+        for (AbiDefinition.Entry.Param param : params) {
+            if (containsTuple(param.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsTuple(SolidityType type) {
+        if (type instanceof SolidityType.TupleType) {
+            return true;
+        }
+        return type instanceof SolidityType.ArrayType && containsTuple(((SolidityType.ArrayType) type).getElementType());
+    }
+
+    static Object sampleValue(SolidityType type, Random random) {
+        if (type instanceof SolidityType.StaticArrayType) {
+            return sampleList(((SolidityType.StaticArrayType) type).getElementType(), ((SolidityType.StaticArrayType) type).getSize(), random);
+        } else if (type instanceof SolidityType.ArrayType) {
+            return sampleList(((SolidityType.ArrayType) type).getElementType(), random.nextInt(4), random);
+        } else if (type instanceof SolidityType.BoolType) {
+            return random.nextBoolean();
+        } else if (type instanceof SolidityType.AddressType) {
+            byte[] address = new byte[20];
+            random.nextBytes(address);
+            return "0x" + Hex.toHexString(address);
+        } else if (type instanceof SolidityType.UnsignedIntType) {
+            return new BigInteger(random.nextBoolean() ? 40 : 256, random);
+        } else if (type instanceof SolidityType.IntType) {
+            BigInteger value = new BigInteger(random.nextBoolean() ? 40 : 255, random);
+            return random.nextBoolean() ? value.negate() : value;
+        } else if (type instanceof SolidityType.StringType) {
+            return "string-" + random.nextInt(1000) + "-äöü";
+        } else if (type instanceof SolidityType.BytesType) {
+            byte[] bytes = new byte[1 + random.nextInt(70)];
+            random.nextBytes(bytes);
+            return bytes;
+        } else if (type instanceof SolidityType.Bytes32Type) {
+            byte[] bytes = new byte[32];
+            random.nextBytes(bytes);
+            return bytes;
+        }
+        return "unsupported".getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<Object> sampleList(SolidityType elementType, int size, Random random) {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add(sampleValue(elementType, random));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,349 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.codegen.DecoderGenerator;
+import net.osslabz.evm.abi.codegen.DecoderProcessor;
+import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.DecodePlan;
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.decoder.DecoderOptions;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
+import net.osslabz.evm.abi.definition.SolidityType;
+import net.osslabz.evm.abi.util.ByteUtil;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.annotation.processing.Processor;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class DecoderGeneratorTest {
+
+    private static final DecoderOptions ADDRESS_VALUES = DecoderOptions.builder().addressFormat(DecoderOptions.AddressFormat.ADDRESS).build();
+
+    @TempDir
+    Path classes;
+
+    @Test
+    public void testGeneratedDecodersMatchAbiDecoder() throws Exception {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String abiFile : DecodePlanTest.ABI_FILES) {
+            String className = abiFile.substring(0, abiFile.indexOf('.')) + "Decoder";
+            sources.put("generated." + className, DecoderGenerator.generate(DecodePlanTest.abi(abiFile), "generated", className));
+        }
+        Random random = new Random(42);
+        int calls = 0;
+        int logs = 0;
+        try (URLClassLoader loader = compile(sources, null)) {
+            for (String abiFile : DecodePlanTest.ABI_FILES) {
+                AbiDefinition abi = DecodePlanTest.abi(abiFile);
+                AbiDecoder decoder = new AbiDecoder(abi, ADDRESS_VALUES);
+                Class<?> generated = loader.loadClass("generated." + abiFile.substring(0, abiFile.indexOf('.')) + "Decoder");
+                Method decodeFunctionCall = generated.getMethod("decodeFunctionCall", byte[].class, int.class, int.class);
+                Method decodeLogEvent = generated.getMethod("decodeLogEvent", byte[][].class, byte[].class);
+
+                for (AbiDefinition.Entry entry : abi) {
+                    if (entry.name == null || entry.name.isEmpty()) {
+                        // fallback and receive functions
+                        continue;
+                    } else if (entry instanceof AbiDefinition.Function) {
+                        for (int round = 0; round < 3; round++) {
+                            byte[] data = ByteUtil.merge(new byte[]{(byte) 0xee}, entry.encodeSignature(), encodeTuple(types(entry.inputs), random), new byte[]{(byte) 0xee});
+                            Object call = decodeFunctionCall.invoke(null, data, 1, data.length - 2);
+                            Assertions.assertNotNull(call, entry.formatSignature());
+                            Assertions.assertArrayEquals(expectedCall(decoder, (AbiDefinition.Function) entry, data), paramValues(fields(call)), entry.formatSignature());
+                            calls++;
+                        }
+                    } else if (entry instanceof AbiDefinition.Event) {
+                        for (int round = 0; round < 3; round++) {
+                            List<byte[]> topics = new ArrayList<>();
+                            List<SolidityType> dataTypes = new ArrayList<>();
+                            topics.add(entry.encodeSignature());
+                            for (AbiDefinition.Entry.Param param : entry.inputs) {
+                                if (Boolean.TRUE.equals(param.getIndexed())) {
+                                    topics.add(param.getType().isDynamicType() ? randomBytes(32, random) : encode(param.getType(), random));
+                                } else {
+                                    dataTypes.add(param.getType());
+                                }
+                            }
+                            byte[][] topicArray = topics.toArray(new byte[0][]);
+                            byte[] data = encodeTuple(dataTypes, random);
+                            Object log = decodeLogEvent.invoke(null, topicArray, data);
+                            Assertions.assertArrayEquals(values(decoder.decodeLogEvent(topicArray, data)), paramValues(fields(log)), entry.formatSignature());
+                            logs++;
+                        }
+                    }
+                }
+            }
+        }
+        Assertions.assertTrue(calls > 500, "only " + calls + " calls checked");
+        Assertions.assertTrue(logs > 80, "only " + logs + " logs checked");
+    }
+
+    @Test
+    public void testGeneratedDecoderApi() throws Exception {
+        String source = DecoderGenerator.generate(DecodePlanTest.abi("UniswapV2Router02.json"), "generated", "RouterDecoder");
+        // static params are read at constant offsets, dynamic ones follow the offset in their head slot
+        Assertions.assertTrue(source.contains("SolidityType.UnsignedIntType.decodeInt(data, offset + 32),"));
+        Assertions.assertTrue(source.contains("readArray0(data, offset + offsetAt(data, offset + 64)),"));
+
+        String swap = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+        byte[] data = Hex.decode(swap.substring(2));
+        try (URLClassLoader loader = compile(Collections.singletonMap("generated.RouterDecoder", source), null)) {
+            Class<?> generated = loader.loadClass("generated.RouterDecoder");
+            Object call = generated.getMethod("decodeSwapExactTokensForETHCall", byte[].class).invoke(null, (Object) data);
+            Class<?> callClass = call.getClass();
+            Assertions.assertEquals("RouterDecoder$SwapExactTokensForETHCall", callClass.getName().substring("generated.".length()));
+            Assertions.assertEquals(0x18cbafe5, callClass.getField("SELECTOR").get(null));
+            Assertions.assertEquals(BigInteger.valueOf(10000000), callClass.getMethod("getAmountIn").invoke(call));
+            Assertions.assertArrayEquals(new Address[]{Address.fromHex("0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48"), Address.fromHex("0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2")},
+                    (Address[]) callClass.getMethod("getPath").invoke(call));
+            Assertions.assertEquals(Address.fromHex("0xD4CF8e47BeAC55b42Ae58991785Fa326d9384Bd1"), callClass.getMethod("getTo").invoke(call));
+
+            // another function's call data, too short call data and unknown selectors
+            Method decodeSwap = generated.getMethod("decodeSwapExactTokensForETHCall", byte[].class);
+            byte[] otherSelector = data.clone();
+            otherSelector[0] = 0x38;
+            assertThrows(IllegalArgumentException.class, () -> decodeSwap.invoke(null, (Object) otherSelector));
+            assertThrows(IllegalArgumentException.class, () -> decodeSwap.invoke(null, (Object) Arrays.copyOf(data, 4 + 4 * 32)));
+            Method decodeFunctionCall = generated.getMethod("decodeFunctionCall", byte[].class);
+            Assertions.assertNull(decodeFunctionCall.invoke(null, (Object) Hex.decode("01020304")));
+            assertThrows(IllegalArgumentException.class, () -> decodeFunctionCall.invoke(null, (Object) new byte[3]));
+        }
+    }
+
+    @Test
+    public void testAnnotationProcessor() throws Exception {
+        String marker = "package com.example;\n"
+                + "@net.osslabz.evm.abi.codegen.GenerateDecoder(abi = \"abiFiles/TetherToken.json\")\n"
+                + "@net.osslabz.evm.abi.codegen.GenerateDecoder(abi = \"abiFiles/UniswapV3SwapRouter02.json\", className = \"SwapRouterDecoder\")\n"
+                + "public class Decoders {\n"
+                + "}\n";
+        try (URLClassLoader loader = compile(Collections.singletonMap("com.example.Decoders", marker), new DecoderProcessor())) {
+            Class<?> tether = loader.loadClass("com.example.TetherTokenDecoder");
+            byte[][] topics = {
+                    Hex.decode("ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef"),
+                    Hex.decode("000000000000000000000000abea9132b05a70803a4e85094fd0e1800777fbef"),
+                    Hex.decode("00000000000000000000000047c27dea4d3625169a3dcad8c1fc4375e1c0a8fc")};
+            byte[] data = Hex.decode("000000000000000000000000000000000000000000000000000000000edc4c64");
+            Object transfer = tether.getMethod("decodeTransferEvent", byte[][].class, byte[].class).invoke(null, topics, data);
+            Assertions.assertEquals(Address.fromHex("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc"), transfer.getClass().getMethod("getTo").invoke(transfer));
+            Assertions.assertEquals(BigInteger.valueOf(249318500), transfer.getClass().getMethod("getValue").invoke(transfer));
+            Assertions.assertArrayEquals(values(new AbiDecoder(DecodePlanTest.abi("TetherToken.json"), ADDRESS_VALUES).decodeLogEvent(topics, data)), paramValues(fields(transfer)));
+
+            Class<?> router = loader.loadClass("com.example.SwapRouterDecoder");
+            byte[] call = Hex.decode("04e45aaf000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc20000000000000000000000002260fac5e5542a773aa44fbcfedf7c193bc2c59900000000000000000000000000000000000000000000000000000000000001f4000000000000000000000000bebc44782c7db0a1a60cb6fe97d0b483032ff1c70000000000000000000000000000000000000000000000000000000000067932000000000000000000000000000000000000000000000000000000000000002a0000000000000000000000000000000000000000000000000000000000000000");
+            Object exactInputSingle = router.getMethod("decodeFunctionCall", byte[].class).invoke(null, (Object) call);
+            Object params = exactInputSingle.getClass().getMethod("getParams").invoke(exactInputSingle);
+            Assertions.assertEquals("SwapRouterDecoder$ExactInputSingleCall$Params", params.getClass().getName().substring("com.example.".length()));
+            // uint24 fee
+            Assertions.assertEquals(500, params.getClass().getMethod("getFee").invoke(params));
+        }
+
+        String missing = "@net.osslabz.evm.abi.codegen.GenerateDecoder(abi = \"abiFiles/Missing.json\") class Missing {}";
+        AssertionError error = Assertions.assertThrows(AssertionError.class, () -> compile(Collections.singletonMap("Missing", missing), new DecoderProcessor()));
+        Assertions.assertTrue(error.getMessage().contains("ABI abiFiles/Missing.json not found"), error.getMessage());
+    }
+
+    private static Object[] expectedCall(AbiDecoder decoder, AbiDefinition.Function function, byte[] data) {
+        DecodedFunctionCall call = decoder.decodeFunctionCall(data, 1, data.length - 2);
+        if (function.inputs == null || call.getSize() == function.inputs.size()) {
+            return values(call);
+        }
+        // params without or with the same name are merged in DecodedFunctionCall, compare with the plan it uses
+        return paramValues(DecodePlan.compile(function.inputs, ADDRESS_VALUES).decode(data, 5));
+    }
+
+    /**
+     * @return the values as {@link DecodedFunctionCall.Param} shows them, with the bytes of the first two levels as hex
+     */
+    private static Object[] paramValues(Object[] values) {
+        Object[] paramValues = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            paramValues[i] = new DecodedFunctionCall.Param("", "", values[i]).getValue();
+        }
+        return paramValues;
+    }
+
+    private static Object[] values(DecodedFunctionCall call) {
+        Object[] values = new Object[call.getSize()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = call.getParamList().get(i).getValue();
+        }
+        return values;
+    }
+
+    /**
+     * @return the fields of a generated result class in the representation of the generic decoder
+     */
+    private static Object[] fields(Object result) throws IllegalAccessException {
+        List<Object> values = new ArrayList<>();
+        for (Field field : result.getClass().getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                values.add(generic(field.get(result)));
+            }
+        }
+        return values.toArray();
+    }
+
+    private static Object generic(Object value) throws IllegalAccessException {
+        if (value instanceof Integer || value instanceof Long) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        } else if (value == null || value instanceof byte[] || value instanceof Boolean || value instanceof String
+                || value instanceof Address || value instanceof BigInteger) {
+            return value;
+        } else if (value.getClass().isArray()) {
+            Object[] elements = new Object[Array.getLength(value)];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = generic(Array.get(value, i));
+            }
+            return elements;
+        }
+        return fields(value);
+    }
+
+    private static List<SolidityType> types(List<AbiDefinition.Entry.Param> params) {
+        List<SolidityType> types = new ArrayList<>();
+        for (AbiDefinition.Entry.Param param : params == null ? Collections.<AbiDefinition.Entry.Param>emptyList() : params) {
+            types.add(param.getType());
+        }
+        return types;
+    }
+
+    /**
+     * @return random but valid ABI encoding of a value of the type, for dynamic types without the offset
+     */
+    private static byte[] encode(SolidityType type, Random random) {
+        if (type instanceof SolidityType.StaticArrayType) {
+            SolidityType.StaticArrayType arrayType = (SolidityType.StaticArrayType) type;
+            return encodeTuple(Collections.nCopies(arrayType.getSize(), arrayType.getElementType()), random);
+        } else if (type instanceof SolidityType.DynamicArrayType) {
+            int length = random.nextInt(3);
+            return ByteUtil.merge(word(BigInteger.valueOf(length)), encodeTuple(Collections.nCopies(length, ((SolidityType.ArrayType) type).getElementType()), random));
+        } else if (type instanceof SolidityType.TupleType) {
+            return encodeTuple(((SolidityType.TupleType) type).getTypes(), random);
+        } else if (type instanceof SolidityType.BytesType) {
+            byte[] value = type instanceof SolidityType.StringType
+                    ? ("string-" + random.nextInt(1000) + "-äöü").getBytes(StandardCharsets.UTF_8)
+                    : randomBytes(random.nextInt(70), random);
+            return ByteUtil.merge(word(BigInteger.valueOf(value.length)), Arrays.copyOf(value, (value.length + 31) / 32 * 32));
+        } else if (type instanceof SolidityType.BoolType) {
+            return word(random.nextBoolean() ? BigInteger.ONE : BigInteger.ZERO);
+        } else if (type instanceof SolidityType.AddressType) {
+            return word(new BigInteger(160, random));
+        } else if (type instanceof SolidityType.UnsignedIntType) {
+            return word(new BigInteger(1 + random.nextInt(bits(type, "uint")), random));
+        } else if (type instanceof SolidityType.IntType) {
+            BigInteger value = new BigInteger(random.nextInt(bits(type, "int")), random);
+            return word(random.nextBoolean() ? value.negate().subtract(BigInteger.ONE) : value);
+        }
+        return randomBytes(32, random);
+    }
+
+    private static byte[] encodeTuple(List<SolidityType> types, Random random) {
+        int headSize = 0;
+        for (SolidityType type : types) {
+            headSize += type.getFixedSize();
+        }
+        ByteArrayOutputStream heads = new ByteArrayOutputStream();
+        ByteArrayOutputStream tails = new ByteArrayOutputStream();
+        for (SolidityType type : types) {
+            byte[] encoded = encode(type, random);
+            if (type.isDynamicType()) {
+                heads.write(word(BigInteger.valueOf(headSize + tails.size())), 0, 32);
+                tails.write(encoded, 0, encoded.length);
+            } else {
+                heads.write(encoded, 0, encoded.length);
+            }
+        }
+        return ByteUtil.merge(heads.toByteArray(), tails.toByteArray());
+    }
+
+    private static int bits(SolidityType type, String prefix) {
+        String name = type.getCanonicalName();
+        return Integer.parseInt(name.substring(prefix.length()));
+    }
+
+    private static byte[] word(BigInteger value) {
+        return ByteUtil.bigIntegerToBytesSigned(value, 32);
+    }
+
+    private static byte[] randomBytes(int length, Random random) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void assertThrows(Class<? extends Throwable> expected, ReflectiveCall call) {
+        InvocationTargetException e = Assertions.assertThrows(InvocationTargetException.class, call::invoke);
+        Assertions.assertEquals(expected, e.getCause().getClass());
+    }
+
+    private interface ReflectiveCall {
+        void invoke() throws Exception;
+    }
+
+    /**
+     * Compiles the sources against the library and the test resources into {@link #classes}.
+     *
+     * @param processor processor to run, <code>null</code> for none
+     * @throws AssertionError if the sources don't compile
+     */
+    private URLClassLoader compile(Map<String, String> sources, Processor processor) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<JavaFileObject> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            files.add(new SimpleJavaFileObject(URI.create("string:///" + source.getKey().replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source.getValue();
+                }
+            });
+        }
+        String classPath = location(Address.class) + File.pathSeparator + location(Hex.class) + File.pathSeparator + location(DecoderGeneratorTest.class);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = new ArrayList<>(Arrays.asList("-d", this.classes.toString(), "-classpath", classPath));
+        if (processor == null) {
+            options.add("-proc:none");
+        }
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, files);
+        if (processor != null) {
+            task.setProcessors(Collections.singletonList(processor));
+        }
+        if (!task.call()) {
+            throw new AssertionError("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        return new URLClassLoader(new URL[]{this.classes.toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    private static String location(Class<?> type) throws Exception {
+        return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+}
@@ -0,0 +1,155 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
+import net.osslabz.evm.abi.definition.SolidityType;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+public class FunctionEncodeTest {
+
+    @Test
+    public void testEncodeIntoMatchesEncode() {
+        Random random = new Random(42);
+        int checked = 0;
+        for (String abiFile : DecodePlanTest.ABI_FILES) {
+            for (AbiDefinition.Entry entry : DecodePlanTest.abi(abiFile)) {
+                if (!(entry instanceof AbiDefinition.Function) || entry.inputs == null) {
+                    continue;
+                }
+                AbiDefinition.Function function = (AbiDefinition.Function) entry;
+                for (int round = 0; round < 3; round++) {
+                    Object[] args = new Object[function.inputs.size()];
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = sampleValue(function.inputs.get(i).getType(), random);
+                    }
+                    assertEncodeIntoMatches(function, args);
+                    // fewer arguments than inputs are encoded as well
+                    if (args.length > 0) {
+                        assertEncodeIntoMatches(function, Arrays.copyOf(args, args.length - 1));
+                    }
+                    checked++;
+                }
+            }
+        }
+        Assertions.assertTrue(checked > 300, "only " + checked + " functions checked");
+    }
+
+    @Test
+    public void testEncodeIntoValueTypes() {
+        AbiDefinition.Function function = function("f", "uint256", "int64", "address", "bool", "bytes32", "bytes", "string", "uint8[]", "string[2]");
+        Object[] args = {Long.MAX_VALUE, -5, Address.fromHex("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc"), true, new byte[]{1, 2},
+                new byte[0], "", new long[]{1, 2, 3}, new Object[]{"a😀", "lone \ud800 surrogate"}};
+        assertEncodeIntoMatches(function, args);
+
+        args[0] = BigInteger.ONE.shiftLeft(255);
+        args[1] = BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE);
+        args[2] = "47C27DEA4D3625169A3DCAD8C1FC4375E1C0A8FC";
+        args[3] = false;
+        args[5] = "bytes from a string";
+        args[6] = "äöü €";
+        args[7] = Collections.emptyList();
+        assertEncodeIntoMatches(function, args);
+
+        args[0] = "0x1234";
+        args[1] = "-42";
+        args[2] = new byte[]{1, 2, 3};
+        args[4] = "abc";
+        assertEncodeIntoMatches(function, args);
+    }
+
+    @Test
+    public void testEncodeIntoByteBuffer() {
+        AbiDefinition.Function function = function("swap", "address", "uint256[]", "string");
+        Object[] args = {"0xabea9132b05a70803a4e85094fd0e1800777fbef", Arrays.asList(1L, 2L), "memo"};
+        byte[] expected = function.encode(args);
+
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(expected.length + 10), ByteBuffer.allocateDirect(expected.length + 10))) {
+            buffer.position(3);
+            Assertions.assertEquals(expected.length, function.encodeInto(buffer, args));
+            Assertions.assertEquals(3 + expected.length, buffer.position());
+            byte[] written = new byte[expected.length];
+            buffer.position(3);
+            buffer.get(written);
+            Assertions.assertArrayEquals(expected, written);
+        }
+
+        Assertions.assertThrows(BufferOverflowException.class, () -> function.encodeInto(ByteBuffer.allocate(expected.length - 1), args));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> function.encodeInto(new byte[expected.length], 1, args));
+    }
+
+    @Test
+    public void testEncodeIntoKeepsErrors() {
+        AbiDefinition.Function function = function("f", "uint256", "address");
+        byte[] out = new byte[1024];
+
+        RuntimeException expected = Assertions.assertThrows(RuntimeException.class, () -> function.encode(1, 2, 3));
+        RuntimeException actual = Assertions.assertThrows(RuntimeException.class, () -> function.encodeInto(out, 0, 1, 2, 3));
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+
+        expected = Assertions.assertThrows(RuntimeException.class, () -> function.encode(-1, "0x01"));
+        actual = Assertions.assertThrows(RuntimeException.class, () -> function.encodeInto(out, 0, -1, "0x01"));
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+
+        expected = Assertions.assertThrows(RuntimeException.class, () -> function.encode(1, "0x01" + Hex.toHexString(new byte[20])));
+        actual = Assertions.assertThrows(RuntimeException.class, () -> function.encodeInto(out, 0, 1, "0x01" + Hex.toHexString(new byte[20])));
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+    }
+
+    private static void assertEncodeIntoMatches(AbiDefinition.Function function, Object[] args) {
+        byte[] expected = function.encode(args);
+        Assertions.assertEquals(expected.length, function.encodedSize(args), function.formatSignature());
+
+        // garbage around and in the target range must not leak into the encoding
+        byte[] out = new byte[expected.length + 7];
+        Arrays.fill(out, (byte) 0x5A);
+        Assertions.assertEquals(expected.length, function.encodeInto(out, 5, args));
+        Assertions.assertArrayEquals(expected, Arrays.copyOfRange(out, 5, 5 + expected.length), function.formatSignature());
+        Assertions.assertEquals(0x5A, out[4]);
+        Assertions.assertEquals(0x5A, out[5 + expected.length]);
+    }
+
+    static AbiDefinition.Function function(String name, String... types) {
+        AbiDefinition.Entry.Param[] inputs = new AbiDefinition.Entry.Param[types.length];
+        for (int i = 0; i < types.length; i++) {
+            inputs[i] = new AbiDefinition.Entry.Param();
+            inputs[i].setName("arg" + i);
+            inputs[i].setType(SolidityType.getType(types[i]));
+        }
+        return new AbiDefinition.Function(false, name, Arrays.asList(inputs), Collections.emptyList(), false);
+    }
+
+    /**
+     * Like {@link DecodePlanTest#sampleValue(SolidityType, Random)}, but also with the other Java types accepted by the
+     * encoder and with empty values.
+     */
+    private static Object sampleValue(SolidityType type, Random random) {
+        if (random.nextInt(4) != 0) {
+            return DecodePlanTest.sampleValue(type, random);
+        }
+        if (type instanceof SolidityType.ArrayType && !(type instanceof SolidityType.StaticArrayType)) {
+            return new Object[0];
+        } else if (type instanceof SolidityType.AddressType) {
+            byte[] address = new byte[20];
+            random.nextBytes(address);
+            return random.nextBoolean() ? Address.of(address) : address;
+        } else if (type instanceof SolidityType.UnsignedIntType) {
+            return random.nextBoolean() ? (Object) random.nextInt(Integer.MAX_VALUE) : (Object) (random.nextLong() & Long.MAX_VALUE);
+        } else if (type instanceof SolidityType.IntType && !(type instanceof SolidityType.BoolType)) {
+            return random.nextLong();
+        } else if (type instanceof SolidityType.StringType) {
+            return "";
+        } else if (type instanceof SolidityType.BytesType) {
+            return new byte[0];
+        }
+        return DecodePlanTest.sampleValue(type, random);
+    }
+}
@@ -0,0 +1,43 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.util.HashUtil;
+import org.bouncycastle.jcajce.provider.digest.Keccak;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class HashUtilTest {
+
+    @Test
+    public void testKnownHashes() {
+        Assertions.assertEquals("c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470", Hex.toHexString(HashUtil.hashAsKeccak(new byte[0])));
+        Assertions.assertEquals("ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef",
+                Hex.toHexString(HashUtil.hashAsKeccak("Transfer(address,address,uint256)".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void testMatchesBouncyCastleDigest() {
+        Random random = new Random(11);
+        HashUtil.Keccak256 keccak = new HashUtil.Keccak256();
+        for (int i = 0; i < 300; i++) {
+            byte[] input = new byte[random.nextInt(400)];
+            random.nextBytes(input);
+            int from = input.length == 0 ? 0 : random.nextInt(input.length);
+            int to = from + (input.length == from ? 0 : random.nextInt(input.length - from));
+            byte[] expected = new Keccak.Digest256().digest(Arrays.copyOfRange(input, from, to));
+
+            Assertions.assertArrayEquals(expected, HashUtil.hashAsKeccak(input, from, to - from));
+            Assertions.assertArrayEquals(expected, keccak.hash(input, from, to - from));
+
+            // fed in two parts, written into a larger buffer
+            int split = from + (to - from) / 2;
+            byte[] output = new byte[40];
+            keccak.update(input, from, split - from).update(input, split, to - split).digest(output, 8);
+            Assertions.assertArrayEquals(expected, Arrays.copyOfRange(output, 8, 40));
+        }
+    }
+}
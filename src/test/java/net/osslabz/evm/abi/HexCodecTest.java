@@ -0,0 +1,79 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.util.HexCodec;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class HexCodecTest {
+
+    @Test
+    public void testRoundTripAgainstBouncyCastle() {
+        Random random = new Random(42);
+        for (int length = 0; length < 100; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            String hex = Hex.toHexString(data);
+
+            Assertions.assertEquals(hex, HexCodec.encode(data));
+            Assertions.assertEquals("0x" + hex, HexCodec.encodePrefixed(data));
+            Assertions.assertArrayEquals(data, HexCodec.decode(hex));
+            Assertions.assertArrayEquals(data, HexCodec.decode("0x" + hex));
+            Assertions.assertArrayEquals(data, HexCodec.decode("0X" + hex.toUpperCase()));
+        }
+    }
+
+    @Test
+    public void testRanges() {
+        String text = "topic=0xa9059cbb;";
+
+        Assertions.assertEquals(4, HexCodec.decodedLength(text, 6, 16));
+        Assertions.assertArrayEquals(Hex.decode("a9059cbb"), HexCodec.decode(text, 6, 16));
+        Assertions.assertArrayEquals(Hex.decode("059c"), HexCodec.decode(text, 10, 14));
+        Assertions.assertEquals(0xa9059cbb, HexCodec.decodeInt(text, 8));
+        Assertions.assertEquals(0xa9059cbb2cf0f0e1L, HexCodec.decodeLong("a9059cbb2CF0F0E1", 0));
+
+        byte[] ascii = text.getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertArrayEquals(Hex.decode("a9059cbb"), HexCodec.decode(ascii, 6, 16));
+    }
+
+    @Test
+    public void testBuffers() {
+        byte[] data = Hex.decode("00ff10ab");
+
+        byte[] out = new byte[6];
+        Assertions.assertEquals(4, HexCodec.decode("0x00ff10ab", 0, 10, out, 1));
+        Assertions.assertArrayEquals(Hex.decode("0000ff10ab00"), out);
+
+        char[] chars = new char[10];
+        Assertions.assertEquals(8, HexCodec.encode(data, 0, 4, chars, 1));
+        Assertions.assertEquals("\u000000ff10ab\u0000", new String(chars));
+
+        byte[] ascii = new byte[6];
+        Assertions.assertEquals(4, HexCodec.encode(data, 1, 2, ascii, 1));
+        Assertions.assertEquals("\u0000ff10\u0000", new String(ascii, StandardCharsets.US_ASCII));
+
+        // in place
+        byte[] inPlace = "0x00ff10ab".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertEquals(4, HexCodec.decode(inPlace, 0, inPlace.length, inPlace, 0));
+        Assertions.assertArrayEquals(data, Arrays.copyOf(inPlace, 4));
+    }
+
+    @Test
+    public void testInvalidInput() {
+        IllegalArgumentException invalid = Assertions.assertThrows(IllegalArgumentException.class, () -> HexCodec.decode("0x00fg"));
+        Assertions.assertEquals("Invalid hex character 'g' at index 5.", invalid.getMessage());
+        IllegalArgumentException odd = Assertions.assertThrows(IllegalArgumentException.class, () -> HexCodec.decode("0x00f"));
+        Assertions.assertEquals("Hex has an odd number of digits (3).", odd.getMessage());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HexCodec.decode("\u00e90"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HexCodec.decodeInt("0000000x", 0));
+        Assertions.assertEquals(-1, HexCodec.digit('g'));
+        Assertions.assertEquals(-1, HexCodec.digit('\u0660'));
+        Assertions.assertEquals(10, HexCodec.digit('A'));
+    }
+}
@@ -0,0 +1,379 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.decoder.AbiDecoder;
+import net.osslabz.evm.abi.decoder.AbiRegistry;
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.decoder.MulticallDecoder;
+import net.osslabz.evm.abi.decoder.MulticallWrapper;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import net.osslabz.evm.abi.definition.Address;
+import net.osslabz.evm.abi.util.ByteUtil;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MulticallDecoderTest {
+
+    // https://etherscan.io/tx/0x731847de5b19b26039f283826ae5218ac7e070ed1b7fff689c2253a3035d8bd6
+    private static final String MULTICALL = "0x5ae401dc0000000000000000000000000000000000000000000000000000000062ed6b0d000000000000000000000000000000000000000000000000000000000000004000000000000000000000000000000000000000000000000000000000000000020000000000000000000000000000000000000000000000000000000000000040000000000000000000000000000000000000000000000000000000000000016000000000000000000000000000000000000000000000000000000000000000e4472b43f3000000000000000000000000000000000000000000000000000008c75ee6fb3900000000000000000000000000000000000000000000000001cb1a1493ed3d4b0000000000000000000000000000000000000000000000000000000000000080000000000000000000000000000000000000000000000000000000000000000200000000000000000000000000000000000000000000000000000000000000020000000000000000000000009bbe10ba8ad02c2a54963b3e2a64f1754c90f411000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc200000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000004449404b7c00000000000000000000000000000000000000000000000001cb1a1493ed3d4b000000000000000000000000c0da58d88e967d883ef0540db458381e9f5e9c8000000000000000000000000000000000000000000000000000000000";
+
+    private static final Address TETHER = Address.fromHex("0xdac17f958d2ee523a2206206994597c13d831ec7");
+    private static final Address ROUTER = Address.fromHex("0x7a250d5630b4cf539739df2c5dacb4c659f2488d");
+    private static final Address MULTICALL3 = Address.fromHex("0xca11bde05977b3631167028862be2a173976ca11");
+
+    private final AbiDecoder swapRouter = new AbiDecoder(getClass().getClassLoader().getResourceAsStream("abiFiles/UniswapV3SwapRouter02.json"));
+
+    @Test
+    public void testMatchesDecodeFunctionsCalls() {
+        MulticallDecoder multicalls = MulticallDecoder.builder().decoder(this.swapRouter).build();
+
+        List<MulticallDecoder.SubCall> calls = multicalls.decode(MULTICALL);
+        List<DecodedFunctionCall> expected = this.swapRouter.decodeFunctionsCalls(MULTICALL);
+
+        Assertions.assertEquals(expected.size(), calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            Assertions.assertEquals(expected.get(i).toString(), calls.get(i).getCall().toString());
+            Assertions.assertEquals(1, calls.get(i).getDepth());
+            Assertions.assertNull(calls.get(i).getTarget());
+        }
+        Assertions.assertEquals("swapExactTokensForTokens", calls.get(0).getCall().getName());
+        Assertions.assertEquals("unwrapWETH9", calls.get(1).getCall().getName());
+
+        // a call that isn't a wrapper is returned as is
+        String unwrap = "0x" + Hex.toHexString(Hex.decode(MULTICALL.substring(2)), calls.get(1).getOffset(), calls.get(1).getLength());
+        List<MulticallDecoder.SubCall> single = multicalls.decode(unwrap);
+        Assertions.assertEquals(1, single.size());
+        Assertions.assertEquals(0, single.get(0).getDepth());
+        Assertions.assertEquals(expected.get(1).toString(), single.get(0).getCall().toString());
+    }
+
+    @Test
+    public void testNestedMulticallsUpToMaxDepth() {
+        AbiDefinition.Function multicall = this.swapRouter.getAbi().findFunction(f -> "multicall(bytes[])".equals(f.formatSignature()));
+        byte[] inner = Hex.decode(MULTICALL.substring(2));
+        byte[] unknown = Hex.decode("deadbeef");
+        byte[] outer = multicall.encode((Object) new Object[]{inner, unknown, new byte[0]});
+
+        List<MulticallDecoder.SubCall> calls = MulticallDecoder.builder().decoder(this.swapRouter).build().decode(outer);
+        Assertions.assertEquals(4, calls.size());
+        Assertions.assertEquals("swapExactTokensForTokens", calls.get(0).getCall().getName());
+        Assertions.assertEquals(2, calls.get(0).getDepth());
+        Assertions.assertEquals("unwrapWETH9", calls.get(1).getCall().getName());
+        Assertions.assertNull(calls.get(2).getCall());
+        Assertions.assertEquals(1, calls.get(2).getDepth());
+        Assertions.assertEquals(4, calls.get(2).getLength());
+        Assertions.assertArrayEquals(unknown, Arrays.copyOfRange(outer, calls.get(2).getOffset(), calls.get(2).getOffset() + 4));
+        Assertions.assertNull(calls.get(3).getCall());
+        Assertions.assertEquals(0, calls.get(3).getLength());
+
+        List<MulticallDecoder.SubCall> shallow = MulticallDecoder.builder().decoder(this.swapRouter).maxDepth(1).build().decode(outer);
+        Assertions.assertEquals(3, shallow.size());
+        Assertions.assertEquals("multicall", shallow.get(0).getCall().getName());
+    }
+
+    @Test
+    public void testAggregate3DecodedByTarget() {
+        AbiDefinition tether = DecodePlanTest.abi("TetherToken.json");
+        AbiDefinition router = DecodePlanTest.abi("UniswapV2Router02.json");
+        AbiRegistry registry = AbiRegistry.builder().contract(TETHER, tether).contract(ROUTER, router).build();
+
+        byte[] transfer = tether.findFunction(f -> "transfer".equals(f.name)).encode("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc", 249318500L);
+        byte[] swap = router.findFunction(f -> "swapExactTokensForETH".equals(f.name)).encode(10_000_000L, 1L,
+                Arrays.asList("0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48", "0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2"), "0xd4cf8e47beac55b42ae58991785fa326d9384bd1", 1659426897L);
+        byte[] aggregate3 = aggregate3(Arrays.asList(TETHER, ROUTER), Arrays.asList(transfer, swap));
+
+        List<MulticallDecoder.SubCall> calls = MulticallDecoder.builder().registry(registry).build().decode(MULTICALL3, aggregate3, 0, aggregate3.length);
+        Assertions.assertEquals(2, calls.size());
+        Assertions.assertEquals(TETHER, calls.get(0).getTarget());
+        Assertions.assertEquals("transfer", calls.get(0).getCall().getName());
+        Assertions.assertEquals(249318500L, calls.get(0).getCall().getLong("_value"));
+        Assertions.assertEquals(ROUTER, calls.get(1).getTarget());
+        Assertions.assertEquals("swapExactTokensForETH", calls.get(1).getCall().getName());
+        Assertions.assertArrayEquals(swap, Arrays.copyOfRange(aggregate3, calls.get(1).getOffset(), calls.get(1).getOffset() + calls.get(1).getLength()));
+
+        // without the wrapper the aggregate3 call itself is returned, unknown to the registry
+        List<MulticallDecoder.SubCall> unwrapped = MulticallDecoder.builder().registry(registry).wrapper(MulticallWrapper.of("multicall(bytes[])")).build()
+                .decode(MULTICALL3, aggregate3, 0, aggregate3.length);
+        Assertions.assertEquals(1, unwrapped.size());
+        Assertions.assertNull(unwrapped.get(0).getCall());
+    }
+
+    @Test
+    public void testDecodeReturnData() {
+        AbiDecoder router = new AbiDecoder(DecodePlanTest.abi("UniswapV2Router02.json"));
+        AbiDefinition.Function getAmountsOut = router.getAbi().findFunction(f -> "getAmountsOut".equals(f.name));
+        byte[] returnData = returnData(Arrays.asList(BigInteger.valueOf(10_000_000), new BigInteger("6283945273983148")), "uint256[]");
+
+        List<?> values = router.decodeReturnData(getAmountsOut.selector(), returnData, 0, returnData.length);
+        Assertions.assertEquals(Arrays.deepToString(getAmountsOut.decodeResult(returnData).toArray()), Arrays.deepToString(values.toArray()));
+        Assertions.assertEquals(new BigInteger("6283945273983148"), ((Object[]) values.get(0))[1]);
+        Assertions.assertEquals(Arrays.deepToString(values.toArray()),
+                Arrays.deepToString(router.decodeReturnData("0xd06ca61f", "0x" + Hex.toHexString(returnData)).toArray()));
+        Assertions.assertEquals(Arrays.deepToString(values.toArray()),
+                Arrays.deepToString(router.decodeReturnData(getAmountsOut, returnData, 0, returnData.length).toArray()));
+
+        // a function that isn't part of the ABI is compiled on the fly
+        AbiDefinition.Function name = DecodePlanTest.abi("TetherToken.json").findFunction(f -> "name".equals(f.name));
+        byte[] nameData = returnData("Tether USD", "string");
+        Assertions.assertEquals("Tether USD", router.decodeReturnData(name, nameData, 0, nameData.length).get(0));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> router.decodeReturnData(getAmountsOut.selector(), new byte[0], 0, 0));
+        Assertions.assertThrows(IllegalStateException.class, () -> router.decodeReturnData(name.selector(), nameData, 0, nameData.length));
+    }
+
+    @Test
+    public void testAggregate3ResultsDecodedByTarget() {
+        AbiDefinition tether = DecodePlanTest.abi("TetherToken.json");
+        AbiDefinition router = DecodePlanTest.abi("UniswapV2Router02.json");
+        AbiRegistry registry = AbiRegistry.builder().contract(TETHER, tether).contract(ROUTER, router).build();
+
+        byte[] balanceOf = tether.findFunction(f -> "balanceOf".equals(f.name)).encode("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc");
+        byte[] getAmountsOut = router.findFunction(f -> "getAmountsOut".equals(f.name)).encode(10_000_000L,
+                Arrays.asList("0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48", "0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2"));
+        byte[] name = tether.findFunction(f -> "name".equals(f.name)).encode();
+        byte[] input = aggregate3(Arrays.asList(TETHER, ROUTER, TETHER), Arrays.asList(balanceOf, getAmountsOut, name));
+        byte[] revert = FunctionEncodeTest.function("Error", "string").encode("paused");
+        byte[] output = aggregate3Result(Arrays.asList(true, true, false), Arrays.asList(returnData(249318500L, "uint256"),
+                returnData(Arrays.asList(BigInteger.valueOf(10_000_000), BigInteger.valueOf(4_000_000_000_000_000L)), "uint256[]"), revert));
+
+        List<MulticallDecoder.SubResult> results = MulticallDecoder.builder().registry(registry).build()
+                .decodeResults(MULTICALL3, input, 0, input.length, output, 0, output.length);
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals("balanceOf", results.get(0).getFunction().name);
+        Assertions.assertEquals(TETHER, results.get(0).getTarget());
+        Assertions.assertEquals(BigInteger.valueOf(249318500L), results.get(0).getValues().get(0));
+        Assertions.assertEquals("getAmountsOut", results.get(1).getFunction().name);
+        Assertions.assertEquals(BigInteger.valueOf(4_000_000_000_000_000L), ((Object[]) results.get(1).getValues().get(0))[1]);
+        Assertions.assertFalse(results.get(2).isSuccess());
+        Assertions.assertEquals("name", results.get(2).getFunction().name);
+        Assertions.assertNull(results.get(2).getValues());
+        Assertions.assertArrayEquals(revert, Arrays.copyOfRange(output, results.get(2).getOffset(), results.get(2).getOffset() + results.get(2).getLength()));
+
+        byte[] truncated = Arrays.copyOf(output, output.length - 64);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MulticallDecoder.builder().registry(registry).build()
+                .decodeResults(MULTICALL3, input, 0, input.length, truncated, 0, truncated.length));
+        byte[] fewerResults = aggregate3Result(Collections.singletonList(true), Collections.singletonList(returnData(1L, "uint256")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MulticallDecoder.builder().registry(registry).build()
+                .decodeResults(MULTICALL3, input, 0, input.length, fewerResults, 0, fewerResults.length));
+    }
+
+    @Test
+    public void testNestedMulticallResults() {
+        AbiDefinition.Function multicall = this.swapRouter.getAbi().findFunction(f -> "multicall(bytes[])".equals(f.formatSignature()));
+        byte[] inner = Hex.decode(MULTICALL.substring(2));
+        byte[] input = multicall.encode((Object) new Object[]{inner, Hex.decode("deadbeef")});
+
+        byte[] innerResult = returnData(new Object[]{returnData(123L, "uint256"), new byte[0]}, "bytes[]");
+        byte[] output = returnData(new Object[]{innerResult, new byte[0]}, "bytes[]");
+
+        List<MulticallDecoder.SubResult> results = MulticallDecoder.builder().decoder(this.swapRouter).build().decodeResults(
+                "0x" + Hex.toHexString(input), "0x" + Hex.toHexString(output));
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals("swapExactTokensForTokens", results.get(0).getFunction().name);
+        Assertions.assertEquals(2, results.get(0).getDepth());
+        Assertions.assertEquals(BigInteger.valueOf(123), results.get(0).getValues().get(0));
+        Assertions.assertEquals("unwrapWETH9", results.get(1).getFunction().name);
+        Assertions.assertEquals(0, results.get(1).getValues().size());
+        Assertions.assertNull(results.get(2).getFunction());
+        Assertions.assertNull(results.get(2).getValues());
+    }
+
+    @Test
+    public void testParallelDecodingKeepsOrder() {
+        AbiDefinition tether = DecodePlanTest.abi("TetherToken.json");
+        AbiDefinition.Function transfer = tether.findFunction(f -> "transfer".equals(f.name));
+        AbiDefinition.Function approve = tether.findFunction(f -> "approve".equals(f.name));
+        List<Address> targets = new ArrayList<>();
+        List<byte[]> callData = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            targets.add(TETHER);
+            callData.add((i % 3 == 0 ? approve : transfer).encode("0x47c27dea4d3625169a3dcad8c1fc4375e1c0a8fc", i));
+        }
+        byte[] aggregate3 = aggregate3(targets, callData);
+        AbiRegistry registry = AbiRegistry.builder().abi(tether).build();
+
+        List<MulticallDecoder.SubCall> parallel = MulticallDecoder.builder().registry(registry).parallelThreshold(1).build().decode(aggregate3);
+        List<MulticallDecoder.SubCall> sequential = MulticallDecoder.builder().registry(registry).parallelThreshold(Integer.MAX_VALUE).build().decode(aggregate3);
+        Assertions.assertEquals(1000, parallel.size());
+        for (int i = 0; i < parallel.size(); i++) {
+            Assertions.assertEquals(i % 3 == 0 ? "approve" : "transfer", parallel.get(i).getCall().getName());
+            Assertions.assertEquals(i, parallel.get(i).getCall().getLong("_value"));
+            Assertions.assertEquals(sequential.get(i).getCall().toString(), parallel.get(i).getCall().toString());
+        }
+    }
+
+    @Test
+    public void testMalformedMulticall() {
+        MulticallDecoder multicalls = MulticallDecoder.builder().decoder(this.swapRouter).build();
+        byte[] input = Hex.decode(MULTICALL.substring(2));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> multicalls.decode(Arrays.copyOf(input, 100)));
+        byte[] hugeCount = input.clone();
+        hugeCount[4 + 64 + 28] = 0x7F;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> multicalls.decode(hugeCount));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MulticallDecoder.builder().build());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MulticallWrapper.of("multicall(uint256)"));
+    }
+
+    @Test
+    public void testSubCallDecodedWithinItsLength() {
+        byte[] input = Hex.decode(MULTICALL.substring(2));
+        MulticallDecoder multicalls = MulticallDecoder.builder().decoder(this.swapRouter).build();
+        MulticallDecoder.SubCall unwrap = multicalls.decode(input).get(1);
+        Assertions.assertEquals(4 + 64, unwrap.getLength());
+
+        // the second argument still follows in the outer call data, but is no longer part of the call
+        input[unwrap.getOffset() - 1] = 4 + 32;
+        List<MulticallDecoder.SubCall> truncated = multicalls.decode(input);
+        Assertions.assertEquals(4 + 32, truncated.get(1).getLength());
+        Assertions.assertNull(truncated.get(1).getCall());
+        Assertions.assertEquals("swapExactTokensForTokens", truncated.get(0).getCall().getName());
+
+        AbiRegistry registry = AbiRegistry.builder().abi(this.swapRouter.getAbi()).build();
+        Assertions.assertNull(MulticallDecoder.builder().registry(registry).build().decode(input).get(1).getCall());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.decodeFunctionCall(input, unwrap.getOffset(), 4 + 32));
+    }
+
+    @Test
+    public void testSubCallTailsStayWithinTheSlice() {
+        byte[] input = Hex.decode(MULTICALL.substring(2));
+        MulticallDecoder multicalls = MulticallDecoder.builder().decoder(this.swapRouter).build();
+        MulticallDecoder.SubCall swap = multicalls.decode(input).get(0);
+        Assertions.assertEquals(4 + 224, swap.getLength());
+
+        // the path of swapExactTokensForTokens points to the end of the call, its length would be read from the padding
+        // and the length word of the next call
+        input[swap.getOffset() + 4 + 2 * 32 + 31] = (byte) 224;
+        List<MulticallDecoder.SubCall> calls = multicalls.decode(input);
+        Assertions.assertNull(calls.get(0).getCall());
+        Assertions.assertEquals("unwrapWETH9", calls.get(1).getCall().getName());
+
+        AbiRegistry registry = AbiRegistry.builder().abi(this.swapRouter.getAbi()).build();
+        Assertions.assertNull(MulticallDecoder.builder().registry(registry).build().decode(input).get(0).getCall());
+    }
+
+    @Test
+    public void testMaxCalls() {
+        // every element of each multicall references the same nested multicall, 64^4 calls in less than 9 KB
+        byte[] input = Hex.decode("deadbeef");
+        for (int depth = 0; depth < 4; depth++) {
+            input = sharedElements(input, 64);
+        }
+        byte[] selfReferencing = input;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MulticallDecoder.builder().decoder(this.swapRouter).build().decode(selfReferencing));
+
+        List<MulticallDecoder.SubCall> calls = MulticallDecoder.builder().decoder(this.swapRouter).maxDepth(2).build().decode(selfReferencing);
+        Assertions.assertEquals(64 * 64, calls.size());
+        Assertions.assertEquals(calls.get(0).getOffset(), calls.get(calls.size() - 1).getOffset());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MulticallDecoder.builder().decoder(this.swapRouter).maxDepth(2).maxCalls(64 * 64 - 1).build()
+                .decode(selfReferencing));
+    }
+
+    @Test
+    public void testWrapperLayout() {
+        MulticallWrapper tryAggregate = MulticallWrapper.of("tryAggregate(bool,(address,bytes)[])");
+        Assertions.assertEquals(32, tryAggregate.getHeadOffset());
+        Assertions.assertEquals(0, tryAggregate.getTargetWord());
+        Assertions.assertEquals(1, tryAggregate.getCallDataWord());
+
+        MulticallWrapper aggregate3Value = MulticallWrapper.of("aggregate3Value((address,bool,uint256,bytes)[])");
+        Assertions.assertEquals(0x174dea71, aggregate3Value.getSelector());
+        Assertions.assertEquals(3, aggregate3Value.getCallDataWord());
+
+        MulticallWrapper multicall = MulticallWrapper.of("multicall(uint256,bytes[])");
+        Assertions.assertEquals(0x5ae401dc, multicall.getSelector());
+        Assertions.assertEquals(-1, multicall.getCallDataWord());
+        Assertions.assertEquals(-1, multicall.getResultHeadOffset());
+
+        MulticallWrapper tryBlockAndAggregate = MulticallWrapper.of("tryBlockAndAggregate(bool,(address,bytes)[])", "uint256,bytes32,(bool,bytes)[]");
+        Assertions.assertEquals(64, tryBlockAndAggregate.getResultHeadOffset());
+        Assertions.assertEquals(0, tryBlockAndAggregate.getSuccessWord());
+        Assertions.assertEquals(1, tryBlockAndAggregate.getReturnDataWord());
+    }
+
+    /**
+     * Encodes <code>aggregate3((address,bool,bytes)[])</code>, tuple arrays can't be encoded by
+     * {@link AbiDefinition.Function#encode(Object...)}.
+     */
+    private static byte[] aggregate3(List<Address> targets, List<byte[]> callData) {
+        List<byte[]> heads = new ArrayList<>();
+        for (Address target : targets) {
+            heads.add(ByteUtil.merge(word(new BigInteger(1, target.toBytes())), word(BigInteger.ZERO)));
+        }
+        return ByteUtil.merge(new byte[]{(byte) 0x82, (byte) 0xad, 0x56, (byte) 0xcb}, tupleArray(heads, callData));
+    }
+
+    /**
+     * Encodes the <code>(bool,bytes)[]</code> result of <code>aggregate3</code>.
+     */
+    private static byte[] aggregate3Result(List<Boolean> success, List<byte[]> returnData) {
+        List<byte[]> heads = new ArrayList<>();
+        for (Boolean value : success) {
+            heads.add(word(value ? BigInteger.ONE : BigInteger.ZERO));
+        }
+        return tupleArray(heads, returnData);
+    }
+
+    /**
+     * Encodes a single tuple array param whose tuples consist of static words followed by a <code>bytes</code>
+     * component.
+     */
+    private static byte[] tupleArray(List<byte[]> heads, List<byte[]> data) {
+        ByteArrayOutputStream tuples = new ByteArrayOutputStream();
+        List<Integer> offsets = new ArrayList<>();
+        int offset = 32 * heads.size();
+        for (int i = 0; i < heads.size(); i++) {
+            offsets.add(offset);
+            byte[] bytes = data.get(i);
+            byte[] padded = Arrays.copyOf(bytes, (bytes.length + 31) / 32 * 32);
+            byte[] tuple = ByteUtil.merge(heads.get(i), word(BigInteger.valueOf(heads.get(i).length + 32)), word(BigInteger.valueOf(bytes.length)), padded);
+            tuples.write(tuple, 0, tuple.length);
+            offset += tuple.length;
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        byte[] head = ByteUtil.merge(word(BigInteger.valueOf(32)), word(BigInteger.valueOf(heads.size())));
+        encoded.write(head, 0, head.length);
+        for (int elementOffset : offsets) {
+            encoded.write(word(BigInteger.valueOf(elementOffset)), 0, 32);
+        }
+        byte[] tupleBytes = tuples.toByteArray();
+        encoded.write(tupleBytes, 0, tupleBytes.length);
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Encodes a <code>multicall(bytes[])</code> whose <code>count</code> elements all point to the same
+     * <code>callData</code>.
+     */
+    private static byte[] sharedElements(byte[] callData, int count) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        byte[] head = ByteUtil.merge(new byte[]{(byte) 0xac, (byte) 0x96, 0x50, (byte) 0xd8}, word(BigInteger.valueOf(32)), word(BigInteger.valueOf(count)));
+        encoded.write(head, 0, head.length);
+        for (int i = 0; i < count; i++) {
+            encoded.write(word(BigInteger.valueOf(32L * count)), 0, 32);
+        }
+        byte[] data = ByteUtil.merge(word(BigInteger.valueOf(callData.length)), Arrays.copyOf(callData, (callData.length + 31) / 32 * 32));
+        encoded.write(data, 0, data.length);
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Encodes a single value as return data.
+     */
+    private static byte[] returnData(Object value, String type) {
+        byte[] encoded = FunctionEncodeTest.function("f", type).encode(value);
+        return Arrays.copyOfRange(encoded, 4, encoded.length);
+    }
+
+    private static byte[] word(BigInteger value) {
+        return ByteUtil.bigIntegerToBytes(value, 32);
+    }
+}
@@ -0,0 +1,136 @@
+package net.osslabz.evm.abi;
+
+import net.osslabz.evm.abi.decoder.DecodedFunctionCall;
+import net.osslabz.evm.abi.decoder.SignatureDatabase;
+import net.osslabz.evm.abi.definition.AbiDefinition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SignatureDatabaseTest {
+
+    private static final String SIGNATURES = String.join("\n",
+            "# selectors of a few well known functions",
+            "transfer(address,uint256)",
+            "0x095ea7b3 approve(address,uint256)",
+            "",
+            "swapExactTokensForETH(uint,uint,address[],address,uint)",
+            "aggregate3((address,bool,bytes)[])",
+            "burn(uint256)",
+            "collate_propagate_storage(bytes16)",
+            "transfer(address,uint256)",
+            "not a signature",
+            "broken(uint256",
+            "unknown(foo)");
+
+    private static final String SWAP_EXACT_TOKENS_FOR_ETH = "0x18cbafe5000000000000000000000000000000000000000000000000000000000098968000000000000000000000000000000000000000000000000000165284993ac4ac00000000000000000000000000000000000000000000000000000000000000a0000000000000000000000000d4cf8e47beac55b42ae58991785fa326d9384bd10000000000000000000000000000000000000000000000000000000062e8d8510000000000000000000000000000000000000000000000000000000000000002000000000000000000000000a0b86991c6218b36c1d19d4a2e9eb0ce3606eb48000000000000000000000000c02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+
+    @Test
+    public void testDecodeWithoutAbi(@TempDir Path dir) throws IOException {
+        Path text = dir.resolve("signatures.txt");
+        Path file = dir.resolve("signatures.db");
+        Files.write(text, SIGNATURES.getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertEquals(6, SignatureDatabase.build(text, file));
+        SignatureDatabase database = SignatureDatabase.open(file);
+        Assertions.assertEquals(6, database.size());
+
+        DecodedFunctionCall swap = database.decodeFunctionCall(SWAP_EXACT_TOKENS_FOR_ETH);
+        Assertions.assertEquals("swapExactTokensForETH", swap.getName());
+        Assertions.assertEquals(10000000L, swap.getLong("arg0"));
+        Assertions.assertEquals(new BigInteger("6283178947560620"), swap.getParam("arg1").getValue());
+        Assertions.assertArrayEquals(new Object[]{"0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48", "0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2"},
+                (Object[]) swap.getParam("arg2").getValue());
+        Assertions.assertEquals("0xd4cf8e47beac55b42ae58991785fa326d9384bd1", swap.getParam("arg3").getValue());
+        Assertions.assertEquals(1659426897L, swap.getLong("arg4"));
+
+        AbiDefinition.Function transfer = SignatureDatabase.parseFunction("transfer(address,uint256)");
+        byte[] input = transfer.encode("0xd4cf8e47beac55b42ae58991785fa326d9384bd1", 42);
+        DecodedFunctionCall call = database.decodeFunctionCall(input, 0, input.length);
+        Assertions.assertEquals("transfer", call.getName());
+        Assertions.assertEquals(42, call.getInt("arg1"));
+        Assertions.assertSame(database.findFunctions(input, 0).get(0), database.findFunctions(input, 0).get(0));
+
+        Assertions.assertNull(database.decodeFunctionCall("0xdeadbeef"));
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        SignatureDatabase database = database(SIGNATURES);
+
+        Assertions.assertEquals(Collections.singletonList("approve(address,uint256)"), database.getSignatures(0x095ea7b3));
+        Assertions.assertEquals(Collections.singletonList("swapExactTokensForETH(uint256,uint256,address[],address,uint256)"), database.getSignatures(0x18cbafe5));
+        Assertions.assertEquals(Collections.singletonList("aggregate3((address,bool,bytes)[])"), database.getSignatures(0x82ad56cb));
+        // both have the selector 0x42966c68, in the order of the list
+        Assertions.assertEquals(Arrays.asList("burn(uint256)", "collate_propagate_storage(bytes16)"), database.getSignatures(0x42966c68));
+        Assertions.assertTrue(database.getSignatures(0).isEmpty());
+
+        byte[] burn = SignatureDatabase.parseFunction("burn(uint256)").encode(7);
+        Assertions.assertEquals(7, database.decodeFunctionCall(burn, 0, burn.length).getInt("arg0"));
+    }
+
+    @Test
+    public void testTooShortForKnownSelector() throws IOException {
+        SignatureDatabase database = database(SIGNATURES);
+        byte[] transfer = SignatureDatabase.parseFunction("transfer(address,uint256)").encode("0xd4cf8e47beac55b42ae58991785fa326d9384bd1", 42);
+        byte[] embedded = Arrays.copyOf(transfer, transfer.length + 32);
+
+        // a single signature with the selector, the second argument is outside of the range
+        Assertions.assertThrows(IllegalArgumentException.class, () -> database.decodeFunctionCall(embedded, 0, transfer.length - 32));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> database.decodeFunctionCallCompact(embedded, 0, transfer.length - 32));
+        // burn(uint256) and collate_propagate_storage(bytes16) both take a word
+        Assertions.assertThrows(IllegalArgumentException.class, () -> database.decodeFunctionCall(new byte[]{0x42, (byte) 0x96, 0x6c, 0x68, 7}, 0, 5));
+        Assertions.assertNull(database.decodeFunctionCall(new byte[]{(byte) 0xde, (byte) 0xad, (byte) 0xbe, (byte) 0xef, 7}, 0, 5));
+    }
+
+    @Test
+    public void testCollidingSignaturesAreDecodedWithinTheRange() throws IOException {
+        // both have the selector 0xa7965546
+        SignatureDatabase database = database("label18473(bytes)\nowner108073(uint256)");
+        byte[] label = SignatureDatabase.parseFunction("label18473(bytes)").encode((Object) new byte[]{1, 2, 3});
+        Assertions.assertEquals("label18473", database.decodeFunctionCallCompact(label, 0, label.length).getName());
+
+        // the tail of the bytes lies past the range, only the uint256 reading fits
+        Assertions.assertEquals("owner108073", database.decodeFunctionCallCompact(label, 0, 36).getName());
+        Assertions.assertEquals(32, database.decodeFunctionCall(label, 0, 36).getInt("arg0"));
+    }
+
+    @Test
+    public void testParseFunction() {
+        AbiDefinition.Function function = SignatureDatabase.parseFunction("aggregate3((address,bool,bytes)[])");
+        Assertions.assertEquals("aggregate3((address,bool,bytes)[])", function.formatSignature());
+        Assertions.assertEquals(0x82ad56cb, function.selector());
+        Assertions.assertEquals("arg0", function.inputs.get(0).getName());
+        Assertions.assertEquals(3, function.inputs.get(0).getComponents().size());
+
+        Assertions.assertEquals("f()", SignatureDatabase.parseFunction("f()").formatSignature());
+        for (String invalid : new String[]{"f", "(uint256)", "f(uint256", "f(uint256,)", "f(foo)", "f((uint256)[2])", "f g(uint256)"}) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> SignatureDatabase.parseFunction(invalid), invalid);
+        }
+    }
+
+    @Test
+    public void testRejectsOtherContent() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SignatureDatabase.read(ByteBuffer.wrap(new byte[12])));
+        ByteBuffer truncated = ByteBuffer.allocate(12).putInt(SignatureDatabase.MAGIC).putInt(SignatureDatabase.VERSION).putInt(3);
+        truncated.flip();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SignatureDatabase.read(truncated));
+    }
+
+    private static SignatureDatabase database(String signatures) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SignatureDatabase.build(new StringReader(signatures), out);
+        return SignatureDatabase.read(ByteBuffer.wrap(out.toByteArray()));
+    }
+}